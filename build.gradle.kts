@@ -4,12 +4,15 @@ val flywayDependencyVersion = "11.14.1"
 val postgresqlDependencyVersion = "42.7.8"
 val checkstyleDependencyVersion = "12.1.0"
 val jacksonDatatypeDependencyVersion = "2.20.0"
+val datasourceProxyDependencyVersion = "1.11.0"
+val hdrHistogramDependencyVersion = "2.2.2"
 
 plugins {
     java
     checkstyle
     id("org.springframework.boot") version "3.5.6"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "kdodds"
@@ -30,6 +33,9 @@ checkstyle {
     maxErrors = 0 // Fail the build if any errors are found
 }
 
+// the load test harness (gradle loadTest), kept out of the application jar
+val load: SourceSet by sourceSets.creating
+
 configurations {
     compileOnly {
         extendsFrom(configurations.annotationProcessor.get())
@@ -51,6 +57,10 @@ dependencies {
     implementation("com.puppycrawl.tools:checkstyle:${checkstyleDependencyVersion}")
     // https://mvnrepository.com/artifact/com.fasterxml.jackson.core/jackson-databind
     implementation("com.fasterxml.jackson.datatype:jackson-datatype-jsr310:${jacksonDatatypeDependencyVersion}")
+    // https://mvnrepository.com/artifact/com.fasterxml.jackson.dataformat/jackson-dataformat-cbor
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
+    // https://mvnrepository.com/artifact/com.fasterxml.jackson.dataformat/jackson-dataformat-smile
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
     // https://mvnrepository.com/artifact/org.flywaydb/flyway-core
     implementation("org.flywaydb:flyway-core:${flywayDependencyVersion}")
     // https://mvnrepository.com/artifact/org.springframework.boot/spring-boot-starter-data-jpa
@@ -61,9 +71,21 @@ dependencies {
     implementation("org.springdoc:springdoc-openapi-starter-webmvc-ui:2.8.13")
     // https://mvnrepository.com/artifact/org.springframework.boot/spring-boot-starter-hateoas
     implementation("org.springframework.boot:spring-boot-starter-hateoas:${springBootFrameworkVersion}")
+    // https://mvnrepository.com/artifact/org.springframework.boot/spring-boot-starter-aop
+    implementation("org.springframework.boot:spring-boot-starter-aop:${springBootFrameworkVersion}")
+    // https://mvnrepository.com/artifact/org.springframework.boot/spring-boot-starter-webflux
+    implementation("org.springframework.boot:spring-boot-starter-webflux:${springBootFrameworkVersion}")
+    // https://mvnrepository.com/artifact/org.springframework.boot/spring-boot-starter-data-r2dbc
+    implementation("org.springframework.boot:spring-boot-starter-data-r2dbc:${springBootFrameworkVersion}")
+    // https://mvnrepository.com/artifact/net.ttddyy/datasource-proxy
+    implementation("net.ttddyy:datasource-proxy:${datasourceProxyDependencyVersion}")
 
     // https://mvnrepository.com/artifact/org.flywaydb/flyway-database-postgresql
     runtimeOnly("org.flywaydb:flyway-database-postgresql:${flywayDependencyVersion}")
+    // https://mvnrepository.com/artifact/org.postgresql/r2dbc-postgresql
+    runtimeOnly("org.postgresql:r2dbc-postgresql")
+    // https://mvnrepository.com/artifact/io.micrometer/micrometer-registry-prometheus
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
 
     compileOnly("org.projectlombok:lombok")
 
@@ -73,9 +95,27 @@ dependencies {
 
     testImplementation("org.springframework.boot:spring-boot-starter-test:${springBootFrameworkVersion}")
     // https://mvnrepository.com/artifact/com.h2database/h2
-    testImplementation("com.h2database:h2:2.4.240")
+    // held at 2.3.x, r2dbc-h2 1.0 calls engine internals that were changed in h2 2.4
+    testImplementation("com.h2database:h2:2.3.232")
+    // https://mvnrepository.com/artifact/io.r2dbc/r2dbc-h2
+    testRuntimeOnly("io.r2dbc:r2dbc-h2")
 
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    // seeded in-memory database for the UserSpecification benchmarks
+    jmhImplementation("com.h2database:h2:2.3.232")
+
+    // https://mvnrepository.com/artifact/org.hdrhistogram/HdrHistogram
+    "loadImplementation"("org.hdrhistogram:HdrHistogram:${hdrHistogramDependencyVersion}")
+    // https://mvnrepository.com/artifact/com.fasterxml.jackson.core/jackson-databind
+    "loadImplementation"("com.fasterxml.jackson.core:jackson-databind")
+    // https://mvnrepository.com/artifact/com.fasterxml.jackson.datatype/jackson-datatype-jsr310
+    "loadImplementation"("com.fasterxml.jackson.datatype:jackson-datatype-jsr310:${jacksonDatatypeDependencyVersion}")
+    // https://mvnrepository.com/artifact/org.postgresql/postgresql
+    "loadImplementation"("org.postgresql:postgresql:${postgresqlDependencyVersion}")
+
+    // the synthetic dataset generator, for integration tests that need more than a handful of users
+    testImplementation(load.output)
 }
 
 tasks.withType<Test> {
@@ -83,6 +123,57 @@ tasks.withType<Test> {
     systemProperty("spring.profiles.active", "test")
 }
 
+tasks.test {
+    useJUnitPlatform {
+        excludeTags("explain")
+    }
+}
+
+// gradle explainTest checks the Postgres plan of every repository query against the local database (see
+// application-explain.properties), it needs Postgres and is therefore not part of gradle test
+tasks.register<Test>("explainTest") {
+    group = "verification"
+    description = "Runs the EXPLAIN plan tests against the local Postgres"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("explain")
+    }
+    systemProperty("spring.profiles.active", "explain")
+    providers.gradleProperty("explainUsers").orNull?.let { systemProperty("explain.users", it) }
+}
+
+// gradle jmh runs every benchmark (or the ones matching -PjmhIncludes=<regex>) with the gc profiler and writes the
+// scores, including gc.alloc.rate.norm, as JSON named after the version, so releases can be compared side by side
+jmh {
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results-${project.version}.json")
+    profilers = listOf("gc")
+    includes = providers.gradleProperty("jmhIncludes").map { listOf(it) }.orElse(listOf())
+}
+
+// gradle loadTest drives a running instance at a fixed request rate, every -Pload.* property is passed on as a
+// system property (e.g. -Pload.rate=200 -Pload.duration=120s -Pload.label=pool-20)
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Runs the open-loop load test against a running instance"
+    classpath = load.runtimeClasspath
+    mainClass = "kdodds.userservice.load.LoadTest"
+    workingDir = projectDir
+    systemProperty("load.output-dir", layout.buildDirectory.dir("load-results").get().asFile.absolutePath)
+    systemProperties(project.properties.filterKeys { it.startsWith("load.") })
+}
+
+// gradle seedDataset writes a deterministic synthetic dataset to Postgres with COPY, every -Pdataset.* property is
+// passed on as a system property (e.g. -Pdataset.users=5000000 -Pdataset.seed=7)
+tasks.register<JavaExec>("seedDataset") {
+    group = "verification"
+    description = "Writes a synthetic dataset of users, profiles and addresses to Postgres"
+    classpath = load.runtimeClasspath
+    mainClass = "kdodds.userservice.load.dataset.SeedDataset"
+    systemProperties(project.properties.filterKeys { it.startsWith("dataset.") })
+}
+
 // ensure checkstyle tasks get the suppressions property
 tasks.withType<Checkstyle>().configureEach {
     configProperties?.set("checkstyle.suppressions.file",
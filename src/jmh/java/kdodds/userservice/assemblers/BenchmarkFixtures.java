@@ -0,0 +1,94 @@
+package kdodds.userservice.assemblers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kdodds.userservice.config.JacksonConfig;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.entities.UserProfile;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.EvoInflectorLinkRelationProvider;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Entities and mappers shared by the hot path benchmarks.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Builds a detached user, with profile and addresses loaded, the way JPA hands it to the mappers.
+     *
+     * @param index Makes the username and email unique within a page.
+     * @param addresses Number of addresses.
+     * @return User
+     */
+    static User user(int index, int addresses) {
+        final Instant now = Instant.EPOCH;
+
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername("silverfalcon" + index);
+        user.setEmail("falcon" + index + "@example.com");
+        user.setStatus("ACTIVE");
+        user.setCreatedAt(now);
+        user.setUpdatedAt(now);
+
+        UserProfile profile = new UserProfile();
+        profile.setUserId(user.getId());
+        profile.setFirstName("Jordan");
+        profile.setLastName("Rivers");
+        profile.setPhoneNumber("555-0100");
+        profile.setCreatedAt(now);
+        profile.setUpdatedAt(now);
+        user.setUserProfile(profile);
+
+        for (int i = 0; i < addresses; i++) {
+            user.addAddress(address(now));
+        }
+
+        return user;
+    }
+
+    /**
+     * Builds a detached address.
+     *
+     * @param now Creation and update time.
+     * @return UserAddress
+     */
+    static UserAddress address(Instant now) {
+        UserAddress address = new UserAddress();
+        address.setId(UUID.randomUUID());
+        address.setAddressType("home");
+        address.setAddressLine1("1200 Market Street");
+        address.setCity("Riverdale");
+        address.setState("NY");
+        address.setZipCode("10471");
+        address.setCountry("USA");
+        address.setCreatedAt(now);
+        address.setUpdatedAt(now);
+        return address;
+    }
+
+    /**
+     * The application's JSON mapper with the HAL module, what application/hal+json responses are written with.
+     *
+     * @return ObjectMapper
+     */
+    static ObjectMapper halMapper() {
+        ObjectMapper halMapper = new JacksonConfig().objectMapper();
+        halMapper.registerModule(new Jackson2HalModule());
+        halMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+            new EvoInflectorLinkRelationProvider(),
+            CurieProvider.NONE,
+            MessageResolver.DEFAULTS_ONLY
+        ));
+        return halMapper;
+    }
+
+}
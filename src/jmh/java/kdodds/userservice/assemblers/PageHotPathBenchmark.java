@@ -0,0 +1,109 @@
+package kdodds.userservice.assemblers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kdodds.userservice.config.JacksonConfig;
+import kdodds.userservice.dto.responses.PageDto;
+import kdodds.userservice.dto.responses.PagedUsersResponseDto;
+import kdodds.userservice.dto.responses.UserResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanPagedUsersResponseDto;
+import kdodds.userservice.entities.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.EntityModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User listing hot path for a page of loaded entities: the mapping UserService does, PagedUsersModelAssembler.toModel
+ * and the serialization through the {@link JacksonConfig} mapper, as HAL and as plain JSON. As in
+ * {@link UserHotPathBenchmark} the assembler benchmarks include the mapping, subtract {@link #mapPage()} for the
+ * assembler's share.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageHotPathBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int pageSize;
+
+    @Param({"0", "3", "20"})
+    private int addresses;
+
+    private List<User> users;
+
+    private ObjectMapper jsonMapper;
+
+    private ObjectMapper halMapper;
+
+    private final PagedUsersModelAssembler pagedUsersModelAssembler = new PagedUsersModelAssembler();
+
+    /**
+     * Builds the page of users and the mappers.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        users = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            users.add(BenchmarkFixtures.user(i, addresses));
+        }
+
+        jsonMapper = new JacksonConfig().objectMapper();
+        halMapper = BenchmarkFixtures.halMapper();
+    }
+
+    /**
+     * Entities to PagedUsersResponseDto, as UserService.getAllUsersPaginated maps a page.
+     */
+    @Benchmark
+    public PagedUsersResponseDto mapPage() {
+        List<UserResponseDto> userDtos = users.stream()
+            .map(UserResponseDto::fromEntity)
+            .toList();
+
+        return PagedUsersResponseDto.builder()
+            .users(userDtos)
+            .page(PageDto.builder().page(1).size(pageSize).totalPages(5).totalElements(5L * pageSize).build())
+            .build();
+    }
+
+    /**
+     * PagedUsersModelAssembler.toModel with pagination, user and address links.
+     */
+    @Benchmark
+    public EntityModel<PagedUsersResponseDto> toModel() {
+        return pagedUsersModelAssembler.toModel(mapPage());
+    }
+
+    /**
+     * The whole application/hal+json listing body.
+     */
+    @Benchmark
+    public byte[] serializeHal() throws Exception {
+        return halMapper.writeValueAsBytes(pagedUsersModelAssembler.toModel(mapPage()));
+    }
+
+    /**
+     * The whole application/json listing body, records without links.
+     */
+    @Benchmark
+    public byte[] serializeJson() throws Exception {
+        return jsonMapper.writeValueAsBytes(LeanPagedUsersResponseDto.from(mapPage()));
+    }
+
+}
@@ -0,0 +1,129 @@
+package kdodds.userservice.assemblers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kdodds.userservice.dto.responses.UserAddressResponseDto;
+import kdodds.userservice.dto.responses.UserAddressesResponseDto;
+import kdodds.userservice.dto.responses.UserProfileResponseDto;
+import kdodds.userservice.dto.responses.UserResponseDto;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.EntityModel;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single user hot path, from the loaded entity to the HAL bytes: entity to DTO mapping, each model assembler and the
+ * serialization through the {@link kdodds.userservice.config.JacksonConfig} mapper. The assemblers add their links to
+ * the DTO they are given, so every assembler benchmark maps a fresh DTO first; subtract {@link #fromEntity()} (or
+ * {@link #addressesFrom()}) to get the assembler's own share. Throughput and, with -prof gc, gc.alloc.rate.norm (bytes
+ * per call) are the numbers to compare across releases, see the jmh block of build.gradle.kts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserHotPathBenchmark {
+
+    @Param({"0", "3", "20"})
+    private int addresses;
+
+    private User user;
+
+    private String userId;
+
+    private UserAddress address;
+
+    private ObjectMapper halMapper;
+
+    private final UserModelAssembler userModelAssembler = new UserModelAssembler();
+
+    private final UserAddressModelAssembler userAddressModelAssembler = new UserAddressModelAssembler();
+
+    private final UserAddressesModelAssembler userAddressesModelAssembler = new UserAddressesModelAssembler();
+
+    private final UserProfileModelAssembler userProfileModelAssembler = new UserProfileModelAssembler();
+
+    /**
+     * Builds the user and the HAL mapper.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        user = BenchmarkFixtures.user(0, addresses);
+        userId = user.getId().toString();
+        address = BenchmarkFixtures.address(Instant.EPOCH);
+        address.setUser(user);
+        halMapper = BenchmarkFixtures.halMapper();
+    }
+
+    /**
+     * UserResponseDto.fromEntity, the mapping every HAL user response starts with.
+     */
+    @Benchmark
+    public UserResponseDto fromEntity() {
+        return UserResponseDto.fromEntity(user);
+    }
+
+    /**
+     * UserAddressesResponseDto.from, the mapping behind GET /v1/users/{userId}/addresses.
+     */
+    @Benchmark
+    public UserAddressesResponseDto addressesFrom() {
+        return UserAddressesResponseDto.from(userId, user.getAddresses());
+    }
+
+    /**
+     * UserModelAssembler.toModel, user links plus links per address.
+     */
+    @Benchmark
+    public EntityModel<UserResponseDto> userToModel() {
+        return userModelAssembler.toModel(UserResponseDto.fromEntity(user));
+    }
+
+    /**
+     * UserAddressesModelAssembler.toModel, collection links plus links per address.
+     */
+    @Benchmark
+    public EntityModel<UserAddressesResponseDto> addressesToModel() {
+        return userAddressesModelAssembler.toModel(UserAddressesResponseDto.from(userId, user.getAddresses()));
+    }
+
+    /**
+     * UserAddressModelAssembler.toModel for one address, independent of the address count.
+     */
+    @Benchmark
+    public EntityModel<UserAddressResponseDto> addressToModel() {
+        return userAddressModelAssembler.toModel(UserAddressResponseDto.fromEntity(address));
+    }
+
+    /**
+     * UserProfileModelAssembler.toModel, independent of the address count.
+     */
+    @Benchmark
+    public EntityModel<UserProfileResponseDto> profileToModel() {
+        return userProfileModelAssembler.toModel(UserProfileResponseDto.fromEntity(user.getUserProfile()));
+    }
+
+    /**
+     * The whole GET /v1/users/{userId} body: mapping, assembly and HAL serialization.
+     */
+    @Benchmark
+    public byte[] serializeUser() throws Exception {
+        return halMapper.writeValueAsBytes(userModelAssembler.toModel(UserResponseDto.fromEntity(user)));
+    }
+
+}
@@ -0,0 +1,137 @@
+package kdodds.userservice.dto.responses;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import kdodds.userservice.config.JacksonConfig;
+import kdodds.userservice.dto.responses.lean.LeanPagedUsersResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserAddressResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserResponseDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding and decoding a page of plain user records as JSON, CBOR and Smile, with the mappers configured the
+ * way {@link JacksonConfig} configures them. The payload size of each format is printed once per trial; snake case
+ * property names are kept in every format, so most of the saving comes from the binary framing of values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryFormatBenchmark {
+
+    private static final int ADDRESSES_PER_USER = 2;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private LeanPagedUsersResponseDto page;
+
+    private byte[] payload;
+
+    /**
+     * Builds the mapper for the format and the page, and reports the payload size.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        JacksonConfig config = new JacksonConfig();
+        ObjectMapper mapper = switch (format) {
+            case "cbor" -> config.cborMapper();
+            case "smile" -> config.smileMapper();
+            default -> config.objectMapper();
+        };
+        writer = mapper.writerFor(LeanPagedUsersResponseDto.class);
+        reader = mapper.readerFor(LeanPagedUsersResponseDto.class);
+
+        page = page();
+        payload = encode();
+
+        System.out.printf("%npayload bytes for %d users as %s: %d%n", pageSize, format, payload.length);
+    }
+
+    /**
+     * Serializes the page, what the server does for every plain read.
+     */
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return writer.writeValueAsBytes(page);
+    }
+
+    /**
+     * Deserializes the page, what a calling service does with the response.
+     */
+    @Benchmark
+    public LeanPagedUsersResponseDto decode() throws Exception {
+        return reader.readValue(payload);
+    }
+
+    private LeanPagedUsersResponseDto page() {
+        Instant now = Instant.EPOCH;
+        List<LeanUserResponseDto> users = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            String userId = UUID.randomUUID().toString();
+
+            List<LeanUserAddressResponseDto> addresses = new ArrayList<>(ADDRESSES_PER_USER);
+            for (int j = 0; j < ADDRESSES_PER_USER; j++) {
+                addresses.add(new LeanUserAddressResponseDto(
+                    UUID.randomUUID().toString(),
+                    userId,
+                    "home",
+                    "123 Main St",
+                    null,
+                    "Springfield",
+                    "IL",
+                    "62701",
+                    "US",
+                    now,
+                    now
+                ));
+            }
+
+            users.add(new LeanUserResponseDto(
+                userId,
+                "user" + i,
+                "user" + i + "@example.com",
+                "First",
+                "Last",
+                "555-0100",
+                null,
+                addresses,
+                now,
+                now
+            ));
+        }
+
+        return new LeanPagedUsersResponseDto(
+            users,
+            PageDto.builder().page(1).size(pageSize).totalPages(5).totalElements(5L * pageSize).build()
+        );
+    }
+
+}
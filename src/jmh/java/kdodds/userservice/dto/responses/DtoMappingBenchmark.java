@@ -0,0 +1,96 @@
+package kdodds.userservice.dto.responses;
+
+import kdodds.userservice.dto.responses.lean.LeanUserResponseDto;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.entities.UserProfile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping one user entity (profile and addresses loaded) to its response DTO: the Lombok builder based
+ * {@link UserResponseDto} used for HAL versus the {@link LeanUserResponseDto} record used for plain JSON. Run with
+ * -prof gc and compare gc.alloc.rate.norm, the bytes allocated per mapped user.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoMappingBenchmark {
+
+    @Param({"0", "3"})
+    private int addresses;
+
+    private User user;
+
+    /**
+     * Builds a detached user the way JPA would hand it to the mapper.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        final Instant now = Instant.now();
+
+        user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername("silverfalcon42");
+        user.setEmail("falcon42@example.com");
+        user.setStatus("ACTIVE");
+        user.setCreatedAt(now);
+        user.setUpdatedAt(now);
+
+        UserProfile profile = new UserProfile();
+        profile.setUserId(user.getId());
+        profile.setFirstName("Jordan");
+        profile.setLastName("Rivers");
+        profile.setPhoneNumber("555-0100");
+        profile.setCreatedAt(now);
+        profile.setUpdatedAt(now);
+        user.setUserProfile(profile);
+
+        for (int i = 0; i < addresses; i++) {
+            UserAddress address = new UserAddress();
+            address.setId(UUID.randomUUID());
+            address.setAddressLine1("1200 Market Street");
+            address.setCity("Riverdale");
+            address.setState("NY");
+            address.setZipCode("10471");
+            address.setCountry("USA");
+            address.setCreatedAt(now);
+            address.setUpdatedAt(now);
+            user.addAddress(address);
+        }
+    }
+
+    /**
+     * Builder, RepresentationModel link list and per address user id string.
+     */
+    @Benchmark
+    public UserResponseDto dto() {
+        return UserResponseDto.fromEntity(user);
+    }
+
+    /**
+     * Direct record constructors, pre-sized address list, one user id string shared by the addresses.
+     */
+    @Benchmark
+    public LeanUserResponseDto record() {
+        return LeanUserResponseDto.fromEntity(user);
+    }
+
+}
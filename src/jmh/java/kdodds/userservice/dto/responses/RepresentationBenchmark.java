@@ -0,0 +1,148 @@
+package kdodds.userservice.dto.responses;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kdodds.userservice.assemblers.PagedUsersModelAssembler;
+import kdodds.userservice.config.JacksonConfig;
+import kdodds.userservice.dto.responses.lean.LeanPagedUsersResponseDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.EvoInflectorLinkRelationProvider;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering a page of users as HAL (model assembler plus HAL serialization, what application/hal+json
+ * callers get) versus as plain records (what application/json callers get). Both start from freshly built response
+ * DTOs, as the assembler mutates them. The payload size of each representation is printed once per trial; run with
+ * -prof gc to compare allocation per page as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepresentationBenchmark {
+
+    private static final int ADDRESSES_PER_USER = 2;
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private ObjectMapper jsonMapper;
+
+    private ObjectMapper halMapper;
+
+    private PagedUsersModelAssembler pagedUsersModelAssembler;
+
+    private String[] userIds;
+
+    private String[] addressIds;
+
+    /**
+     * Builds the two mappers the way the application configures them and reports the payload sizes.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        jsonMapper = new JacksonConfig().objectMapper();
+
+        halMapper = new JacksonConfig().objectMapper();
+        halMapper.registerModule(new Jackson2HalModule());
+        halMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+            new EvoInflectorLinkRelationProvider(),
+            CurieProvider.NONE,
+            MessageResolver.DEFAULTS_ONLY
+        ));
+
+        pagedUsersModelAssembler = new PagedUsersModelAssembler();
+
+        userIds = new String[pageSize];
+        addressIds = new String[pageSize * ADDRESSES_PER_USER];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = UUID.randomUUID().toString();
+        }
+        for (int i = 0; i < addressIds.length; i++) {
+            addressIds[i] = UUID.randomUUID().toString();
+        }
+
+        System.out.printf(
+            "%npayload bytes for %d users: hal=%d json=%d%n",
+            pageSize,
+            hal().length,
+            json().length
+        );
+    }
+
+    /**
+     * application/hal+json: pagination, user and address links, serialized with the HAL module.
+     */
+    @Benchmark
+    public byte[] hal() throws Exception {
+        return halMapper.writeValueAsBytes(pagedUsersModelAssembler.toModel(page()));
+    }
+
+    /**
+     * application/json: the same page converted to records, no links.
+     */
+    @Benchmark
+    public byte[] json() throws Exception {
+        return jsonMapper.writeValueAsBytes(LeanPagedUsersResponseDto.from(page()));
+    }
+
+    private PagedUsersResponseDto page() {
+        Instant now = Instant.EPOCH;
+        List<UserResponseDto> users = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            List<UserAddressResponseDto> addresses = new ArrayList<>(ADDRESSES_PER_USER);
+            for (int j = 0; j < ADDRESSES_PER_USER; j++) {
+                addresses.add(UserAddressResponseDto.builder()
+                    .addressId(addressIds[i * ADDRESSES_PER_USER + j])
+                    .userId(userIds[i])
+                    .addressType("home")
+                    .addressLine1("123 Main St")
+                    .city("Springfield")
+                    .state("IL")
+                    .zipCode("62701")
+                    .country("US")
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+            }
+
+            users.add(UserResponseDto.builder()
+                .userId(userIds[i])
+                .username("user" + i)
+                .email("user" + i + "@example.com")
+                .firstName("First")
+                .lastName("Last")
+                .phoneNumber("555-0100")
+                .addresses(addresses)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        }
+
+        return PagedUsersResponseDto.builder()
+            .users(users)
+            .page(PageDto.builder().page(1).size(pageSize).totalPages(5).totalElements(5L * pageSize).build())
+            .build();
+    }
+
+}
@@ -0,0 +1,79 @@
+package kdodds.userservice.exceptions;
+
+import kdodds.userservice.exceptions.models.ErrorResponse;
+import kdodds.userservice.exceptions.models.exceptions.UserNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a 404 from the throw in the service to the response entity built by {@link UserExceptionHandler}. The throw
+ * happens below {@code depth} frames, roughly what the servlet filter chain, the dispatcher and the proxies put on the
+ * stack of a real request. {@code stackTrace} throws a plain runtime exception the way the domain exceptions used to
+ * be built, {@code stackless} throws the domain exception.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotFoundPathBenchmark {
+
+    @Param({"16", "128"})
+    private int depth;
+
+    private final UserExceptionHandler handler = new UserExceptionHandler();
+
+    private final UUID userId = UUID.randomUUID();
+
+    /**
+     * Throws and handles an exception that fills in its stack trace.
+     */
+    @Benchmark
+    public ResponseEntity<ErrorResponse> stackTrace() {
+        try {
+            throwAt(depth, false);
+            return null;
+        } catch (RuntimeException ex) {
+            return handler.handleDataNotFound(ex);
+        }
+    }
+
+    /**
+     * Throws and handles the stackless domain exception.
+     */
+    @Benchmark
+    public ResponseEntity<ErrorResponse> stackless() {
+        try {
+            throwAt(depth, true);
+            return null;
+        } catch (RuntimeException ex) {
+            return handler.handleDataNotFound(ex);
+        }
+    }
+
+    private int throwAt(int remaining, boolean stackless) {
+        if (remaining > 0) {
+            // the addition keeps the recursion from being turned into a loop
+            return throwAt(remaining - 1, stackless) + 1;
+        }
+
+        if (stackless) {
+            throw new UserNotFoundException(userId);
+        }
+        throw new RuntimeException("User with id " + userId + " not found");
+    }
+
+}
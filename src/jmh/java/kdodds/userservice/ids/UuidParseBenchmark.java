@@ -0,0 +1,53 @@
+package kdodds.userservice.ids;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a path variable into a UUID with {@link Uuids#parse(CharSequence)} and with
+ * {@link UUID#fromString(String)}, for a well formed id and for the kind of junk a scanner sends. The malformed case is
+ * where the exception thrown by {@link UUID#fromString(String)}, and the stack trace it fills in, dominates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UuidParseBenchmark {
+
+    @Param({"937758e0-abe0-4dd4-827d-b868169bc160", "937758e0-abe0-4dd4-827d-b868169bc16z"})
+    private String value;
+
+    /**
+     * Parses without exceptions, a malformed value yields null.
+     */
+    @Benchmark
+    public UUID parse() {
+        return Uuids.parse(value);
+    }
+
+    /**
+     * Parses with the JDK, a malformed value throws.
+     */
+    @Benchmark
+    public UUID fromString() {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+}
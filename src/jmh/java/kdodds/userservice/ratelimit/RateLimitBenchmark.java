@@ -0,0 +1,76 @@
+package kdodds.userservice.ratelimit;
+
+import kdodds.userservice.config.RateLimitProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the rate limiter's hot path: bucket lookup plus token consumption. Budget is under a
+ * microsecond per call, run with -prof gc to confirm the steady state does not allocate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimitBenchmark {
+
+    @Param({"1", "10000"})
+    private int clients;
+
+    private ClientRateLimiter clientRateLimiter;
+
+    private String[] clientKeys;
+
+    /**
+     * Builds a limiter with a budget large enough that every call takes the allowed path.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setListing(new RateLimitProperties.Budget(Integer.MAX_VALUE, Duration.ofSeconds(1)));
+        clientRateLimiter = new ClientRateLimiter(properties);
+
+        clientKeys = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            clientKeys[i] = "ip:10.0." + (i / 256) + "." + (i % 256);
+            clientRateLimiter.tryConsume(RateLimitTier.LISTING, clientKeys[i], System.nanoTime());
+        }
+    }
+
+    /**
+     * Single client hammering its own bucket.
+     */
+    @Benchmark
+    public long singleThread() {
+        String key = clientKeys[ThreadLocalRandom.current().nextInt(clients)];
+        return clientRateLimiter.tryConsume(RateLimitTier.LISTING, key, System.nanoTime());
+    }
+
+    /**
+     * Eight threads contending on the same map (and, with one client, the same bucket).
+     */
+    @Benchmark
+    @Threads(8)
+    public long contended() {
+        String key = clientKeys[ThreadLocalRandom.current().nextInt(clients)];
+        return clientRateLimiter.tryConsume(RateLimitTier.LISTING, key, System.nanoTime());
+    }
+
+}
@@ -0,0 +1,210 @@
+package kdodds.userservice.repositories.specifications;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserProfile;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.sqm.internal.QuerySqmImpl;
+import org.hibernate.query.sqm.tree.select.SqmSelectStatement;
+import org.hibernate.sql.ast.tree.select.SelectStatement;
+import org.hibernate.sql.exec.spi.JdbcParameterBindings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the listing filter path for every combination of the five filters, in three steps:
+ * <ul>
+ *     <li>{@link #criteria()}: UserSpecification.build and the criteria tree it creates, profile join included.</li>
+ *     <li>{@link #sql()}: the criteria query compiled to SQL. Hibernate does not cache plans of criteria queries, so
+ *     every listing request pays for this.</li>
+ *     <li>{@link #findAll()}: the first page of 20 through SimpleJpaRepository, the implementation behind
+ *     UserRepository.findAll(spec, pageable), including the count query and the profile loads.</li>
+ * </ul>
+ * The {@code filters} parameter names the active filters by letter: u(sername), e(mail), f(irst name), l(ast name)
+ * and s(tatus), "-" for none; narrow the run with e.g. -p filters=-,u,ufs. The database is an in-memory H2 seeded with
+ * {@value #USERS} users, the Postgres plans are covered by the EXPLAIN tests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserSpecificationBenchmark {
+
+    private static final int USERS = 10_000;
+
+    private static final String[] FIRST_NAMES = {"Jordan", "Avery", "Riley", "Morgan", "Casey", "Quinn", "Harper"};
+
+    private static final String[] LAST_NAMES = {"Rivers", "Anderson", "Nguyen", "Johnson", "Garcia", "Patel", "Kim"};
+
+    @Param({
+        "-", "u", "e", "f", "l", "s",
+        "ue", "uf", "ul", "us", "ef", "el", "es", "fl", "fs", "ls",
+        "uef", "uel", "ues", "ufl", "ufs", "uls", "efl", "efs", "els", "fls",
+        "uefl", "uefs", "uels", "ufls", "efls",
+        "uefls"
+    })
+    private String filters;
+
+    private LocalContainerEntityManagerFactoryBean entityManagerFactoryBean;
+
+    private EntityManager entityManager;
+
+    private SimpleJpaRepository<User, UUID> repository;
+
+    private UserFilter filter;
+
+    /**
+     * Creates the schema, seeds the users and builds the filter for this parameter.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:specification-benchmark;DB_CLOSE_DELAY=-1");
+
+        // plain JPA bootstrap, the Spring Boot auto-configuration is not usable from the flattened jmh jar
+        entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(dataSource);
+        entityManagerFactoryBean.setPackagesToScan(User.class.getPackageName());
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactoryBean.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create-drop"));
+        entityManagerFactoryBean.afterPropertiesSet();
+
+        EntityManagerFactory entityManagerFactory = entityManagerFactoryBean.getObject();
+        seed(entityManagerFactory);
+
+        entityManager = entityManagerFactory.createEntityManager();
+        repository = new SimpleJpaRepository<>(User.class, entityManager);
+        filter = UserFilter.of(
+            value('u', "12"),
+            value('e', "example3"),
+            value('f', "or"),
+            value('l', "an"),
+            value('s', "active")
+        );
+    }
+
+    /**
+     * Closes the entity manager and drops the schema.
+     */
+    @TearDown(Level.Trial)
+    public void teardown() {
+        entityManager.close();
+        entityManagerFactoryBean.destroy();
+    }
+
+    /**
+     * Builds the specification and applies it to a fresh criteria query.
+     */
+    @Benchmark
+    public CriteriaQuery<User> criteria() {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<User> query = cb.createQuery(User.class);
+        Root<User> root = query.from(User.class);
+        query.where(UserSpecification.build(filter).toPredicate(root, query, cb));
+        return query;
+    }
+
+    /**
+     * Builds the criteria query and compiles it to SQL, the way Hibernate does on each execution.
+     */
+    @Benchmark
+    public String sql() {
+        QuerySqmImpl<?> query = entityManager.createQuery(criteria()).unwrap(QuerySqmImpl.class);
+        SessionFactoryImplementor sessionFactory = entityManager.getEntityManagerFactory()
+            .unwrap(SessionFactoryImplementor.class);
+
+        SelectStatement sqlAst = sessionFactory.getQueryEngine().getSqmTranslatorFactory()
+            .createSelectTranslator(
+                (SqmSelectStatement<?>) query.getSqmStatement(),
+                query.getQueryOptions(),
+                query.getDomainParameterXref(),
+                query.getQueryParameterBindings(),
+                entityManager.unwrap(SessionImplementor.class).getLoadQueryInfluencers(),
+                sessionFactory,
+                true
+            )
+            .translate()
+            .getSqlAst();
+
+        return sessionFactory.getJdbcServices().getJdbcEnvironment().getSqlAstTranslatorFactory()
+            .buildSelectTranslator(sessionFactory, sqlAst)
+            .translate(JdbcParameterBindings.NO_BINDINGS, query.getQueryOptions())
+            .getSqlString();
+    }
+
+    /**
+     * Runs the listing query for the first page, then detaches the loaded users.
+     */
+    @Benchmark
+    public Page<User> findAll() {
+        Page<User> page = repository.findAll(UserSpecification.build(filter), PageRequest.of(0, 20));
+        entityManager.clear();
+        return page;
+    }
+
+    private String value(char letter, String value) {
+        return filters.indexOf(letter) >= 0 ? value : null;
+    }
+
+    private static void seed(EntityManagerFactory entityManagerFactory) {
+        final Instant now = Instant.EPOCH;
+
+        EntityManager seeder = entityManagerFactory.createEntityManager();
+        seeder.getTransaction().begin();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setUsername("user" + i);
+            user.setEmail("user" + i + "@example" + (i % 10) + ".com");
+            user.setPasswordHash("hash");
+            // one in ten users is inactive
+            user.setStatus(i % 10 == 0 ? "INACTIVE" : "ACTIVE");
+            user.setCreatedAt(now);
+            user.setUpdatedAt(now);
+
+            UserProfile profile = new UserProfile();
+            profile.setFirstName(FIRST_NAMES[i % FIRST_NAMES.length]);
+            profile.setLastName(LAST_NAMES[i % LAST_NAMES.length]);
+            profile.setCreatedAt(now);
+            profile.setUpdatedAt(now);
+            user.setUserProfile(profile);
+
+            seeder.persist(user);
+            if (i % 500 == 499) {
+                seeder.flush();
+                seeder.clear();
+            }
+        }
+        seeder.getTransaction().commit();
+        seeder.close();
+    }
+
+}
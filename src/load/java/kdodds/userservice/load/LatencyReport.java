@@ -0,0 +1,135 @@
+package kdodds.userservice.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prints the results of a run and writes them to a directory named after the run's label: {@code summary.json} with
+ * the settings, percentiles and status counts per operation, and one HdrHistogram percentile distribution
+ * ({@code <operation>.hgrm}, in milliseconds) per operation that can be plotted or compared with other runs in the
+ * HdrHistogram plotter.
+ */
+public class LatencyReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LoadSettings settings;
+
+    private final Map<Operation, OperationResults> results;
+
+    private final long maxDispatchLagNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param settings The run settings.
+     * @param results Results per operation.
+     * @param maxDispatchLagNanos Furthest a request was sent after it was due.
+     */
+    public LatencyReport(LoadSettings settings, Map<Operation, OperationResults> results, long maxDispatchLagNanos) {
+        this.settings = settings;
+        this.results = results;
+        this.maxDispatchLagNanos = maxDispatchLagNanos;
+    }
+
+    /**
+     * Prints one line per operation with the response time percentiles in milliseconds and the status counts.
+     *
+     * @param out Where to print.
+     */
+    public void print(PrintStream out) {
+        out.printf("%-10s %8s %9s %8s %8s %8s %8s %8s %6s %6s %6s %6s %6s%n", "operation", "requests", "req/s", "p50",
+            "p90", "p99", "p99.9", "max", "4xx", "429", "503", "5xx", "error");
+        results.forEach((operation, result) -> {
+            Histogram histogram = result.getResponseTime();
+            out.printf("%-10s %8d %9.1f", operation, result.getTotal(), throughput(result));
+            for (double percentile : PERCENTILES) {
+                out.printf(" %8.2f", histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI);
+            }
+            out.printf(" %8.2f %6d %6d %6d %6d %6d%n", histogram.getMaxValue() / MICROS_PER_MILLI,
+                result.getClientError(), result.getRateLimited(), result.getUnavailable(), result.getServerError(),
+                result.getFailed());
+        });
+        out.printf("Response times in ms from when each request was due, max dispatch lag %.2f ms%n",
+            maxDispatchLagNanos / 1_000_000.0);
+    }
+
+    /**
+     * Writes the summary and the histograms.
+     *
+     * @return The directory written to.
+     * @throws IOException If a file could not be written.
+     */
+    public Path write() throws IOException {
+        Path directory = settings.outputDirectory().resolve(settings.label());
+        Files.createDirectories(directory);
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (Map.Entry<Operation, OperationResults> entry : results.entrySet()) {
+            OperationResults result = entry.getValue();
+            Path histogramFile = directory.resolve(entry.getKey() + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(histogramFile))) {
+                result.getResponseTime().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", result.getTotal());
+            summary.put("throughput", throughput(result));
+            summary.put("responseTimeMillis", percentiles(result.getResponseTime()));
+            summary.put("serviceTimeMillis", percentiles(result.getServiceTime()));
+            summary.put("status", Map.of(
+                "success", result.getSuccess(),
+                "clientError", result.getClientError(),
+                "rateLimited", result.getRateLimited(),
+                "unavailable", result.getUnavailable(),
+                "serverError", result.getServerError(),
+                "failed", result.getFailed()
+            ));
+            operations.put(entry.getKey().getName(), summary);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", settings);
+        report.put("maxDispatchLagMillis", maxDispatchLagNanos / 1_000_000.0);
+        report.put("operations", operations);
+        new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+            .enable(SerializationFeature.WRITE_ENUMS_USING_TO_STRING)
+            .writerWithDefaultPrettyPrinter()
+            .writeValue(directory.resolve("summary.json").toFile(), report);
+
+        return directory;
+    }
+
+    private double throughput(OperationResults result) {
+        return result.getTotal() / (double) settings.duration().toMillis() * 1000;
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        percentiles.put("mean", histogram.getMean() / MICROS_PER_MILLI);
+        for (double percentile : PERCENTILES) {
+            percentiles.put(label(percentile), histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI);
+        }
+        percentiles.put("max", histogram.getMaxValue() / MICROS_PER_MILLI);
+        return percentiles;
+    }
+
+    private static String label(double percentile) {
+        // p50 and p99.9 rather than p50.0
+        boolean whole = percentile == Math.rint(percentile);
+        return "p" + (whole ? String.valueOf((long) percentile) : String.valueOf(percentile));
+    }
+
+}
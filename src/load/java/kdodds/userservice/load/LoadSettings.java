@@ -0,0 +1,118 @@
+package kdodds.userservice.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, read from load.* system properties (gradle loadTest -Pload.rate=200 passes them on).
+ *
+ * @param baseUrl Service root including the context path.
+ * @param rate Requests started per second, whether or not earlier ones have completed.
+ * @param warmup Time run before measuring, results are discarded.
+ * @param duration Time measured after the warmup.
+ * @param mix Relative weight of each operation.
+ * @param clients Number of distinct X-API-Key values requests are spread over, so per-client rate limits apply as
+ *     they would to that many callers.
+ * @param pageSize Page size of the listing requests.
+ * @param timeout Time after which a request counts as failed.
+ * @param seed Seed of the operation and user picks, runs with the same seed and users send the same requests.
+ * @param seedUsers Users created before the run when the database has none.
+ * @param popularity Zipf exponent of user popularity, 0 picks users uniformly.
+ * @param datasetUsers Users written by gradle seedDataset, their ids are derived instead of read from the service. 0
+ *     reads up to 1000 users from the service.
+ * @param datasetSeed Seed the dataset was written with.
+ * @param label Name of the run, e.g. the configuration under test, used for the results directory.
+ * @param outputDirectory Directory the results directory is created in.
+ */
+public record LoadSettings(
+    String baseUrl,
+    int rate,
+    Duration warmup,
+    Duration duration,
+    Map<Operation, Integer> mix,
+    int clients,
+    int pageSize,
+    Duration timeout,
+    long seed,
+    int seedUsers,
+    double popularity,
+    int datasetUsers,
+    long datasetSeed,
+    String label,
+    Path outputDirectory
+) {
+
+    private static final DateTimeFormatter LABEL_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final String DEFAULT_MIX = "list=10,get=40,profile=15,addresses=15,create=10,patch=5,address=5";
+
+    /**
+     * Reads the settings, falling back to the defaults for any property that is not set.
+     *
+     * @return LoadSettings
+     */
+    public static LoadSettings fromSystemProperties() {
+        return new LoadSettings(
+            System.getProperty("load.base-url", "http://localhost:8080/api"),
+            Integer.parseInt(System.getProperty("load.rate", "100")),
+            duration(System.getProperty("load.warmup", "10s")),
+            duration(System.getProperty("load.duration", "60s")),
+            mix(System.getProperty("load.mix", DEFAULT_MIX)),
+            Integer.parseInt(System.getProperty("load.clients", "100")),
+            Integer.parseInt(System.getProperty("load.page-size", "20")),
+            duration(System.getProperty("load.timeout", "10s")),
+            Long.parseLong(System.getProperty("load.seed", "42")),
+            Integer.parseInt(System.getProperty("load.seed-users", "100")),
+            Double.parseDouble(System.getProperty("load.popularity", "1.0")),
+            Integer.parseInt(System.getProperty("load.dataset-users", "0")),
+            Long.parseLong(System.getProperty("load.dataset-seed", "42")),
+            System.getProperty("load.label", LocalDateTime.now().format(LABEL_FORMAT)),
+            Path.of(System.getProperty("load.output-dir", "build/load-results"))
+        );
+    }
+
+    /**
+     * Parses a duration written as a number with an ms, s or m suffix, e.g. 90s.
+     *
+     * @param value The duration.
+     * @return Duration
+     */
+    static Duration duration(String value) {
+        String trimmed = value.trim().toLowerCase(Locale.ROOT);
+        if (trimmed.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+        }
+        if (trimmed.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+        }
+        if (trimmed.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+        }
+        throw new IllegalArgumentException(String.format("Invalid duration %s, expected e.g. 500ms, 30s or 5m", value));
+    }
+
+    /**
+     * Parses an operation mix written as name=weight pairs, e.g. get=80,create=20. Operations left out are not run.
+     *
+     * @param value The mix.
+     * @return Weight per operation.
+     */
+    static Map<Operation, Integer> mix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String pair : value.split(",")) {
+            String[] parts = pair.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(String.format("Invalid mix entry %s, expected name=weight", pair));
+            }
+            mix.put(Operation.named(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+
+        return mix;
+    }
+
+}
@@ -0,0 +1,106 @@
+package kdodds.userservice.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kdodds.userservice.load.dataset.SyntheticDataset;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Runs a load test against a running instance, see the Load Testing section of the README. Settings are read from
+ * load.* system properties, {@code gradle loadTest -Pload.rate=200 -Pload.label=pool-20} passes them on.
+ */
+public final class LoadTest {
+
+    private static final String SETUP_API_KEY = "load-test-setup";
+
+    private static final int DISCOVERY_PAGE_SIZE = 1000;
+
+    private LoadTest() {
+    }
+
+    /**
+     * Entry point.
+     *
+     * @param args Unused, settings are system properties.
+     * @throws Exception If the service could not be reached or the results could not be written.
+     */
+    public static void main(String[] args) throws Exception {
+        LoadSettings settings = LoadSettings.fromSystemProperties();
+        String runId = UUID.randomUUID().toString().substring(0, 8);
+        HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(settings.timeout())
+            .build();
+
+        UserPicker userPicker = settings.datasetUsers() > 0
+            ? UserPicker.of(
+                new SyntheticDataset(settings.datasetSeed()), settings.datasetUsers(), settings.popularity()
+            )
+            : UserPicker.of(userIds(settings, httpClient, runId), settings.popularity());
+        System.out.printf("Run %s: %d req/s for %s after a %s warmup against %s, %d users%n", settings.label(),
+            settings.rate(), settings.duration(), settings.warmup(), settings.baseUrl(), userPicker.size());
+
+        OpenLoopDriver driver = new OpenLoopDriver(settings, httpClient, userPicker, runId);
+        Map<Operation, OperationResults> results = driver.run();
+
+        LatencyReport report = new LatencyReport(settings, results, driver.getMaxDispatchLagNanos());
+        report.print(System.out);
+        Path directory = report.write();
+        System.out.printf("Results written to %s%n", directory.toAbsolutePath());
+    }
+
+    private static List<String> userIds(LoadSettings settings, HttpClient httpClient, String runId)
+        throws IOException, InterruptedException {
+        List<String> userIds = listUserIds(settings, httpClient);
+        if (!userIds.isEmpty()) {
+            return userIds;
+        }
+
+        System.out.printf("No users found, creating %d%n", settings.seedUsers());
+        for (long i = 0; i < settings.seedUsers(); i++) {
+            HttpRequest request = Operation.CREATE.request(settings, null, i, runId + "-setup")
+                // the keys of the load clients, the service only grants the configured keys a write budget each
+                .header("X-API-Key", "load-test-" + (i % settings.clients()))
+                .build();
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 300) {
+                throw new IllegalStateException(String.format("Creating a user failed with %d", response.statusCode()));
+            }
+        }
+
+        return listUserIds(settings, httpClient);
+    }
+
+    private static List<String> listUserIds(LoadSettings settings, HttpClient httpClient)
+        throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create(settings.baseUrl() + "/v1/users?page=0&size=" + DISCOVERY_PAGE_SIZE))
+            .header("Accept", "application/json")
+            .header("X-API-Key", SETUP_API_KEY)
+            .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(String.format(
+                "Listing users at %s failed with %d", request.uri(), response.statusCode()
+            ));
+        }
+
+        List<String> userIds = new ArrayList<>();
+        for (JsonNode user : new ObjectMapper().readTree(response.body()).path("users")) {
+            userIds.add(user.path("user_id").asText());
+        }
+
+        return userIds;
+    }
+
+}
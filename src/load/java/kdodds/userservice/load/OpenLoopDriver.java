@@ -0,0 +1,137 @@
+package kdodds.userservice.load;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a fixed rate regardless of how fast the service answers (an open loop), the way independent
+ * callers arrive. Request i is due at {@code start + i / rate} and is sent on its own virtual thread, so a slow
+ * response never delays the next request. A closed loop, where each client waits for its response before sending
+ * again, sends less when the service slows down and never records the requests it held back (coordinated omission);
+ * its percentiles describe a service that is faster than the one callers see.
+ *
+ * <p>Latency is measured from the time a request was due, not from when it was sent, so the report stays honest even
+ * when the generator itself falls behind. How far it fell behind is reported as the dispatch lag.
+ */
+public class OpenLoopDriver {
+
+    private static final String API_KEY_HEADER = "X-API-Key";
+
+    private final LoadSettings settings;
+
+    private final HttpClient httpClient;
+
+    private final UserPicker userPicker;
+
+    private final String runId;
+
+    private final Map<Operation, OperationResults> results = new EnumMap<>(Operation.class);
+
+    private final AtomicLong maxDispatchLagNanos = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param settings The run settings.
+     * @param httpClient The client to send with.
+     * @param userPicker Picks the user of the single user operations.
+     * @param runId Unique id of the run, keeps created usernames unique across runs.
+     */
+    public OpenLoopDriver(LoadSettings settings, HttpClient httpClient, UserPicker userPicker, String runId) {
+        this.settings = settings;
+        this.httpClient = httpClient;
+        this.userPicker = userPicker;
+        this.runId = runId;
+        settings.mix().keySet().forEach(operation -> results.put(operation, new OperationResults()));
+    }
+
+    /**
+     * Runs the warmup and the measurement and waits for every request sent to finish.
+     *
+     * @return Results per operation, for the requests due after the warmup.
+     * @throws InterruptedException If interrupted while pacing or waiting.
+     */
+    public Map<Operation, OperationResults> run() throws InterruptedException {
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / (double) settings.rate();
+        long warmupRequests = settings.warmup().toMillis() * settings.rate() / 1000;
+        long totalRequests = warmupRequests + settings.duration().toMillis() * settings.rate() / 1000;
+        // a seeded random picks the operations and users, two runs with the same settings send the same requests
+        SplittableRandom random = new SplittableRandom(settings.seed());
+        Operation[] schedule = schedule();
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < totalRequests; i++) {
+                long due = start + (long) (i * intervalNanos);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                maxDispatchLagNanos.accumulateAndGet(-wait, Math::max);
+
+                Operation operation = schedule[random.nextInt(schedule.length)];
+                String userId = userPicker.pick(random);
+                HttpRequest request = operation.request(settings, userId, i, runId)
+                    .header(API_KEY_HEADER, "load-test-" + (i % settings.clients()))
+                    .timeout(settings.timeout())
+                    .build();
+                OperationResults recordTo = i >= warmupRequests ? results.get(operation) : null;
+
+                executor.execute(() -> send(request, due, recordTo));
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Gets the furthest a request was sent after it was due, the generator could not keep up if this is more than a
+     * few milliseconds.
+     *
+     * @return Lag in nanoseconds.
+     */
+    public long getMaxDispatchLagNanos() {
+        return maxDispatchLagNanos.get();
+    }
+
+    private void send(HttpRequest request, long due, OperationResults recordTo) {
+        long sent = System.nanoTime();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            if (recordTo != null) {
+                long now = System.nanoTime();
+                recordTo.record(response.statusCode(), micros(now - due), micros(now - sent));
+            }
+        } catch (IOException ex) {
+            if (recordTo != null) {
+                long now = System.nanoTime();
+                recordTo.recordFailure(micros(now - due), micros(now - sent));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Operation[] schedule() {
+        // one slot per unit of weight, a uniform pick over the slots follows the mix
+        return settings.mix().entrySet().stream()
+            .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+            .toArray(Operation[]::new);
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
@@ -0,0 +1,111 @@
+package kdodds.userservice.load;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The requests the load test sends, one per v1 endpoint family. Reads ask for HAL, the default representation.
+ */
+public enum Operation {
+
+    LIST("list", false),
+    GET("get", false),
+    PROFILE("profile", false),
+    ADDRESSES("addresses", false),
+    CREATE("create", true),
+    PATCH("patch", true),
+    ADDRESS("address", true);
+
+    private static final String HAL_JSON = "application/hal+json";
+
+    private static final String JSON = "application/json";
+
+    private final String name;
+
+    private final boolean write;
+
+    Operation(String name, boolean write) {
+        this.name = name;
+        this.write = write;
+    }
+
+    /**
+     * Looks an operation up by the name used in the mix setting.
+     *
+     * @param name The operation name.
+     * @return Operation
+     */
+    public static Operation named(String name) {
+        return Arrays.stream(values())
+            .filter(operation -> operation.name.equals(name.toLowerCase(Locale.ROOT)))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException(String.format(
+                "Unknown operation %s, expected one of %s", name, Arrays.toString(values())
+            )));
+    }
+
+    /**
+     * Gets the name used in the mix setting and the results.
+     *
+     * @return The operation name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether the operation changes data.
+     *
+     * @return True for creates and updates.
+     */
+    public boolean isWrite() {
+        return write;
+    }
+
+    /**
+     * Builds the request.
+     *
+     * @param settings The run settings.
+     * @param userId An existing user, for the operations on one user.
+     * @param sequence Unique number of the request within the run, keeps created usernames and emails unique.
+     * @param runId Unique id of the run.
+     * @return The request, without the API key header.
+     */
+    public HttpRequest.Builder request(LoadSettings settings, String userId, long sequence, String runId) {
+        String users = settings.baseUrl() + "/v1/users";
+        return switch (this) {
+            case LIST -> get(users + "?page=" + (sequence % 10) + "&size=" + settings.pageSize());
+            case GET -> get(users + "/" + userId);
+            case PROFILE -> get(users + "/" + userId + "/profile");
+            case ADDRESSES -> get(users + "/" + userId + "/addresses");
+            case CREATE -> send("POST", users, String.format("""
+                {"username": "load-%1$s-%2$d", "password": "load-test-password", \
+                "email": "load-%1$s-%2$d@example.com", "first_name": "Load", "last_name": "Test", \
+                "phone_number": "555-0100"}""", runId, sequence));
+            case PATCH -> send("PATCH", users + "/" + userId, String.format("""
+                {"phone_number": "555-%04d"}""", sequence % 10_000));
+            case ADDRESS -> send("POST", users + "/" + userId + "/addresses", """
+                {"address_type": "shipping", "address_line_1": "1200 Market Street", "city": "Riverdale", \
+                "state": "NY", "zip_code": "10471", "country": "USA"}""");
+        };
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static HttpRequest.Builder get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).header("Accept", HAL_JSON).GET();
+    }
+
+    private static HttpRequest.Builder send(String method, String uri, String body) {
+        return HttpRequest.newBuilder(URI.create(uri))
+            .header("Accept", HAL_JSON)
+            .header("Content-Type", JSON)
+            .method(method, HttpRequest.BodyPublishers.ofString(body));
+    }
+
+}
@@ -0,0 +1,152 @@
+package kdodds.userservice.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of one operation, recorded from many request threads at once. Latencies are in
+ * microseconds.
+ */
+public class OperationResults {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    // time from when the request was due to be sent, includes any time it waited behind a slow generator or a slow
+    // connection, the latency a caller arriving at that moment would have seen
+    private final Histogram responseTime = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+
+    // time from when the request was actually sent, what the service's own metrics report
+    private final Histogram serviceTime = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+
+    private final LongAdder success = new LongAdder();
+
+    private final LongAdder clientError = new LongAdder();
+
+    private final LongAdder rateLimited = new LongAdder();
+
+    private final LongAdder unavailable = new LongAdder();
+
+    private final LongAdder serverError = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Records a request that got a response.
+     *
+     * @param status The response status.
+     * @param responseMicros Time since the request was due.
+     * @param serviceMicros Time since the request was sent.
+     */
+    public void record(int status, long responseMicros, long serviceMicros) {
+        responseTime.recordValue(responseMicros);
+        serviceTime.recordValue(serviceMicros);
+        if (status < 400) {
+            success.increment();
+        } else if (status == 429) {
+            rateLimited.increment();
+        } else if (status == 503) {
+            unavailable.increment();
+        } else if (status < 500) {
+            clientError.increment();
+        } else {
+            serverError.increment();
+        }
+    }
+
+    /**
+     * Records a request that got no response, e.g. a timeout or a refused connection. The time until it failed still
+     * counts, leaving it out would hide exactly the slowest requests.
+     *
+     * @param responseMicros Time since the request was due.
+     * @param serviceMicros Time since the request was sent.
+     */
+    public void recordFailure(long responseMicros, long serviceMicros) {
+        responseTime.recordValue(responseMicros);
+        serviceTime.recordValue(serviceMicros);
+        failed.increment();
+    }
+
+    /**
+     * Gets the time from when each request was due until its response.
+     *
+     * @return Histogram in microseconds.
+     */
+    public Histogram getResponseTime() {
+        return responseTime;
+    }
+
+    /**
+     * Gets the time from when each request was sent until its response.
+     *
+     * @return Histogram in microseconds.
+     */
+    public Histogram getServiceTime() {
+        return serviceTime;
+    }
+
+    /**
+     * Gets the number of requests answered with a 1xx to 3xx status.
+     *
+     * @return Request count.
+     */
+    public long getSuccess() {
+        return success.sum();
+    }
+
+    /**
+     * Gets the number of requests answered with a 4xx status other than 429.
+     *
+     * @return Request count.
+     */
+    public long getClientError() {
+        return clientError.sum();
+    }
+
+    /**
+     * Gets the number of requests rejected by the rate limiter.
+     *
+     * @return Request count.
+     */
+    public long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    /**
+     * Gets the number of requests shed by the concurrency limiter or the database permits.
+     *
+     * @return Request count.
+     */
+    public long getUnavailable() {
+        return unavailable.sum();
+    }
+
+    /**
+     * Gets the number of requests answered with a 5xx status other than 503.
+     *
+     * @return Request count.
+     */
+    public long getServerError() {
+        return serverError.sum();
+    }
+
+    /**
+     * Gets the number of requests that got no response.
+     *
+     * @return Request count.
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Gets the number of requests recorded.
+     *
+     * @return Request count.
+     */
+    public long getTotal() {
+        return responseTime.getTotalCount();
+    }
+
+}
@@ -0,0 +1,75 @@
+package kdodds.userservice.load;
+
+import kdodds.userservice.load.dataset.SyntheticDataset;
+import kdodds.userservice.load.dataset.ZipfDistribution;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.LongFunction;
+
+/**
+ * Picks the user each single user request is about. Popularity follows a Zipf distribution, a few users get most of
+ * the requests the way a few accounts do in production, which is what decides how well caches and the buffer pool
+ * hold up. Popularity ranks are scattered over the users so the popular ones are not all the oldest or newest.
+ */
+public final class UserPicker {
+
+    // prime, so rank * STRIDE mod n visits every index once for any n it does not divide
+    private static final long STRIDE = 1_000_000_007L;
+
+    private final LongFunction<String> userIdAt;
+
+    private final ZipfDistribution popularity;
+
+    private final long stride;
+
+    private UserPicker(LongFunction<String> userIdAt, int users, double exponent) {
+        this.userIdAt = userIdAt;
+        this.popularity = new ZipfDistribution(users, exponent);
+        this.stride = users % STRIDE == 0 ? 1 : STRIDE;
+    }
+
+    /**
+     * Picks from users read from the service.
+     *
+     * @param userIds The user ids.
+     * @param exponent Popularity skew, 0 for uniform.
+     * @return UserPicker
+     */
+    public static UserPicker of(List<String> userIds, double exponent) {
+        return new UserPicker(index -> userIds.get((int) index), userIds.size(), exponent);
+    }
+
+    /**
+     * Picks from the users a synthetic dataset wrote, without reading them from the service.
+     *
+     * @param dataset The dataset, with the seed it was written with.
+     * @param users Number of users written.
+     * @param exponent Popularity skew, 0 for uniform.
+     * @return UserPicker
+     */
+    public static UserPicker of(SyntheticDataset dataset, int users, double exponent) {
+        return new UserPicker(index -> dataset.userId(index).toString(), users, exponent);
+    }
+
+    /**
+     * Picks a user.
+     *
+     * @param random The random source.
+     * @return User id.
+     */
+    public String pick(SplittableRandom random) {
+        long rank = popularity.sample(random);
+        return userIdAt.apply(rank * stride % popularity.size());
+    }
+
+    /**
+     * Gets the number of users picked from.
+     *
+     * @return User count.
+     */
+    public int size() {
+        return popularity.size();
+    }
+
+}
@@ -0,0 +1,208 @@
+package kdodds.userservice.load.dataset;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+
+/**
+ * Writes a {@link SyntheticDataset} to the users, user_profiles and user_addresses tables in chunks of users, several
+ * chunks at a time, each on its own connection and in its own transaction. On Postgres a chunk is streamed with COPY,
+ * an order of magnitude faster than inserts; on other databases (H2 in the tests) it falls back to batched inserts.
+ * Tables are expected to exist and to hold none of the generated ids.
+ */
+public class DatasetLoader {
+
+    private static final String USERS_COLUMNS =
+        "users (id, username, email, password_hash, status, created_at, updated_at, version)";
+
+    private static final String PROFILES_COLUMNS =
+        "user_profiles (user_id, first_name, last_name, phone_number, profile_image_url, created_at, updated_at, "
+            + "version)";
+
+    private static final String ADDRESSES_COLUMNS =
+        "user_addresses (id, user_id, address_type, address_line_1, address_line_2, city, state, zip_code, country, "
+            + "created_at, updated_at, version)";
+
+    private final SyntheticDataset dataset;
+
+    private final DataSource dataSource;
+
+    private final AtomicLong addresses = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param dataset The users to write.
+     * @param dataSource Where to write them.
+     */
+    public DatasetLoader(SyntheticDataset dataset, DataSource dataSource) {
+        this.dataset = dataset;
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Writes users {@code 0..users-1}. A chunk that fails is rolled back, chunks already committed stay.
+     *
+     * @param users Number of users.
+     * @param chunkSize Users per chunk and transaction.
+     * @param threads Chunks written at the same time.
+     * @return Number of addresses written.
+     * @throws SQLException If a chunk could not be written.
+     * @throws InterruptedException If interrupted while waiting for the chunks.
+     */
+    public long load(long users, int chunkSize, int threads) throws SQLException, InterruptedException {
+        List<Future<?>> chunks = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (long from = 0; from < users; from += chunkSize) {
+                long chunkFrom = from;
+                long chunkTo = Math.min(users, from + chunkSize);
+                chunks.add(executor.submit(() -> {
+                    writeChunk(chunkFrom, chunkTo);
+                    return null;
+                }));
+            }
+
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new IllegalStateException("Writing a chunk of users failed", ex.getCause());
+        }
+
+        return addresses.get();
+    }
+
+    /**
+     * Updates the planner statistics of the three tables, so plans reflect the new rows straight away rather than
+     * after autovacuum gets to them. Does nothing on databases other than Postgres.
+     *
+     * @throws SQLException If the tables could not be analyzed.
+     */
+    public void analyze() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                statement.execute("ANALYZE users, user_profiles, user_addresses");
+            }
+        }
+    }
+
+    private void writeChunk(long from, long to) throws SQLException, IOException {
+        List<DatasetUser> users = new ArrayList<>((int) (to - from));
+        for (long index = from; index < to; index++) {
+            users.add(dataset.user(index));
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (connection.isWrapperFor(PGConnection.class)) {
+                    copy(connection.unwrap(PGConnection.class).getCopyAPI(), users);
+                } else {
+                    insert(connection, users);
+                }
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        }
+
+        addresses.addAndGet(users.stream().mapToLong(user -> user.addresses().size()).sum());
+    }
+
+    private static void copy(CopyManager copyManager, List<DatasetUser> users) throws SQLException, IOException {
+        StringBuilder userRows = new StringBuilder();
+        StringBuilder profileRows = new StringBuilder();
+        StringBuilder addressRows = new StringBuilder();
+        for (DatasetUser user : users) {
+            csv(userRows, user.id(), user.username(), user.email(), user.passwordHash(), user.status(),
+                user.createdAt(), user.updatedAt(), 0);
+            csv(profileRows, user.id(), user.firstName(), user.lastName(), user.phoneNumber(),
+                user.profileImageUrl(), user.createdAt(), user.updatedAt(), 0);
+            for (DatasetUser.Address address : user.addresses()) {
+                csv(addressRows, address.id(), user.id(), address.addressType(), address.addressLine1(),
+                    address.addressLine2(), address.city(), address.state(), address.zipCode(), address.country(),
+                    address.createdAt(), address.createdAt(), 0);
+            }
+        }
+
+        copyManager.copyIn("COPY " + USERS_COLUMNS + " FROM STDIN (FORMAT csv)", new StringReader(userRows.toString()));
+        copyManager.copyIn("COPY " + PROFILES_COLUMNS + " FROM STDIN (FORMAT csv)",
+            new StringReader(profileRows.toString()));
+        copyManager.copyIn("COPY " + ADDRESSES_COLUMNS + " FROM STDIN (FORMAT csv)",
+            new StringReader(addressRows.toString()));
+    }
+
+    private static void insert(Connection connection, List<DatasetUser> users) throws SQLException {
+        try (PreparedStatement userInsert = connection.prepareStatement(insertSql(USERS_COLUMNS, 8));
+             PreparedStatement profileInsert = connection.prepareStatement(insertSql(PROFILES_COLUMNS, 8));
+             PreparedStatement addressInsert = connection.prepareStatement(insertSql(ADDRESSES_COLUMNS, 12))) {
+            for (DatasetUser user : users) {
+                bind(userInsert, user.id(), user.username(), user.email(), user.passwordHash(), user.status(),
+                    user.createdAt(), user.updatedAt(), 0L);
+                bind(profileInsert, user.id(), user.firstName(), user.lastName(), user.phoneNumber(),
+                    user.profileImageUrl(), user.createdAt(), user.updatedAt(), 0L);
+                for (DatasetUser.Address address : user.addresses()) {
+                    bind(addressInsert, address.id(), user.id(), address.addressType(), address.addressLine1(),
+                        address.addressLine2(), address.city(), address.state(), address.zipCode(),
+                        address.country(), address.createdAt(), address.createdAt(), 0L);
+                }
+            }
+
+            // users first, the other two reference them
+            userInsert.executeBatch();
+            profileInsert.executeBatch();
+            addressInsert.executeBatch();
+        }
+    }
+
+    private static String insertSql(String table, int columns) {
+        return "INSERT INTO " + table + " VALUES (" + "?, ".repeat(columns - 1) + "?)";
+    }
+
+    private static void bind(PreparedStatement statement, Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i] instanceof Instant instant ? instant.atOffset(ZoneOffset.UTC) : values[i];
+            statement.setObject(i + 1, value);
+        }
+        statement.addBatch();
+    }
+
+    private static void csv(StringBuilder rows, Object... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                rows.append(',');
+            }
+            // an unquoted empty field is NULL in COPY's csv format
+            if (values[i] != null) {
+                String value = values[i].toString();
+                if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+                    rows.append('"').append(value.replace("\"", "\"\"")).append('"');
+                } else {
+                    rows.append(value);
+                }
+            }
+        }
+        rows.append('\n');
+    }
+
+}
@@ -0,0 +1,64 @@
+package kdodds.userservice.load.dataset;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One generated user with its profile and addresses, a row of users, user_profiles and user_addresses each.
+ *
+ * @param id User id.
+ * @param username Unique username.
+ * @param email Unique email.
+ * @param passwordHash Password hash, the same for every user.
+ * @param status ACTIVE or INACTIVE.
+ * @param createdAt Creation time.
+ * @param updatedAt Last update, at or after the creation time.
+ * @param firstName Profile first name.
+ * @param lastName Profile last name.
+ * @param phoneNumber Profile phone number, may be null.
+ * @param profileImageUrl Profile image, may be null.
+ * @param addresses Zero to ten addresses.
+ */
+public record DatasetUser(
+    UUID id,
+    String username,
+    String email,
+    String passwordHash,
+    String status,
+    Instant createdAt,
+    Instant updatedAt,
+    String firstName,
+    String lastName,
+    String phoneNumber,
+    String profileImageUrl,
+    List<Address> addresses
+) {
+
+    /**
+     * One generated address.
+     *
+     * @param id Address id.
+     * @param addressType Home, Business, Shipping or Billing.
+     * @param addressLine1 Street address.
+     * @param addressLine2 Unit, may be null.
+     * @param city City.
+     * @param state Two letter state code.
+     * @param zipCode Five digit zip code.
+     * @param country Always USA.
+     * @param createdAt Creation time, at or after the user's.
+     */
+    public record Address(
+        UUID id,
+        String addressType,
+        String addressLine1,
+        String addressLine2,
+        String city,
+        String state,
+        String zipCode,
+        String country,
+        Instant createdAt
+    ) {
+    }
+
+}
@@ -0,0 +1,45 @@
+package kdodds.userservice.load.dataset;
+
+import org.postgresql.ds.PGSimpleDataSource;
+
+import java.time.Duration;
+
+/**
+ * Writes a synthetic dataset to a Postgres database, see the Synthetic Dataset section of the README. Settings are
+ * read from dataset.* system properties, {@code gradle seedDataset -Pdataset.users=1000000} passes them on.
+ */
+public final class SeedDataset {
+
+    private SeedDataset() {
+    }
+
+    /**
+     * Entry point.
+     *
+     * @param args Unused, settings are system properties.
+     * @throws Exception If the dataset could not be written.
+     */
+    public static void main(String[] args) throws Exception {
+        final long users = Long.parseLong(System.getProperty("dataset.users", "1000000"));
+        final long seed = Long.parseLong(System.getProperty("dataset.seed", "42"));
+        final int chunkSize = Integer.parseInt(System.getProperty("dataset.chunk-size", "10000"));
+        final int threads = Integer.parseInt(System.getProperty("dataset.threads",
+            String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / 2))));
+
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setURL(System.getProperty("dataset.url", "jdbc:postgresql://localhost:5432/users"));
+        dataSource.setUser(System.getProperty("dataset.username", "postgres"));
+        dataSource.setPassword(System.getProperty("dataset.password", "postgres"));
+
+        System.out.printf("Writing %d users with seed %d to %s, %d chunks of %d at a time%n", users, seed,
+            dataSource.getURL(), threads, chunkSize);
+        long start = System.nanoTime();
+        DatasetLoader loader = new DatasetLoader(new SyntheticDataset(seed), dataSource);
+        long addresses = loader.load(users, chunkSize, threads);
+        loader.analyze();
+
+        System.out.printf("Wrote %d users, %d profiles and %d addresses in %s%n", users, users, addresses,
+            Duration.ofNanos(System.nanoTime() - start).withNanos(0));
+    }
+
+}
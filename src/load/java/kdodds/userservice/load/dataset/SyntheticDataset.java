@@ -0,0 +1,210 @@
+package kdodds.userservice.load.dataset;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Deterministic generator of users, profiles and addresses shaped like production data rather than like the seed
+ * script: first names, last names and cities follow Zipf distributions (many Smiths and many users in a few large
+ * cities), most users have one or two addresses and a few have up to ten, and sign-ups get more frequent towards the
+ * end of a five year window.
+ *
+ * <p>User i depends only on the seed and i, never on the users before it, so chunks can be generated in parallel and
+ * in any order, and the load test can derive the id of any user without reading the database.
+ */
+public class SyntheticDataset {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    // the window ends at a fixed instant rather than now, so a seed gives the same rows whenever it is run
+    private static final Instant END = Instant.parse("2026-01-01T00:00:00Z");
+
+    private static final long SPAN_SECONDS = Duration.ofDays(5 * 365).toSeconds();
+
+    // a fixed bcrypt formatted hash, logins are not part of the load profile
+    private static final String PASSWORD_HASH = "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3hpH3B8d9e1Q4iSYh1aQn2a";
+
+    // share of users with 0, 1, ... 10 addresses
+    private static final double[] ADDRESS_COUNT_WEIGHTS = {12, 38, 22, 11, 6, 4, 3, 1.5, 1.2, 0.8, 0.5};
+
+    private static final String[] FIRST_NAMES = {
+        "James", "Mary", "Michael", "Patricia", "John", "Jennifer", "Robert", "Linda", "David", "Elizabeth", "William",
+        "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Karen", "Christopher", "Sarah", "Charles",
+        "Lisa", "Daniel", "Nancy", "Matthew", "Sandra", "Anthony", "Betty", "Mark", "Ashley", "Donald", "Emily",
+        "Steven", "Kimberly", "Andrew", "Margaret", "Paul", "Donna", "Joshua", "Michelle", "Kenneth", "Carol", "Kevin",
+        "Amanda", "Brian", "Melissa", "Timothy", "Deborah", "Ronald", "Stephanie", "Jason", "Rebecca", "George",
+        "Sharon", "Edward", "Laura", "Jeffrey", "Cynthia", "Ryan", "Kaitlyn", "Jacob", "Amy", "Nicholas", "Angela"
+    };
+
+    private static final String[] LAST_NAMES = {
+        "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+        "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Lee",
+        "Perez", "Thompson", "White", "Harris", "Sanchez", "Clark", "Ramirez", "Lewis", "Robinson", "Walker", "Young",
+        "Allen", "King", "Wright", "Scott", "Torres", "Nguyen", "Hill", "Flores", "Green", "Adams", "Nelson", "Baker",
+        "Hall", "Rivera", "Campbell", "Mitchell", "Carter", "Roberts", "Dodds", "Reed", "Kim", "Patel", "Cohen"
+    };
+
+    // city, state and the first three digits of its zip codes
+    private static final String[][] CITIES = {
+        {"New York", "NY", "100"}, {"Los Angeles", "CA", "900"}, {"Chicago", "IL", "606"}, {"Houston", "TX", "770"},
+        {"Phoenix", "AZ", "850"}, {"Philadelphia", "PA", "191"}, {"San Antonio", "TX", "782"},
+        {"San Diego", "CA", "921"}, {"Dallas", "TX", "752"}, {"Austin", "TX", "787"}, {"Jacksonville", "FL", "322"},
+        {"San Jose", "CA", "951"}, {"Fort Worth", "TX", "761"}, {"Columbus", "OH", "432"}, {"Charlotte", "NC", "282"},
+        {"Indianapolis", "IN", "462"}, {"San Francisco", "CA", "941"}, {"Seattle", "WA", "981"},
+        {"Denver", "CO", "802"}, {"Nashville", "TN", "372"}, {"Oklahoma City", "OK", "731"}, {"Boston", "MA", "021"},
+        {"Portland", "OR", "972"}, {"Las Vegas", "NV", "891"}, {"Detroit", "MI", "482"}, {"Memphis", "TN", "381"},
+        {"Louisville", "KY", "402"}, {"Baltimore", "MD", "212"}, {"Milwaukee", "WI", "532"},
+        {"Albuquerque", "NM", "871"}, {"Tucson", "AZ", "857"}, {"Fresno", "CA", "937"}, {"Sacramento", "CA", "958"},
+        {"Atlanta", "GA", "303"}, {"Omaha", "NE", "681"}, {"Raleigh", "NC", "276"}, {"Miami", "FL", "331"},
+        {"Minneapolis", "MN", "554"}, {"Tulsa", "OK", "741"}, {"Boulder", "CO", "803"}, {"Aurora", "CO", "800"},
+        {"Fort Collins", "CO", "805"}, {"Burlington", "VT", "054"}, {"Missoula", "MT", "598"}
+    };
+
+    private static final String[] STREETS = {
+        "Main", "Oak", "Maple", "Pine", "Cedar", "Elm", "Washington", "Lake", "Hill", "Park", "Walnut", "Sunset",
+        "Lincoln", "Jackson", "Church", "Highland", "Evergreen", "Ridge", "Meadow", "River", "Spring", "Willow"
+    };
+
+    private static final String[] STREET_SUFFIXES = {"St", "Ave", "Blvd", "Rd", "Ln", "Dr", "Ct", "Way", "Pl"};
+
+    private static final String[] ADDRESS_TYPES = {"Home", "Business", "Shipping", "Billing"};
+
+    private static final String[] EMAIL_DOMAINS = {
+        "example.com", "example.org", "example.net", "mail.example.com", "inbox.example.org"
+    };
+
+    private final long seed;
+
+    private final ZipfDistribution firstNames = new ZipfDistribution(FIRST_NAMES.length, 1.0);
+
+    private final ZipfDistribution lastNames = new ZipfDistribution(LAST_NAMES.length, 1.0);
+
+    private final ZipfDistribution cities = new ZipfDistribution(CITIES.length, 1.1);
+
+    private final ZipfDistribution emailDomains = new ZipfDistribution(EMAIL_DOMAINS.length, 1.5);
+
+    private final double[] addressCounts = cumulative(ADDRESS_COUNT_WEIGHTS);
+
+    /**
+     * Constructor.
+     *
+     * @param seed Seed, the same seed always generates the same users.
+     */
+    public SyntheticDataset(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Gets the id of a user without generating the rest of it.
+     *
+     * @param index Index of the user, from 0.
+     * @return User id.
+     */
+    public UUID userId(long index) {
+        return uuid(random(index));
+    }
+
+    /**
+     * Generates a user.
+     *
+     * @param index Index of the user, from 0.
+     * @return The user with its profile and addresses.
+     */
+    public DatasetUser user(long index) {
+        SplittableRandom random = random(index);
+        UUID id = uuid(random);
+        String firstName = FIRST_NAMES[firstNames.sample(random)];
+        String lastName = LAST_NAMES[lastNames.sample(random)];
+        // the index keeps usernames and emails unique however often a name repeats
+        String username = (firstName.charAt(0) + lastName + "." + index).toLowerCase();
+        String email = (firstName + "." + lastName + "." + index).toLowerCase() + "@"
+            + EMAIL_DOMAINS[emailDomains.sample(random)];
+
+        // 1 - sqrt(u) puts more sign-ups near the end of the window
+        Instant createdAt = END.minusSeconds((long) (SPAN_SECONDS * (1 - Math.sqrt(random.nextDouble()))));
+        long sinceCreated = END.getEpochSecond() - createdAt.getEpochSecond();
+        // most users are never updated after sign-up, u^3 keeps updated_at close to created_at for most of them
+        Instant updatedAt = createdAt.plusSeconds((long) (sinceCreated * Math.pow(random.nextDouble(), 3)));
+
+        String status = random.nextInt(100) < 92 ? "ACTIVE" : "INACTIVE";
+        String phoneNumber = random.nextInt(100) < 80
+            ? String.format("+1-%03d-555-%04d", 201 + random.nextInt(780), random.nextInt(10_000))
+            : null;
+        String profileImageUrl = random.nextInt(100) < 60
+            ? "https://cdn.example.com/profiles/" + id + ".png"
+            : null;
+
+        int addressCount = draw(addressCounts, random);
+        List<DatasetUser.Address> addresses = new ArrayList<>(addressCount);
+        for (int i = 0; i < addressCount; i++) {
+            addresses.add(address(random, i, createdAt, sinceCreated));
+        }
+
+        return new DatasetUser(id, username, email, PASSWORD_HASH, status, createdAt, updatedAt, firstName, lastName,
+            phoneNumber, profileImageUrl, addresses);
+    }
+
+    private DatasetUser.Address address(SplittableRandom random, int position, Instant userCreatedAt,
+        long sinceCreated) {
+        String[] city = CITIES[cities.sample(random)];
+        String line1 = (100 + random.nextInt(9900)) + " " + STREETS[random.nextInt(STREETS.length)] + " "
+            + STREET_SUFFIXES[random.nextInt(STREET_SUFFIXES.length)];
+        String line2 = random.nextInt(100) < 25 ? "Apt " + (1 + random.nextInt(400)) : null;
+        // the first address is usually a home address, later ones spread over the other types
+        String type = position == 0 && random.nextInt(100) < 70
+            ? ADDRESS_TYPES[0]
+            : ADDRESS_TYPES[random.nextInt(ADDRESS_TYPES.length)];
+        String zipCode = city[2] + String.format("%02d", random.nextInt(100));
+        Instant createdAt = userCreatedAt.plusSeconds((long) (sinceCreated * random.nextDouble() * position / 10));
+
+        return new DatasetUser.Address(uuid(random), type, line1, line2, city[0], city[1], zipCode, "USA", createdAt);
+    }
+
+    private SplittableRandom random(long index) {
+        // SplittableRandom advances its state by the golden gamma on every draw, spacing the users' states by that
+        // same gamma would make user i's later draws replay user i + 1's, so the state is scrambled first
+        return new SplittableRandom(mix(seed + (index + 1) * GOLDEN_GAMMA));
+    }
+
+    private static long mix(long value) {
+        // the MurmurHash3 finalizer
+        long mixed = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        mixed = (mixed ^ (mixed >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return mixed ^ (mixed >>> 33);
+    }
+
+    private static UUID uuid(SplittableRandom random) {
+        // version 4 and the IETF variant, like gen_random_uuid()
+        long most = (random.nextLong() & 0xFFFFFFFFFFFF0FFFL) | 0x0000000000004000L;
+        long least = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(most, least);
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] cumulative = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < weights.length; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+
+    private static int draw(double[] cumulative, SplittableRandom random) {
+        double value = random.nextDouble();
+        for (int i = 0; i < cumulative.length; i++) {
+            if (value < cumulative[i]) {
+                return i;
+            }
+        }
+        return cumulative.length - 1;
+    }
+
+}
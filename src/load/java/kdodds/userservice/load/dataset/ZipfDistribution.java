@@ -0,0 +1,60 @@
+package kdodds.userservice.load.dataset;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf distribution over ranks {@code 0..n-1}: rank k is drawn with a probability proportional to
+ * {@code 1 / (k + 1)^exponent}, so a few ranks take most of the draws and the rest form a long tail. An exponent of 0
+ * is uniform, around 1 matches name frequencies and request popularity. Draws binary search a precomputed cumulative
+ * table, so a distribution over n ranks holds n doubles.
+ */
+public class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    /**
+     * Constructor.
+     *
+     * @param n Number of ranks.
+     * @param exponent Skew, 0 for uniform.
+     */
+    public ZipfDistribution(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException(String.format("A Zipf distribution needs at least one rank, was %d", n));
+        }
+
+        cumulative = new double[n];
+        double total = 0;
+        for (int k = 0; k < n; k++) {
+            total += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= total;
+        }
+    }
+
+    /**
+     * Draws a rank.
+     *
+     * @param random The random source.
+     * @return Rank between 0 and n - 1, 0 being the most frequent.
+     */
+    public int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        // a miss returns -(insertion point) - 1, the insertion point is the first rank whose cumulative share exceeds
+        // the draw
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+
+    /**
+     * Gets the number of ranks.
+     *
+     * @return Rank count.
+     */
+    public int size() {
+        return cumulative.length;
+    }
+
+}
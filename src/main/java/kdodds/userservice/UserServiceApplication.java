@@ -2,11 +2,13 @@ package kdodds.userservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Application class.
  */
 @SpringBootApplication
+@EnableScheduling
 public class UserServiceApplication {
 
     /**
@@ -11,6 +11,8 @@ import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
 
+import java.util.UUID;
+
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
@@ -27,21 +29,50 @@ public class PagedUsersModelAssembler
      */
     @Override
     public EntityModel<PagedUsersResponseDto> toModel(PagedUsersResponseDto pagedUsersDto) {
+        return toModel(pagedUsersDto, true);
+    }
+
+    /**
+     * Converts a PagedUsersResponseDto to an EntityModel, optionally without the per user and per address links.
+     *
+     * @param pagedUsersDto The PagedUsersResponseDto to convert.
+     * @param itemLinks Whether to add links to each user and address, pagination links are always added.
+     * @return EntityModel<PagedUsersResponseDto> with HATEOAS links.
+     */
+    public EntityModel<PagedUsersResponseDto> toModel(PagedUsersResponseDto pagedUsersDto, boolean itemLinks) {
         // add links for pagination (self, next, prev, first, last)
         buildPaginationLinks(pagedUsersDto);
 
+        if (!itemLinks) {
+            return EntityModel.of(pagedUsersDto);
+        }
+
         // add links for each user in the page
-        for (UserResponseDto userDto : pagedUsersDto.getUsers()) {
-            // add links to the user dto
-            assembleUserLinks(userDto);
+        pagedUsersDto.getUsers().forEach(this::addItemLinks);
 
-            // add links for addresses
-            if (userDto.getAddresses() != null) {
-                userDto.getAddresses().forEach(PagedUsersModelAssembler::assembleUserAddressLinks);
-            }
+        return EntityModel.of(pagedUsersDto);
+    }
+
+    /**
+     * Adds the links of one user on a page (self, profile, addresses) and of each of its addresses, for pages that are
+     * written user by user.
+     *
+     * @param userDto The user to add links to.
+     * @return The same user, with links.
+     */
+    public UserResponseDto addItemLinks(UserResponseDto userDto) {
+        // parsed once, every link of the user and its addresses carries it
+        UUID userId = UUID.fromString(userDto.getUserId());
+
+        // add links to the user dto
+        assembleUserLinks(userDto, userId);
+
+        // add links for addresses
+        if (userDto.getAddresses() != null) {
+            userDto.getAddresses().forEach(address -> assembleUserAddressLinks(address, userId));
         }
 
-        return EntityModel.of(pagedUsersDto);
+        return userDto;
     }
 
     private static void buildPaginationLinks(PagedUsersResponseDto pagedUsersDto) {
@@ -55,6 +86,7 @@ public class PagedUsersModelAssembler
                     null,
                     null,
                     null,
+                    null,
                     null
                 )).withSelfRel());
 
@@ -68,6 +100,7 @@ public class PagedUsersModelAssembler
                         null,
                         null,
                         null,
+                        null,
                         null
                     )).withRel("next"));
             }
@@ -82,6 +115,7 @@ public class PagedUsersModelAssembler
                         null,
                         null,
                         null,
+                        null,
                         null
                     )).withRel("prev"));
             }
@@ -96,6 +130,7 @@ public class PagedUsersModelAssembler
                         null,
                         null,
                         null,
+                        null,
                         null
                     )).withRel("first"));
             }
@@ -111,6 +146,7 @@ public class PagedUsersModelAssembler
                         null,
                         null,
                         null,
+                        null,
                         null
                     )).withRel("last"));
             }
@@ -120,31 +156,28 @@ public class PagedUsersModelAssembler
         }
     }
 
-    private static void assembleUserLinks(UserResponseDto userDto) {
+    private static void assembleUserLinks(UserResponseDto userDto, UUID userId) {
         // add self, profile, addresses
         try {
             userDto.add(linkTo(methodOn(UserController.class) // self
-                .getUserByUserId(userDto.getUserId())).withSelfRel());
+                .getUserByUserId(userId, null, null)).withSelfRel());
             userDto.add(linkTo(methodOn(UserProfileController.class) // profile
-                .getUserProfileByUserId(userDto.getUserId())).withRel("profile"));
+                .getUserProfileByUserId(userId, null)).withRel("profile"));
             userDto.add(linkTo(methodOn(UserAddressController.class) // addresses
-                .getUserAddressesByUserId(userDto.getUserId())).withRel("addresses"));
+                .getUserAddressesByUserId(userId, null)).withRel("addresses"));
         } catch (Exception e) {
             log.error("Error creating links for UserResponseDto: {}", e.getMessage());
             throw new RuntimeException(e);
         }
     }
 
-    private static void assembleUserAddressLinks(UserAddressResponseDto userAddressDto) {
+    private static void assembleUserAddressLinks(UserAddressResponseDto userAddressDto, UUID userId) {
         // add self, user
         try {
             userAddressDto.add(linkTo(methodOn(UserAddressController.class) // self
-                .getUserAddressById(
-                    userAddressDto.getUserId(),
-                    userAddressDto.getAddressId()
-                )).withSelfRel());
+                .getUserAddressById(userId, UUID.fromString(userAddressDto.getAddressId()))).withSelfRel());
             userAddressDto.add(linkTo(methodOn(UserController.class) // user
-                .getUserByUserId(userAddressDto.getUserId())).withRel("user"));
+                .getUserByUserId(userId, null, null)).withRel("user"));
         } catch (Exception e) {
             log.error("Error creating links for UserAddressResponseDto: {}", e.getMessage());
             throw new RuntimeException(e);
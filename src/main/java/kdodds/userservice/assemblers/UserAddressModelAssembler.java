@@ -8,6 +8,8 @@ import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
 
+import java.util.UUID;
+
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
@@ -31,16 +33,14 @@ public class UserAddressModelAssembler
     }
 
     private static void assembleLinks(UserAddressResponseDto userAddressDto) {
+        UUID userId = UUID.fromString(userAddressDto.getUserId());
         try {
             userAddressDto.add(linkTo(methodOn(UserAddressController.class) // self)
-                .getUserAddressById(
-                    userAddressDto.getUserId(),
-                    userAddressDto.getAddressId()
-                )).withSelfRel());
+                .getUserAddressById(userId, UUID.fromString(userAddressDto.getAddressId()))).withSelfRel());
             userAddressDto.add(linkTo(methodOn(UserController.class) // user
-                .getUserByUserId(userAddressDto.getUserId())).withRel("user"));
+                .getUserByUserId(userId, null, null)).withRel("user"));
             userAddressDto.add(linkTo(methodOn(UserAddressController.class) // addresses
-                .getUserAddressesByUserId(userAddressDto.getUserId())).withRel("collection"));
+                .getUserAddressesByUserId(userId, null)).withRel("collection"));
         } catch (Exception e) {
             log.error("Error creating links for UserAddressResponseDto: {}", e.getMessage());
             throw new RuntimeException(e);
@@ -9,6 +9,8 @@ import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
 
+import java.util.UUID;
+
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
@@ -25,12 +27,15 @@ public class UserAddressesModelAssembler
      */
     @Override
     public EntityModel<UserAddressesResponseDto> toModel(UserAddressesResponseDto userAddressesDto) {
+        // parsed once, every link of the list and its addresses carries it
+        UUID userId = UUID.fromString(userAddressesDto.getUserId());
+
         // add links to top level dto
         try {
             userAddressesDto.add(linkTo(methodOn(UserAddressController.class) // self)
-                .getUserAddressesByUserId(userAddressesDto.getUserId())).withSelfRel());
+                .getUserAddressesByUserId(userId, null)).withSelfRel());
             userAddressesDto.add(linkTo(methodOn(UserController.class) // user
-                .getUserByUserId(userAddressesDto.getUserId())).withRel("user"));
+                .getUserByUserId(userId, null, null)).withRel("user"));
         } catch (Exception ex) {
             log.error("Error creating links for UserAddressesResponseDto: {}", ex.getMessage());
             throw new RuntimeException(ex);
@@ -38,22 +43,19 @@ public class UserAddressesModelAssembler
 
         // add links for each address in the list
         if (userAddressesDto.getAddresses() != null && !userAddressesDto.getAddresses().isEmpty()) {
-            userAddressesDto.getAddresses().forEach(UserAddressesModelAssembler::assembleLinks);
+            userAddressesDto.getAddresses().forEach(address -> assembleLinks(address, userId));
         }
 
         return EntityModel.of(userAddressesDto);
     }
 
-    private static void assembleLinks(UserAddressResponseDto userAddressDto) {
+    private static void assembleLinks(UserAddressResponseDto userAddressDto, UUID userId) {
         // add self and parent user links
         try {
             userAddressDto.add(linkTo(methodOn(UserAddressController.class) // self)
-                .getUserAddressById(
-                    userAddressDto.getUserId(),
-                    userAddressDto.getAddressId()
-                )).withSelfRel());
+                .getUserAddressById(userId, UUID.fromString(userAddressDto.getAddressId()))).withSelfRel());
             userAddressDto.add(linkTo(methodOn(UserController.class) // user
-                .getUserByUserId(userAddressDto.getUserId())).withRel("user"));
+                .getUserByUserId(userId, null, null)).withRel("user"));
         } catch (Exception ex) {
             log.error("Error creating links for UserAddressResponseDto: {}", ex.getMessage());
             throw new RuntimeException(ex);
@@ -10,6 +10,8 @@ import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
 
+import java.util.UUID;
+
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
@@ -26,28 +28,31 @@ public class UserModelAssembler
      */
     @Override
     public EntityModel<UserResponseDto> toModel(UserResponseDto userDto) {
+        // parsed once, every link of the user and its addresses carries it
+        UUID userId = UUID.fromString(userDto.getUserId());
+
         // add links to top level dto
-        assembleUserLinks(userDto);
+        assembleUserLinks(userDto, userId);
 
         // add links for addresses on userDto
         if (userDto.getAddresses() != null) {
-            userDto.getAddresses().forEach(UserModelAssembler::assembleUserAddressLinks);
+            userDto.getAddresses().forEach(address -> assembleUserAddressLinks(address, userId));
         }
 
         return EntityModel.of(userDto);
     }
 
-    private static void assembleUserLinks(UserResponseDto userDto) {
+    private static void assembleUserLinks(UserResponseDto userDto, UUID userId) {
         try {
             userDto.add(linkTo(methodOn(UserController.class) // self
-                .getUserByUserId(userDto.getUserId())).withSelfRel());
+                .getUserByUserId(userId, null, null)).withSelfRel());
             userDto.add(linkTo(methodOn(UserProfileController.class) // profile
-                .getUserProfileByUserId(userDto.getUserId())).withRel("profile"));
+                .getUserProfileByUserId(userId, null)).withRel("profile"));
             userDto.add(linkTo(methodOn(UserAddressController.class) // addresses
-                .getUserAddressesByUserId(userDto.getUserId())).withRel("addresses"));
+                .getUserAddressesByUserId(userId, null)).withRel("addresses"));
             userDto.add(linkTo(methodOn(UserController.class)
                 .getAllUsersPaginated(
-                    0, 0, null, null, null, null, null)
+                    0, 0, null, null, null, null, null, null)
             ).withRel("collection"));
         } catch (Exception e) {
             log.error("Error creating links for UserResponseDto: {}", e.getMessage());
@@ -55,16 +60,13 @@ public class UserModelAssembler
         }
     }
 
-    private static void assembleUserAddressLinks(UserAddressResponseDto userAddressDto) {
+    private static void assembleUserAddressLinks(UserAddressResponseDto userAddressDto, UUID userId) {
         // add self, user links
         try {
             userAddressDto.add(linkTo(methodOn(UserAddressController.class) // self)
-                .getUserAddressById(
-                    userAddressDto.getUserId(),
-                    userAddressDto.getAddressId()
-                )).withSelfRel());
+                .getUserAddressById(userId, UUID.fromString(userAddressDto.getAddressId()))).withSelfRel());
             userAddressDto.add(linkTo(methodOn(UserController.class) // user
-                .getUserByUserId(userAddressDto.getUserId())).withRel("user"));
+                .getUserByUserId(userId, null, null)).withRel("user"));
         } catch (Exception e) {
             log.error("Error creating links for UserAddressResponseDto: {}", e.getMessage());
             throw new RuntimeException(e);
@@ -9,6 +9,8 @@ import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
 
+import java.util.UUID;
+
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
@@ -25,14 +27,15 @@ public class UserProfileModelAssembler implements
      */
     @Override
     public EntityModel<UserProfileResponseDto> toModel(UserProfileResponseDto userProfileDto) {
+        UUID userId = UUID.fromString(userProfileDto.getUserId());
 
         try {
             userProfileDto.add(linkTo(methodOn(UserProfileController.class) // self
-                .getUserProfileByUserId(userProfileDto.getUserId())).withSelfRel());
+                .getUserProfileByUserId(userId, null)).withSelfRel());
             userProfileDto.add(linkTo(methodOn(UserController.class) // user
-                .getUserByUserId(userProfileDto.getUserId())).withRel("user"));
+                .getUserByUserId(userId, null, null)).withRel("user"));
             userProfileDto.add(linkTo(methodOn(UserAddressController.class) // addresses
-                .getUserAddressesByUserId(userProfileDto.getUserId())).withRel("addresses"));
+                .getUserAddressesByUserId(userId, null)).withRel("addresses"));
         } catch (Exception e) {
             log.error("Error creating links for UserProfileResponseDto: {}", e.getMessage());
             throw new RuntimeException(e);
@@ -0,0 +1,168 @@
+package kdodds.userservice.concurrency;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * AIMD concurrency limiter. The limit grows by roughly one per limit's worth of fast completions while the limiter is
+ * actually being used, and is cut multiplicatively when a request is slower than the latency threshold or fails with
+ * an overload. The limit is cut at most once per round trip: only a request that started after the last cut can cut it
+ * again, so a burst of slow completions that all ran against the old limit counts as one congestion signal. Callers
+ * over the limit are rejected immediately instead of queueing.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private static final long NO_BACKOFF = Long.MIN_VALUE;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // the limit is a double so that additive increase can accumulate fractions, stored as raw bits for CAS updates
+    private final AtomicLong limitBits;
+
+    private final LongAdder rejected = new LongAdder();
+
+    // System.nanoTime() of the last cut
+    private final AtomicLong lastBackoffNanos = new AtomicLong(NO_BACKOFF);
+
+    /**
+     * Constructor.
+     *
+     * @param initialLimit Starting limit, clamped to [minLimit, maxLimit].
+     * @param minLimit Lowest the limit may drop to.
+     * @param maxLimit Highest the limit may grow to.
+     * @param latencyThreshold Requests slower than this reduce the limit.
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold) {
+        this(initialLimit, minLimit, maxLimit, latencyThreshold, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(
+        int initialLimit,
+        int minLimit,
+        int maxLimit,
+        Duration latencyThreshold,
+        LongSupplier nanoClock
+    ) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= max");
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.nanoClock = nanoClock;
+        this.limitBits = new AtomicLong(
+            Double.doubleToRawLongBits(Math.clamp(initialLimit, minLimit, maxLimit))
+        );
+    }
+
+    /**
+     * Tries to admit a request.
+     *
+     * @return True if the request may proceed, in which case one of the on* methods must be called when it finishes.
+     */
+    public boolean tryAcquire() {
+        int limit = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param latencyNanos How long the request took.
+     */
+    public void onSuccess(long latencyNanos) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+
+        if (latencyNanos > latencyThresholdNanos) {
+            backoff(latencyNanos);
+            return;
+        }
+
+        // only grow while the limit is actually being exercised, otherwise an idle period inflates it to the max
+        if (inFlightAtCompletion * 2 >= getLimit()) {
+            limitBits.updateAndGet(bits -> {
+                double limit = Double.longBitsToDouble(bits);
+                return Double.doubleToRawLongBits(Math.min(maxLimit, limit + 1.0 / limit));
+            });
+        }
+    }
+
+    /**
+     * Records a request that failed because something downstream was overloaded.
+     *
+     * @param latencyNanos How long the request took.
+     */
+    public void onDropped(long latencyNanos) {
+        inFlight.decrementAndGet();
+        backoff(latencyNanos);
+    }
+
+    /**
+     * Gets the current limit.
+     *
+     * @return The number of requests currently allowed in flight.
+     */
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    /**
+     * Gets the number of requests currently in flight.
+     *
+     * @return Requests in flight.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Gets the number of requests rejected since startup.
+     *
+     * @return Rejected request count.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private void backoff(long latencyNanos) {
+        long now = nanoClock.getAsLong();
+        long last = lastBackoffNanos.get();
+        // a request already in flight at the last cut ran against the old limit and says nothing about the new one
+        if (last != NO_BACKOFF && now - latencyNanos - last <= 0) {
+            return;
+        }
+        // a concurrent completion made the cut for this round trip
+        if (!lastBackoffNanos.compareAndSet(last, now)) {
+            return;
+        }
+
+        limitBits.updateAndGet(bits -> {
+            double limit = Double.longBitsToDouble(bits);
+            return Double.doubleToRawLongBits(Math.max(minLimit, limit * BACKOFF_RATIO));
+        });
+    }
+
+}
@@ -0,0 +1,93 @@
+package kdodds.userservice.concurrency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import kdodds.userservice.config.ConcurrencyLimitProperties;
+import kdodds.userservice.exceptions.models.ErrorResponse;
+import kdodds.userservice.ratelimit.RateLimitFilter;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds load in front of the v1 controllers. Each request is admitted against the adaptive limit of its endpoint
+ * group; anything over the limit gets an immediate 503 with Retry-After rather than waiting on Tomcat or Hikari.
+ */
+@Slf4j
+@Order(RateLimitFilter.ORDER + 1)
+@Component
+@AllArgsConstructor
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private EndpointConcurrencyLimiters limiters;
+
+    private ConcurrencyLimitProperties properties;
+
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || classify(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+        HttpServletRequest request,
+        HttpServletResponse response,
+        FilterChain filterChain
+    ) throws ServletException, IOException {
+        EndpointGroup group = classify(request);
+        AdaptiveConcurrencyLimiter limiter = limiters.get(group);
+
+        if (!limiter.tryAcquire()) {
+            log.debug("Shedding {} request, limit of {} reached", group, limiter.getLimit());
+            reject(response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean dropped = true;
+        try {
+            filterChain.doFilter(request, response);
+            dropped = response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value();
+        } finally {
+            long latency = System.nanoTime() - start;
+            if (dropped) {
+                limiter.onDropped(latency);
+            } else {
+                limiter.onSuccess(latency);
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        long retryAfterSeconds = Math.max(1, properties.getRetryAfter().toSeconds());
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        ErrorResponse error = ErrorResponse.builder()
+            .error(HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase())
+            .message("Too many concurrent requests, try again later")
+            .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+            .build();
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    private static EndpointGroup classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return EndpointGroup.classify(request.getMethod(), path);
+    }
+
+}
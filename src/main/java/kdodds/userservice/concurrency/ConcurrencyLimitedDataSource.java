@@ -0,0 +1,115 @@
+package kdodds.userservice.concurrency;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+
+/**
+ * Takes a {@link DatabaseConcurrencyLimiter} permit for every borrowed connection and gives it back when the
+ * connection is closed. Gating at checkout rather than per repository call means a request that keeps its connection
+ * between queries (open-in-view) never waits for a second permit while holding a connection someone else needs.
+ */
+public class ConcurrencyLimitedDataSource extends DelegatingDataSource {
+
+    private final DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+
+    /**
+     * Constructor.
+     *
+     * @param targetDataSource The pooled data source to wrap.
+     * @param databaseConcurrencyLimiter The limiter handing out permits.
+     */
+    public ConcurrencyLimitedDataSource(
+        DataSource targetDataSource,
+        DatabaseConcurrencyLimiter databaseConcurrencyLimiter
+    ) {
+        super(targetDataSource);
+        this.databaseConcurrencyLimiter = databaseConcurrencyLimiter;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        databaseConcurrencyLimiter.acquire();
+        try {
+            return releasingOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException ex) {
+            databaseConcurrencyLimiter.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        databaseConcurrencyLimiter.acquire();
+        try {
+            return releasingOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException ex) {
+            databaseConcurrencyLimiter.release();
+            throw ex;
+        }
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            new ReleasingInvocationHandler(connection, databaseConcurrencyLimiter)
+        );
+    }
+
+    private static final class ReleasingInvocationHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        private final DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+
+        // close() may be called more than once, the permit must only go back once
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ReleasingInvocationHandler(Connection target, DatabaseConcurrencyLimiter databaseConcurrencyLimiter) {
+            this.target = target;
+            this.databaseConcurrencyLimiter = databaseConcurrencyLimiter;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            } finally {
+                if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                    databaseConcurrencyLimiter.release();
+                }
+            }
+        }
+
+    }
+
+}
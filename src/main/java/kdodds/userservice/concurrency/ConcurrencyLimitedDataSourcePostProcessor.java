@@ -0,0 +1,37 @@
+package kdodds.userservice.concurrency;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application's {@link DataSource} in a {@link ConcurrencyLimitedDataSource}.
+ */
+@Component
+public class ConcurrencyLimitedDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<DatabaseConcurrencyLimiter> databaseConcurrencyLimiter;
+
+    /**
+     * Constructor.
+     *
+     * @param databaseConcurrencyLimiter Looked up lazily, post processors are created before regular beans.
+     */
+    public ConcurrencyLimitedDataSourcePostProcessor(
+        ObjectProvider<DatabaseConcurrencyLimiter> databaseConcurrencyLimiter
+    ) {
+        this.databaseConcurrencyLimiter = databaseConcurrencyLimiter;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitedDataSource)) {
+            return new ConcurrencyLimitedDataSource(dataSource, databaseConcurrencyLimiter.getObject());
+        }
+
+        return bean;
+    }
+
+}
@@ -0,0 +1,47 @@
+package kdodds.userservice.concurrency;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint (/actuator/concurrency) reporting the current limit, in-flight count and rejections per endpoint
+ * group.
+ */
+@Component
+@Endpoint(id = "concurrency")
+@AllArgsConstructor
+public class ConcurrencyLimitsEndpoint {
+
+    private EndpointConcurrencyLimiters limiters;
+
+    /**
+     * Reads the state of every endpoint group's limiter.
+     *
+     * @return Limiter state keyed by endpoint group.
+     */
+    @ReadOperation
+    public Map<String, LimiterState> limits() {
+        Map<String, LimiterState> limits = new LinkedHashMap<>();
+        limiters.getAll().forEach((group, limiter) -> limits.put(
+            group.name().toLowerCase(),
+            new LimiterState(limiter.getLimit(), limiter.getInFlight(), limiter.getRejected())
+        ));
+        return limits;
+    }
+
+    /**
+     * Snapshot of a single limiter.
+     *
+     * @param limit The current adaptive limit.
+     * @param inFlight Requests currently admitted.
+     * @param rejected Requests shed since startup.
+     */
+    public record LimiterState(int limit, int inFlight, long rejected) {
+    }
+
+}
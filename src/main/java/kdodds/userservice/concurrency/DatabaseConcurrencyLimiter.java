@@ -0,0 +1,129 @@
+package kdodds.userservice.concurrency;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import kdodds.userservice.exceptions.models.exceptions.DatabaseBusyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the number of database connections checked out at once. Sized to the Hikari pool so that, when
+ * running on virtual threads, excess callers park cheaply on the semaphore instead of piling up inside the pool's
+ * connection acquisition. As callers queue here rather than in Hikari, the time spent waiting for a permit is what
+ * shows pool pressure, it is published as the userservice.db.permit.wait timer.
+ */
+@Slf4j
+@Component
+public class DatabaseConcurrencyLimiter implements MeterBinder {
+
+    private final Semaphore permits;
+
+    private final int maxConcurrent;
+
+    private final long acquireTimeoutNanos;
+
+    private final LongAdder timeouts = new LongAdder();
+
+    // set once metrics are bound, waits before that are not recorded
+    private volatile Timer waitTimer;
+
+    /**
+     * Constructor.
+     *
+     * @param maxConcurrent Number of connections allowed out at once, defaults to the Hikari maximum pool size.
+     * @param acquireTimeout How long a caller waits for a permit before the request is rejected.
+     */
+    public DatabaseConcurrencyLimiter(
+        @Value("${user-service.db.max-concurrent-calls:${spring.datasource.hikari.maximum-pool-size:10}}")
+        int maxConcurrent,
+        @Value("${user-service.db.acquire-timeout:30s}") Duration acquireTimeout
+    ) {
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Acquires a permit, waiting up to the configured timeout.
+     *
+     * @throws DatabaseBusyException Thrown if no permit became available in time.
+     */
+    public void acquire() {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseBusyException("Interrupted while waiting for a database permit");
+        }
+
+        Timer timer = waitTimer;
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        if (!acquired) {
+            timeouts.increment();
+            log.warn("Timed out waiting for one of {} database permits", maxConcurrent);
+            throw new DatabaseBusyException("Database is busy, try again later");
+        }
+    }
+
+    /**
+     * Releases a previously acquired permit.
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * Gets the number of permits currently free.
+     *
+     * @return Number of available permits.
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Gets the configured maximum number of concurrent database calls.
+     *
+     * @return Maximum concurrent database calls.
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Gets the number of callers that gave up waiting for a permit since startup.
+     *
+     * @return Number of timed out acquisitions.
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        waitTimer = Timer.builder("userservice.db.permit.wait")
+            .description("Time spent waiting for a database permit before a connection is checked out")
+            .register(registry);
+        Gauge.builder("userservice.db.permits.available", this, DatabaseConcurrencyLimiter::availablePermits)
+            .register(registry);
+        Gauge.builder("userservice.db.permits.max", this, DatabaseConcurrencyLimiter::getMaxConcurrent)
+            .register(registry);
+        FunctionCounter.builder("userservice.db.permit.timeouts", this, DatabaseConcurrencyLimiter::getTimeouts)
+            .register(registry);
+    }
+
+}
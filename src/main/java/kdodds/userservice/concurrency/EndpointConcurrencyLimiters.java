@@ -0,0 +1,78 @@
+package kdodds.userservice.concurrency;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import kdodds.userservice.config.ConcurrencyLimitProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Holds one {@link AdaptiveConcurrencyLimiter} per {@link EndpointGroup} and publishes their state as metrics.
+ */
+@Component
+public class EndpointConcurrencyLimiters implements MeterBinder {
+
+    private final Map<EndpointGroup, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(EndpointGroup.class);
+
+    /**
+     * Constructor.
+     *
+     * @param properties The configured limits for each endpoint group.
+     */
+    public EndpointConcurrencyLimiters(ConcurrencyLimitProperties properties) {
+        limiters.put(EndpointGroup.LISTING, create(properties.getListing()));
+        limiters.put(EndpointGroup.SINGLE_READ, create(properties.getSingleRead()));
+        limiters.put(EndpointGroup.WRITE, create(properties.getWrite()));
+    }
+
+    /**
+     * Gets the limiter for an endpoint group.
+     *
+     * @param group The endpoint group.
+     * @return AdaptiveConcurrencyLimiter
+     */
+    public AdaptiveConcurrencyLimiter get(EndpointGroup group) {
+        return limiters.get(group);
+    }
+
+    /**
+     * Gets all limiters keyed by endpoint group.
+     *
+     * @return Unmodifiable map of limiters.
+     */
+    public Map<EndpointGroup, AdaptiveConcurrencyLimiter> getAll() {
+        return Collections.unmodifiableMap(limiters);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        limiters.forEach((group, limiter) -> {
+            String tag = group.name().toLowerCase();
+            Gauge.builder("userservice.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("group", tag)
+                .register(registry);
+            Gauge.builder("userservice.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("group", tag)
+                .register(registry);
+            FunctionCounter
+                .builder("userservice.concurrency.rejected", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                .tag("group", tag)
+                .register(registry);
+        });
+    }
+
+    private static AdaptiveConcurrencyLimiter create(ConcurrencyLimitProperties.Limit limit) {
+        return new AdaptiveConcurrencyLimiter(
+            limit.getInitialLimit(),
+            limit.getMinLimit(),
+            limit.getMaxLimit(),
+            limit.getLatencyThreshold()
+        );
+    }
+
+}
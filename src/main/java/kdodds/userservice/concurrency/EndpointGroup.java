@@ -0,0 +1,43 @@
+package kdodds.userservice.concurrency;
+
+/**
+ * Groups of v1 endpoints that get their own concurrency limit.
+ */
+public enum EndpointGroup {
+
+    LISTING,
+    SINGLE_READ,
+    WRITE;
+
+    private static final String V1_PREFIX = "/v1/";
+
+    private static final String USERS_PATH = "/v1/users";
+
+    private static final String CHANGES_PATH = USERS_PATH + "/changes";
+
+    /**
+     * Classifies a request by method and application path (context path already stripped).
+     *
+     * @param method The HTTP method.
+     * @param path The request path relative to the context path.
+     * @return The endpoint group, or null if the request is not a v1 API call.
+     */
+    public static EndpointGroup classify(String method, String path) {
+        if (path == null || !path.startsWith(V1_PREFIX)) {
+            return null;
+        }
+
+        boolean read = "GET".equals(method) || "HEAD".equals(method);
+        if (!read) {
+            return WRITE;
+        }
+
+        // the change feed returns pages of users too, replicas polling it share the listing budget
+        if (path.equals(USERS_PATH) || path.equals(USERS_PATH + "/") || path.equals(CHANGES_PATH)) {
+            return LISTING;
+        }
+
+        return SINGLE_READ;
+    }
+
+}
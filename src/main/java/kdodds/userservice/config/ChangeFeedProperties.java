@@ -0,0 +1,33 @@
+package kdodds.userservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings for the user change feed (user-service.changes.*).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user-service.changes")
+public class ChangeFeedProperties {
+
+    // changes per response when the caller does not pass a limit
+    private int defaultLimit = 100;
+
+    // largest limit a caller may ask for, larger limits are rejected with a 400
+    private int maxLimit = 1000;
+
+    // changes younger than this are held back, a write whose transaction has not committed yet may still land
+    // behind them and would otherwise be skipped by a cursor that already passed its updated_at
+    private Duration settleTime = Duration.ofSeconds(5);
+
+    // how long tombstones of deleted users are kept, cursors older than this are rejected with a 410
+    private Duration tombstoneRetention = Duration.ofDays(30);
+
+    // how often expired tombstones are purged
+    private Duration purgeInterval = Duration.ofHours(1);
+
+}
@@ -0,0 +1,46 @@
+package kdodds.userservice.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings for the adaptive per-endpoint concurrency limits (user-service.concurrency.*).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user-service.concurrency")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    // value sent in the Retry-After header of shed requests
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    private Limit listing = new Limit(10, 2, 50, Duration.ofMillis(500));
+
+    private Limit singleRead = new Limit(50, 5, 200, Duration.ofMillis(100));
+
+    private Limit write = new Limit(20, 2, 100, Duration.ofMillis(250));
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+
+        private int initialLimit;
+
+        private int minLimit;
+
+        private int maxLimit;
+
+        // requests slower than this are treated as a congestion signal
+        private Duration latencyThreshold;
+
+    }
+
+}
@@ -5,22 +5,158 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
 
 @Configuration
 public class JacksonConfig {
 
+    /**
+     * Media type of Jackson's Smile binary JSON format.
+     */
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    /**
+     * Media type of Jackson's Smile binary JSON format.
+     */
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    private static final MimeType[] SMILE_MIME_TYPES = {
+        APPLICATION_SMILE,
+        new MimeType("application", "*+x-jackson-smile")
+    };
+
     /**
      * Configure the Jackson ObjectMapper.
      *
      * @return ObjectMapper
      */
     @Bean
+    @Primary
     public ObjectMapper objectMapper() {
-        ObjectMapper mapper = new ObjectMapper();
+        return configure(new ObjectMapper());
+    }
+
+    /**
+     * ObjectMapper for application/cbor, configured like the JSON one so the binary bodies have the same properties.
+     *
+     * @return CBORMapper
+     */
+    @Bean
+    public CBORMapper cborMapper() {
+        return configure(new CBORMapper());
+    }
+
+    /**
+     * ObjectMapper for application/x-jackson-smile, configured like the JSON one.
+     *
+     * @return SmileMapper
+     */
+    @Bean
+    public SmileMapper smileMapper() {
+        return configure(new SmileMapper());
+    }
+
+    /**
+     * Servlet converter for application/cbor. Replaces the default one, which would be built without this
+     * configuration.
+     *
+     * @param cborMapper The CBOR mapper.
+     * @return MappingJackson2CborHttpMessageConverter
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(CBORMapper cborMapper) {
+        return new MappingJackson2CborHttpMessageConverter(cborMapper);
+    }
+
+    /**
+     * Servlet converter for application/x-jackson-smile. Replaces the default one, which would be built without this
+     * configuration.
+     *
+     * @param smileMapper The Smile mapper.
+     * @return MappingJackson2SmileHttpMessageConverter
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(SmileMapper smileMapper) {
+        return new MappingJackson2SmileHttpMessageConverter(smileMapper);
+    }
+
+    /**
+     * Registers the same CBOR and Smile mappers with WebFlux, for the reactive read endpoints. They are registered as
+     * custom codecs, the default Smile encoder is limited to HAL for representation models once HATEOAS is on the
+     * classpath. Custom writers are consulted before the default ones, so JSON is registered again ahead of them to
+     * stay the default when the client accepts any type.
+     *
+     * @param objectMapper The JSON mapper.
+     * @param cborMapper The CBOR mapper.
+     * @param smileMapper The Smile mapper.
+     * @return CodecCustomizer
+     */
+    @Bean
+    public CodecCustomizer binaryCodecCustomizer(
+        ObjectMapper objectMapper,
+        CBORMapper cborMapper,
+        SmileMapper smileMapper
+    ) {
+        return configurer -> {
+            configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+            configurer.customCodecs().register(new SingleValueCborEncoder(cborMapper));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+            // without explicit mime types the Smile codecs would claim application/json
+            configurer.customCodecs().register(new Jackson2SmileEncoder(smileMapper, SMILE_MIME_TYPES));
+            configurer.customCodecs().register(new Jackson2SmileDecoder(smileMapper, SMILE_MIME_TYPES));
+        };
+    }
+
+    /**
+     * Spring's CBOR encoder only implements encodeValue and throws from encode, which is what WebFlux calls for every
+     * response body. The reactive endpoints all return a Mono, so a single value is encoded directly.
+     */
+    private static final class SingleValueCborEncoder extends Jackson2CborEncoder {
+
+        private SingleValueCborEncoder(CBORMapper mapper) {
+            super(mapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(
+            Publisher<?> inputStream,
+            DataBufferFactory bufferFactory,
+            ResolvableType elementType,
+            MimeType mimeType,
+            Map<String, Object> hints
+        ) {
+            if (!(inputStream instanceof Mono<?> mono)) {
+                return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+            }
+            return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+        }
+
+    }
 
+    private static <T extends ObjectMapper> T configure(T mapper) {
         // don't serialize null values
         mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
 
@@ -0,0 +1,30 @@
+package kdodds.userservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Bounds for recordings started through /actuator/jfr (user-service.jfr.*).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user-service.jfr")
+public class JfrProperties {
+
+    // JFR settings the recording starts from, "default" (about 1% overhead) or "profile" (about 2%)
+    private String settings = "profile";
+
+    // recording length when the caller does not ask for one
+    private Duration defaultDuration = Duration.ofMinutes(1);
+
+    // longest recording a caller may ask for, the recording stops on its own after this
+    private Duration maxDuration = Duration.ofMinutes(10);
+
+    // the oldest data is dropped once the recording reaches this size
+    private DataSize maxSize = DataSize.ofMegabytes(100);
+
+}
@@ -0,0 +1,21 @@
+package kdodds.userservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the user listing endpoint (user-service.listing.*).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user-service.listing")
+public class ListingProperties {
+
+    // largest page a caller may ask for, larger sizes are rejected with a 400
+    private int maxPageSize = 1000;
+
+    // users read (in a transaction of their own) and written per batch of a page, addresses with one query per batch
+    private int readBatchSize = 100;
+
+}
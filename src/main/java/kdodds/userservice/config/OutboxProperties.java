@@ -0,0 +1,63 @@
+package kdodds.userservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settings for the user change event outbox and its dispatcher (user-service.outbox.*).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user-service.outbox")
+public class OutboxProperties {
+
+    // events are always written, this only stops the dispatcher from draining them
+    private boolean enabled = true;
+
+    // pause between drains once the outbox is empty
+    private Duration pollInterval = Duration.ofMillis(500);
+
+    // events read and dispatched per step
+    private int batchSize = 500;
+
+    // single threaded delivery lanes, events of one user always go through the same lane in order
+    private int lanes = 8;
+
+    // failed deliveries are retried on the next drain, an event failing this often is dropped and logged
+    private int maxAttempts = 10;
+
+    // a user whose delivery failed is skipped for twice the poll interval, doubling per failure up to this
+    private Duration maxRetryDelay = Duration.ofMinutes(1);
+
+    // sinks every event is delivered to: listeners (in-process @EventListener beans), file, http
+    private List<String> sinks = List.of("listeners");
+
+    private FileSink file = new FileSink();
+
+    private HttpSink http = new HttpSink();
+
+    @Data
+    public static class FileSink {
+
+        // events are appended as JSON lines
+        private Path path = Path.of("user-events.jsonl");
+
+    }
+
+    @Data
+    public static class HttpSink {
+
+        // each event is POSTed as JSON, any status but 2xx counts as a failed delivery
+        private URI url = URI.create("http://localhost:8089/user-events");
+
+        private Duration timeout = Duration.ofSeconds(2);
+
+    }
+
+}
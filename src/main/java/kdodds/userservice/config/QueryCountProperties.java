@@ -0,0 +1,24 @@
+package kdodds.userservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for counting the statements and entities of each request (user-service.query-count.*).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user-service.query-count")
+public class QueryCountProperties {
+
+    // when false requests are not counted, the counts are neither published nor sent back
+    private boolean enabled = true;
+
+    // send the counts back as X-Query-Count and X-Entity-Count response headers, off in prod
+    private boolean headers = true;
+
+    // a request running the same statement this many times is reported as a likely N+1
+    private int repeatedStatementThreshold = 5;
+
+}
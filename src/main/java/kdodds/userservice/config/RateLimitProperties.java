@@ -0,0 +1,53 @@
+package kdodds.userservice.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Settings for per-client rate limiting (user-service.rate-limit.*).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user-service.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // clients sending one of the known api keys in this header are limited by key, everyone else by remote address
+    private String apiKeyHeader = "X-API-Key";
+
+    // the api keys that get a budget of their own, any other value is ignored so clients cannot mint fresh budgets
+    private Set<String> apiKeys = Set.of();
+
+    // buckets held per tier at most, clients arriving while a tier is full share one overflow bucket
+    private int maxClients = 100_000;
+
+    // how often buckets that have refilled completely are dropped from memory
+    private Duration evictionInterval = Duration.ofMinutes(1);
+
+    private Budget listing = new Budget(120, Duration.ofMinutes(1));
+
+    private Budget search = new Budget(60, Duration.ofMinutes(1));
+
+    private Budget write = new Budget(60, Duration.ofMinutes(1));
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Budget {
+
+        // bucket size, also the burst a client may send at once
+        private int capacity;
+
+        // time for an empty bucket to refill completely
+        private Duration period;
+
+    }
+
+}
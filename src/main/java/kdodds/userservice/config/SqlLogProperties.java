@@ -0,0 +1,39 @@
+package kdodds.userservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settings for the statement log that replaces show-sql (user-service.sql-log.*).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user-service.sql-log")
+public class SqlLogProperties {
+
+    // when false no statement is logged and repository calls are not tracked
+    private boolean enabled = true;
+
+    // statements taking at least this long are always logged
+    private Duration slowThreshold = Duration.ofMillis(200);
+
+    // share of faster statements logged as well, 0 to 1, can be changed through /actuator/sqllog
+    private double sampleRate = 0.0;
+
+    // when false bind parameters are logged as *** only, values are meant for local troubleshooting
+    private boolean logParameters = false;
+
+    // parameters bound to these columns are masked even when parameters are logged
+    private List<String> maskedColumns = List.of(
+        "password_hash", "email", "phone_number", "first_name", "last_name", "address_line_1", "address_line_2",
+        "zip_code"
+    );
+
+    // longer bind parameter values are cut off in the log
+    private int maxParameterLength = 100;
+
+}
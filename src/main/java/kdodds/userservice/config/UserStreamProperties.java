@@ -0,0 +1,35 @@
+package kdodds.userservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings for the server-sent user event streams (user-service.streams.*).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user-service.streams")
+public class UserStreamProperties {
+
+    // events queued for one subscriber, a subscriber that falls this far behind is disconnected
+    private int bufferSize = 32;
+
+    // threads reading and serializing changed users for the streams, the changes of one user always use the same one
+    private int readLanes = 4;
+
+    // changes waiting per read lane, when a lane falls this far behind the streams it would feed are disconnected
+    private int readQueueSize = 1000;
+
+    // open streams per instance, further subscriptions are rejected with a 503
+    private int maxSubscribers = 1000;
+
+    // streams are closed after this, EventSource clients reconnect by themselves
+    private Duration timeout = Duration.ofMinutes(30);
+
+    // a comment is sent on a stream idle this long, so proxies keep it open and dead clients are noticed
+    private Duration heartbeat = Duration.ofSeconds(15);
+
+}
@@ -0,0 +1,35 @@
+package kdodds.userservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kdodds.userservice.ids.UuidPathVariableInterceptor;
+import kdodds.userservice.jfr.SerializationEvents;
+import kdodds.userservice.negotiation.VaryAcceptInterceptor;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@AllArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private ObjectMapper objectMapper;
+
+    private SerializationEvents serializationEvents;
+
+    /**
+     * Validates UUID path variables before any handler runs, marks negotiated responses with {@code Vary: Accept}, and
+     * completes the JFR serialization events.
+     *
+     * @param registry The interceptor registry.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new UuidPathVariableInterceptor(objectMapper));
+        registry.addInterceptor(new VaryAcceptInterceptor());
+        registry.addInterceptor(serializationEvents);
+    }
+
+}
@@ -0,0 +1,83 @@
+package kdodds.userservice.controllers.v1;
+
+import kdodds.userservice.dto.responses.PagedUsersResponseDto;
+import kdodds.userservice.dto.responses.UserAddressesResponseDto;
+import kdodds.userservice.dto.responses.UserProfileResponseDto;
+import kdodds.userservice.dto.responses.UserResponseDto;
+import kdodds.userservice.repositories.specifications.UserFilter;
+import kdodds.userservice.services.ReactiveUserReadService;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Read-only user endpoints for the reactive deployment mode (the "reactive" profile). Serves the same paths and
+ * bodies as the servlet controllers, without HATEOAS links.
+ */
+@RestController
+@RequestMapping("/v1/users")
+@AllArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserReadController {
+
+    private ReactiveUserReadService reactiveUserReadService;
+
+    /**
+     * Gets all users, paginated according to page and size parameters.
+     */
+    @GetMapping()
+    public Mono<PagedUsersResponseDto> getAllUsersPaginated(
+        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(defaultValue = "10") int size,
+        @RequestParam(required = false) String username,
+        @RequestParam(required = false) String email,
+        @RequestParam(required = false) String firstName,
+        @RequestParam(required = false) String lastName,
+        @RequestParam(required = false) String status
+    ) {
+        UserFilter filter = UserFilter.of(username, email, firstName, lastName, status);
+
+        return reactiveUserReadService.getAllUsersPaginated(page, size, filter);
+    }
+
+    /**
+     * Gets all user data for a given user id.
+     *
+     * @param userId The unique user id of the user
+     * @return UserResponseDto
+     */
+    @GetMapping("/{userId}")
+    public Mono<UserResponseDto> getUserByUserId(@PathVariable UUID userId) {
+        return reactiveUserReadService.getUserResponseDto(userId);
+    }
+
+    /**
+     * Get user profile for a given user id.
+     *
+     * @param userId Unique user id of the user.
+     * @return UserProfileResponseDto
+     */
+    @GetMapping("/{userId}/profile")
+    public Mono<UserProfileResponseDto> getUserProfileByUserId(@PathVariable UUID userId) {
+        return reactiveUserReadService.getUserProfileDtoByUserId(userId);
+    }
+
+    /**
+     * Get user addresses for a given user id.
+     *
+     * @param userId Unique user id of the user.
+     * @return UserAddressesResponseDto
+     */
+    @GetMapping("/{userId}/addresses")
+    public Mono<UserAddressesResponseDto> getUserAddressesByUserId(@PathVariable UUID userId) {
+        return reactiveUserReadService.getUserAddressesDtoByUserId(userId);
+    }
+
+}
@@ -2,16 +2,24 @@ package kdodds.userservice.controllers.v1;
 
 import kdodds.userservice.assemblers.UserAddressModelAssembler;
 import kdodds.userservice.assemblers.UserAddressesModelAssembler;
+import kdodds.userservice.config.JacksonConfig;
 import kdodds.userservice.dto.requests.CreateUserAddressRequestDto;
 import kdodds.userservice.dto.requests.PatchUserAddressRequestDto;
 import kdodds.userservice.dto.responses.UserAddressResponseDto;
 import kdodds.userservice.dto.responses.UserAddressesResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserAddressResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserAddressesResponseDto;
 import kdodds.userservice.exceptions.models.exceptions.InvalidRequestDataException;
-import kdodds.userservice.exceptions.models.exceptions.InvalidUserIdException;
+import kdodds.userservice.negotiation.PlainMediaTypes;
+import kdodds.userservice.services.Etags;
 import kdodds.userservice.services.UserAddressService;
 import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,12 +27,18 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/v1/users/{userId}/addresses")
 @AllArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserAddressController {
 
     private UserAddressService userAddressService;
@@ -37,21 +51,58 @@ public class UserAddressController {
      * Get user addresses for a given user id.
      *
      * @param userId Unique user id of the user.
-     * @return UserAddressesResponse object.
+     * @param request The current request, used to evaluate If-None-Match.
+     * @return UserAddressesResponse object, or an empty 304 if the client's copy is current.
      */
-    @GetMapping("")
-    public ResponseEntity<EntityModel<UserAddressesResponseDto>> getUserAddressesByUserId(@PathVariable String userId)
-        throws Exception {
-        if (userId == null || userId.isEmpty()) {
-            throw new InvalidUserIdException();
+    @GetMapping(value = "", produces = {MediaTypes.HAL_JSON_VALUE, MediaType.ALL_VALUE})
+    public ResponseEntity<EntityModel<UserAddressesResponseDto>> getUserAddressesByUserId(
+        @PathVariable UUID userId,
+        WebRequest request
+    ) throws Exception {
+        Optional<String> etag = userAddressService.getUserAddressesEtag(userId);
+        if (etag.isPresent() && request.checkNotModified(etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
         }
 
         UserAddressesResponseDto addressesResponseDto = userAddressService.getUserAddressesDtoByUserId(userId);
 
-        return new ResponseEntity<>(
-            userAddressesModelAssembler.toModel(addressesResponseDto),
-            HttpStatus.OK
-        );
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.OK);
+        etag.ifPresent(builder::eTag);
+
+        return builder.body(userAddressesModelAssembler.toModel(addressesResponseDto));
+    }
+
+    /**
+     * Get user addresses for a given user id as plain JSON, without links.
+     *
+     * @param userId Unique user id of the user.
+     * @param accept The Accept header, picks the representation and with it the ETag.
+     * @param request The current request, used to evaluate If-None-Match.
+     * @return LeanUserAddressesResponseDto, or an empty 304 if the client's copy is current.
+     */
+    @GetMapping(value = "", produces = {
+        MediaType.APPLICATION_JSON_VALUE,
+        MediaType.APPLICATION_CBOR_VALUE,
+        JacksonConfig.APPLICATION_SMILE_VALUE
+    })
+    public ResponseEntity<LeanUserAddressesResponseDto> getUserAddressesByUserIdLean(
+        @PathVariable UUID userId,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        WebRequest request
+    ) throws Exception {
+        MediaType mediaType = PlainMediaTypes.select(accept);
+        Optional<String> etag = userAddressService.getUserAddressesEtag(userId)
+            .map(addressesEtag -> Etags.leanVariant(addressesEtag, mediaType));
+        if (etag.isPresent() && request.checkNotModified(etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+        }
+
+        LeanUserAddressesResponseDto addressesResponseDto = userAddressService.getLeanUserAddressesDtoByUserId(userId);
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.OK);
+        etag.ifPresent(builder::eTag);
+
+        return builder.body(addressesResponseDto);
     }
 
     /**
@@ -61,13 +112,18 @@ public class UserAddressController {
      * @param request The CreateUserAddressRequestDto to use for the data.
      * @return UserAddressResponseDto wrapped in a ResponseEntity.
      */
-    @PostMapping("")
+    @PostMapping(value = "", produces = {
+        MediaTypes.HAL_JSON_VALUE,
+        MediaType.APPLICATION_JSON_VALUE,
+        MediaType.APPLICATION_CBOR_VALUE,
+        JacksonConfig.APPLICATION_SMILE_VALUE
+    })
     public ResponseEntity<EntityModel<UserAddressResponseDto>> createUserAddressesForUserId(
-        @PathVariable String userId,
+        @PathVariable UUID userId,
         @RequestBody CreateUserAddressRequestDto request
     ) throws Exception {
-        if (request == null || userId == null || userId.isEmpty()) {
-            throw new InvalidRequestDataException("Request body and user id must be included");
+        if (request == null) {
+            throw new InvalidRequestDataException("Request body must be included");
         }
 
         UserAddressResponseDto address = userAddressService.createUserAddress(userId, request);
@@ -85,25 +141,41 @@ public class UserAddressController {
      * @param addressId The address id to use for the test data.
      * @return UserAddressResponseDto
      */
-    @GetMapping("/{addressId}")
+    @GetMapping(value = "/{addressId}", produces = {MediaTypes.HAL_JSON_VALUE, MediaType.ALL_VALUE})
     public ResponseEntity<EntityModel<UserAddressResponseDto>> getUserAddressById(
-        @PathVariable String userId,
-        @PathVariable String addressId
+        @PathVariable UUID userId,
+        @PathVariable UUID addressId
     ) throws Exception {
-        if (userId == null || userId.isEmpty()) {
-            throw new InvalidUserIdException();
-        }
+        UserAddressResponseDto response = userAddressService.getUserAddressDtoById(userId, addressId);
 
-        if (addressId == null || addressId.isEmpty()) {
-            throw new InvalidRequestDataException("Invalid null or empty address id");
-        }
+        return ResponseEntity.status(HttpStatus.OK)
+            .eTag(Etags.forVersion(response.getVersion()))
+            .body(userAddressModelAssembler.toModel(response));
+    }
 
+    /**
+     * Get a user address by address id as plain JSON, without links.
+     *
+     * @param userId The user id of the owning user.
+     * @param addressId The address id of the address.
+     * @param accept The Accept header, picks the representation and with it the ETag.
+     * @return LeanUserAddressResponseDto, with the address ETag.
+     */
+    @GetMapping(value = "/{addressId}", produces = {
+        MediaType.APPLICATION_JSON_VALUE,
+        MediaType.APPLICATION_CBOR_VALUE,
+        JacksonConfig.APPLICATION_SMILE_VALUE
+    })
+    public ResponseEntity<LeanUserAddressResponseDto> getUserAddressByIdLean(
+        @PathVariable UUID userId,
+        @PathVariable UUID addressId,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
+    ) throws Exception {
         UserAddressResponseDto response = userAddressService.getUserAddressDtoById(userId, addressId);
 
-        return new ResponseEntity<>(
-            userAddressModelAssembler.toModel(response),
-            HttpStatus.OK
-        );
+        return ResponseEntity.status(HttpStatus.OK)
+            .eTag(Etags.leanVariant(Etags.forVersion(response.getVersion()), PlainMediaTypes.select(accept)))
+            .body(LeanUserAddressResponseDto.from(response));
     }
 
     /**
@@ -116,17 +188,9 @@ public class UserAddressController {
      */
     @DeleteMapping("/{addressId}")
     public ResponseEntity<Void> deleteUserAddressById(
-        @PathVariable String userId,
-        @PathVariable String addressId
+        @PathVariable UUID userId,
+        @PathVariable UUID addressId
     ) throws Exception {
-        if (userId == null || userId.isEmpty()) {
-            throw new InvalidUserIdException();
-        }
-
-        if (addressId == null || addressId.isEmpty()) {
-            throw new InvalidRequestDataException("Invalid null or empty address id");
-        }
-
         userAddressService.deleteUserAddressByAddressId(userId, addressId);
 
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -138,29 +202,27 @@ public class UserAddressController {
      * @param userId The user id of the owning user.
      * @param addressId The address id of the address to update.
      * @param request The PatchUserAddressRequestDto to use for the data.
-     * @return UserAddressResponseDto wrapped in a ResponseEntity.
+     * @param ifMatch Optional If-Match header, the update is rejected with a 412 if it does not match the address.
+     * @return UserAddressResponseDto wrapped in a ResponseEntity, with the new ETag.
      * @throws Exception Throws an exception if the request is invalid or attempt to update the user fails.
      */
-    @PatchMapping("/{addressId}")
+    @PatchMapping(value = "/{addressId}", produces = {
+        MediaTypes.HAL_JSON_VALUE,
+        MediaType.APPLICATION_JSON_VALUE,
+        MediaType.APPLICATION_CBOR_VALUE,
+        JacksonConfig.APPLICATION_SMILE_VALUE
+    })
     public ResponseEntity<EntityModel<UserAddressResponseDto>> updateUserAddressById(
-        @PathVariable String userId,
-        @PathVariable String addressId,
-        @RequestBody PatchUserAddressRequestDto request
+        @PathVariable UUID userId,
+        @PathVariable UUID addressId,
+        @RequestBody PatchUserAddressRequestDto request,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws Exception {
-        if (userId == null || userId.isEmpty()) {
-            throw new InvalidUserIdException();
-        }
+        UserAddressResponseDto response = userAddressService.updateUserAddressById(userId, addressId, request, ifMatch);
 
-        if (addressId == null || addressId.isEmpty()) {
-            throw new InvalidRequestDataException("Invalid null or empty address id");
-        }
-
-        UserAddressResponseDto response = userAddressService.updateUserAddressById(userId, addressId, request);
-
-        return new ResponseEntity<>(
-            userAddressModelAssembler.toModel(response),
-            HttpStatus.OK
-        );
+        return ResponseEntity.status(HttpStatus.OK)
+            .eTag(Etags.forVersion(response.getVersion()))
+            .body(userAddressModelAssembler.toModel(response));
     }
 
 }
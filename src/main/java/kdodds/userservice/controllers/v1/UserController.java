@@ -2,19 +2,35 @@ package kdodds.userservice.controllers.v1;
 
 import kdodds.userservice.assemblers.PagedUsersModelAssembler;
 import kdodds.userservice.assemblers.UserModelAssembler;
+import kdodds.userservice.config.ChangeFeedProperties;
+import kdodds.userservice.config.JacksonConfig;
+import kdodds.userservice.config.ListingProperties;
 import kdodds.userservice.dto.requests.CreateUserRequestDto;
 import kdodds.userservice.dto.requests.PatchUserRequestDto;
 import kdodds.userservice.dto.responses.PagedUsersResponseDto;
+import kdodds.userservice.dto.responses.UserPageStream;
 import kdodds.userservice.dto.responses.UserResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanPagedUsersResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserChangesResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserResponseDto;
 import kdodds.userservice.entities.User;
 import kdodds.userservice.exceptions.models.exceptions.InvalidRequestDataException;
-import kdodds.userservice.exceptions.models.exceptions.InvalidUserIdException;
+import kdodds.userservice.negotiation.PlainMediaTypes;
+import kdodds.userservice.repositories.projections.UserFieldSet;
+import kdodds.userservice.repositories.specifications.UserFilter;
 import kdodds.userservice.repositories.specifications.UserSpecification;
+import kdodds.userservice.services.Etags;
+import kdodds.userservice.services.UserChangeService;
 import kdodds.userservice.services.UserService;
+import kdodds.userservice.services.UserStreamService;
 import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,38 +38,63 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 /**
- * Handles all user related endpoints.
+ * Handles all user related endpoints. Reads are served as HAL by default; callers sending
+ * {@code Accept: application/json} (or CBOR/Smile) get plain record DTOs without links, built without the model
+ * assemblers.
  */
 
 @RestController()
 @RequestMapping("/v1/users")
 @AllArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
 
     private UserService userService;
 
+    private UserChangeService userChangeService;
+
+    private UserStreamService userStreamService;
+
     private UserModelAssembler userModelAssembler;
 
     private PagedUsersModelAssembler pagedUsersModelAssembler;
 
+    private ListingProperties listingProperties;
+
+    private ChangeFeedProperties changeFeedProperties;
+
     /**
-     * Gets all users, paginated according to page and size parameters.
+     * Gets all users, paginated according to page and size parameters. The optional fields parameter (e.g.
+     * {@code fields=user_id,username,first_name}) limits the columns read and rendered for each user, per user links
+     * are only added when {@code links} is one of the fields. The page is read and written in batches, see
+     * {@link UserPageStream}.
      */
-    @GetMapping()
-    public ResponseEntity<EntityModel<PagedUsersResponseDto>> getAllUsersPaginated(
+    @GetMapping(produces = {MediaTypes.HAL_JSON_VALUE, MediaType.ALL_VALUE})
+    public ResponseEntity<UserPageStream<UserResponseDto>> getAllUsersPaginated(
         @RequestParam(defaultValue = "0") int page,
         @RequestParam(defaultValue = "10") int size,
         @RequestParam(required = false) String username,
         @RequestParam(required = false) String email,
         @RequestParam(required = false) String firstName,
         @RequestParam(required = false) String lastName,
-        @RequestParam(required = false) String status
+        @RequestParam(required = false) String status,
+        @RequestParam(required = false) String fields
     ) throws Exception {
+        validatePageRequest(page, size);
+        UserFieldSet fieldSet = UserFieldSet.parse(fields);
+
         // build the UserSpecification
         Specification<User> spec = UserSpecification.build(
             username,
@@ -63,39 +104,201 @@ public class UserController {
             status
         );
 
-        PagedUsersResponseDto response = userService.getAllUsersPaginated(page, size, spec);
+        UserPageStream<UserResponseDto> response = UserPageStream.of(
+            page,
+            size,
+            listingProperties.getReadBatchSize(),
+            (afterId, offset, limit) -> {
+                List<UserResponseDto> users = userService.getUserBatch(spec, fieldSet, afterId, offset, limit);
+                if (fieldSet.includesLinks()) {
+                    users.forEach(pagedUsersModelAssembler::addItemLinks);
+                }
+                return users;
+            },
+            UserResponseDto::getUserId,
+            () -> userService.countUsers(spec),
+            // the page metadata and pagination links follow the users
+            pageDto -> pagedUsersModelAssembler
+                .toModel(PagedUsersResponseDto.builder().page(pageDto).build(), false)
+                .getContent()
+        );
 
-        return new ResponseEntity<>(
-            pagedUsersModelAssembler.toModel(response),
-            HttpStatus.OK
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Gets all users as plain JSON (or CBOR/Smile), without pagination or per user links. The page is read and written
+     * in batches, see {@link UserPageStream}.
+     */
+    @GetMapping(produces = {
+        MediaType.APPLICATION_JSON_VALUE,
+        MediaType.APPLICATION_CBOR_VALUE,
+        JacksonConfig.APPLICATION_SMILE_VALUE
+    })
+    public ResponseEntity<UserPageStream<LeanUserResponseDto>> getAllUsersPaginatedLean(
+        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(defaultValue = "10") int size,
+        @RequestParam(required = false) String username,
+        @RequestParam(required = false) String email,
+        @RequestParam(required = false) String firstName,
+        @RequestParam(required = false) String lastName,
+        @RequestParam(required = false) String status,
+        @RequestParam(required = false) String fields
+    ) throws Exception {
+        validatePageRequest(page, size);
+        UserFieldSet fieldSet = UserFieldSet.parse(fields);
+        Specification<User> spec = UserSpecification.build(username, email, firstName, lastName, status);
+
+        UserPageStream<LeanUserResponseDto> response = UserPageStream.of(
+            page,
+            size,
+            listingProperties.getReadBatchSize(),
+            (afterId, offset, limit) -> userService.getLeanUserBatch(spec, fieldSet, afterId, offset, limit),
+            LeanUserResponseDto::userId,
+            () -> userService.countUsers(spec),
+            pageDto -> new LeanPagedUsersResponseDto(null, pageDto)
         );
+
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Gets the users created, changed (including their profile or addresses) or deleted since a cursor, oldest first,
+     * as plain JSON (or CBOR/Smile). Replicas sync by passing the returned next_cursor back as since, so each call
+     * costs in proportion to the changes rather than the number of users.
+     *
+     * @param since The cursor returned by the previous call, absent to start with every user.
+     * @param limit The maximum number of changes to return.
+     * @return LeanUserChangesResponseDto wrapped in a ResponseEntity
+     * @throws Exception Throws an exception if the changes cannot be read.
+     */
+    @GetMapping(value = "/changes", produces = {
+        MediaType.APPLICATION_JSON_VALUE,
+        MediaType.APPLICATION_CBOR_VALUE,
+        JacksonConfig.APPLICATION_SMILE_VALUE
+    })
+    public ResponseEntity<LeanUserChangesResponseDto> getUserChanges(
+        @RequestParam(required = false) String since,
+        @RequestParam(required = false) Integer limit
+    ) throws Exception {
+        int changeLimit = limit == null ? changeFeedProperties.getDefaultLimit() : limit;
+        if (changeLimit < 1 || changeLimit > changeFeedProperties.getMaxLimit()) {
+            throw new InvalidRequestDataException(
+                String.format("Limit must be between 1 and %d", changeFeedProperties.getMaxLimit())
+            );
+        }
+
+        return ResponseEntity.ok(userChangeService.getChanges(since, changeLimit));
+    }
+
+    /**
+     * Streams the changes of every user matching the listing filters as server-sent events: a {@code user} event with
+     * the new state of a changed user, a {@code deleted} event for each deleted user.
+     *
+     * @return SseEmitter
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserEvents(
+        @RequestParam(required = false) String username,
+        @RequestParam(required = false) String email,
+        @RequestParam(required = false) String firstName,
+        @RequestParam(required = false) String lastName,
+        @RequestParam(required = false) String status
+    ) {
+        return userStreamService.subscribe(UserFilter.of(username, email, firstName, lastName, status));
+    }
+
+    /**
+     * Streams the changes of one user as server-sent events, starting with its current state. Changes of the user,
+     * its profile or its addresses arrive as {@code user} events, the stream ends with a {@code deleted} event.
+     *
+     * @param userId The unique user id of the user
+     * @return SseEmitter
+     * @throws Exception Throws an exception if the user does not exist or cannot be read.
+     */
+    @GetMapping(value = "/{userId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserEventsByUserId(@PathVariable UUID userId) throws Exception {
+        return userStreamService.subscribe(userId);
     }
 
     /**
      * Gets all user data for a given user id.
      *
      * @param userId The unique user id of the user
-     * @return UserResponse wrapped in a ResponseEntity
+     * @param fields Optional comma separated list of fields to read and render, all fields if absent.
+     * @param request The current request, used to evaluate If-None-Match.
+     * @return UserResponse wrapped in a ResponseEntity, or an empty 304 if the client's copy is current
      */
-    @GetMapping("/{userId}")
-    public ResponseEntity<EntityModel<UserResponseDto>> getUserByUserId(@PathVariable String userId) throws Exception {
-        // check for null or invalid user id
-        if (userId == null || userId.isEmpty()) {
-            throw new InvalidUserIdException();
+    @GetMapping(value = "/{userId}", produces = {MediaTypes.HAL_JSON_VALUE, MediaType.ALL_VALUE})
+    public ResponseEntity<EntityModel<UserResponseDto>> getUserByUserId(
+        @PathVariable UUID userId,
+        @RequestParam(required = false) String fields,
+        WebRequest request
+    ) throws Exception {
+        UserFieldSet fieldSet = UserFieldSet.parse(fields);
+
+        // answer conditional requests from the versions alone, before loading the user
+        Optional<String> etag = userService.getUserEtag(userId).map(fieldSet::variantOf);
+        if (etag.isPresent() && request.checkNotModified(etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
         }
 
-        UserResponseDto response = userService.getUserResponseDto(userId);
+        UserResponseDto response = userService.getUserResponseDto(userId, fieldSet);
 
-        return new ResponseEntity<>(
-            userModelAssembler.toModel(response),
-            HttpStatus.OK
-        );
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.OK);
+        etag.ifPresent(builder::eTag);
+
+        return builder.body(fieldSet.includesLinks() ? userModelAssembler.toModel(response) : EntityModel.of(response));
+    }
+
+    /**
+     * Gets all user data for a given user id as plain JSON, without links.
+     *
+     * @param userId The unique user id of the user
+     * @param fields Optional comma separated list of fields to read and render, all fields if absent.
+     * @param accept The Accept header, picks the representation and with it the ETag.
+     * @param request The current request, used to evaluate If-None-Match.
+     * @return LeanUserResponseDto wrapped in a ResponseEntity, or an empty 304 if the client's copy is current
+     */
+    @GetMapping(value = "/{userId}", produces = {
+        MediaType.APPLICATION_JSON_VALUE,
+        MediaType.APPLICATION_CBOR_VALUE,
+        JacksonConfig.APPLICATION_SMILE_VALUE
+    })
+    public ResponseEntity<LeanUserResponseDto> getUserByUserIdLean(
+        @PathVariable UUID userId,
+        @RequestParam(required = false) String fields,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        WebRequest request
+    ) throws Exception {
+        UserFieldSet fieldSet = UserFieldSet.parse(fields);
+        MediaType mediaType = PlainMediaTypes.select(accept);
+
+        Optional<String> etag = userService.getUserEtag(userId)
+            .map(fieldSet::variantOf)
+            .map(userEtag -> Etags.leanVariant(userEtag, mediaType));
+        if (etag.isPresent() && request.checkNotModified(etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+        }
+
+        LeanUserResponseDto response = userService.getLeanUserResponseDto(userId, fieldSet);
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.OK);
+        etag.ifPresent(builder::eTag);
+
+        return builder.body(response);
     }
 
     /**
-     * Creates a new user with a unique username and email.
+     * Creates a new user with a unique username and email. Like the updates, the created user is answered in HAL,
+     * JSON, CBOR or Smile, whichever the Accept header prefers.
      */
-    @PostMapping()
+    @PostMapping(produces = {
+        MediaTypes.HAL_JSON_VALUE,
+        MediaType.APPLICATION_JSON_VALUE,
+        MediaType.APPLICATION_CBOR_VALUE,
+        JacksonConfig.APPLICATION_SMILE_VALUE
+    })
     public ResponseEntity<EntityModel<UserResponseDto>> createUser(@RequestBody CreateUserRequestDto request)
         throws Exception {
         // request body must be included
@@ -123,11 +326,7 @@ public class UserController {
      * @throws Exception Throws an exception if the user cannot be deleted.
      */
     @DeleteMapping("/{userId}")
-    public ResponseEntity<Void> deleteUser(@PathVariable String userId) throws Exception {
-        if (userId == null || userId.isEmpty()) {
-            throw new InvalidUserIdException();
-        }
-
+    public ResponseEntity<Void> deleteUser(@PathVariable UUID userId) throws Exception {
         // call service
         userService.deleteUserByUserId(userId);
 
@@ -139,24 +338,38 @@ public class UserController {
      *
      * @param userId The user id of the user to update.
      * @param request The PatchUserRequestDto to use for the data.
-     * @return UserResponseDto wrapped in a ResponseEntity.
+     * @param ifMatch Optional If-Match header, the update is rejected with a 412 if it does not match the user.
+     * @return UserResponseDto wrapped in a ResponseEntity, with the new ETag.
      * @throws Exception Throws an exception if the request is invalid or the attempt to update the user fails.
      */
-    @PatchMapping("/{userId}")
+    @PatchMapping(value = "/{userId}", produces = {
+        MediaTypes.HAL_JSON_VALUE,
+        MediaType.APPLICATION_JSON_VALUE,
+        MediaType.APPLICATION_CBOR_VALUE,
+        JacksonConfig.APPLICATION_SMILE_VALUE
+    })
     public ResponseEntity<EntityModel<UserResponseDto>> updateUser(
-        @PathVariable String userId,
-        @RequestBody PatchUserRequestDto request
+        @PathVariable UUID userId,
+        @RequestBody PatchUserRequestDto request,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws Exception {
-        if (userId == null || userId.isEmpty()) {
-            throw new InvalidUserIdException();
-        }
+        UserResponseDto updatedUser = userService.updateUser(userId, request, ifMatch);
 
-        UserResponseDto updatedUser = userService.updateUser(userId, request);
+        return ResponseEntity.status(HttpStatus.OK)
+            .eTag(updatedUser.getEtag())
+            .body(userModelAssembler.toModel(updatedUser));
+    }
 
-        return new ResponseEntity<>(
-            userModelAssembler.toModel(updatedUser),
-            HttpStatus.OK
-        );
+    private void validatePageRequest(int page, int size) {
+        if (page < 0) {
+            throw new InvalidRequestDataException("Page must not be negative");
+        }
+
+        if (size < 1 || size > listingProperties.getMaxPageSize()) {
+            throw new InvalidRequestDataException(
+                String.format("Size must be between 1 and %d", listingProperties.getMaxPageSize())
+            );
+        }
     }
 
     private void validateCreateUserRequest(CreateUserRequestDto request) {
@@ -1,21 +1,34 @@
 package kdodds.userservice.controllers.v1;
 
 import kdodds.userservice.assemblers.UserProfileModelAssembler;
+import kdodds.userservice.config.JacksonConfig;
 import kdodds.userservice.dto.responses.UserProfileResponseDto;
-import kdodds.userservice.exceptions.models.exceptions.InvalidUserIdException;
+import kdodds.userservice.dto.responses.lean.LeanUserProfileResponseDto;
+import kdodds.userservice.negotiation.PlainMediaTypes;
+import kdodds.userservice.services.Etags;
 import kdodds.userservice.services.UserService;
 import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/v1/users/{userId}/profile")
 @AllArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserProfileController {
 
     private UserService userService;
@@ -26,21 +39,58 @@ public class UserProfileController {
      * Get user profile for a given user id.
      *
      * @param userId Unique user id of the user.
-     * @return UserProfile object.
+     * @param request The current request, used to evaluate If-None-Match.
+     * @return UserProfile object, or an empty 304 if the client's copy is current.
      */
-    @GetMapping("")
-    public ResponseEntity<EntityModel<UserProfileResponseDto>> getUserProfileByUserId(@PathVariable String userId)
-        throws Exception {
-        if (userId == null || userId.isEmpty()) {
-            throw new InvalidUserIdException();
+    @GetMapping(value = "", produces = {MediaTypes.HAL_JSON_VALUE, MediaType.ALL_VALUE})
+    public ResponseEntity<EntityModel<UserProfileResponseDto>> getUserProfileByUserId(
+        @PathVariable UUID userId,
+        WebRequest request
+    ) throws Exception {
+        Optional<String> etag = userService.getUserProfileEtag(userId);
+        if (etag.isPresent() && request.checkNotModified(etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
         }
 
         UserProfileResponseDto userProfileResponseDto = userService.getUserProfileDtoByUserId(userId);
 
-        return new ResponseEntity<>(
-            userProfileModelAssembler.toModel(userProfileResponseDto),
-            HttpStatus.OK
-        );
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.OK);
+        etag.ifPresent(builder::eTag);
+
+        return builder.body(userProfileModelAssembler.toModel(userProfileResponseDto));
+    }
+
+    /**
+     * Get user profile for a given user id as plain JSON, without links.
+     *
+     * @param userId Unique user id of the user.
+     * @param accept The Accept header, picks the representation and with it the ETag.
+     * @param request The current request, used to evaluate If-None-Match.
+     * @return LeanUserProfileResponseDto, or an empty 304 if the client's copy is current.
+     */
+    @GetMapping(value = "", produces = {
+        MediaType.APPLICATION_JSON_VALUE,
+        MediaType.APPLICATION_CBOR_VALUE,
+        JacksonConfig.APPLICATION_SMILE_VALUE
+    })
+    public ResponseEntity<LeanUserProfileResponseDto> getUserProfileByUserIdLean(
+        @PathVariable UUID userId,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        WebRequest request
+    ) throws Exception {
+        MediaType mediaType = PlainMediaTypes.select(accept);
+        Optional<String> etag = userService.getUserProfileEtag(userId)
+            .map(profileEtag -> Etags.leanVariant(profileEtag, mediaType));
+        if (etag.isPresent() && request.checkNotModified(etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+        }
+
+        UserProfileResponseDto userProfileResponseDto = userService.getUserProfileDtoByUserId(userId);
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.OK);
+        etag.ifPresent(builder::eTag);
+
+        return builder.body(LeanUserProfileResponseDto.from(userProfileResponseDto));
     }
 
 }
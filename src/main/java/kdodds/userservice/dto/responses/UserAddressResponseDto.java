@@ -1,9 +1,11 @@
 package kdodds.userservice.dto.responses;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.repositories.projections.UserAddressRow;
 import lombok.Builder;
 import lombok.Data;
 import lombok.extern.jackson.Jacksonized;
@@ -50,6 +52,10 @@ public class UserAddressResponseDto extends RepresentationModel<UserAddressRespo
     @JsonProperty("updated_at")
     private Instant updatedAt;
 
+    // exposed as the ETag header rather than in the body
+    @JsonIgnore
+    private long version;
+
     /**
      * Helper method to convert an entity to a DTO.
      *
@@ -69,6 +75,29 @@ public class UserAddressResponseDto extends RepresentationModel<UserAddressRespo
             .country(userAddress.getCountry())
             .createdAt(userAddress.getCreatedAt())
             .updatedAt(userAddress.getUpdatedAt())
+            .version(userAddress.getVersion())
+            .build();
+    }
+
+    /**
+     * Helper method to convert a projection row to a DTO. Rows carry no version, listings don't expose one.
+     *
+     * @param row The row to convert.
+     * @return UserAddressResponseDto
+     */
+    public static UserAddressResponseDto fromRow(UserAddressRow row) {
+        return UserAddressResponseDto.builder()
+            .addressId(row.id().toString())
+            .userId(row.userId().toString())
+            .addressType(row.addressType())
+            .addressLine1(row.addressLine1())
+            .addressLine2(row.addressLine2())
+            .city(row.city())
+            .state(row.state())
+            .zipCode(row.zipCode())
+            .country(row.country())
+            .createdAt(row.createdAt())
+            .updatedAt(row.updatedAt())
             .build();
     }
 
@@ -0,0 +1,177 @@
+package kdodds.userservice.dto.responses;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+import kdodds.userservice.exceptions.models.exceptions.ResponseStreamAbortedException;
+import org.springframework.hateoas.RepresentationModel;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A page of users that is read and written in batches while the response body is written, so neither the page nor a
+ * database connection is held for the whole response. The first batch is read when the stream is created, before
+ * anything is written, so a failing page is still answered with an error status. A later failure can only end the
+ * response early; it is raised as a {@link ResponseStreamAbortedException} so the connection is closed without
+ * completing the body.
+ *
+ * <p>The body has the same properties as {@link PagedUsersResponseDto}: the users array, then the properties of the
+ * tail built from the page metadata (the page itself, and pagination links for HAL).
+ *
+ * @param <T> The type of the users on the page.
+ */
+public class UserPageStream<T> extends RepresentationModel<UserPageStream<T>> implements JsonSerializable {
+
+    /**
+     * Reads one batch of users, ordered by user id.
+     *
+     * @param <T> The type of the users read.
+     */
+    @FunctionalInterface
+    public interface BatchReader<T> {
+
+        /**
+         * Reads the next batch of users.
+         *
+         * @param afterId The last user id written, null for the first batch.
+         * @param offset The number of users to skip, only used for the first batch.
+         * @param limit The maximum number of users to read.
+         * @return The users, ordered by user id.
+         */
+        List<T> read(UUID afterId, long offset, int limit);
+
+    }
+
+    private final int page;
+
+    private final int size;
+
+    private final int batchSize;
+
+    private final BatchReader<T> reader;
+
+    private final Function<T, String> userId;
+
+    private final LongSupplier count;
+
+    private final Function<PageDto, Object> tail;
+
+    private final List<T> firstBatch;
+
+    private UserPageStream(
+        int page,
+        int size,
+        int batchSize,
+        BatchReader<T> reader,
+        Function<T, String> userId,
+        LongSupplier count,
+        Function<PageDto, Object> tail
+    ) {
+        this.page = page;
+        this.size = size;
+        this.batchSize = batchSize;
+        this.reader = reader;
+        this.userId = userId;
+        this.count = count;
+        this.tail = tail;
+        this.firstBatch = reader.read(null, (long) page * size, Math.min(batchSize, size));
+    }
+
+    /**
+     * Reads the first batch of a page and returns the stream writing the page.
+     *
+     * @param page The page number.
+     * @param size The page size.
+     * @param batchSize The number of users read and written at a time.
+     * @param reader Reads a batch of users, each call should be its own transaction.
+     * @param userId The user id of a user, where the next batch continues.
+     * @param count Counts all users of the listing, only called when the page does not tell the total.
+     * @param tail Builds the object whose properties follow the users array from the page metadata.
+     * @param <T> The type of the users on the page.
+     * @return UserPageStream
+     */
+    public static <T> UserPageStream<T> of(
+        int page,
+        int size,
+        int batchSize,
+        BatchReader<T> reader,
+        Function<T, String> userId,
+        LongSupplier count,
+        Function<PageDto, Object> tail
+    ) {
+        return new UserPageStream<>(page, size, batchSize, reader, userId, count, tail);
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName("users");
+        gen.writeStartArray();
+
+        List<T> batch = firstBatch;
+        int requested = Math.min(batchSize, size);
+        int written = 0;
+        while (true) {
+            for (T user : batch) {
+                serializers.defaultSerializeValue(user, gen);
+            }
+            written += batch.size();
+            // each batch goes out before the next one is read
+            gen.flush();
+
+            if (batch.size() < requested || written == size) {
+                break;
+            }
+
+            UUID afterId = UUID.fromString(userId.apply(batch.get(batch.size() - 1)));
+            int limit = Math.min(batchSize, size - written);
+            batch = orAbort(() -> reader.read(afterId, 0, limit));
+            requested = limit;
+        }
+
+        gen.writeEndArray();
+
+        long offset = (long) page * size;
+        // same shortcut as a Page: a partial page (or an empty first page) already tells the total
+        long total = written < size && (written > 0 || offset == 0)
+            ? offset + written
+            : orAbort(count::getAsLong);
+
+        PageDto pageDto = PageDto.builder()
+            .page(page)
+            .size(size)
+            .totalPages((int) ((total + size - 1) / size))
+            .totalElements(total)
+            .build();
+
+        // the tail's own properties continue this object
+        Object tailValue = orAbort(() -> tail.apply(pageDto));
+        serializers.findValueSerializer(tailValue.getClass())
+            .unwrappingSerializer(NameTransformer.NOP)
+            .serialize(tailValue, gen, serializers);
+
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+        throws IOException {
+        serialize(gen, serializers);
+    }
+
+    private static <R> R orAbort(Supplier<R> step) throws ResponseStreamAbortedException {
+        try {
+            return step.get();
+        } catch (RuntimeException ex) {
+            throw new ResponseStreamAbortedException("Writing the rest of the users page failed", ex);
+        }
+    }
+
+}
@@ -1,13 +1,15 @@
 package kdodds.userservice.dto.responses;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.repositories.projections.UserRow;
 import lombok.Builder;
 import lombok.Data;
 import lombok.extern.jackson.Jacksonized;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.hateoas.RepresentationModel;
 
 import java.time.Instant;
@@ -18,7 +20,6 @@ import java.util.List;
 @Jacksonized
 @Data
 @Builder
-@Slf4j
 public class UserResponseDto extends RepresentationModel<UserResponseDto> {
 
     @JsonProperty("user_id")
@@ -51,6 +52,10 @@ public class UserResponseDto extends RepresentationModel<UserResponseDto> {
     @JsonProperty("updated_at")
     private Instant updatedAt;
 
+    // ETag of the state this DTO was built from, set by writes and exposed as the ETag header rather than in the body
+    @JsonIgnore
+    private String etag;
+
     /**
      * Helper method to convert an entity to a DTO.
      *
@@ -72,13 +77,12 @@ public class UserResponseDto extends RepresentationModel<UserResponseDto> {
             .build();
 
         // convert addresses
-        List<UserAddressResponseDto> addresses = new ArrayList<>();
-        log.debug("User has {} addresses in database", user.getAddresses().size());
-        if (user.getAddresses() != null && !user.getAddresses().isEmpty()) {
-            addresses = user.getAddresses()
-                .stream()
-                .map(UserAddressResponseDto::fromEntity)
-                .toList();
+        List<UserAddress> addressEntities = user.getAddresses();
+        List<UserAddressResponseDto> addresses = new ArrayList<>(addressEntities == null ? 0 : addressEntities.size());
+        if (addressEntities != null) {
+            for (UserAddress address : addressEntities) {
+                addresses.add(UserAddressResponseDto.fromEntity(address));
+            }
         }
         response.setAddresses(addresses);
 
@@ -93,4 +97,25 @@ public class UserResponseDto extends RepresentationModel<UserResponseDto> {
         return response;
     }
 
+    /**
+     * Helper method to convert a sparse projection row to a DTO. Fields that were not selected stay null and are left
+     * out of the JSON body.
+     *
+     * @param row The row to convert.
+     * @return UserResponseDto
+     */
+    public static UserResponseDto fromRow(UserRow row) {
+        return UserResponseDto.builder()
+            .userId(row.id().toString())
+            .username(row.username())
+            .email(row.email())
+            .firstName(row.firstName())
+            .lastName(row.lastName())
+            .phoneNumber(row.phoneNumber())
+            .profileImageUrl(row.profileImageUrl())
+            .createdAt(row.createdAt())
+            .updatedAt(row.updatedAt())
+            .build();
+    }
+
 }
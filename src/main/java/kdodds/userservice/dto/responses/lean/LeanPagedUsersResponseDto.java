@@ -0,0 +1,34 @@
+package kdodds.userservice.dto.responses.lean;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import kdodds.userservice.dto.responses.PageDto;
+import kdodds.userservice.dto.responses.PagedUsersResponseDto;
+
+import java.util.List;
+
+/**
+ * Plain JSON form of a page of users, served for {@code Accept: application/json}. Same properties as
+ * {@link PagedUsersResponseDto}, without pagination or per user links; callers page with the page metadata.
+ *
+ * @param users The users on this page.
+ * @param page The page metadata.
+ */
+public record LeanPagedUsersResponseDto(
+    @JsonProperty("users") List<LeanUserResponseDto> users,
+    @JsonProperty("page") PageDto page
+) {
+
+    /**
+     * Helper method to convert a response DTO to its plain form.
+     *
+     * @param dto The DTO to convert.
+     * @return LeanPagedUsersResponseDto
+     */
+    public static LeanPagedUsersResponseDto from(PagedUsersResponseDto dto) {
+        return new LeanPagedUsersResponseDto(
+            dto.getUsers().stream().map(LeanUserResponseDto::from).toList(),
+            dto.getPage()
+        );
+    }
+
+}
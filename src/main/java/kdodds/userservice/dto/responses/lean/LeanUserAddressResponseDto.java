@@ -0,0 +1,125 @@
+package kdodds.userservice.dto.responses.lean;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import kdodds.userservice.dto.responses.UserAddressResponseDto;
+import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.repositories.projections.UserAddressRow;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plain JSON form of a user address, served for {@code Accept: application/json}. Same properties as
+ * {@link UserAddressResponseDto}, without links.
+ *
+ * @param addressId The address id.
+ * @param userId The owning user's id.
+ * @param addressType The address type (billing, shipping, home, etc.).
+ * @param addressLine1 The first address line.
+ * @param addressLine2 The second address line.
+ * @param city The city.
+ * @param state The state.
+ * @param zipCode The zip code.
+ * @param country The country.
+ * @param createdAt The address' created_at.
+ * @param updatedAt The address' updated_at.
+ */
+public record LeanUserAddressResponseDto(
+    @JsonProperty("address_id") String addressId,
+    @JsonProperty("user_id") String userId,
+    @JsonProperty("address_type") String addressType,
+    @JsonProperty("address_line_1") String addressLine1,
+    @JsonProperty("address_line_2") String addressLine2,
+    @JsonProperty("city") String city,
+    @JsonProperty("state") String state,
+    @JsonProperty("zip_code") String zipCode,
+    @JsonProperty("country") String country,
+    @JsonProperty("created_at") Instant createdAt,
+    @JsonProperty("updated_at") Instant updatedAt
+) {
+
+    /**
+     * Helper method to convert a response DTO to its plain form.
+     *
+     * @param dto The DTO to convert.
+     * @return LeanUserAddressResponseDto
+     */
+    public static LeanUserAddressResponseDto from(UserAddressResponseDto dto) {
+        return new LeanUserAddressResponseDto(
+            dto.getAddressId(),
+            dto.getUserId(),
+            dto.getAddressType(),
+            dto.getAddressLine1(),
+            dto.getAddressLine2(),
+            dto.getCity(),
+            dto.getState(),
+            dto.getZipCode(),
+            dto.getCountry(),
+            dto.getCreatedAt(),
+            dto.getUpdatedAt()
+        );
+    }
+
+    /**
+     * Helper method to convert a projection row to its plain form.
+     *
+     * @param row The row to convert.
+     * @return LeanUserAddressResponseDto
+     */
+    public static LeanUserAddressResponseDto from(UserAddressRow row) {
+        return new LeanUserAddressResponseDto(
+            row.id().toString(),
+            row.userId().toString(),
+            row.addressType(),
+            row.addressLine1(),
+            row.addressLine2(),
+            row.city(),
+            row.state(),
+            row.zipCode(),
+            row.country(),
+            row.createdAt(),
+            row.updatedAt()
+        );
+    }
+
+    /**
+     * Helper method to convert an entity to its plain form.
+     *
+     * @param userAddress The entity to convert.
+     * @param userId The owning user's id, passed in so one string is shared by all of a user's addresses.
+     * @return LeanUserAddressResponseDto
+     */
+    public static LeanUserAddressResponseDto fromEntity(UserAddress userAddress, String userId) {
+        return new LeanUserAddressResponseDto(
+            userAddress.getId().toString(),
+            userId,
+            userAddress.getAddressType(),
+            userAddress.getAddressLine1(),
+            userAddress.getAddressLine2(),
+            userAddress.getCity(),
+            userAddress.getState(),
+            userAddress.getZipCode(),
+            userAddress.getCountry(),
+            userAddress.getCreatedAt(),
+            userAddress.getUpdatedAt()
+        );
+    }
+
+    /**
+     * Helper method to convert a list of entities to their plain form.
+     *
+     * @param userAddresses The entities to convert, all owned by the same user.
+     * @param userId The owning user's id.
+     * @return List of LeanUserAddressResponseDto, sized to the input.
+     */
+    public static List<LeanUserAddressResponseDto> fromEntities(List<UserAddress> userAddresses, String userId) {
+        List<LeanUserAddressResponseDto> addresses = new ArrayList<>(userAddresses.size());
+        for (UserAddress userAddress : userAddresses) {
+            addresses.add(fromEntity(userAddress, userId));
+        }
+
+        return addresses;
+    }
+
+}
@@ -0,0 +1,31 @@
+package kdodds.userservice.dto.responses.lean;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import kdodds.userservice.entities.UserAddress;
+
+import java.util.List;
+
+/**
+ * Plain JSON form of a user's addresses, served for {@code Accept: application/json}. Same properties as
+ * {@link kdodds.userservice.dto.responses.UserAddressesResponseDto}, without links.
+ *
+ * @param userId The user id.
+ * @param addresses The user's addresses.
+ */
+public record LeanUserAddressesResponseDto(
+    @JsonProperty("user_id") String userId,
+    @JsonProperty("addresses") List<LeanUserAddressResponseDto> addresses
+) {
+
+    /**
+     * Helper method to convert a user's address entities to their plain form.
+     *
+     * @param userId The user id.
+     * @param userAddresses The entities to convert.
+     * @return LeanUserAddressesResponseDto
+     */
+    public static LeanUserAddressesResponseDto fromEntities(String userId, List<UserAddress> userAddresses) {
+        return new LeanUserAddressesResponseDto(userId, LeanUserAddressResponseDto.fromEntities(userAddresses, userId));
+    }
+
+}
@@ -0,0 +1,52 @@
+package kdodds.userservice.dto.responses.lean;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+
+/**
+ * One entry of the user change feed: a user that was created or changed (its profile or addresses included), or a
+ * user that was deleted.
+ *
+ * @param type UPSERT for a created or changed user, DELETE for a deleted one.
+ * @param userId The user id.
+ * @param changedAt The user's updated_at, or the time it was deleted.
+ * @param user The user's current state, null (and omitted) for a deletion.
+ */
+public record LeanUserChangeDto(
+    @JsonProperty("type") Type type,
+    @JsonProperty("user_id") String userId,
+    @JsonProperty("changed_at") Instant changedAt,
+    @JsonProperty("user") LeanUserResponseDto user
+) {
+
+    /**
+     * Kind of change.
+     */
+    public enum Type {
+        UPSERT,
+        DELETE
+    }
+
+    /**
+     * Helper method to build the entry of a created or changed user.
+     *
+     * @param user The user's current state.
+     * @return LeanUserChangeDto
+     */
+    public static LeanUserChangeDto upsert(LeanUserResponseDto user) {
+        return new LeanUserChangeDto(Type.UPSERT, user.userId(), user.updatedAt(), user);
+    }
+
+    /**
+     * Helper method to build the entry of a deleted user.
+     *
+     * @param userId The user id.
+     * @param deletedAt The time the user was deleted.
+     * @return LeanUserChangeDto
+     */
+    public static LeanUserChangeDto delete(String userId, Instant deletedAt) {
+        return new LeanUserChangeDto(Type.DELETE, userId, deletedAt, null);
+    }
+
+}
@@ -0,0 +1,19 @@
+package kdodds.userservice.dto.responses.lean;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * A page of the user change feed, served as plain JSON (or CBOR/Smile) only.
+ *
+ * @param changes The changes, oldest first.
+ * @param nextCursor The cursor to pass as since on the next call, also when there are no changes.
+ * @param hasMore True if more changes were ready than fit in this page, the next call should not wait.
+ */
+public record LeanUserChangesResponseDto(
+    @JsonProperty("changes") List<LeanUserChangeDto> changes,
+    @JsonProperty("next_cursor") String nextCursor,
+    @JsonProperty("has_more") boolean hasMore
+) {
+}
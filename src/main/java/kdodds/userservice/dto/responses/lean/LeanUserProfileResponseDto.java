@@ -0,0 +1,48 @@
+package kdodds.userservice.dto.responses.lean;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import kdodds.userservice.dto.responses.UserProfileResponseDto;
+
+import java.time.Instant;
+
+/**
+ * Plain JSON form of a user profile, served for {@code Accept: application/json}. Same properties as
+ * {@link UserProfileResponseDto}, without links.
+ *
+ * @param userId The user id.
+ * @param firstName The first name.
+ * @param lastName The last name.
+ * @param phoneNumber The phone number.
+ * @param profileImageUrl The profile image url.
+ * @param createdAt The profile's created_at.
+ * @param updatedAt The profile's updated_at.
+ */
+public record LeanUserProfileResponseDto(
+    @JsonProperty("user_id") String userId,
+    @JsonProperty("first_name") String firstName,
+    @JsonProperty("last_name") String lastName,
+    @JsonProperty("phone_number") String phoneNumber,
+    @JsonProperty("profile_image_url") String profileImageUrl,
+    @JsonProperty("created_at") Instant createdAt,
+    @JsonProperty("updated_at") Instant updatedAt
+) {
+
+    /**
+     * Helper method to convert a response DTO to its plain form.
+     *
+     * @param dto The DTO to convert.
+     * @return LeanUserProfileResponseDto
+     */
+    public static LeanUserProfileResponseDto from(UserProfileResponseDto dto) {
+        return new LeanUserProfileResponseDto(
+            dto.getUserId(),
+            dto.getFirstName(),
+            dto.getLastName(),
+            dto.getPhoneNumber(),
+            dto.getProfileImageUrl(),
+            dto.getCreatedAt(),
+            dto.getUpdatedAt()
+        );
+    }
+
+}
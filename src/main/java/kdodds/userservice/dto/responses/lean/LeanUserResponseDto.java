@@ -0,0 +1,135 @@
+package kdodds.userservice.dto.responses.lean;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import kdodds.userservice.dto.responses.UserResponseDto;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserProfile;
+import kdodds.userservice.repositories.projections.UserRow;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Plain JSON form of a user, served for {@code Accept: application/json}. Same properties as {@link UserResponseDto},
+ * without links. Fields left out by a sparse fieldset are null and omitted from the body.
+ *
+ * @param userId The user id.
+ * @param username The username.
+ * @param email The email.
+ * @param firstName The profile first name.
+ * @param lastName The profile last name.
+ * @param phoneNumber The profile phone number.
+ * @param profileImageUrl The profile image url.
+ * @param addresses The user's addresses.
+ * @param createdAt The user's created_at.
+ * @param updatedAt The user's updated_at.
+ */
+public record LeanUserResponseDto(
+    @JsonProperty("user_id") String userId,
+    @JsonProperty("username") String username,
+    @JsonProperty("email") String email,
+    @JsonProperty("first_name") String firstName,
+    @JsonProperty("last_name") String lastName,
+    @JsonProperty("phone_number") String phoneNumber,
+    @JsonProperty("profile_image_url") String profileImageUrl,
+    @JsonProperty("addresses") List<LeanUserAddressResponseDto> addresses,
+    @JsonProperty("created_at") Instant createdAt,
+    @JsonProperty("updated_at") Instant updatedAt
+) {
+
+    /**
+     * Helper method to convert a response DTO to its plain form.
+     *
+     * @param dto The DTO to convert.
+     * @return LeanUserResponseDto
+     */
+    public static LeanUserResponseDto from(UserResponseDto dto) {
+        List<LeanUserAddressResponseDto> addresses = dto.getAddresses() == null
+            ? null
+            : dto.getAddresses().stream().map(LeanUserAddressResponseDto::from).toList();
+
+        return new LeanUserResponseDto(
+            dto.getUserId(),
+            dto.getUsername(),
+            dto.getEmail(),
+            dto.getFirstName(),
+            dto.getLastName(),
+            dto.getPhoneNumber(),
+            dto.getProfileImageUrl(),
+            addresses,
+            dto.getCreatedAt(),
+            dto.getUpdatedAt()
+        );
+    }
+
+    /**
+     * Helper method to convert a projection row to its plain form.
+     *
+     * @param row The row to convert, columns that were not selected are null.
+     * @param addresses The user's addresses, or null if they were not requested.
+     * @return LeanUserResponseDto
+     */
+    public static LeanUserResponseDto from(UserRow row, List<LeanUserAddressResponseDto> addresses) {
+        return new LeanUserResponseDto(
+            row.id().toString(),
+            row.username(),
+            row.email(),
+            row.firstName(),
+            row.lastName(),
+            row.phoneNumber(),
+            row.profileImageUrl(),
+            addresses,
+            row.createdAt(),
+            row.updatedAt()
+        );
+    }
+
+    /**
+     * Helper method to convert an entity (with its profile and addresses) to its plain form, without going through
+     * {@link UserResponseDto}.
+     *
+     * @param user The entity to convert.
+     * @return LeanUserResponseDto
+     */
+    public static LeanUserResponseDto fromEntity(User user) {
+        String userId = user.getId().toString();
+        List<LeanUserAddressResponseDto> addresses = user.getAddresses() == null
+            ? List.of()
+            : LeanUserAddressResponseDto.fromEntities(user.getAddresses(), userId);
+
+        return fromEntity(user, userId, addresses);
+    }
+
+    /**
+     * Helper method to convert an entity (with its profile) to its plain form, with addresses that were read
+     * separately so the user's address collection is never initialized.
+     *
+     * @param user The entity to convert.
+     * @param addresses The user's addresses.
+     * @return LeanUserResponseDto
+     */
+    public static LeanUserResponseDto fromEntity(User user, List<LeanUserAddressResponseDto> addresses) {
+        return fromEntity(user, user.getId().toString(), addresses);
+    }
+
+    private static LeanUserResponseDto fromEntity(
+        User user,
+        String userId,
+        List<LeanUserAddressResponseDto> addresses
+    ) {
+        UserProfile profile = user.getUserProfile();
+        return new LeanUserResponseDto(
+            userId,
+            user.getUsername(),
+            user.getEmail(),
+            profile == null ? null : profile.getFirstName(),
+            profile == null ? null : profile.getLastName(),
+            profile == null ? null : profile.getPhoneNumber(),
+            profile == null ? null : profile.getProfileImageUrl(),
+            addresses,
+            user.getCreatedAt(),
+            user.getUpdatedAt()
+        );
+    }
+
+}
@@ -0,0 +1,18 @@
+package kdodds.userservice.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+@Entity
+@Table(name = "user_outbox_lock")
+@Data
+public class UserOutboxLock {
+
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+}
@@ -0,0 +1,24 @@
+package kdodds.userservice.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "user_tombstones")
+@Data
+public class UserTombstone {
+
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Instant deletedAt;
+
+}
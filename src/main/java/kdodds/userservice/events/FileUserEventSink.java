@@ -0,0 +1,44 @@
+package kdodds.userservice.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kdodds.userservice.config.OutboxProperties;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends events to a file as JSON lines (user-service.outbox.file.path).
+ */
+@Component
+@AllArgsConstructor
+public class FileUserEventSink implements UserEventSink {
+
+    private OutboxProperties outboxProperties;
+
+    private ObjectMapper objectMapper;
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public void deliver(UserChangeEvent event) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(event) + "\n").getBytes(StandardCharsets.UTF_8);
+
+        // lanes deliver concurrently, one whole line is written at a time
+        synchronized (this) {
+            Files.write(
+                outboxProperties.getFile().getPath(),
+                line,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND
+            );
+        }
+    }
+
+}
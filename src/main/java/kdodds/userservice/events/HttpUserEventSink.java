@@ -0,0 +1,61 @@
+package kdodds.userservice.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kdodds.userservice.config.OutboxProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * POSTs each event as JSON to a local endpoint (user-service.outbox.http.url), a stand-in for a message broker.
+ */
+@Component
+public class HttpUserEventSink implements UserEventSink {
+
+    private final OutboxProperties outboxProperties;
+
+    private final ObjectMapper objectMapper;
+
+    private final HttpClient httpClient;
+
+    /**
+     * Constructor.
+     *
+     * @param outboxProperties Target url and timeout.
+     * @param objectMapper Serializes the events.
+     */
+    public HttpUserEventSink(OutboxProperties outboxProperties, ObjectMapper objectMapper) {
+        this.outboxProperties = outboxProperties;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(outboxProperties.getHttp().getTimeout())
+            .build();
+    }
+
+    @Override
+    public String name() {
+        return "http";
+    }
+
+    @Override
+    public void deliver(UserChangeEvent event) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(outboxProperties.getHttp().getUrl())
+            .timeout(outboxProperties.getHttp().getTimeout())
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(event)))
+            .build();
+
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(
+                String.format("Event %d was answered with status %d", event.sequence(), response.statusCode())
+            );
+        }
+    }
+
+}
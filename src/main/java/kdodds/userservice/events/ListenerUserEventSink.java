@@ -0,0 +1,27 @@
+package kdodds.userservice.events;
+
+import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes events to in-process {@code @EventListener} beans. Listeners run on the delivery lane, a listener that
+ * throws fails the delivery.
+ */
+@Component
+@AllArgsConstructor
+public class ListenerUserEventSink implements UserEventSink {
+
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Override
+    public String name() {
+        return "listeners";
+    }
+
+    @Override
+    public void deliver(UserChangeEvent event) {
+        applicationEventPublisher.publishEvent(event);
+    }
+
+}
@@ -0,0 +1,44 @@
+package kdodds.userservice.events;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import kdodds.userservice.entities.UserOutboxEvent;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A committed change to a user, its profile or one of its addresses, as delivered to the sinks. Events carry ids only,
+ * consumers that need the new state read it from the API. Events of one user are delivered in the order they were
+ * written, at least once: a consumer can drop an event whose sequence it has already seen.
+ *
+ * @param sequence The outbox id, increases with every event written.
+ * @param type The kind of change.
+ * @param userId The user that changed.
+ * @param addressId The address that changed, null unless the type is an address change.
+ * @param occurredAt The time the change was written.
+ */
+public record UserChangeEvent(
+    @JsonProperty("sequence") long sequence,
+    @JsonProperty("type") UserChangeType type,
+    @JsonProperty("user_id") UUID userId,
+    @JsonProperty("address_id") UUID addressId,
+    @JsonProperty("occurred_at") Instant occurredAt
+) {
+
+    /**
+     * Helper method to convert an outbox row to its event.
+     *
+     * @param outboxEvent The outbox row.
+     * @return UserChangeEvent
+     */
+    public static UserChangeEvent from(UserOutboxEvent outboxEvent) {
+        return new UserChangeEvent(
+            outboxEvent.getId(),
+            outboxEvent.getEventType(),
+            outboxEvent.getUserId(),
+            outboxEvent.getAddressId(),
+            outboxEvent.getOccurredAt()
+        );
+    }
+
+}
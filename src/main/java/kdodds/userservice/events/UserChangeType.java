@@ -0,0 +1,15 @@
+package kdodds.userservice.events;
+
+/**
+ * Kinds of user change events. Profile changes are made through the user PATCH and are reported as USER_UPDATED.
+ */
+public enum UserChangeType {
+
+    USER_CREATED,
+    USER_UPDATED,
+    USER_DELETED,
+    ADDRESS_CREATED,
+    ADDRESS_UPDATED,
+    ADDRESS_DELETED
+
+}
@@ -0,0 +1,371 @@
+package kdodds.userservice.events;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import kdodds.userservice.config.OutboxProperties;
+import kdodds.userservice.entities.UserOutboxEvent;
+import kdodds.userservice.repositories.UserOutboxLockRepository;
+import kdodds.userservice.repositories.UserOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the user outbox. Events are read in batches in the order they were written and striped over single threaded
+ * lanes by user id, so the events of one user are delivered in order while different users are delivered in
+ * parallel. Delivered events are deleted, failed ones stay for a later drain, and later events of the same user wait
+ * behind them. A user whose delivery failed backs off on its own, the other users' events keep flowing past it. Two
+ * instances draining at once would deliver the same events out of order, so each drain holds a row lock in
+ * {@code user_outbox_lock} and an instance that finds it taken skips its drain.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserEventDispatcher implements MeterBinder {
+
+    private static final String DRAIN_LOCK = "user-outbox-dispatcher";
+
+    // the lock is held by its own transaction for the whole drain
+    private static final TransactionDefinition LOCK_TRANSACTION =
+        new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    // the reads and writes of a drain run in their own short transactions next to it
+    private static final TransactionDefinition OUTSIDE_LOCK_TRANSACTION =
+        new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+
+    private final UserOutboxRepository userOutboxRepository;
+
+    private final UserOutboxLockRepository userOutboxLockRepository;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final OutboxProperties outboxProperties;
+
+    private final Map<String, UserEventSink> sinks;
+
+    private final ExecutorService[] lanes;
+
+    // users whose last delivery failed, their events are skipped until the retry time
+    private final Map<UUID, Backoff> backoffs = new ConcurrentHashMap<>();
+
+    private final LongAdder delivered = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    // age of the oldest event found by the last drain, 0 when the outbox was empty
+    private volatile long pendingAgeMillis;
+
+    // set once metrics are bound, deliveries before that are not recorded
+    private volatile Timer lagTimer;
+
+    /**
+     * Constructor.
+     *
+     * @param userOutboxRepository Reads and deletes the events.
+     * @param userOutboxLockRepository Takes the drain lock.
+     * @param transactionManager Runs the transaction holding the drain lock.
+     * @param outboxProperties Batch size, lanes, retries and the sinks to deliver to.
+     * @param sinks Every available sink.
+     */
+    public UserEventDispatcher(
+        UserOutboxRepository userOutboxRepository,
+        UserOutboxLockRepository userOutboxLockRepository,
+        PlatformTransactionManager transactionManager,
+        OutboxProperties outboxProperties,
+        List<UserEventSink> sinks
+    ) {
+        this.userOutboxRepository = userOutboxRepository;
+        this.userOutboxLockRepository = userOutboxLockRepository;
+        this.transactionManager = transactionManager;
+        this.outboxProperties = outboxProperties;
+        this.sinks = sinks.stream().collect(Collectors.toMap(UserEventSink::name, Function.identity()));
+        this.lanes = new ExecutorService[outboxProperties.getLanes()];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("user-events-" + i).factory());
+        }
+
+        for (String name : outboxProperties.getSinks()) {
+            if (!this.sinks.containsKey(name)) {
+                log.warn("Unknown user event sink {}, available sinks are {}", name, this.sinks.keySet());
+            }
+        }
+    }
+
+    /**
+     * Delivers batches until the whole outbox has been read, or a batch could not deliver anything. Skipped while
+     * another instance is draining.
+     */
+    @Scheduled(fixedDelayString = "${user-service.outbox.poll-interval:500ms}")
+    public void drain() {
+        if (!outboxProperties.isEnabled()) {
+            return;
+        }
+
+        try {
+            if (!dispatchExclusively()) {
+                log.debug("User outbox is being drained by another instance");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            log.error("Error draining the user outbox", ex);
+        }
+    }
+
+    /**
+     * Drains the outbox while holding the drain lock. The lock is taken with {@code FOR UPDATE SKIP LOCKED} in a
+     * transaction of its own that stays open, and keeps its connection, until the drain is over; ending it releases
+     * the lock, also when the drain fails.
+     *
+     * @return True if the outbox was drained, false if another instance holds the lock.
+     * @throws Exception If the outbox cannot be read or updated, or a lane failed unexpectedly.
+     */
+    boolean dispatchExclusively() throws Exception {
+        TransactionStatus lock = transactionManager.getTransaction(LOCK_TRANSACTION);
+        try {
+            if (userOutboxLockRepository.tryLock(DRAIN_LOCK).isEmpty()) {
+                return false;
+            }
+
+            TransactionStatus outsideLock = transactionManager.getTransaction(OUTSIDE_LOCK_TRANSACTION);
+            try {
+                dispatchAll();
+            } finally {
+                transactionManager.commit(outsideLock);
+            }
+
+            return true;
+        } finally {
+            // nothing was written under the lock
+            transactionManager.rollback(lock);
+        }
+    }
+
+    /**
+     * Reads the outbox batch after batch, each one starting after the last event of the previous one, so events held
+     * back at the head of the outbox do not keep the events behind them from being read.
+     *
+     * @throws Exception If the outbox cannot be read or updated, or a lane failed unexpectedly.
+     */
+    void dispatchAll() throws Exception {
+        // users with an undelivered event are held back for the rest of the drain, their later events would overtake it
+        Set<UUID> heldBack = ConcurrentHashMap.newKeySet();
+        long afterId = 0;
+        while (afterId >= 0) {
+            afterId = dispatchBatch(afterId, heldBack);
+        }
+    }
+
+    /**
+     * Reads one batch and delivers it through the lanes.
+     *
+     * @param afterId The id of the last event read by the previous batch of this drain, 0 for the first one.
+     * @param heldBack The users whose events are skipped, users failing in this batch are added.
+     * @return The id to read the next batch after, or -1 if the outbox was read to the end or nothing in the batch
+     *     could be delivered, which leaves the rest for the next drain.
+     * @throws Exception If the outbox cannot be read or updated, or a lane failed unexpectedly.
+     */
+    long dispatchBatch(long afterId, Set<UUID> heldBack) throws Exception {
+        List<UserOutboxEvent> batch = userOutboxRepository.findOldestAfter(
+            afterId, Limit.of(outboxProperties.getBatchSize())
+        );
+        if (afterId == 0) {
+            pendingAgeMillis = batch.isEmpty()
+                ? 0
+                : Duration.between(batch.get(0).getOccurredAt(), Instant.now()).toMillis();
+        }
+        if (batch.isEmpty()) {
+            return -1;
+        }
+
+        List<UserEventSink> activeSinks = activeSinks();
+        List<List<UserOutboxEvent>> stripes = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            stripes.add(new ArrayList<>());
+        }
+        for (UserOutboxEvent event : batch) {
+            stripes.get(Math.floorMod(event.getUserId().hashCode(), lanes.length)).add(event);
+        }
+
+        List<Future<LaneResult>> results = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            List<UserOutboxEvent> stripe = stripes.get(i);
+            if (!stripe.isEmpty()) {
+                results.add(lanes[i].submit(() -> deliver(stripe, activeSinks, heldBack)));
+            }
+        }
+
+        List<Long> done = new ArrayList<>(batch.size());
+        List<Long> retry = new ArrayList<>();
+        for (Future<LaneResult> result : results) {
+            try {
+                LaneResult laneResult = result.get();
+                done.addAll(laneResult.done());
+                retry.addAll(laneResult.retry());
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("User event lane failed", ex.getCause());
+            }
+        }
+
+        if (!done.isEmpty()) {
+            userOutboxRepository.deleteByIdIn(done);
+        }
+        if (!retry.isEmpty()) {
+            userOutboxRepository.incrementAttempts(retry);
+        }
+
+        // every delivery tried in this batch failed, the sinks are likely down for everyone
+        if (done.isEmpty() && !retry.isEmpty()) {
+            return -1;
+        }
+
+        return batch.size() == outboxProperties.getBatchSize() ? batch.get(batch.size() - 1).getId() : -1;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        lagTimer = Timer.builder("userservice.outbox.lag")
+            .description("Time from writing a user change event to delivering it to every sink")
+            .register(registry);
+        FunctionCounter.builder("userservice.outbox.events", delivered, LongAdder::sum)
+            .description("User change events handled by the dispatcher")
+            .tag("outcome", "delivered")
+            .register(registry);
+        FunctionCounter.builder("userservice.outbox.events", failed, LongAdder::sum)
+            .description("User change events handled by the dispatcher")
+            .tag("outcome", "failed")
+            .register(registry);
+        FunctionCounter.builder("userservice.outbox.events", dropped, LongAdder::sum)
+            .description("User change events handled by the dispatcher")
+            .tag("outcome", "dropped")
+            .register(registry);
+        Gauge.builder("userservice.outbox.pending.age", this, dispatcher -> dispatcher.pendingAgeMillis / 1000.0)
+            .description("Age of the oldest undelivered user change event at the last drain")
+            .baseUnit("seconds")
+            .register(registry);
+    }
+
+    /**
+     * Stops the lanes, events in flight are delivered again after a restart.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            lane.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private LaneResult deliver(List<UserOutboxEvent> stripe, List<UserEventSink> activeSinks, Set<UUID> heldBack) {
+        List<Long> done = new ArrayList<>(stripe.size());
+        List<Long> retry = new ArrayList<>();
+        Instant now = Instant.now();
+
+        for (UserOutboxEvent outboxEvent : stripe) {
+            UUID userId = outboxEvent.getUserId();
+            if (heldBack.contains(userId)) {
+                continue;
+            }
+            Backoff backoff = backoffs.get(userId);
+            if (backoff != null && now.isBefore(backoff.retryAt())) {
+                heldBack.add(userId);
+                continue;
+            }
+
+            UserChangeEvent event = UserChangeEvent.from(outboxEvent);
+            try {
+                for (UserEventSink sink : activeSinks) {
+                    sink.deliver(event);
+                }
+                delivered.increment();
+                done.add(outboxEvent.getId());
+                backoffs.remove(userId);
+                recordLag(event);
+            } catch (Exception ex) {
+                int attempts = outboxEvent.getAttempts() + 1;
+                if (attempts >= outboxProperties.getMaxAttempts()) {
+                    log.error("Dropping user event {} after {} failed attempts", event, attempts, ex);
+                    dropped.increment();
+                    done.add(outboxEvent.getId());
+                    backoffs.remove(userId);
+                } else {
+                    log.warn("Delivery of user event {} failed: {}", event, ex.getMessage());
+                    failed.increment();
+                    retry.add(outboxEvent.getId());
+                    heldBack.add(userId);
+                    backoffs.put(userId, nextBackoff(backoff, now));
+                }
+            }
+        }
+
+        return new LaneResult(done, retry);
+    }
+
+    private List<UserEventSink> activeSinks() {
+        List<UserEventSink> active = new ArrayList<>();
+        for (String name : outboxProperties.getSinks()) {
+            UserEventSink sink = sinks.get(name);
+            if (sink != null) {
+                active.add(sink);
+            }
+        }
+
+        return active;
+    }
+
+    private void recordLag(UserChangeEvent event) {
+        Timer timer = lagTimer;
+        if (timer != null) {
+            timer.record(Duration.between(event.occurredAt(), Instant.now()));
+        }
+    }
+
+    private Backoff nextBackoff(Backoff previous, Instant now) {
+        // doubles from the poll interval up to the maximum, so a user whose sink keeps failing is not hammered
+        int failures = previous == null ? 1 : previous.failures() + 1;
+        Duration delay = outboxProperties.getPollInterval().multipliedBy(1L << Math.min(failures, 16));
+        if (delay.compareTo(outboxProperties.getMaxRetryDelay()) > 0) {
+            delay = outboxProperties.getMaxRetryDelay();
+        }
+
+        return new Backoff(failures, now.plus(delay));
+    }
+
+    private record LaneResult(List<Long> done, List<Long> retry) {
+    }
+
+    private record Backoff(int failures, Instant retryAt) {
+    }
+
+}
@@ -0,0 +1,25 @@
+package kdodds.userservice.events;
+
+/**
+ * Destination of user change events, selected by name with user-service.outbox.sinks. Called from the dispatcher's
+ * delivery lanes: events of one user arrive one at a time and in order, events of different users concurrently.
+ */
+public interface UserEventSink {
+
+    /**
+     * Gets the name the sink is selected by.
+     *
+     * @return The sink name.
+     */
+    String name();
+
+    /**
+     * Delivers one event. Throwing marks the event as failed, it is retried (with every other configured sink) on a
+     * later drain.
+     *
+     * @param event The event.
+     * @throws Exception If the event could not be delivered.
+     */
+    void deliver(UserChangeEvent event) throws Exception;
+
+}
@@ -0,0 +1,54 @@
+package kdodds.userservice.events;
+
+import kdodds.userservice.entities.UserOutboxEvent;
+import kdodds.userservice.repositories.UserOutboxRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Writes user change events to the outbox table. Must be called inside the transaction of the write it describes, so
+ * the event is committed (or rolled back) together with the change.
+ */
+@Component
+@AllArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserOutbox {
+
+    private UserOutboxRepository userOutboxRepository;
+
+    /**
+     * Records a change of a user or its profile.
+     *
+     * @param type The kind of change.
+     * @param userId The user that changed.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(UserChangeType type, UUID userId) {
+        record(type, userId, null);
+    }
+
+    /**
+     * Records a change of a user or one of its addresses.
+     *
+     * @param type The kind of change.
+     * @param userId The user that changed.
+     * @param addressId The address that changed, null for a change of the user or its profile.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(UserChangeType type, UUID userId, UUID addressId) {
+        UserOutboxEvent event = new UserOutboxEvent();
+        event.setEventType(type);
+        event.setUserId(userId);
+        event.setAddressId(addressId);
+        event.setOccurredAt(Instant.now());
+
+        userOutboxRepository.save(event);
+    }
+
+}
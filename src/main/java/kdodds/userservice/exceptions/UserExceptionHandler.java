@@ -1,20 +1,37 @@
 package kdodds.userservice.exceptions;
 
 import kdodds.userservice.exceptions.models.ErrorResponse;
+import kdodds.userservice.exceptions.models.exceptions.ChangeCursorExpiredException;
+import kdodds.userservice.exceptions.models.exceptions.DatabaseBusyException;
 import kdodds.userservice.exceptions.models.exceptions.InvalidRequestDataException;
 import kdodds.userservice.exceptions.models.exceptions.InvalidUserIdException;
+import kdodds.userservice.exceptions.models.exceptions.PreconditionFailedException;
+import kdodds.userservice.exceptions.models.exceptions.ResponseStreamAbortedException;
+import kdodds.userservice.exceptions.models.exceptions.StreamLimitExceededException;
 import kdodds.userservice.exceptions.models.exceptions.UserAddressNotFound;
 import kdodds.userservice.exceptions.models.exceptions.UserConflictException;
 import kdodds.userservice.exceptions.models.exceptions.UserNotFoundException;
 import kdodds.userservice.exceptions.models.exceptions.UserProfileNotFound;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
 
 @RestControllerAdvice
 public class UserExceptionHandler {
 
+    // bodies that never vary are built once, the response entities are never modified after the handler returns
+    private static final ResponseEntity<ErrorResponse> INVALID_USER_ID =
+        errorResponse(HttpStatus.BAD_REQUEST, new InvalidUserIdException().getMessage());
+
+    private static final ResponseEntity<ErrorResponse> TYPE_MISMATCH =
+        errorResponse(HttpStatus.BAD_REQUEST, "Malformed path variable or request parameter");
+
     /**
      * Handles "Not Found" exceptions, thrown when a requested resource is not found.
      *
@@ -23,13 +40,7 @@ public class UserExceptionHandler {
      */
     @ExceptionHandler({UserNotFoundException.class, UserAddressNotFound.class, UserProfileNotFound.class})
     public ResponseEntity<ErrorResponse> handleDataNotFound(RuntimeException ex) {
-        ErrorResponse error = ErrorResponse.builder()
-            .error(HttpStatus.NOT_FOUND.getReasonPhrase())
-            .message(ex.getMessage())
-            .status(HttpStatus.NOT_FOUND.value())
-            .build();
-
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        return errorResponse(HttpStatus.NOT_FOUND, ex.getMessage());
     }
 
     /**
@@ -39,15 +50,30 @@ public class UserExceptionHandler {
      * @param ex The RuntimeException object.
      * @return An ErrorResponse wrapped in a ResponseEntity.
      */
-    @ExceptionHandler({InvalidUserIdException.class, InvalidRequestDataException.class})
+    @ExceptionHandler(InvalidRequestDataException.class)
     public ResponseEntity<ErrorResponse> handleInvalidRequestDataException(RuntimeException ex) {
-        ErrorResponse response = ErrorResponse.builder()
-            .error(HttpStatus.BAD_REQUEST.getReasonPhrase())
-            .message(ex.getMessage())
-            .status(HttpStatus.BAD_REQUEST.value())
-            .build();
+        return errorResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
 
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    /**
+     * Handle missing user ids, the message never varies so the response is shared.
+     *
+     * @return An ErrorResponse wrapped in a ResponseEntity.
+     */
+    @ExceptionHandler(InvalidUserIdException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidUserIdException() {
+        return INVALID_USER_ID;
+    }
+
+    /**
+     * Handle path variables and parameters that could not be converted to their declared type, e.g. a malformed UUID
+     * on the reactive stack (the servlet stack rejects those before conversion).
+     *
+     * @return An ErrorResponse wrapped in a ResponseEntity.
+     */
+    @ExceptionHandler({MethodArgumentTypeMismatchException.class, ServerWebInputException.class})
+    public ResponseEntity<ErrorResponse> handleTypeMismatchException() {
+        return TYPE_MISMATCH;
     }
 
     /**
@@ -58,13 +84,65 @@ public class UserExceptionHandler {
      */
     @ExceptionHandler(UserConflictException.class)
     public ResponseEntity<ErrorResponse> handleConflictingDataException(RuntimeException ex) {
-        ErrorResponse response = ErrorResponse.builder()
-            .error(HttpStatus.CONFLICT.getReasonPhrase())
-            .message(ex.getMessage())
-            .status(HttpStatus.CONFLICT.value())
-            .build();
+        return errorResponse(HttpStatus.CONFLICT, ex.getMessage());
+    }
+
+    /**
+     * Handle failed preconditions, thrown when the If-Match header of a write no longer matches the stored version.
+     *
+     * @param ex The RuntimeException object.
+     * @return An ErrorResponse wrapped in a ResponseEntity.
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handlePreconditionFailedException(RuntimeException ex) {
+        return errorResponse(HttpStatus.PRECONDITION_FAILED, ex.getMessage());
+    }
 
-        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    /**
+     * Handle expired change feed cursors, thrown when tombstones the consumer has not seen may already be purged.
+     *
+     * @param ex The RuntimeException object.
+     * @return An ErrorResponse wrapped in a ResponseEntity.
+     */
+    @ExceptionHandler(ChangeCursorExpiredException.class)
+    public ResponseEntity<ErrorResponse> handleChangeCursorExpiredException(RuntimeException ex) {
+        return errorResponse(HttpStatus.GONE, ex.getMessage());
+    }
+
+    /**
+     * Handle database saturation, thrown when no database permit could be acquired in time.
+     *
+     * @param ex The RuntimeException object.
+     * @return An ErrorResponse wrapped in a ResponseEntity.
+     */
+    @ExceptionHandler(DatabaseBusyException.class)
+    public ResponseEntity<ErrorResponse> handleDatabaseBusyException(RuntimeException ex) {
+        return errorResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+    }
+
+    /**
+     * Handle subscriptions over the limit of open user event streams.
+     *
+     * @param ex The RuntimeException object.
+     * @return An ErrorResponse wrapped in a ResponseEntity.
+     */
+    @ExceptionHandler(StreamLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleStreamLimitExceededException(RuntimeException ex) {
+        return errorResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+    }
+
+    /**
+     * Handle a response that failed after its status and part of its body were sent. Nothing can be added to the body
+     * without corrupting it, so the exception is rethrown and the container closes the connection without ending the
+     * chunked body, which the client sees as an aborted response rather than a complete one.
+     *
+     * @param ex The ResponseStreamAbortedException object.
+     * @throws ResponseStreamAbortedException Always.
+     */
+    @ExceptionHandler(ResponseStreamAbortedException.class)
+    public void handleResponseStreamAbortedException(ResponseStreamAbortedException ex)
+        throws ResponseStreamAbortedException {
+        throw ex;
     }
 
     /**
@@ -75,13 +153,28 @@ public class UserExceptionHandler {
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGenericException(Exception ex) {
+        // services wrap repository failures in a generic exception, don't turn a busy database into a 500
+        if (NestedExceptionUtils.getMostSpecificCause(ex) instanceof DatabaseBusyException busy) {
+            return handleDatabaseBusyException(busy);
+        }
+        // framework exceptions carry their own status, e.g. the 400 of an invalid actuator endpoint request
+        if (ex instanceof ResponseStatusException statusException) {
+            return errorResponse(statusException.getStatusCode(), statusException.getReason());
+        }
+
+        return errorResponse(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage());
+    }
+
+    private static ResponseEntity<ErrorResponse> errorResponse(HttpStatusCode status, String message) {
+        // a status outside the HttpStatus enum has no reason phrase, the error is left out then
+        HttpStatus knownStatus = HttpStatus.resolve(status.value());
         ErrorResponse response = ErrorResponse.builder()
-            .error(HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase())
-            .message(ex.getMessage())
-            .status(HttpStatus.INTERNAL_SERVER_ERROR.value())
+            .error(knownStatus == null ? null : knownStatus.getReasonPhrase())
+            .message(message)
+            .status(status.value())
             .build();
 
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        return ResponseEntity.status(status).body(response);
     }
 
 }
@@ -0,0 +1,18 @@
+package kdodds.userservice.exceptions.models.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.GONE)
+public class ChangeCursorExpiredException extends DomainException {
+
+    /**
+     * Constructor.
+     *
+     * @param message The error message.
+     */
+    public ChangeCursorExpiredException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,19 @@
+package kdodds.userservice.exceptions.models.exceptions;
+
+/**
+ * Base class for the exceptions that end up as a 4xx response. They are thrown for every unknown id, invalid body or
+ * stale ETag a client sends, and the handler only reads their message, so they skip the stack trace (and suppression
+ * list) that would otherwise be captured from the depth of the servlet filter chain on each throw.
+ */
+public abstract class DomainException extends RuntimeException {
+
+    /**
+     * Constructor.
+     *
+     * @param message The error message.
+     */
+    protected DomainException(String message) {
+        super(message, null, false, false);
+    }
+
+}
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class InvalidUserIdException extends RuntimeException {
+public class InvalidUserIdException extends DomainException {
 
     /**
      * Constructor.
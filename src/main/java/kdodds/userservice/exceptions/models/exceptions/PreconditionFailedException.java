@@ -0,0 +1,18 @@
+package kdodds.userservice.exceptions.models.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends DomainException {
+
+    /**
+     * Constructor.
+     *
+     * @param message The error message.
+     */
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+
+}
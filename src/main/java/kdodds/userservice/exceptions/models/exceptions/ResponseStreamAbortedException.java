@@ -0,0 +1,21 @@
+package kdodds.userservice.exceptions.models.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Thrown while a response body is being written, once the status and part of the body have been sent. It is an
+ * IOException so the JSON writer passes it on unwrapped, and it is never turned into an error body.
+ */
+public class ResponseStreamAbortedException extends IOException {
+
+    /**
+     * Constructor.
+     *
+     * @param message The error message.
+     * @param cause The failure that ended the response.
+     */
+    public ResponseStreamAbortedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
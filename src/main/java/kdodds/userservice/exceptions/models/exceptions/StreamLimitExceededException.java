@@ -0,0 +1,18 @@
+package kdodds.userservice.exceptions.models.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE)
+public class StreamLimitExceededException extends RuntimeException {
+
+    /**
+     * Constructor.
+     *
+     * @param message The error message.
+     */
+    public StreamLimitExceededException(String message) {
+        super(message);
+    }
+
+}
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.NOT_FOUND)
-public class UserAddressNotFound extends RuntimeException {
+public class UserAddressNotFound extends DomainException {
 
     /**
      * Constructor.
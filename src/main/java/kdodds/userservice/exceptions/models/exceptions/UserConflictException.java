@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(code = HttpStatus.CONFLICT)
-public class UserConflictException extends RuntimeException {
+public class UserConflictException extends DomainException {
 
     /**
      * Constructor.
@@ -3,15 +3,17 @@ package kdodds.userservice.exceptions.models.exceptions;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.util.UUID;
+
 @ResponseStatus(HttpStatus.NOT_FOUND)
-public class UserNotFoundException extends RuntimeException {
+public class UserNotFoundException extends DomainException {
 
     /**
      * Constructor.
      *
      * @param userId The user id that was not found.
      */
-    public UserNotFoundException(String userId) {
+    public UserNotFoundException(UUID userId) {
         super("User with id " + userId + " not found");
     }
 
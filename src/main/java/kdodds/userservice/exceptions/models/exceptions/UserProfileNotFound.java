@@ -3,15 +3,17 @@ package kdodds.userservice.exceptions.models.exceptions;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.util.UUID;
+
 @ResponseStatus(code = HttpStatus.NOT_FOUND)
-public class UserProfileNotFound extends RuntimeException {
+public class UserProfileNotFound extends DomainException {
 
     /**
      * Constructor.
      *
      * @param userId The user id that was not found.
      */
-    public UserProfileNotFound(String userId) {
+    public UserProfileNotFound(UUID userId) {
         super("User profile not found for user id: " + userId);
     }
 
@@ -0,0 +1,27 @@
+package kdodds.userservice.ids;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Converts request strings (path variables, request parameters) to UUIDs with {@link Uuids#parse(CharSequence)}.
+ * Spring Boot registers converter beans with both the servlet and the reactive stack, replacing the default converter
+ * that goes through {@link UUID#fromString(String)}. On the servlet stack malformed path variables never get here,
+ * {@link UuidPathVariableInterceptor} has already answered them with a 400.
+ */
+@Component
+public class UuidConverter implements Converter<String, UUID> {
+
+    @Override
+    public UUID convert(String source) {
+        UUID uuid = Uuids.parse(source);
+        if (uuid == null) {
+            throw new IllegalArgumentException("Invalid UUID: " + source);
+        }
+
+        return uuid;
+    }
+
+}
@@ -0,0 +1,130 @@
+package kdodds.userservice.ids;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import kdodds.userservice.exceptions.models.ErrorResponse;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rejects requests whose UUID path variables are malformed with a 400, before the handler's arguments are converted.
+ * Scanners probing random paths then cost a table lookup per character instead of an exception with a stack trace.
+ * The UUID path variables of each handler method are found once, from its {@code @PathVariable UUID} parameters.
+ */
+public class UuidPathVariableInterceptor implements HandlerInterceptor {
+
+    private static final ParameterNameDiscoverer PARAMETER_NAMES = new DefaultParameterNameDiscoverer();
+
+    private final Map<Method, List<String>> uuidVariables = new ConcurrentHashMap<>();
+
+    // one error body per variable name, serialized on first use
+    private final Map<String, byte[]> rejectionBodies = new ConcurrentHashMap<>();
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructor.
+     *
+     * @param objectMapper Mapper for the error body.
+     */
+    public UuidPathVariableInterceptor(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(
+        HttpServletRequest request,
+        HttpServletResponse response,
+        Object handler
+    ) throws IOException {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+
+        List<String> names = uuidVariables.computeIfAbsent(
+            handlerMethod.getMethod(),
+            method -> findUuidVariables(handlerMethod)
+        );
+        if (names.isEmpty()) {
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables =
+            (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null) {
+            return true;
+        }
+
+        for (String name : names) {
+            if (!Uuids.isValid(variables.get(name))) {
+                reject(response, name);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void reject(HttpServletResponse response, String name) throws IOException {
+        byte[] body = rejectionBodies.computeIfAbsent(name, this::rejectionBody);
+
+        response.setStatus(HttpStatus.BAD_REQUEST.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private byte[] rejectionBody(String name) {
+        ErrorResponse error = ErrorResponse.builder()
+            .error(HttpStatus.BAD_REQUEST.getReasonPhrase())
+            .message(String.format("Invalid %s, expected a UUID", name))
+            .status(HttpStatus.BAD_REQUEST.value())
+            .build();
+
+        try {
+            return objectMapper.writeValueAsBytes(error);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static List<String> findUuidVariables(HandlerMethod handlerMethod) {
+        String[] parameterNames = PARAMETER_NAMES.getParameterNames(handlerMethod.getMethod());
+
+        List<String> names = new ArrayList<>();
+        for (MethodParameter parameter : handlerMethod.getMethodParameters()) {
+            PathVariable pathVariable = parameter.getParameterAnnotation(PathVariable.class);
+            if (pathVariable == null || parameter.getParameterType() != UUID.class) {
+                continue;
+            }
+
+            if (!pathVariable.name().isEmpty()) {
+                names.add(pathVariable.name());
+            } else if (parameterNames != null) {
+                names.add(parameterNames[parameter.getParameterIndex()]);
+            }
+        }
+
+        return List.copyOf(names);
+    }
+
+}
@@ -0,0 +1,103 @@
+package kdodds.userservice.ids;
+
+import java.util.UUID;
+
+/**
+ * Parser for the canonical 36 character UUID form ({@code 8-4-4-4-12} hex digits, either case). Unlike
+ * {@link UUID#fromString(String)} a malformed value is reported by the return value, not by an exception, and nothing
+ * is allocated apart from the resulting UUID. The lenient forms {@link UUID#fromString(String)} also accepts (short
+ * groups, leading zeros dropped) are rejected.
+ */
+public final class Uuids {
+
+    private static final int LENGTH = 36;
+
+    private static final int NOT_HEX = -1;
+
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        for (int i = 0; i < HEX_VALUES.length; i++) {
+            HEX_VALUES[i] = NOT_HEX;
+        }
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private Uuids() {
+    }
+
+    /**
+     * Checks a value is a UUID in canonical form.
+     *
+     * @param value The value to check, may be null.
+     * @return True if {@link #parse(CharSequence)} would return a UUID.
+     */
+    public static boolean isValid(CharSequence value) {
+        if (value == null || value.length() != LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < LENGTH; i++) {
+            char c = value.charAt(i);
+            if (isDashPosition(i) ? c != '-' : hexValue(c) == NOT_HEX) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Parses a UUID in canonical form.
+     *
+     * @param value The value to parse, may be null.
+     * @return The UUID, or null if the value is not a canonical UUID.
+     */
+    public static UUID parse(CharSequence value) {
+        if (value == null || value.length() != LENGTH) {
+            return null;
+        }
+
+        long mostSignificant = 0;
+        long leastSignificant = 0;
+        int digits = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            char c = value.charAt(i);
+            if (isDashPosition(i)) {
+                if (c != '-') {
+                    return null;
+                }
+                continue;
+            }
+
+            int digit = hexValue(c);
+            if (digit == NOT_HEX) {
+                return null;
+            }
+
+            // the first 16 digits are the high half
+            if (digits++ < 16) {
+                mostSignificant = (mostSignificant << 4) | digit;
+            } else {
+                leastSignificant = (leastSignificant << 4) | digit;
+            }
+        }
+
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    private static boolean isDashPosition(int index) {
+        return index == 8 || index == 13 || index == 18 || index == 23;
+    }
+
+    private static int hexValue(char c) {
+        return c < HEX_VALUES.length ? HEX_VALUES[c] : NOT_HEX;
+    }
+
+}
@@ -0,0 +1,23 @@
+package kdodds.userservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One toModel call of a HATEOAS model assembler.
+ */
+@Name("kdodds.userservice.Assembler")
+@Label("Assembler")
+@Category("User Service")
+@Description("Conversion of a response DTO into a HAL model")
+@StackTrace(false)
+public class AssemblerEvent extends Event {
+
+    @Label("Assembler")
+    String assembler;
+
+}
@@ -0,0 +1,72 @@
+package kdodds.userservice.jfr;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Emits {@link ServiceCallEvent}s around public service methods and {@link AssemblerEvent}s around assembler toModel
+ * calls. With no recording running the events are disabled and each call costs one flag check.
+ */
+@Aspect
+@Component
+public class JfrEventAspect {
+
+    /**
+     * Times a public method of a class in the services package.
+     *
+     * @param joinPoint The service call.
+     * @return The service method's result.
+     * @throws Throwable Whatever the service method throws.
+     */
+    @Around("within(kdodds.userservice.services..*) && execution(public * *(..))")
+    public Object serviceCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        ServiceCallEvent event = new ServiceCallEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        event.begin();
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable ex) {
+            event.failed = true;
+            throw ex;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.service = joinPoint.getSignature().getDeclaringType().getSimpleName();
+                event.method = joinPoint.getSignature().getName();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Times a toModel call of a class in the assemblers package.
+     *
+     * @param joinPoint The assembler call.
+     * @return The model.
+     * @throws Throwable Whatever the assembler throws.
+     */
+    @Around("execution(* kdodds.userservice.assemblers..*.toModel(..))")
+    public Object toModel(ProceedingJoinPoint joinPoint) throws Throwable {
+        AssemblerEvent event = new AssemblerEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        event.begin();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.assembler = joinPoint.getSignature().getDeclaringType().getSimpleName();
+                event.commit();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+package kdodds.userservice.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import kdodds.userservice.config.JfrProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Actuator endpoint (/actuator/jfr) running one bounded JFR recording at a time on a live instance. POST starts a
+ * recording, optionally with {"durationSeconds": 120}; GET reports on it; DELETE stops it and streams the .jfr file
+ * back, e.g. {@code curl -X DELETE localhost:8080/api/actuator/jfr -o user-service.jfr}. A recording that reached its
+ * duration can still be fetched with DELETE. The endpoint is not exposed over HTTP by default, the dev profile exposes
+ * it. The events that capture the environment, system properties and JVM arguments are left out of every recording,
+ * they hold the datasource credentials.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "jfr")
+public class JfrRecordingEndpoint {
+
+    // environment variables, system properties and the JVM command line, where the credentials are passed in
+    private static final List<String> SECRET_EVENTS = List.of(
+        "jdk.InitialEnvironmentVariable",
+        "jdk.InitialSystemProperty",
+        "jdk.JVMInformation"
+    );
+
+    private final JfrProperties jfrProperties;
+
+    private Recording recording;
+
+    /**
+     * Constructor.
+     *
+     * @param jfrProperties Settings and bounds of the recordings.
+     */
+    public JfrRecordingEndpoint(JfrProperties jfrProperties) {
+        this.jfrProperties = jfrProperties;
+    }
+
+    /**
+     * Reports on the current recording.
+     *
+     * @return The recording's state, CLOSED if there is none.
+     */
+    @ReadOperation
+    public synchronized RecordingInfo state() {
+        if (recording == null) {
+            return new RecordingInfo(RecordingState.CLOSED.name(), null, 0, jfrProperties.getMaxSize().toBytes());
+        }
+
+        return new RecordingInfo(
+            recording.getState().name(),
+            recording.getStartTime(),
+            recording.getDuration().toSeconds(),
+            recording.getMaxSize()
+        );
+    }
+
+    /**
+     * Starts a recording, the application's events are included with the JVM's.
+     *
+     * @param durationSeconds How long to record, up to the configured maximum, defaults to the configured duration.
+     * @return The started recording's state.
+     */
+    @WriteOperation
+    public synchronized RecordingInfo start(@Nullable Long durationSeconds) {
+        Duration duration = durationSeconds == null ? jfrProperties.getDefaultDuration()
+            : Duration.ofSeconds(durationSeconds);
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(jfrProperties.getMaxDuration()) > 0) {
+            String message = String.format(
+                "Duration must be between 1 and %d seconds", jfrProperties.getMaxDuration().toSeconds()
+            );
+            throw new InvalidEndpointRequestException(message, message);
+        }
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            String message = "A recording is already running, stop it with DELETE first";
+            throw new InvalidEndpointRequestException(message, message);
+        }
+
+        closeRecording();
+        try {
+            recording = new Recording(Configuration.getConfiguration(jfrProperties.getSettings()));
+        } catch (IOException | ParseException ex) {
+            throw new IllegalStateException(
+                String.format("Could not load JFR settings %s", jfrProperties.getSettings()), ex
+            );
+        }
+        recording.setName("user-service");
+        recording.setDuration(duration);
+        recording.setMaxSize(jfrProperties.getMaxSize().toBytes());
+        recording.setToDisk(true);
+        for (String event : SECRET_EVENTS) {
+            recording.disable(event);
+        }
+        recording.enable(ServiceCallEvent.class);
+        recording.enable(RepositoryCallEvent.class);
+        recording.enable(AssemblerEvent.class);
+        recording.enable(SerializationEvent.class);
+        recording.start();
+        log.info("Started a {} second JFR recording", duration.toSeconds());
+
+        return state();
+    }
+
+    /**
+     * Stops the recording and streams its data. The recording is discarded once the stream is closed.
+     *
+     * @return The .jfr file.
+     */
+    @DeleteOperation(produces = "application/octet-stream")
+    public synchronized Resource stop() {
+        if (recording == null) {
+            String message = "No recording to stop, start one with POST first";
+            throw new InvalidEndpointRequestException(message, message);
+        }
+
+        Recording stopped = recording;
+        recording = null;
+        if (stopped.getState() == RecordingState.RUNNING) {
+            stopped.stop();
+        }
+        log.info("Stopped the JFR recording started at {}", stopped.getStartTime());
+
+        InputStream data;
+        try {
+            data = stopped.getStream(null, null);
+        } catch (IOException ex) {
+            stopped.close();
+            throw new UncheckedIOException(ex);
+        }
+        if (data == null) {
+            stopped.close();
+            String message = "The recording has no data";
+            throw new InvalidEndpointRequestException(message, message);
+        }
+
+        return new InputStreamResource(new ClosingInputStream(data, stopped));
+    }
+
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * State of a recording.
+     *
+     * @param state NEW, RUNNING, STOPPED or CLOSED, CLOSED if there is no recording.
+     * @param startTime When the recording started.
+     * @param durationSeconds How long the recording runs.
+     * @param maxSizeBytes Size at which the oldest data is dropped.
+     */
+    public record RecordingInfo(String state, Instant startTime, long durationSeconds, long maxSizeBytes) {
+    }
+
+    /**
+     * Closes the recording, deleting its data, once the response has been streamed.
+     */
+    private static final class ClosingInputStream extends FilterInputStream {
+
+        private final Recording recording;
+
+        private ClosingInputStream(InputStream in, Recording recording) {
+            super(in);
+            this.recording = recording;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                recording.close();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,29 @@
+package kdodds.userservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A call into a Spring Data repository, timed from the repository proxy, without arguments.
+ */
+@Name("kdodds.userservice.RepositoryCall")
+@Label("Repository Call")
+@Category("User Service")
+@Description("Call into a repository method, including the statements it runs")
+@StackTrace(false)
+public class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+
+    @Label("Failed")
+    boolean failed;
+
+}
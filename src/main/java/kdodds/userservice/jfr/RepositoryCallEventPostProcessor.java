@@ -0,0 +1,58 @@
+package kdodds.userservice.jfr;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds an interceptor emitting {@link RepositoryCallEvent}s to every Spring Data repository proxy. The interceptor
+ * sits on the proxy, so the event names the repository interface (UserRepository.findById) rather than the
+ * interface that declares the method (CrudRepository).
+ */
+@Component
+public class RepositoryCallEventPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        // the customizer runs when the factory bean creates the repository, after this method returns
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory ->
+                factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                    proxyFactory.addAdvice(new Timing(repositoryInformation.getRepositoryInterface().getSimpleName()))
+                )
+            );
+        }
+
+        return bean;
+    }
+
+    private record Timing(String repository) implements MethodInterceptor {
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            RepositoryCallEvent event = new RepositoryCallEvent();
+            if (!event.isEnabled()) {
+                return invocation.proceed();
+            }
+
+            event.begin();
+            try {
+                return invocation.proceed();
+            } catch (Throwable ex) {
+                event.failed = true;
+                throw ex;
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.repository = repository;
+                    event.method = invocation.getMethod().getName();
+                    event.commit();
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,26 @@
+package kdodds.userservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Writing one response body through a message converter.
+ */
+@Name("kdodds.userservice.Serialization")
+@Label("Serialization")
+@Category("User Service")
+@Description("Response body written by a message converter")
+@StackTrace(false)
+public class SerializationEvent extends Event {
+
+    @Label("Content Type")
+    String contentType;
+
+    @Label("Body Type")
+    String bodyType;
+
+}
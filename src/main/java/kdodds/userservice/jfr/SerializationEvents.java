@@ -0,0 +1,64 @@
+package kdodds.userservice.jfr;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Emits a {@link SerializationEvent} per response body written by a message converter. The event begins in
+ * {@link #beforeBodyWrite}, which runs right before the converter, and is committed in {@link #afterCompletion}, which
+ * runs once the handler, and with it the converter, has returned. For a listing page the event also spans the batch
+ * reads, which run while the converter writes the page.
+ */
+@ControllerAdvice
+public class SerializationEvents implements ResponseBodyAdvice<Object>, HandlerInterceptor {
+
+    private static final String EVENT_ATTRIBUTE = SerializationEvents.class.getName() + ".event";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(
+        Object body,
+        MethodParameter returnType,
+        MediaType selectedContentType,
+        Class<? extends HttpMessageConverter<?>> selectedConverterType,
+        ServerHttpRequest request,
+        ServerHttpResponse response
+    ) {
+        SerializationEvent event = new SerializationEvent();
+        if (body != null && event.isEnabled() && request instanceof ServletServerHttpRequest servletRequest) {
+            event.contentType = selectedContentType.toString();
+            event.bodyType = body.getClass().getSimpleName();
+            servletRequest.getServletRequest().setAttribute(EVENT_ATTRIBUTE, event);
+            event.begin();
+        }
+
+        return body;
+    }
+
+    @Override
+    public void afterCompletion(
+        HttpServletRequest request,
+        HttpServletResponse response,
+        Object handler,
+        Exception ex
+    ) {
+        if (request.getAttribute(EVENT_ATTRIBUTE) instanceof SerializationEvent event) {
+            request.removeAttribute(EVENT_ATTRIBUTE);
+            event.commit();
+        }
+    }
+
+}
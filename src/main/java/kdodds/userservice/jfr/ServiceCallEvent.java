@@ -0,0 +1,29 @@
+package kdodds.userservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A call into a service class, timed from the proxy, fields never carry ids or arguments.
+ */
+@Name("kdodds.userservice.ServiceCall")
+@Label("Service Call")
+@Category("User Service")
+@Description("Call into a service method")
+@StackTrace(false)
+public class ServiceCallEvent extends Event {
+
+    @Label("Service")
+    String service;
+
+    @Label("Method")
+    String method;
+
+    @Label("Failed")
+    boolean failed;
+
+}
@@ -0,0 +1,42 @@
+package kdodds.userservice.metrics;
+
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Names the controller method that handled a request, e.g. UserController.getUser, for the {@value #KEY} tag on the
+ * request timers. The value set is bounded by the number of controller methods, ids never end up in it.
+ */
+public final class HandlerTag {
+
+    public static final String KEY = "handler";
+
+    // requests that never reached a controller, e.g. rejected by a filter or answered with a 404
+    public static final String NONE = "none";
+
+    private static final Map<Method, String> NAMES = new ConcurrentHashMap<>();
+
+    private HandlerTag() {
+    }
+
+    /**
+     * Gets the tag value for the handler a request was mapped to.
+     *
+     * @param handler The best matching handler request attribute, may be null.
+     * @return Controller and method name, or {@value #NONE}.
+     */
+    public static String of(Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            return NAMES.computeIfAbsent(
+                handlerMethod.getMethod(),
+                method -> handlerMethod.getBeanType().getSimpleName() + "." + method.getName()
+            );
+        }
+
+        return NONE;
+    }
+
+}
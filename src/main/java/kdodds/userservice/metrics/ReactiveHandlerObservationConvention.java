@@ -0,0 +1,22 @@
+package kdodds.userservice.metrics;
+
+import io.micrometer.common.KeyValues;
+import org.springframework.http.server.reactive.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.reactive.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+
+/**
+ * Adds the controller method to the http.server.requests timer of the reactive stack, see
+ * {@link HandlerObservationConvention}.
+ */
+@Component
+public class ReactiveHandlerObservationConvention extends DefaultServerRequestObservationConvention {
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+        Object handler = context.getAttributes().get(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        return super.getLowCardinalityKeyValues(context).and(HandlerTag.KEY, HandlerTag.of(handler));
+    }
+
+}
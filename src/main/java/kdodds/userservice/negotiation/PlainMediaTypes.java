@@ -0,0 +1,56 @@
+package kdodds.userservice.negotiation;
+
+import kdodds.userservice.config.JacksonConfig;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The media types of the plain (link free) representations, and the one of them a request gets. Handlers that serve
+ * several of them under one ETag need to know which body they answer with before they compare If-None-Match.
+ */
+public final class PlainMediaTypes {
+
+    /**
+     * The plain media types, in the order they are preferred when a client accepts several of them equally.
+     */
+    public static final List<MediaType> ALL = List.of(
+        MediaType.APPLICATION_JSON,
+        MediaType.APPLICATION_CBOR,
+        JacksonConfig.APPLICATION_SMILE
+    );
+
+    private PlainMediaTypes() {
+    }
+
+    /**
+     * Selects the plain media type for an Accept header the same way the message converters do: the accepted types
+     * are matched against the plain types, ordered by quality and specificity, and the first one wins.
+     *
+     * @param accept The Accept header, may be null.
+     * @return The selected media type, JSON if the client accepts none of them.
+     */
+    public static MediaType select(String accept) {
+        List<MediaType> accepted = accept == null || accept.isBlank()
+            ? List.of(MediaType.ALL)
+            : MediaType.parseMediaTypes(accept);
+
+        List<MediaType> candidates = new ArrayList<>();
+        for (MediaType acceptedType : accepted) {
+            for (MediaType plainType : ALL) {
+                if (acceptedType.isCompatibleWith(plainType)) {
+                    candidates.add(plainType.copyQualityValue(acceptedType));
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return MediaType.APPLICATION_JSON;
+        }
+
+        MimeTypeUtils.sortBySpecificity(candidates);
+        return candidates.getFirst().removeQualityValue();
+    }
+
+}
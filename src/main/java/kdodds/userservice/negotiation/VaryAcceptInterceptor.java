@@ -0,0 +1,29 @@
+package kdodds.userservice.negotiation;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Collection;
+
+/**
+ * Adds {@code Vary: Accept} to the responses of handlers that declare the media types they produce, so a cache keeps
+ * the HAL, JSON, CBOR and Smile bodies of a URL apart. A handler producing only HAL still varies: another handler of
+ * the same URL answers the other types. It is added before the handler runs, 304 responses included.
+ */
+public class VaryAcceptInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE) instanceof Collection<?> producible
+            && !producible.isEmpty()
+            && !response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT)) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+
+        return true;
+    }
+
+}
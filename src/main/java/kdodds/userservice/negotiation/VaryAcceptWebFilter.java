@@ -0,0 +1,35 @@
+package kdodds.userservice.negotiation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Adds {@code Vary: Accept} to the responses of the reactive controllers. Their bodies are encoded as JSON, CBOR or
+ * Smile depending on the Accept header, so every response a handler method answers is negotiated.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class VaryAcceptWebFilter implements WebFilter {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        exchange.getResponse().beforeCommit(() -> {
+            HttpHeaders headers = exchange.getResponse().getHeaders();
+            if (exchange.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod
+                && !headers.getVary().contains(HttpHeaders.ACCEPT)) {
+                headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            }
+            return Mono.empty();
+        });
+
+        return chain.filter(exchange);
+    }
+
+}
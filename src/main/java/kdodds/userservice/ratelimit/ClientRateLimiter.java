@@ -0,0 +1,129 @@
+package kdodds.userservice.ratelimit;
+
+import kdodds.userservice.config.RateLimitProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a token bucket per client and tier. Lookups of existing buckets go through ConcurrentHashMap's lock-free read
+ * path, so the steady state cost per request is a hash lookup plus one CAS. The number of buckets per tier is capped,
+ * clients arriving while a tier is full share one overflow bucket until idle buckets are evicted.
+ */
+@Slf4j
+@Component
+public class ClientRateLimiter {
+
+    static final String OVERFLOW_KEY = "overflow";
+
+    private final Map<RateLimitTier, Tier> tiers = new EnumMap<>(RateLimitTier.class);
+
+    private final int maxClients;
+
+    /**
+     * Constructor.
+     *
+     * @param properties The configured budgets.
+     */
+    public ClientRateLimiter(RateLimitProperties properties) {
+        tiers.put(RateLimitTier.LISTING, new Tier(properties.getListing()));
+        tiers.put(RateLimitTier.SEARCH, new Tier(properties.getSearch()));
+        tiers.put(RateLimitTier.WRITE, new Tier(properties.getWrite()));
+        this.maxClients = properties.getMaxClients();
+    }
+
+    /**
+     * Tries to take a token from a client's bucket for a tier.
+     *
+     * @param tier The rate limit tier.
+     * @param clientKey The client key (api key or address).
+     * @param nowNanos Current time in nanoseconds.
+     * @return Remaining tokens (>= 0) if allowed, otherwise the negated nanoseconds until a token is available.
+     */
+    public long tryConsume(RateLimitTier tier, String clientKey, long nowNanos) {
+        Tier limits = tiers.get(tier);
+        TokenBucket bucket = limits.buckets.get(clientKey);
+        if (bucket == null) {
+            // the size check races with other new clients, the cap may be overshot by the number of request threads
+            String key = limits.buckets.size() < maxClients ? clientKey : OVERFLOW_KEY;
+            bucket = limits.buckets.computeIfAbsent(key, k -> new TokenBucket(nowNanos));
+        }
+        return bucket.tryConsume(nowNanos, limits.intervalNanos, limits.capacity);
+    }
+
+    /**
+     * Gets the bucket capacity of a tier.
+     *
+     * @param tier The rate limit tier.
+     * @return Capacity in requests.
+     */
+    public int getCapacity(RateLimitTier tier) {
+        return tiers.get(tier).capacity;
+    }
+
+    /**
+     * Gets the nanoseconds until a client's bucket is full again.
+     *
+     * @param tier The rate limit tier.
+     * @param clientKey The client key.
+     * @param nowNanos Current time in nanoseconds.
+     * @return Nanoseconds until full, those of the overflow bucket if the client has no bucket, 0 if neither exists.
+     */
+    public long nanosUntilFull(RateLimitTier tier, String clientKey, long nowNanos) {
+        Map<String, TokenBucket> buckets = tiers.get(tier).buckets;
+        TokenBucket bucket = buckets.getOrDefault(clientKey, buckets.get(OVERFLOW_KEY));
+        return bucket == null ? 0 : bucket.nanosUntilFull(nowNanos);
+    }
+
+    /**
+     * Gets the number of buckets currently held for a tier.
+     *
+     * @param tier The rate limit tier.
+     * @return Bucket count.
+     */
+    public int size(RateLimitTier tier) {
+        return tiers.get(tier).buckets.size();
+    }
+
+    /**
+     * Drops buckets that have refilled completely. A full bucket is indistinguishable from a new one, so this only
+     * frees memory; a request racing with eviction may at worst be counted against a discarded bucket.
+     */
+    @Scheduled(fixedDelayString = "${user-service.rate-limit.eviction-interval:1m}")
+    public void evictIdleBuckets() {
+        evictIdleBuckets(System.nanoTime());
+    }
+
+    /**
+     * Drops buckets that are full as of the given time.
+     *
+     * @param nowNanos Current time in nanoseconds.
+     */
+    public void evictIdleBuckets(long nowNanos) {
+        tiers.forEach((tier, limits) -> {
+            int before = limits.buckets.size();
+            limits.buckets.values().removeIf(bucket -> bucket.nanosUntilFull(nowNanos) == 0);
+            log.debug("Evicted {} idle {} rate limit buckets", before - limits.buckets.size(), tier);
+        });
+    }
+
+    private static final class Tier {
+
+        private final int capacity;
+
+        private final long intervalNanos;
+
+        private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+        private Tier(RateLimitProperties.Budget budget) {
+            this.capacity = budget.getCapacity();
+            this.intervalNanos = Math.max(1, budget.getPeriod().toNanos() / budget.getCapacity());
+        }
+
+    }
+
+}
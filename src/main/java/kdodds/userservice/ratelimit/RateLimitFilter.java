@@ -0,0 +1,108 @@
+package kdodds.userservice.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import kdodds.userservice.concurrency.EndpointGroup;
+import kdodds.userservice.config.RateLimitProperties;
+import kdodds.userservice.exceptions.models.ErrorResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies per-client token bucket limits to listing, search and write requests and reports the client's budget with
+ * RateLimit-Limit, RateLimit-Remaining and RateLimit-Reset headers. Runs ahead of the concurrency limit so that a
+ * throttled client never occupies a concurrency slot.
+ */
+@Order(RateLimitFilter.ORDER)
+@Component
+@AllArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final int ORDER = 0;
+
+    private static final String LIMIT_HEADER = "RateLimit-Limit";
+
+    private static final String REMAINING_HEADER = "RateLimit-Remaining";
+
+    private static final String RESET_HEADER = "RateLimit-Reset";
+
+    private ClientRateLimiter clientRateLimiter;
+
+    private RateLimitProperties properties;
+
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || classify(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+        HttpServletRequest request,
+        HttpServletResponse response,
+        FilterChain filterChain
+    ) throws ServletException, IOException {
+        RateLimitTier tier = classify(request);
+        String clientKey = clientKey(request);
+        long now = System.nanoTime();
+
+        long result = clientRateLimiter.tryConsume(tier, clientKey, now);
+
+        response.setHeader(LIMIT_HEADER, String.valueOf(clientRateLimiter.getCapacity(tier)));
+        response.setHeader(REMAINING_HEADER, String.valueOf(Math.max(0, result)));
+        response.setHeader(RESET_HEADER, String.valueOf(
+            toSeconds(clientRateLimiter.nanosUntilFull(tier, clientKey, now))
+        ));
+
+        if (result < 0) {
+            reject(response, toSeconds(-result));
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        String apiKey = request.getHeader(properties.getApiKeyHeader());
+        if (apiKey != null && properties.getApiKeys().contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        ErrorResponse error = ErrorResponse.builder()
+            .error(HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase())
+            .message("Rate limit exceeded, try again later")
+            .status(HttpStatus.TOO_MANY_REQUESTS.value())
+            .build();
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    private static RateLimitTier classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return RateLimitTier.classify(EndpointGroup.classify(request.getMethod(), path), request.getParameterMap());
+    }
+
+    private static long toSeconds(long nanos) {
+        // round up so clients never retry a moment too early
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+}
@@ -0,0 +1,48 @@
+package kdodds.userservice.ratelimit;
+
+import kdodds.userservice.concurrency.EndpointGroup;
+
+import java.util.Map;
+
+/**
+ * Rate limit budgets. Listing and search share an endpoint but a filtered listing is far more expensive, so it gets
+ * its own, smaller budget.
+ */
+public enum RateLimitTier {
+
+    LISTING,
+    SEARCH,
+    WRITE;
+
+    private static final String[] FILTER_PARAMS = {"username", "email", "firstName", "lastName", "status"};
+
+    /**
+     * Picks the tier for a request.
+     *
+     * @param group The endpoint group of the request, may be null.
+     * @param parameters The request parameters.
+     * @return The tier, or null if the request is not rate limited.
+     */
+    public static RateLimitTier classify(EndpointGroup group, Map<String, String[]> parameters) {
+        if (group == null) {
+            return null;
+        }
+
+        return switch (group) {
+            case LISTING -> hasFilter(parameters) ? SEARCH : LISTING;
+            case WRITE -> WRITE;
+            default -> null;
+        };
+    }
+
+    private static boolean hasFilter(Map<String, String[]> parameters) {
+        for (String param : FILTER_PARAMS) {
+            String[] values = parameters.get(param);
+            if (values != null && values.length > 0 && !values[0].isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,101 @@
+package kdodds.userservice.ratelimit;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Logs through a {@link TokenBucket}, for messages a client can trigger at will (unknown ids, invalid bodies). A
+ * burst of messages is logged as usual, beyond that one message per interval gets through and carries the number of
+ * messages dropped since the last one that was logged. Arguments are plain values, a trailing exception would not be
+ * recognised once the dropped count is appended.
+ */
+public class RateLimitedLogger {
+
+    private static final String SUPPRESSED = " ({} similar messages suppressed)";
+
+    private final Logger logger;
+
+    private final long intervalNanos;
+
+    private final int burst;
+
+    private final LongSupplier clock;
+
+    private final TokenBucket bucket;
+
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param logger The logger to write to.
+     * @param interval Time for one message to be allowed again.
+     * @param burst Messages logged back to back before the interval applies.
+     */
+    public RateLimitedLogger(Logger logger, Duration interval, int burst) {
+        this(logger, interval, burst, System::nanoTime);
+    }
+
+    RateLimitedLogger(Logger logger, Duration interval, int burst, LongSupplier clock) {
+        this.logger = logger;
+        this.intervalNanos = interval.toNanos();
+        this.burst = burst;
+        this.clock = clock;
+        this.bucket = new TokenBucket(clock.getAsLong());
+    }
+
+    /**
+     * Logs at warn level if the rate allows it.
+     *
+     * @param format The message format.
+     * @param args The message arguments.
+     */
+    public void warn(String format, Object... args) {
+        if (logger.isWarnEnabled() && tryAcquire()) {
+            long dropped = suppressed.sumThenReset();
+            logger.warn(dropped == 0 ? format : format + SUPPRESSED, dropped == 0 ? args : append(args, dropped));
+        }
+    }
+
+    /**
+     * Logs at error level if the rate allows it.
+     *
+     * @param format The message format.
+     * @param args The message arguments.
+     */
+    public void error(String format, Object... args) {
+        if (logger.isErrorEnabled() && tryAcquire()) {
+            long dropped = suppressed.sumThenReset();
+            logger.error(dropped == 0 ? format : format + SUPPRESSED, dropped == 0 ? args : append(args, dropped));
+        }
+    }
+
+    /**
+     * Gets the number of messages dropped since the last one that was logged.
+     *
+     * @return Dropped message count.
+     */
+    public long getSuppressed() {
+        return suppressed.sum();
+    }
+
+    private boolean tryAcquire() {
+        if (bucket.tryConsume(clock.getAsLong(), intervalNanos, burst) >= 0) {
+            return true;
+        }
+
+        suppressed.increment();
+        return false;
+    }
+
+    private static Object[] append(Object[] args, long dropped) {
+        Object[] extended = Arrays.copyOf(args, args.length + 1);
+        extended[args.length] = dropped;
+        return extended;
+    }
+
+}
@@ -0,0 +1,57 @@
+package kdodds.userservice.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm. The whole bucket state is a single
+ * "theoretical arrival time" updated by CAS, so consuming a token never blocks and never allocates.
+ */
+public class TokenBucket {
+
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * Constructor.
+     *
+     * @param nowNanos Current time; the bucket starts full.
+     */
+    public TokenBucket(long nowNanos) {
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Tries to take one token.
+     *
+     * @param nowNanos Current time in nanoseconds.
+     * @param intervalNanos Time to refill a single token.
+     * @param capacity Bucket size.
+     * @return Remaining tokens (>= 0) if a token was taken, otherwise the negated nanoseconds until one is available.
+     */
+    public long tryConsume(long nowNanos, long intervalNanos, int capacity) {
+        long burstNanos = intervalNanos * capacity;
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            long allowAt = next - burstNanos;
+
+            if (nowNanos < allowAt) {
+                return -(allowAt - nowNanos);
+            }
+
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return (burstNanos - (next - nowNanos)) / intervalNanos;
+            }
+        }
+    }
+
+    /**
+     * Gets the nanoseconds until the bucket is completely full again.
+     *
+     * @param nowNanos Current time in nanoseconds.
+     * @return Nanoseconds until full, 0 if already full.
+     */
+    public long nanosUntilFull(long nowNanos) {
+        return Math.max(0, theoreticalArrival.get() - nowNanos);
+    }
+
+}
@@ -0,0 +1,234 @@
+package kdodds.userservice.repositories;
+
+import io.r2dbc.spi.Readable;
+import kdodds.userservice.dto.responses.UserAddressResponseDto;
+import kdodds.userservice.dto.responses.UserProfileResponseDto;
+import kdodds.userservice.dto.responses.UserResponseDto;
+import kdodds.userservice.repositories.specifications.UserFilter;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * R2DBC read queries for the reactive deployment mode. Rows are mapped straight into the response DTOs, there is no
+ * entity layer on this path.
+ */
+@Repository
+@AllArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserReadRepository {
+
+    private static final String USER_COLUMNS = """
+        u.id, u.username, u.email, u.created_at, u.updated_at,
+        p.first_name, p.last_name, p.phone_number, p.profile_image_url
+        """;
+
+    // inner join on the profile, matching UserSpecification
+    private static final String USER_FROM = """
+        FROM users u
+        JOIN user_profiles p ON p.user_id = u.id
+        """;
+
+    private DatabaseClient databaseClient;
+
+    /**
+     * Find a user (with profile fields, without addresses) by id.
+     *
+     * @param userId The user id.
+     * @return The user, or empty if not found.
+     */
+    public Mono<UserResponseDto> findUserById(UUID userId) {
+        return databaseClient.sql("SELECT " + USER_COLUMNS + USER_FROM + "WHERE u.id = :userId")
+            .bind("userId", userId)
+            .map(ReactiveUserReadRepository::toUserDto)
+            .one();
+    }
+
+    /**
+     * Find a user profile by user id.
+     *
+     * @param userId The user id.
+     * @return The profile, or empty if not found.
+     */
+    public Mono<UserProfileResponseDto> findProfileByUserId(UUID userId) {
+        return databaseClient.sql("""
+                SELECT user_id, first_name, last_name, phone_number, profile_image_url, created_at, updated_at
+                FROM user_profiles
+                WHERE user_id = :userId
+                """)
+            .bind("userId", userId)
+            .map(row -> UserProfileResponseDto.builder()
+                .userId(row.get("user_id", UUID.class).toString())
+                .firstName(row.get("first_name", String.class))
+                .lastName(row.get("last_name", String.class))
+                .phoneNumber(row.get("phone_number", String.class))
+                .profileImageUrl(row.get("profile_image_url", String.class))
+                .createdAt(instant(row, "created_at"))
+                .updatedAt(instant(row, "updated_at"))
+                .build())
+            .one();
+    }
+
+    /**
+     * Find all addresses for a user.
+     *
+     * @param userId The user id.
+     * @return The user's addresses.
+     */
+    public Flux<UserAddressResponseDto> findAddressesByUserId(UUID userId) {
+        return databaseClient.sql("SELECT * FROM user_addresses WHERE user_id = :userId")
+            .bind("userId", userId)
+            .map(ReactiveUserReadRepository::toAddressDto)
+            .all();
+    }
+
+    /**
+     * Find the addresses of several users in one query.
+     *
+     * @param userIds The user ids.
+     * @return Addresses grouped by user id, in query order.
+     */
+    public Mono<Map<String, List<UserAddressResponseDto>>> findAddressesByUserIds(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+
+        return databaseClient.sql("SELECT * FROM user_addresses WHERE user_id IN (:userIds)")
+            .bind("userIds", userIds)
+            .map(ReactiveUserReadRepository::toAddressDto)
+            .all()
+            .collect(
+                LinkedHashMap::new,
+                (Map<String, List<UserAddressResponseDto>> byUser, UserAddressResponseDto address) -> byUser
+                    .computeIfAbsent(address.getUserId(), key -> new ArrayList<>())
+                    .add(address)
+            );
+    }
+
+    /**
+     * Find a page of users (without addresses) matching a filter.
+     *
+     * @param filter The normalized filter.
+     * @param page Zero based page number.
+     * @param size Page size.
+     * @return The users on the page.
+     */
+    public Flux<UserResponseDto> findUsers(UserFilter filter, int page, int size) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+            "SELECT " + USER_COLUMNS + USER_FROM + where(filter) + " LIMIT :limit OFFSET :offset"
+        );
+
+        return bindFilter(spec, filter)
+            .bind("limit", size)
+            .bind("offset", (long) page * size)
+            .map(ReactiveUserReadRepository::toUserDto)
+            .all();
+    }
+
+    /**
+     * Count the users matching a filter.
+     *
+     * @param filter The normalized filter.
+     * @return Number of matching users.
+     */
+    public Mono<Long> countUsers(UserFilter filter) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("SELECT COUNT(*) AS total " + USER_FROM
+            + where(filter));
+
+        return bindFilter(spec, filter)
+            .map(row -> row.get("total", Long.class))
+            .one();
+    }
+
+    private static String where(UserFilter filter) {
+        List<String> predicates = new ArrayList<>();
+
+        if (filter.username() != null) {
+            predicates.add("LOWER(u.username) LIKE :username");
+        }
+        if (filter.email() != null) {
+            predicates.add("LOWER(u.email) LIKE :email");
+        }
+        if (filter.firstName() != null) {
+            predicates.add("LOWER(p.first_name) LIKE :firstName");
+        }
+        if (filter.lastName() != null) {
+            predicates.add("LOWER(p.last_name) LIKE :lastName");
+        }
+        if (filter.status() != null) {
+            predicates.add("u.status = :status");
+        }
+
+        return predicates.isEmpty() ? "" : "WHERE " + String.join(" AND ", predicates);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindFilter(
+        DatabaseClient.GenericExecuteSpec spec,
+        UserFilter filter
+    ) {
+        if (filter.username() != null) {
+            spec = spec.bind("username", UserFilter.contains(filter.username()));
+        }
+        if (filter.email() != null) {
+            spec = spec.bind("email", UserFilter.contains(filter.email()));
+        }
+        if (filter.firstName() != null) {
+            spec = spec.bind("firstName", UserFilter.contains(filter.firstName()));
+        }
+        if (filter.lastName() != null) {
+            spec = spec.bind("lastName", UserFilter.contains(filter.lastName()));
+        }
+        if (filter.status() != null) {
+            spec = spec.bind("status", filter.status());
+        }
+        return spec;
+    }
+
+    private static UserResponseDto toUserDto(Readable row) {
+        return UserResponseDto.builder()
+            .userId(row.get("id", UUID.class).toString())
+            .username(row.get("username", String.class))
+            .email(row.get("email", String.class))
+            .firstName(row.get("first_name", String.class))
+            .lastName(row.get("last_name", String.class))
+            .phoneNumber(row.get("phone_number", String.class))
+            .profileImageUrl(row.get("profile_image_url", String.class))
+            .createdAt(instant(row, "created_at"))
+            .updatedAt(instant(row, "updated_at"))
+            .build();
+    }
+
+    private static UserAddressResponseDto toAddressDto(Readable row) {
+        return UserAddressResponseDto.builder()
+            .addressId(row.get("id", UUID.class).toString())
+            .userId(row.get("user_id", UUID.class).toString())
+            .addressType(row.get("address_type", String.class))
+            .addressLine1(row.get("address_line_1", String.class))
+            .addressLine2(row.get("address_line_2", String.class))
+            .city(row.get("city", String.class))
+            .state(row.get("state", String.class))
+            .zipCode(row.get("zip_code", String.class))
+            .country(row.get("country", String.class))
+            .createdAt(instant(row, "created_at"))
+            .updatedAt(instant(row, "updated_at"))
+            .build();
+    }
+
+    private static Instant instant(Readable row, String column) {
+        OffsetDateTime value = row.get(column, OffsetDateTime.class);
+        return value == null ? null : value.toInstant();
+    }
+
+}
@@ -2,12 +2,14 @@ package kdodds.userservice.repositories;
 
 import jakarta.transaction.Transactional;
 import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.repositories.projections.UserAddressRow;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -23,6 +25,30 @@ public interface UserAddressRepository extends JpaRepository<UserAddress, UUID>
      */
     Optional<List<UserAddress>> findAddressesByUserId(UUID userId);
 
+    /**
+     * Find the addresses of several users in one query.
+     *
+     * @param userIds The user ids to find the addresses for.
+     * @return List of UserAddress objects, in no particular order.
+     */
+    List<UserAddress> findByUserIdIn(Collection<UUID> userIds);
+
+    /**
+     * Read the addresses of several users as plain rows, without loading (and keeping) address entities.
+     *
+     * @param userIds The user ids to find the addresses for.
+     * @return List of UserAddressRow objects, in no particular order.
+     */
+    @Query("""
+        SELECT new kdodds.userservice.repositories.projections.UserAddressRow(
+            a.id, a.user.id, a.addressType, a.addressLine1, a.addressLine2, a.city, a.state, a.zipCode, a.country,
+            a.createdAt, a.updatedAt
+        )
+        FROM UserAddress a
+        WHERE a.user.id IN :userIds
+        """)
+    List<UserAddressRow> findRowsByUserIdIn(@Param("userIds") Collection<UUID> userIds);
+
     /**
      * Delete an address by user id and address id.
      *
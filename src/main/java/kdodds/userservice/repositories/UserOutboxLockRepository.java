@@ -0,0 +1,23 @@
+package kdodds.userservice.repositories;
+
+import kdodds.userservice.entities.UserOutboxLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface UserOutboxLockRepository extends JpaRepository<UserOutboxLock, String> {
+
+    /**
+     * Lock a named lock row until the current transaction ends, unless another transaction already holds it.
+     *
+     * @param name The name of the lock.
+     * @return The name if the lock was taken, empty if another transaction holds it.
+     */
+    @Query(value = "SELECT name FROM user_outbox_lock WHERE name = :name FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<String> tryLock(@Param("name") String name);
+
+}
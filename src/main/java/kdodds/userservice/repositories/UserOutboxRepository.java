@@ -0,0 +1,50 @@
+package kdodds.userservice.repositories;
+
+import kdodds.userservice.entities.UserOutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserOutboxRepository extends JpaRepository<UserOutboxEvent, Long> {
+
+    /**
+     * Find the oldest undelivered events written after a given event.
+     *
+     * @param afterId The id of the last event already read.
+     * @param limit The maximum number of events to return.
+     * @return List of UserOutboxEvent objects, in the order they were written.
+     */
+    @Query("SELECT e FROM UserOutboxEvent e WHERE e.id > :afterId ORDER BY e.id")
+    List<UserOutboxEvent> findOldestAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Delete delivered events.
+     *
+     * @param ids The ids of the events to delete.
+     * @return The number of rows affected.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserOutboxEvent e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Count a failed delivery attempt against events.
+     *
+     * @param ids The ids of the events that were not delivered.
+     * @return The number of rows affected.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserOutboxEvent e SET e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+    int incrementAttempts(@Param("ids") Collection<Long> ids);
+
+}
@@ -0,0 +1,58 @@
+package kdodds.userservice.repositories;
+
+import kdodds.userservice.entities.User;
+import kdodds.userservice.repositories.projections.UserFieldSet;
+import kdodds.userservice.repositories.projections.UserRow;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Sparse user reads, selecting only the columns (and joins) of the requested fields instead of loading entities.
+ */
+public interface UserProjectionRepository {
+
+    /**
+     * Find a page of users matching a specification, reading only the requested fields.
+     *
+     * @param spec The filter to apply, may be null.
+     * @param fields The fields to select.
+     * @param pageable The page to read.
+     * @return The page of user rows.
+     */
+    Page<UserRow> findUserRows(Specification<User> spec, UserFieldSet fields, Pageable pageable);
+
+    /**
+     * Find the next users matching a specification in id order, reading only the requested fields. A page is read in
+     * batches this way: the first batch skips to the start of the page, every later one continues after the last id
+     * read, so users added or removed between two batches neither shift nor repeat the rest of the page.
+     *
+     * @param spec The filter to apply, may be null.
+     * @param fields The fields to select.
+     * @param afterId The id to continue after, null to start with the first matching user.
+     * @param offset The number of users to skip.
+     * @param limit The maximum number of users to read.
+     * @return The user rows, in id order.
+     */
+    List<UserRow> findUserRowsAfter(
+        Specification<User> spec,
+        UserFieldSet fields,
+        UUID afterId,
+        long offset,
+        int limit
+    );
+
+    /**
+     * Find a single user by id, reading only the requested fields.
+     *
+     * @param userId The user id.
+     * @param fields The fields to select.
+     * @return The user row, or empty if the user does not exist.
+     */
+    Optional<UserRow> findUserRowById(UUID userId, UserFieldSet fields);
+
+}
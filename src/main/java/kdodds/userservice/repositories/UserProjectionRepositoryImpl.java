@@ -0,0 +1,196 @@
+package kdodds.userservice.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.repositories.projections.UserFieldSet;
+import kdodds.userservice.repositories.projections.UserFieldSet.Field;
+import kdodds.userservice.repositories.projections.UserRow;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Criteria based implementation of {@link UserProjectionRepository}, picked up by Spring Data as a fragment of
+ * {@link UserRepository}.
+ */
+public class UserProjectionRepositoryImpl implements UserProjectionRepository {
+
+    private static final String PROFILE = "userProfile";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<UserRow> findUserRows(Specification<User> spec, UserFieldSet fields, Pageable pageable) {
+        List<UserRow> rows = rowQuery(spec, fields, pageable)
+            .getResultList()
+            .stream()
+            .map(tuple -> toRow(tuple, fields))
+            .toList();
+
+        // the count query is skipped when the page alone determines the total
+        return PageableExecutionUtils.getPage(rows, pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<UserRow> findUserRowsAfter(
+        Specification<User> spec,
+        UserFieldSet fields,
+        UUID afterId,
+        long offset,
+        int limit
+    ) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+
+        List<Predicate> predicates = new ArrayList<>(2);
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            predicates.add(predicate);
+        }
+        if (afterId != null) {
+            predicates.add(cb.greaterThan(root.<UUID>get("id"), afterId));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+        query.multiselect(selections(root, fields));
+        query.orderBy(cb.asc(root.get("id")));
+
+        return entityManager.createQuery(query)
+            .setFirstResult(Math.toIntExact(offset))
+            .setMaxResults(limit)
+            .getResultList()
+            .stream()
+            .map(tuple -> toRow(tuple, fields))
+            .toList();
+    }
+
+    @Override
+    public Optional<UserRow> findUserRowById(UUID userId, UserFieldSet fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+
+        query.multiselect(selections(root, fields));
+        query.where(cb.equal(root.get("id"), userId));
+
+        return entityManager.createQuery(query)
+            .getResultList()
+            .stream()
+            .findFirst()
+            .map(tuple -> toRow(tuple, fields));
+    }
+
+    private TypedQuery<Tuple> rowQuery(Specification<User> spec, UserFieldSet fields, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+
+        // apply the filter first so a profile join it already made can be reused for the selection
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.multiselect(selections(root, fields));
+
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        return entityManager.createQuery(query)
+            .setFirstResult((int) pageable.getOffset())
+            .setMaxResults(pageable.getPageSize());
+    }
+
+    private long count(Specification<User> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<User> root = query.from(User.class);
+
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(cb.count(root));
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static List<Selection<?>> selections(Root<User> root, UserFieldSet fields) {
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(root.get("id").alias(Field.USER_ID.jsonName()));
+
+        addIfSelected(selections, fields, Field.USERNAME, root, "username");
+        addIfSelected(selections, fields, Field.EMAIL, root, "email");
+        addIfSelected(selections, fields, Field.CREATED_AT, root, "createdAt");
+        addIfSelected(selections, fields, Field.UPDATED_AT, root, "updatedAt");
+
+        // only join the profile when one of its columns is rendered
+        if (fields.needsProfile()) {
+            From<?, ?> profile = profileJoin(root);
+            addIfSelected(selections, fields, Field.FIRST_NAME, profile, "firstName");
+            addIfSelected(selections, fields, Field.LAST_NAME, profile, "lastName");
+            addIfSelected(selections, fields, Field.PHONE_NUMBER, profile, "phoneNumber");
+            addIfSelected(selections, fields, Field.PROFILE_IMAGE_URL, profile, "profileImageUrl");
+        }
+
+        return selections;
+    }
+
+    private static From<?, ?> profileJoin(Root<User> root) {
+        return root.getJoins().stream()
+            .filter(join -> PROFILE.equals(join.getAttribute().getName()))
+            .<From<?, ?>>map(join -> join)
+            .findFirst()
+            .orElseGet(() -> root.join(PROFILE, JoinType.LEFT));
+    }
+
+    private static void addIfSelected(
+        List<Selection<?>> selections,
+        UserFieldSet fields,
+        Field field,
+        From<?, ?> from,
+        String attribute
+    ) {
+        if (fields.contains(field)) {
+            selections.add(from.get(attribute).alias(field.jsonName()));
+        }
+    }
+
+    private static UserRow toRow(Tuple tuple, UserFieldSet fields) {
+        return new UserRow(
+            tuple.get(Field.USER_ID.jsonName(), UUID.class),
+            value(tuple, fields, Field.USERNAME, String.class),
+            value(tuple, fields, Field.EMAIL, String.class),
+            value(tuple, fields, Field.FIRST_NAME, String.class),
+            value(tuple, fields, Field.LAST_NAME, String.class),
+            value(tuple, fields, Field.PHONE_NUMBER, String.class),
+            value(tuple, fields, Field.PROFILE_IMAGE_URL, String.class),
+            value(tuple, fields, Field.CREATED_AT, Instant.class),
+            value(tuple, fields, Field.UPDATED_AT, Instant.class)
+        );
+    }
+
+    private static <T> T value(Tuple tuple, UserFieldSet fields, Field field, Class<T> type) {
+        return fields.contains(field) ? tuple.get(field.jsonName(), type) : null;
+    }
+
+}
@@ -2,16 +2,23 @@ package kdodds.userservice.repositories;
 
 import jakarta.transaction.Transactional;
 import kdodds.userservice.entities.User;
+import kdodds.userservice.repositories.projections.UserEtagState;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, UUID>, JpaSpecificationExecutor<User> {
+public interface UserRepository
+    extends JpaRepository<User, UUID>, JpaSpecificationExecutor<User>, UserProjectionRepository {
 
     /**
      * Create a new user and profile and address.
@@ -101,5 +108,60 @@ public interface UserRepository extends JpaRepository<User, UUID>, JpaSpecificat
         @Param("profileImageUrl") String profileImageUrl
     );
 
+    /**
+     * Find the change markers (row versions, latest address updated_at and address count) for a user without loading
+     * the entities.
+     *
+     * @param userId The user id.
+     * @return The user's etag state, or empty if the user does not exist.
+     */
+    @Query("""
+        SELECT new kdodds.userservice.repositories.projections.UserEtagState(
+            u.version, p.version, MAX(a.updatedAt), COUNT(a)
+        )
+        FROM User u
+        LEFT JOIN u.userProfile p
+        LEFT JOIN u.addresses a
+        WHERE u.id = :userId
+        GROUP BY u.id, u.version, p.version
+        """)
+    Optional<UserEtagState> findEtagStateById(@Param("userId") UUID userId);
+
+    /**
+     * Find the users (with their profiles) changed after a change feed position, oldest change first.
+     *
+     * @param updatedAt The updated_at of the last user already read.
+     * @param userId The id of the last user already read, breaks ties on updated_at.
+     * @param before Only users changed before this instant are returned.
+     * @param limit The maximum number of users to return.
+     * @return List of User objects, ordered by updated_at and id.
+     */
+    @Query("""
+        SELECT u
+        FROM User u
+        LEFT JOIN FETCH u.userProfile
+        WHERE (u.updatedAt, u.id) > (:updatedAt, :userId)
+        AND u.updatedAt < :before
+        ORDER BY u.updatedAt, u.id
+        """)
+    List<User> findChangedSince(
+        @Param("updatedAt") Instant updatedAt,
+        @Param("userId") UUID userId,
+        @Param("before") Instant before,
+        Limit limit
+    );
+
+    /**
+     * Move a user's updated_at forward without loading the user, so a change to one of its addresses shows up in the
+     * change feed. The version is left alone, it only guards the user's own columns.
+     *
+     * @param userId The user id.
+     * @param updatedAt The new updated_at.
+     * @return The number of rows affected.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.updatedAt = :updatedAt WHERE u.id = :userId")
+    int touch(@Param("userId") UUID userId, @Param("updatedAt") Instant updatedAt);
 
 }
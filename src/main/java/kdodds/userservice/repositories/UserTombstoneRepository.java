@@ -0,0 +1,53 @@
+package kdodds.userservice.repositories;
+
+import kdodds.userservice.entities.UserTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UserTombstoneRepository extends JpaRepository<UserTombstone, UUID> {
+
+    /**
+     * Find the tombstones written after a change feed position, oldest first.
+     *
+     * @param deletedAt The deleted_at of the last tombstone already read.
+     * @param userId The user id of the last tombstone already read, breaks ties on deleted_at.
+     * @param before Only tombstones written before this instant are returned.
+     * @param limit The maximum number of tombstones to return.
+     * @return List of UserTombstone objects, ordered by deleted_at and user id.
+     */
+    @Query("""
+        SELECT t
+        FROM UserTombstone t
+        WHERE (t.deletedAt, t.userId) > (:deletedAt, :userId)
+        AND t.deletedAt < :before
+        ORDER BY t.deletedAt, t.userId
+        """)
+    List<UserTombstone> findDeletedSince(
+        @Param("deletedAt") Instant deletedAt,
+        @Param("userId") UUID userId,
+        @Param("before") Instant before,
+        Limit limit
+    );
+
+    /**
+     * Delete the tombstones written before an instant.
+     *
+     * @param before Tombstones written before this instant are deleted.
+     * @return The number of rows affected.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserTombstone t WHERE t.deletedAt < :before")
+    int deleteByDeletedAtBefore(@Param("before") Instant before);
+
+}
@@ -0,0 +1,34 @@
+package kdodds.userservice.repositories.projections;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A user address row read as a constructor projection rather than an entity.
+ *
+ * @param id The address id.
+ * @param userId The owning user's id.
+ * @param addressType The address type.
+ * @param addressLine1 The first address line.
+ * @param addressLine2 The second address line.
+ * @param city The city.
+ * @param state The state.
+ * @param zipCode The zip code.
+ * @param country The country.
+ * @param createdAt The address' created_at.
+ * @param updatedAt The address' updated_at.
+ */
+public record UserAddressRow(
+    UUID id,
+    UUID userId,
+    String addressType,
+    String addressLine1,
+    String addressLine2,
+    String city,
+    String state,
+    String zipCode,
+    String country,
+    Instant createdAt,
+    Instant updatedAt
+) {
+}
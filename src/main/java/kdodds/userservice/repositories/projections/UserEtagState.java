@@ -0,0 +1,71 @@
+package kdodds.userservice.repositories.projections;
+
+import java.time.Instant;
+
+/**
+ * The change markers of a user and its children, read in one query so conditional requests can be answered without
+ * loading the entities.
+ *
+ * @param userVersion Version of the users row (bumped on every user or profile change).
+ * @param profileVersion Version of the user_profiles row, or null when there is no profile.
+ * @param addressesUpdatedAt Latest updated_at of the user's addresses, or null when there are none.
+ * @param addressCount Number of addresses, catches deletes that leave the latest updated_at untouched.
+ */
+public record UserEtagState(
+    long userVersion,
+    Long profileVersion,
+    Instant addressesUpdatedAt,
+    long addressCount
+) {
+
+    /**
+     * Strong ETag for the full user representation (user, profile and addresses). Starts with the user version so an
+     * If-Match on a user PATCH can be checked against the users row.
+     *
+     * @return The quoted ETag.
+     */
+    public String userEtag() {
+        return quote(userVersion + "." + profilePart() + "." + addressesPart());
+    }
+
+    /**
+     * Strong ETag for the user's profile. Profile changes go through the user, so the user version is included.
+     *
+     * @return The quoted ETag.
+     */
+    public String profileEtag() {
+        return quote(userVersion + "." + profilePart());
+    }
+
+    /**
+     * Strong ETag for the user's address list.
+     *
+     * @return The quoted ETag.
+     */
+    public String addressesEtag() {
+        return quote(addressesPart());
+    }
+
+    private String profilePart() {
+        return profileVersion == null ? "n" : profileVersion.toString();
+    }
+
+    private String addressesPart() {
+        return encode(addressesUpdatedAt) + "." + Long.toString(addressCount, Character.MAX_RADIX);
+    }
+
+    // epoch microseconds (postgres timestamp precision) in base 36 to keep the tag short
+    private static String encode(Instant instant) {
+        if (instant == null) {
+            return "0";
+        }
+
+        long micros = instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000;
+        return Long.toString(micros, Character.MAX_RADIX);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+
+}
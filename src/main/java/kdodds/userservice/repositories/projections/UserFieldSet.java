@@ -0,0 +1,174 @@
+package kdodds.userservice.repositories.projections;
+
+import kdodds.userservice.exceptions.models.exceptions.InvalidRequestDataException;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The user fields a caller asked for with {@code ?fields=}. Used to narrow the user query to the columns and joins
+ * the response actually renders: the profile is only joined for profile fields, addresses are only loaded for
+ * {@code addresses} and HATEOAS links are only built for {@code links}. The user id is always included.
+ */
+public final class UserFieldSet {
+
+    /**
+     * A selectable field, named after its JSON property.
+     */
+    public enum Field {
+        USER_ID,
+        USERNAME,
+        EMAIL,
+        FIRST_NAME,
+        LAST_NAME,
+        PHONE_NUMBER,
+        PROFILE_IMAGE_URL,
+        ADDRESSES,
+        CREATED_AT,
+        UPDATED_AT,
+        LINKS;
+
+        /**
+         * The field's name in the fields parameter and in the JSON body.
+         *
+         * @return The snake case name.
+         */
+        public String jsonName() {
+            return name().toLowerCase();
+        }
+
+        private static Field fromJsonName(String name) {
+            for (Field field : values()) {
+                if (field.jsonName().equals(name)) {
+                    return field;
+                }
+            }
+
+            throw new InvalidRequestDataException(String.format("Unknown field: %s", name));
+        }
+    }
+
+    private static final Set<Field> PROFILE_FIELDS = EnumSet.of(
+        Field.FIRST_NAME,
+        Field.LAST_NAME,
+        Field.PHONE_NUMBER,
+        Field.PROFILE_IMAGE_URL
+    );
+
+    /**
+     * Every field, the representation served when no fields parameter is given.
+     */
+    public static final UserFieldSet ALL = new UserFieldSet(EnumSet.allOf(Field.class));
+
+    private final Set<Field> fields;
+
+    private UserFieldSet(EnumSet<Field> fields) {
+        this.fields = Collections.unmodifiableSet(fields);
+    }
+
+    /**
+     * Parses a comma separated fields parameter, e.g. {@code user_id,username,first_name}.
+     *
+     * @param fields The raw parameter, may be null.
+     * @return The field set, {@link #ALL} if the parameter is null or blank.
+     * @throws InvalidRequestDataException if a field name is not known.
+     */
+    public static UserFieldSet parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+
+        EnumSet<Field> selected = EnumSet.of(Field.USER_ID);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim().toLowerCase();
+            if (!trimmed.isEmpty()) {
+                selected.add(Field.fromJsonName(trimmed));
+            }
+        }
+
+        return selected.size() == Field.values().length ? ALL : new UserFieldSet(selected);
+    }
+
+    /**
+     * Whether this is the full representation.
+     *
+     * @return True if every field is selected.
+     */
+    public boolean isAll() {
+        return this == ALL;
+    }
+
+    /**
+     * Whether a field was requested.
+     *
+     * @param field The field.
+     * @return True if the field is selected.
+     */
+    public boolean contains(Field field) {
+        return fields.contains(field);
+    }
+
+    /**
+     * Whether any user_profiles column was requested, i.e. whether the profile has to be joined.
+     *
+     * @return True if a profile field is selected.
+     */
+    public boolean needsProfile() {
+        return fields.stream().anyMatch(PROFILE_FIELDS::contains);
+    }
+
+    /**
+     * Whether the user's addresses have to be loaded.
+     *
+     * @return True if addresses are selected.
+     */
+    public boolean needsAddresses() {
+        return fields.contains(Field.ADDRESSES);
+    }
+
+    /**
+     * Whether HATEOAS links should be rendered.
+     *
+     * @return True if links are selected.
+     */
+    public boolean includesLinks() {
+        return fields.contains(Field.LINKS);
+    }
+
+    /**
+     * Derives the ETag of this representation from the ETag of the full one, so sparse and full bodies of the same
+     * user never share a validator. The leading version component is kept intact for If-Match.
+     *
+     * @param etag The quoted ETag of the full representation.
+     * @return The quoted ETag of this representation.
+     */
+    public String variantOf(String etag) {
+        if (isAll()) {
+            return etag;
+        }
+
+        long mask = 0;
+        for (Field field : fields) {
+            mask |= 1L << field.ordinal();
+        }
+
+        return etag.substring(0, etag.length() - 1) + ";f" + Long.toString(mask, Character.MAX_RADIX) + "\"";
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof UserFieldSet that && fields.equals(that.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return fields.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return fields.toString();
+    }
+
+}
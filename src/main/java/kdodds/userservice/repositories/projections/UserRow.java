@@ -0,0 +1,30 @@
+package kdodds.userservice.repositories.projections;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A user (and profile) row read through a sparse projection. Columns that were not selected are null.
+ *
+ * @param id The user id, always selected.
+ * @param username The username.
+ * @param email The email.
+ * @param firstName The profile first name.
+ * @param lastName The profile last name.
+ * @param phoneNumber The profile phone number.
+ * @param profileImageUrl The profile image url.
+ * @param createdAt The user's created_at.
+ * @param updatedAt The user's updated_at.
+ */
+public record UserRow(
+    UUID id,
+    String username,
+    String email,
+    String firstName,
+    String lastName,
+    String phoneNumber,
+    String profileImageUrl,
+    Instant createdAt,
+    Instant updatedAt
+) {
+}
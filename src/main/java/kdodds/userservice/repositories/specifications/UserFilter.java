@@ -0,0 +1,77 @@
+package kdodds.userservice.repositories.specifications;
+
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserProfile;
+
+/**
+ * Normalized listing filters. Blank values are dropped, text filters are lowercased for case-insensitive "contains"
+ * matching and status is uppercased for an exact match. Shared by the JPA specification, the reactive read stack and
+ * the filtered user event stream so all three apply the same semantics.
+ *
+ * @param username Lowercased username fragment, or null.
+ * @param email Lowercased email fragment, or null.
+ * @param firstName Lowercased first name fragment, or null.
+ * @param lastName Lowercased last name fragment, or null.
+ * @param status Uppercased status, or null.
+ */
+public record UserFilter(String username, String email, String firstName, String lastName, String status) {
+
+    /**
+     * Builds a normalized filter from raw request parameters.
+     *
+     * @param username The username to filter on.
+     * @param email The email to filter on.
+     * @param firstName The first name to filter on.
+     * @param lastName The last name to filter on.
+     * @param status The status to filter on.
+     * @return UserFilter
+     */
+    public static UserFilter of(String username, String email, String firstName, String lastName, String status) {
+        return new UserFilter(
+            lower(username),
+            lower(email),
+            lower(firstName),
+            lower(lastName),
+            status == null || status.isEmpty() ? null : status.toUpperCase()
+        );
+    }
+
+    /**
+     * Wraps a filter value for a LIKE "contains" match.
+     *
+     * @param value The normalized filter value.
+     * @return The LIKE pattern.
+     */
+    public static String contains(String value) {
+        return "%" + value + "%";
+    }
+
+    /**
+     * Checks a loaded user against the filter, the same way the specification would. Users without a profile never
+     * match, the specification joins the profile.
+     *
+     * @param user The user, with its profile.
+     * @return True if the user matches every filter that is set.
+     */
+    public boolean matches(User user) {
+        UserProfile profile = user.getUserProfile();
+        if (profile == null) {
+            return false;
+        }
+
+        return includes(user.getUsername(), username)
+            && includes(user.getEmail(), email)
+            && includes(profile.getFirstName(), firstName)
+            && includes(profile.getLastName(), lastName)
+            && (status == null || status.equals(user.getStatus()));
+    }
+
+    private static boolean includes(String value, String fragment) {
+        return fragment == null || value != null && value.toLowerCase().contains(fragment);
+    }
+
+    private static String lower(String value) {
+        return value == null || value.isEmpty() ? null : value.toLowerCase();
+    }
+
+}
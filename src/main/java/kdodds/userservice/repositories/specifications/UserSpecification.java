@@ -24,6 +24,16 @@ public class UserSpecification {
         String lastName,
         String status
     ) {
+        return build(UserFilter.of(username, email, firstName, lastName, status));
+    }
+
+    /**
+     * Builds a specification for a user from a normalized filter.
+     *
+     * @param filter The normalized filter.
+     * @return Specification<User>
+     */
+    public static Specification<User> build(UserFilter filter) {
         return (root, query, cb) -> {
             // list of filtering conditions to apply to the query
             List<Predicate> predicates = new ArrayList<>();
@@ -31,33 +41,33 @@ public class UserSpecification {
             Join<User, UserProfile> profile = root.join("userProfile");
 
             // username filter
-            if (username != null && !username.isEmpty()) {
+            if (filter.username() != null) {
                 // add username predicate (WHERE username is LIKE '%username%')
-                predicates.add(cb.like(cb.lower(root.get("username")), "%" + username.toLowerCase() + "%"));
+                predicates.add(cb.like(cb.lower(root.get("username")), UserFilter.contains(filter.username())));
             }
 
             // email filter
-            if (email != null && !email.isEmpty()) {
+            if (filter.email() != null) {
                 // add email predicate (WHERE email is LIKE '%email%')
-                predicates.add(cb.like(cb.lower(root.get("email")), "%" + email.toLowerCase() + "%"));
+                predicates.add(cb.like(cb.lower(root.get("email")), UserFilter.contains(filter.email())));
             }
 
             // first name filter
-            if (firstName != null && !firstName.isEmpty()) {
+            if (filter.firstName() != null) {
                 // add first name predicate (WHERE first_name is LIKE '%first_name%')
-                predicates.add(cb.like(cb.lower(profile.get("firstName")), "%" + firstName.toLowerCase() + "%"));
+                predicates.add(cb.like(cb.lower(profile.get("firstName")), UserFilter.contains(filter.firstName())));
             }
 
             // last name filter
-            if (lastName != null && !lastName.isEmpty()) {
+            if (filter.lastName() != null) {
                 // add last name predicate (WHERE last_name is LIKE '%last_name%')
-                predicates.add(cb.like(cb.lower(profile.get("lastName")), "%" + lastName.toLowerCase() + "%"));
+                predicates.add(cb.like(cb.lower(profile.get("lastName")), UserFilter.contains(filter.lastName())));
             }
 
             // active filter
-            if (status != null && !status.isEmpty()) {
+            if (filter.status() != null) {
                 // add active predicate (WHERE status = active)
-                predicates.add(cb.equal(root.get("status"), status.toUpperCase()));
+                predicates.add(cb.equal(root.get("status"), filter.status()));
             }
 
             // add more filtering conditions here...
@@ -0,0 +1,112 @@
+package kdodds.userservice.services;
+
+import kdodds.userservice.exceptions.models.exceptions.InvalidRequestDataException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of a change feed consumer, handed out as an opaque token. Changed users and tombstones are read from two
+ * tables, so the cursor keeps a separate position in each: the (updated_at, id) of the last user and the
+ * (deleted_at, user_id) of the last tombstone the consumer has seen.
+ *
+ * @param users Position in the users table.
+ * @param tombstones Position in the user_tombstones table.
+ */
+public record ChangeCursor(Position users, Position tombstones) {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    // format version, then seconds, nanos, id msb and id lsb of each position
+    private static final int ENCODED_LENGTH = 1 + 2 * (Long.BYTES + Integer.BYTES + 2 * Long.BYTES);
+
+    /**
+     * A point in one of the change streams, rows after it have not been seen yet.
+     *
+     * @param at The timestamp of the last row seen.
+     * @param id The id of the last row seen, breaks ties on the timestamp.
+     */
+    public record Position(Instant at, UUID id) {
+
+        // sorts before every real id, so a position at an instant includes every row stamped with that instant
+        private static final UUID MIN_ID = new UUID(0, 0);
+
+        /**
+         * Position before every row stamped at or after an instant.
+         *
+         * @param at The instant.
+         * @return Position
+         */
+        public static Position before(Instant at) {
+            return new Position(at, MIN_ID);
+        }
+
+    }
+
+    /**
+     * Cursor of a consumer starting from scratch. It reads every user, but no tombstones written before it started:
+     * users deleted earlier are simply not in the users it receives.
+     *
+     * @param tombstonesFrom The instant the consumer starts reading tombstones at.
+     * @return ChangeCursor
+     */
+    public static ChangeCursor start(Instant tombstonesFrom) {
+        return new ChangeCursor(Position.before(Instant.EPOCH), Position.before(tombstonesFrom));
+    }
+
+    /**
+     * Encodes the cursor as an url safe token.
+     *
+     * @return The token.
+     */
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_LENGTH);
+        buffer.put(FORMAT_VERSION);
+        write(buffer, users);
+        write(buffer, tombstones);
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Decodes a token handed out by {@link #encode()}.
+     *
+     * @param token The token.
+     * @return ChangeCursor
+     * @throws InvalidRequestDataException If the token was not produced by this class.
+     */
+    public static ChangeCursor decode(String token) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+            if (buffer.remaining() != ENCODED_LENGTH || buffer.get() != FORMAT_VERSION) {
+                throw invalid();
+            }
+
+            return new ChangeCursor(read(buffer), read(buffer));
+        } catch (IllegalArgumentException | BufferUnderflowException | DateTimeException ex) {
+            throw invalid();
+        }
+    }
+
+    private static void write(ByteBuffer buffer, Position position) {
+        buffer.putLong(position.at().getEpochSecond());
+        buffer.putInt(position.at().getNano());
+        buffer.putLong(position.id().getMostSignificantBits());
+        buffer.putLong(position.id().getLeastSignificantBits());
+    }
+
+    private static Position read(ByteBuffer buffer) {
+        Instant at = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+
+        return new Position(at, new UUID(buffer.getLong(), buffer.getLong()));
+    }
+
+    private static InvalidRequestDataException invalid() {
+        return new InvalidRequestDataException("Invalid change feed cursor");
+    }
+
+}
@@ -0,0 +1,87 @@
+package kdodds.userservice.services;
+
+import kdodds.userservice.config.JacksonConfig;
+import org.springframework.http.MediaType;
+
+/**
+ * Builds and checks the version based ETags used for optimistic locking. Every strong ETag the service hands out for
+ * a writable resource starts with the version of the row a PATCH updates ({@code "<version>"} or
+ * {@code "<version>.<...>"}), so an If-Match precondition only has to compare that leading component.
+ */
+public final class Etags {
+
+    private Etags() {
+    }
+
+    /**
+     * Strong ETag for a single versioned row.
+     *
+     * @param version The row version.
+     * @return The quoted ETag.
+     */
+    public static String forVersion(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * ETag of a plain representation of a resource, derived from the ETag of its HAL representation so no two bodies
+     * share a validator: JSON, CBOR and Smile each get their own suffix. The leading version component is kept intact
+     * for If-Match.
+     *
+     * @param etag The quoted ETag of the HAL representation.
+     * @param mediaType The media type of the plain representation.
+     * @return The quoted ETag of the plain representation.
+     */
+    public static String leanVariant(String etag, MediaType mediaType) {
+        String suffix;
+        if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(mediaType)) {
+            suffix = "c";
+        } else if (JacksonConfig.APPLICATION_SMILE.equalsTypeAndSubtype(mediaType)) {
+            suffix = "s";
+        } else {
+            suffix = "j";
+        }
+
+        return etag.substring(0, etag.length() - 1) + "." + suffix + "\"";
+    }
+
+    /**
+     * Checks an If-Match header against the current row version. A missing header or {@code *} always matches, weak
+     * or unrecognised tags never do.
+     *
+     * @param ifMatch The raw If-Match header value, may be null.
+     * @param version The current row version.
+     * @return True if the update may go ahead.
+     */
+    public static boolean matches(String ifMatch, long version) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return true;
+        }
+
+        for (String tag : ifMatch.split(",")) {
+            String candidate = tag.trim();
+            if ("*".equals(candidate)) {
+                return true;
+            }
+
+            // weak tags (W/"...") fail the strong comparison If-Match requires
+            if (candidate.length() < 2 || !candidate.startsWith("\"") || !candidate.endsWith("\"")) {
+                continue;
+            }
+
+            String value = candidate.substring(1, candidate.length() - 1);
+            int dot = value.indexOf('.');
+            String leading = dot < 0 ? value : value.substring(0, dot);
+            try {
+                if (Long.parseLong(leading) == version) {
+                    return true;
+                }
+            } catch (NumberFormatException ex) {
+                // not a tag this service issued
+            }
+        }
+
+        return false;
+    }
+
+}
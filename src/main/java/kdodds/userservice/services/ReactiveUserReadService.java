@@ -0,0 +1,140 @@
+package kdodds.userservice.services;
+
+import kdodds.userservice.config.ListingProperties;
+import kdodds.userservice.dto.responses.PageDto;
+import kdodds.userservice.dto.responses.PagedUsersResponseDto;
+import kdodds.userservice.dto.responses.UserAddressResponseDto;
+import kdodds.userservice.dto.responses.UserAddressesResponseDto;
+import kdodds.userservice.dto.responses.UserProfileResponseDto;
+import kdodds.userservice.dto.responses.UserResponseDto;
+import kdodds.userservice.exceptions.models.exceptions.InvalidRequestDataException;
+import kdodds.userservice.exceptions.models.exceptions.UserNotFoundException;
+import kdodds.userservice.exceptions.models.exceptions.UserProfileNotFound;
+import kdodds.userservice.ratelimit.RateLimitedLogger;
+import kdodds.userservice.repositories.ReactiveUserReadRepository;
+import kdodds.userservice.repositories.specifications.UserFilter;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read side of the user service for the reactive deployment mode. Mirrors the responses of {@link UserService} and
+ * {@link UserAddressService} for the GET endpoints.
+ */
+@Slf4j
+@Service
+@AllArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserReadService {
+
+    // unknown ids and invalid requests are client driven, a scanner must not be able to flood the log
+    private static final RateLimitedLogger CLIENT_ERROR_LOG = new RateLimitedLogger(log, Duration.ofSeconds(1), 20);
+
+    private ReactiveUserReadRepository reactiveUserReadRepository;
+
+    private ListingProperties listingProperties;
+
+    /**
+     * Gets all users, paginated. Addresses for the whole page are loaded with a single query.
+     *
+     * @param page Zero based page number.
+     * @param size Page size, at most the configured maximum page size.
+     * @param filter The normalized filter.
+     * @return PagedUsersResponseDto
+     */
+    public Mono<PagedUsersResponseDto> getAllUsersPaginated(int page, int size, UserFilter filter) {
+        if (page < 0) {
+            return Mono.error(new InvalidRequestDataException("Page must not be negative"));
+        }
+
+        if (size < 1 || size > listingProperties.getMaxPageSize()) {
+            return Mono.error(new InvalidRequestDataException(
+                String.format("Size must be between 1 and %d", listingProperties.getMaxPageSize())
+            ));
+        }
+
+        Mono<List<UserResponseDto>> users = reactiveUserReadRepository.findUsers(filter, page, size)
+            .collectList()
+            .flatMap(this::attachAddresses);
+
+        return Mono.zip(users, reactiveUserReadRepository.countUsers(filter))
+            .map(result -> PagedUsersResponseDto.builder()
+                .users(result.getT1())
+                .page(PageDto.builder()
+                    .page(page)
+                    .size(size)
+                    .totalPages((int) ((result.getT2() + size - 1) / size))
+                    .totalElements(result.getT2())
+                    .build())
+                .build());
+    }
+
+    /**
+     * Gets all user data for a given user id.
+     *
+     * @param userId The unique user id of the user.
+     * @return UserResponseDto
+     */
+    public Mono<UserResponseDto> getUserResponseDto(UUID userId) {
+        return reactiveUserReadRepository.findUserById(userId)
+            .switchIfEmpty(Mono.defer(() -> {
+                CLIENT_ERROR_LOG.warn("User not found for id: {}", userId);
+                return Mono.error(new UserNotFoundException(userId));
+            }))
+            .zipWith(reactiveUserReadRepository.findAddressesByUserId(userId).collectList(), (user, addresses) -> {
+                user.setAddresses(addresses);
+                return user;
+            });
+    }
+
+    /**
+     * Gets a user's profile given a user id.
+     *
+     * @param userId User id to get the profile.
+     * @return UserProfileResponseDto
+     */
+    public Mono<UserProfileResponseDto> getUserProfileDtoByUserId(UUID userId) {
+        return reactiveUserReadRepository.findProfileByUserId(userId)
+            .switchIfEmpty(Mono.defer(() -> {
+                CLIENT_ERROR_LOG.warn("User profile not found for id: {}", userId);
+                return Mono.error(new UserProfileNotFound(userId));
+            }));
+    }
+
+    /**
+     * Gets all addresses for a user id, an unknown user yields an empty list.
+     *
+     * @param userId User id to use to get the addresses.
+     * @return UserAddressesResponseDto
+     */
+    public Mono<UserAddressesResponseDto> getUserAddressesDtoByUserId(UUID userId) {
+        return reactiveUserReadRepository.findAddressesByUserId(userId)
+            .collectList()
+            .map(addresses -> UserAddressesResponseDto.builder()
+                .userId(userId.toString())
+                .addresses(addresses)
+                .build());
+    }
+
+    private Mono<List<UserResponseDto>> attachAddresses(List<UserResponseDto> users) {
+        List<UUID> userIds = users.stream()
+            .map(user -> UUID.fromString(user.getUserId()))
+            .toList();
+
+        return reactiveUserReadRepository.findAddressesByUserIds(userIds)
+            .map(byUser -> {
+                users.forEach(user -> {
+                    List<UserAddressResponseDto> addresses = byUser.get(user.getUserId());
+                    user.setAddresses(addresses == null ? List.of() : addresses);
+                });
+                return users;
+            });
+    }
+
+}
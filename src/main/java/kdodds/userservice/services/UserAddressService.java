@@ -4,19 +4,30 @@ import kdodds.userservice.dto.requests.CreateUserAddressRequestDto;
 import kdodds.userservice.dto.requests.PatchUserAddressRequestDto;
 import kdodds.userservice.dto.responses.UserAddressResponseDto;
 import kdodds.userservice.dto.responses.UserAddressesResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserAddressesResponseDto;
 import kdodds.userservice.entities.User;
 import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.events.UserChangeType;
+import kdodds.userservice.events.UserOutbox;
 import kdodds.userservice.exceptions.models.exceptions.InvalidRequestDataException;
 import kdodds.userservice.exceptions.models.exceptions.InvalidUserIdException;
+import kdodds.userservice.exceptions.models.exceptions.PreconditionFailedException;
 import kdodds.userservice.exceptions.models.exceptions.UserAddressNotFound;
+import kdodds.userservice.exceptions.models.exceptions.UserConflictException;
 import kdodds.userservice.exceptions.models.exceptions.UserNotFoundException;
+import kdodds.userservice.ratelimit.RateLimitedLogger;
 import kdodds.userservice.repositories.UserAddressRepository;
 import kdodds.userservice.repositories.UserRepository;
+import kdodds.userservice.repositories.projections.UserEtagState;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
@@ -25,12 +36,18 @@ import java.util.UUID;
 @Slf4j
 @Service
 @AllArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserAddressService {
 
+    // unknown ids and invalid requests are client driven, a scanner must not be able to flood the log
+    private static final RateLimitedLogger CLIENT_ERROR_LOG = new RateLimitedLogger(log, Duration.ofSeconds(1), 20);
+
     private UserRepository userRepository;
 
     private UserAddressRepository userAddressRepository;
 
+    private UserOutbox userOutbox;
+
     /**
      * Gets a user address by address id. Returns the single UserAddress if found.
      *
@@ -38,15 +55,15 @@ public class UserAddressService {
      * @param addressId The address id to use for the test data.
      * @return UserAddressResponseDto
      */
-    public UserAddressResponseDto getUserAddressDtoById(String userId, String addressId) throws Exception {
+    public UserAddressResponseDto getUserAddressDtoById(UUID userId, UUID addressId) throws Exception {
         // both ids should be valid UUIDs
-        if (userId == null || userId.isEmpty() || addressId == null || addressId.isEmpty()) {
+        if (userId == null || addressId == null) {
             throw new InvalidRequestDataException("Invalid request data.");
         }
 
         Optional<UserAddress> address;
         try {
-            address = userAddressRepository.findById(UUID.fromString(addressId));
+            address = userAddressRepository.findById(addressId);
         } catch (Exception ex) {
             log.error("Error getting user address for user id: {}, address id: {}", userId, addressId, ex);
             throw new Exception(
@@ -58,7 +75,7 @@ public class UserAddressService {
         }
 
         if (address.isEmpty()) {
-            log.warn("User address not found for address id: {}, user id: {}", addressId, userId);
+            CLIENT_ERROR_LOG.warn("User address not found for address id: {}, user id: {}", addressId, userId);
             throw new UserAddressNotFound(
                 String.format(
                     "No user address found for userId %s and addressId %s",
@@ -77,28 +94,44 @@ public class UserAddressService {
      * @param userId User id to use to get the addresses.
      * @return UserAddressesResponseDto
      */
-    public UserAddressesResponseDto getUserAddressesDtoByUserId(String userId) throws Exception {
-        if (userId == null || userId.isEmpty()) {
+    public UserAddressesResponseDto getUserAddressesDtoByUserId(UUID userId) throws Exception {
+        List<UserAddress> addresses = findAddresses(userId);
+
+        return UserAddressesResponseDto.from(userId.toString(), addresses);
+    }
+
+    /**
+     * Get user addresses for a given user id as a plain record, mapped straight from the entities.
+     *
+     * @param userId User id to use to get addresses.
+     * @return LeanUserAddressesResponseDto
+     */
+    public LeanUserAddressesResponseDto getLeanUserAddressesDtoByUserId(UUID userId) throws Exception {
+        List<UserAddress> addresses = findAddresses(userId);
+
+        return LeanUserAddressesResponseDto.fromEntities(userId.toString(), addresses);
+    }
+
+    /**
+     * Gets the current ETag of a user's address list, without loading the addresses.
+     *
+     * @param userId User id to use to get the ETag.
+     * @return The quoted ETag, or empty if the user does not exist.
+     */
+    public Optional<String> getUserAddressesEtag(UUID userId) throws Exception {
+        if (userId == null) {
             throw new InvalidUserIdException();
         }
 
-        Optional<List<UserAddress>> addresses;
         try {
-            addresses = userAddressRepository.findAddressesByUserId(UUID.fromString(userId));
+            return userRepository.findEtagStateById(userId).map(UserEtagState::addressesEtag);
         } catch (Exception ex) {
-            log.error("Error getting user addresses for user id: {}", userId, ex);
+            log.error("Error getting addresses etag for user id: {}", userId, ex);
             throw new Exception(
-                String.format("Find addresses by user id for userId %s failed for unknown reasons", userId),
+                String.format("Find addresses etag for userId %s failed for unknown reasons", userId),
                 ex
             );
         }
-
-        if (addresses.isEmpty()) {
-            log.warn("No user addresses found for id: {}", userId);
-            addresses = Optional.of(List.of()); // return empty list
-        }
-
-        return UserAddressesResponseDto.from(userId, addresses.get());
     }
 
     /**
@@ -108,20 +141,25 @@ public class UserAddressService {
      * @param addressId The address id of the address to delete.
      * @throws Exception Throws an exception if the address cannot be deleted.
      */
-    public void deleteUserAddressByAddressId(String userId, String addressId) throws Exception {
-        if (userId == null || userId.isEmpty()) {
-            log.error("Cannot delete user address with null or empty user id.");
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteUserAddressByAddressId(UUID userId, UUID addressId) throws Exception {
+        if (userId == null) {
+            CLIENT_ERROR_LOG.error("Cannot delete user address with null or empty user id.");
             throw new InvalidUserIdException();
         }
 
-        if (addressId == null || addressId.isEmpty()) {
-            log.error("Cannot delete user address with null or empty address id.");
+        if (addressId == null) {
+            CLIENT_ERROR_LOG.error("Cannot delete user address with null or empty address id.");
             throw new InvalidRequestDataException("Invalid null or empty address id");
         }
 
         try {
             int rowsImpacted = userAddressRepository
-                .deleteAddressById(UUID.fromString(userId), UUID.fromString(addressId));
+                .deleteAddressById(userId, addressId);
+            if (rowsImpacted > 0) {
+                userRepository.touch(userId, Instant.now());
+                userOutbox.record(UserChangeType.ADDRESS_DELETED, userId, addressId);
+            }
 
             log.info("Deleted {} user address(es) for user id: {}", rowsImpacted, userId);
         } catch (Exception ex) {
@@ -140,11 +178,12 @@ public class UserAddressService {
      * @return UserAddressResponseDto
      * @throws Exception Throws an exception if the request is invalid or the attempt to create the user address fails.
      */
-    public UserAddressResponseDto createUserAddress(String userId, CreateUserAddressRequestDto request)
+    @Transactional(rollbackFor = Exception.class)
+    public UserAddressResponseDto createUserAddress(UUID userId, CreateUserAddressRequestDto request)
         throws Exception {
         // userId should be valid UUID
-        if (userId == null || userId.isEmpty()) {
-            log.error("Cannot create address for null or empty userId.");
+        if (userId == null) {
+            CLIENT_ERROR_LOG.error("Cannot create address for null or empty userId.");
             throw new InvalidUserIdException();
         }
 
@@ -152,7 +191,7 @@ public class UserAddressService {
         validateCreateUserAddressRequest(request);
 
         // get the user reference
-        User user = userRepository.getReferenceById(UUID.fromString(userId));
+        User user = userRepository.getReferenceById(userId);
 
         UserAddress address = new UserAddress();
         address.setUser(user);
@@ -172,13 +211,15 @@ public class UserAddressService {
 
         try {
             address = userAddressRepository.saveAndFlush(address);
+            userRepository.touch(userId, address.getUpdatedAt());
+            userOutbox.record(UserChangeType.ADDRESS_CREATED, userId, address.getId());
 
             return UserAddressResponseDto.fromEntity(address);
         } catch (DataIntegrityViolationException ex) {
             if (ex.getCause() instanceof org.hibernate.exception.ConstraintViolationException cve) {
                 // check for foreign key constraint
                 if (cve.getMessage().contains("user_addresses_user_id_fkey")) {
-                    log.error("User with id {} does not exist", userId);
+                    CLIENT_ERROR_LOG.error("User with id {} does not exist", userId);
                     throw new UserNotFoundException(userId);
                 }
             }
@@ -201,43 +242,55 @@ public class UserAddressService {
      * @param userId The user id of the user who owns the address.
      * @param addressId The address id of the address to update.
      * @param request The PatchUserAddressRequestDto to use for the data.
+     * @param ifMatch The If-Match header of the request, may be null for an unconditional update.
      * @return UserAddressResponseDto
      * @throws Exception Throws an exception if the request is invalid or the attempt to update the user address fails.
      */
+    @Transactional(rollbackFor = Exception.class)
     public UserAddressResponseDto updateUserAddressById(
-        String userId,
-        String addressId,
-        PatchUserAddressRequestDto request
+        UUID userId,
+        UUID addressId,
+        PatchUserAddressRequestDto request,
+        String ifMatch
     ) throws Exception {
-        if (userId == null || userId.isEmpty()) {
-            log.error("Cannot update user address with null or empty userId.");
+        if (userId == null) {
+            CLIENT_ERROR_LOG.error("Cannot update user address with null or empty userId.");
             throw new InvalidUserIdException();
         }
 
-        if (addressId == null || addressId.isEmpty()) {
-            log.error("Cannot update user address with null or empty address id.");
+        if (addressId == null) {
+            CLIENT_ERROR_LOG.error("Cannot update user address with null or empty address id.");
             throw new InvalidRequestDataException("Invalid null or empty address id");
         }
 
         if (request == null) {
-            log.error("Request body must be included in Patch User Address request");
+            CLIENT_ERROR_LOG.error("Request body must be included in Patch User Address request");
             throw new InvalidRequestDataException("Request body must be included in Patch User Address request");
         }
 
         // find the existing user address (throw if not found)
-        UserAddress address = userAddressRepository.findById(UUID.fromString(addressId))
+        UserAddress address = userAddressRepository.findById(addressId)
             .orElseThrow(() -> new UserAddressNotFound(
                 String.format("No user address found for address id %s", addressId)
             ));
 
         // need to validate that the address belongs to the user
-        if (!address.getUser().getId().equals(UUID.fromString(userId))) {
-            log.error("User address does not belong to user with id: {}", userId);
+        if (!address.getUser().getId().equals(userId)) {
+            CLIENT_ERROR_LOG.error("User address does not belong to user with id: {}", userId);
             throw new UserAddressNotFound(
                 String.format("No user address found for address id %s", addressId)
             );
         }
 
+        if (!Etags.matches(ifMatch, address.getVersion())) {
+            CLIENT_ERROR_LOG.warn(
+                "If-Match {} does not match version {} of address with id: {}", ifMatch, address.getVersion(), addressId
+            );
+            throw new PreconditionFailedException(
+                String.format("User address %s has been modified since %s", addressId, ifMatch)
+            );
+        }
+
         // apply the updates
         boolean updateNeeded = applyUpdates(request, address);
 
@@ -249,8 +302,19 @@ public class UserAddressService {
         // update required, set the updated at timestamp
         address.setUpdatedAt(Instant.now());
 
+        // the versioned UPDATE ... WHERE version = ? fails if another write landed after the address was read
+        // and is flushed here rather than at commit, so that failure is still caught below
         try {
-            address = userAddressRepository.save(address);
+            address = userAddressRepository.saveAndFlush(address);
+            userRepository.touch(userId, address.getUpdatedAt());
+            userOutbox.record(UserChangeType.ADDRESS_UPDATED, userId, addressId);
+        } catch (OptimisticLockingFailureException ex) {
+            CLIENT_ERROR_LOG.warn("Concurrent update of user address with id: {}", addressId);
+            String message = String.format("User address %s was modified by a concurrent request", addressId);
+            if (ifMatch != null && !ifMatch.isBlank()) {
+                throw new PreconditionFailedException(message);
+            }
+            throw new UserConflictException(message);
         } catch (Exception ex) {
             log.error("Error updating user address for user id: {}, address id: {}", userId, addressId, ex);
             throw new Exception(
@@ -261,6 +325,30 @@ public class UserAddressService {
         return UserAddressResponseDto.fromEntity(address);
     }
 
+    private List<UserAddress> findAddresses(UUID userId) throws Exception {
+        if (userId == null) {
+            throw new InvalidUserIdException();
+        }
+
+        Optional<List<UserAddress>> addresses;
+        try {
+            addresses = userAddressRepository.findAddressesByUserId(userId);
+        } catch (Exception ex) {
+            log.error("Error getting user addresses for user id: {}", userId, ex);
+            throw new Exception(
+                String.format("Find addresses by user id for userId %s failed for unknown reasons", userId),
+                ex
+            );
+        }
+
+        if (addresses.isEmpty()) {
+            log.warn("No user addresses found for id: {}", userId);
+            return List.of(); // return empty list
+        }
+
+        return addresses.get();
+    }
+
     private boolean applyUpdates(PatchUserAddressRequestDto request, UserAddress address) {
         boolean updateNeeded = false;
 
@@ -335,32 +423,32 @@ public class UserAddressService {
 
     private void validateCreateUserAddressRequest(CreateUserAddressRequestDto request) {
         if (request == null) {
-            log.error("Request body must be included in Create User Address request");
+            CLIENT_ERROR_LOG.error("Request body must be included in Create User Address request");
             throw new InvalidRequestDataException("Request body must be included in Create User Address request");
         }
 
         if (request.getAddressLine1() == null || request.getAddressLine1().isEmpty()) {
-            log.error("Address line 1 must be included in create user address request");
+            CLIENT_ERROR_LOG.error("Address line 1 must be included in create user address request");
             throw new InvalidRequestDataException("Address line 1 must be included in create user address request");
         }
 
         if (request.getCity() == null || request.getCity().isEmpty()) {
-            log.error("City must be included in create user address request");
+            CLIENT_ERROR_LOG.error("City must be included in create user address request");
             throw new InvalidRequestDataException("City must be included in create user address request");
         }
 
         if (request.getState() == null || request.getState().isEmpty()) {
-            log.error("State must be included in create user address request");
+            CLIENT_ERROR_LOG.error("State must be included in create user address request");
             throw new InvalidRequestDataException("State must be included in create user address request");
         }
 
         if (request.getZipCode() == null || request.getZipCode().isEmpty()) {
-            log.error("Zip code must be included in create user address request");
+            CLIENT_ERROR_LOG.error("Zip code must be included in create user address request");
             throw new InvalidRequestDataException("Zip code must be included in create user address request");
         }
 
         if (request.getCountry() == null || request.getCountry().isEmpty()) {
-            log.error("Country must be included in create user address request");
+            CLIENT_ERROR_LOG.error("Country must be included in create user address request");
             throw new InvalidRequestDataException("Country must be included in create user address request");
         }
     }
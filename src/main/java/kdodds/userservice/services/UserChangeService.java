@@ -0,0 +1,187 @@
+package kdodds.userservice.services;
+
+import kdodds.userservice.config.ChangeFeedProperties;
+import kdodds.userservice.dto.responses.lean.LeanUserAddressResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserChangeDto;
+import kdodds.userservice.dto.responses.lean.LeanUserChangesResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserResponseDto;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserTombstone;
+import kdodds.userservice.exceptions.models.exceptions.ChangeCursorExpiredException;
+import kdodds.userservice.repositories.UserAddressRepository;
+import kdodds.userservice.repositories.UserRepository;
+import kdodds.userservice.repositories.UserTombstoneRepository;
+import kdodds.userservice.repositories.projections.UserAddressRow;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Serves the user change feed. Changed users are found through the (updated_at, id) index of the users table, deleted
+ * ones through the tombstones written by {@link UserService#deleteUserByUserId(UUID)}. A page costs two index range
+ * scans and one address query, however large the table is.
+ */
+@Slf4j
+@Service
+@AllArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserChangeService {
+
+    // a user's addresses in the order they were added, so an unchanged user always renders the same
+    private static final Comparator<LeanUserAddressResponseDto> ADDRESS_ORDER = Comparator
+        .comparing(LeanUserAddressResponseDto::createdAt)
+        .thenComparing(LeanUserAddressResponseDto::addressId);
+
+    private UserRepository userRepository;
+
+    private UserAddressRepository userAddressRepository;
+
+    private UserTombstoneRepository userTombstoneRepository;
+
+    private ChangeFeedProperties changeFeedProperties;
+
+    /**
+     * Gets the users created, changed or deleted after a cursor, oldest change first. Changes younger than the settle
+     * time are left for a later call.
+     *
+     * @param since The cursor returned by the previous call, or null to start from scratch.
+     * @param limit The maximum number of changes to return.
+     * @return LeanUserChangesResponseDto
+     * @throws Exception Throws an exception if the changes cannot be read.
+     */
+    @Transactional(readOnly = true)
+    public LeanUserChangesResponseDto getChanges(String since, int limit) throws Exception {
+        Instant now = Instant.now();
+        Instant before = now.minus(changeFeedProperties.getSettleTime());
+        ChangeCursor cursor = since == null || since.isBlank()
+            ? ChangeCursor.start(before)
+            : ChangeCursor.decode(since);
+
+        // tombstones past the retention are purged, a consumer this far behind could miss deletions
+        if (cursor.tombstones().at().isBefore(now.minus(changeFeedProperties.getTombstoneRetention()))) {
+            throw new ChangeCursorExpiredException("Change feed cursor has expired, a full resync is required");
+        }
+
+        List<User> users;
+        List<UserTombstone> tombstones;
+        try {
+            // one row more than the page holds tells whether a stream has more
+            ChangeCursor.Position userPosition = cursor.users();
+            users = userRepository.findChangedSince(
+                userPosition.at(), userPosition.id(), before, Limit.of(limit + 1)
+            );
+            ChangeCursor.Position tombstonePosition = cursor.tombstones();
+            tombstones = userTombstoneRepository.findDeletedSince(
+                tombstonePosition.at(), tombstonePosition.id(), before, Limit.of(limit + 1)
+            );
+        } catch (Exception ex) {
+            log.error("Error reading user changes", ex);
+            throw new Exception("Read user changes failed for unknown reasons", ex);
+        }
+
+        // addresses of every fetched user in one query, at most one more user than the page holds
+        Map<UUID, List<LeanUserAddressResponseDto>> addresses = findAddresses(users);
+
+        // merge the two streams by time, each stream keeps its own position
+        int userIndex = 0;
+        int tombstoneIndex = 0;
+        List<LeanUserChangeDto> changes = new ArrayList<>(Math.min(limit, users.size() + tombstones.size()));
+        while (changes.size() < limit && (userIndex < users.size() || tombstoneIndex < tombstones.size())) {
+            boolean takeUser = tombstoneIndex == tombstones.size()
+                || (userIndex < users.size()
+                && !users.get(userIndex).getUpdatedAt().isAfter(tombstones.get(tombstoneIndex).getDeletedAt()));
+            if (takeUser) {
+                User user = users.get(userIndex++);
+                List<LeanUserAddressResponseDto> userAddresses = addresses.getOrDefault(user.getId(), List.of());
+                changes.add(LeanUserChangeDto.upsert(LeanUserResponseDto.fromEntity(user, userAddresses)));
+            } else {
+                UserTombstone tombstone = tombstones.get(tombstoneIndex++);
+                changes.add(LeanUserChangeDto.delete(tombstone.getUserId().toString(), tombstone.getDeletedAt()));
+            }
+        }
+
+        ChangeCursor next = new ChangeCursor(
+            nextPosition(cursor.users(), users, userIndex, limit, before, User::getUpdatedAt, User::getId),
+            nextPosition(
+                cursor.tombstones(),
+                tombstones,
+                tombstoneIndex,
+                limit,
+                before,
+                UserTombstone::getDeletedAt,
+                UserTombstone::getUserId
+            )
+        );
+        boolean hasMore = userIndex < users.size() || tombstoneIndex < tombstones.size();
+
+        return new LeanUserChangesResponseDto(changes, next.encode(), hasMore);
+    }
+
+    /**
+     * Deletes the tombstones older than the retention, consumers with an older cursor have to resync anyway.
+     */
+    @Scheduled(fixedDelayString = "${user-service.changes.purge-interval:1h}")
+    public void purgeTombstones() {
+        Instant cutoff = Instant.now().minus(changeFeedProperties.getTombstoneRetention());
+        int purged = userTombstoneRepository.deleteByDeletedAtBefore(cutoff);
+        if (purged > 0) {
+            log.info("Purged {} user tombstone(s) older than {}", purged, cutoff);
+        }
+    }
+
+    private Map<UUID, List<LeanUserAddressResponseDto>> findAddresses(List<User> users) {
+        if (users.isEmpty()) {
+            return Map.of();
+        }
+
+        return userAddressRepository.findRowsByUserIdIn(users.stream().map(User::getId).toList())
+            .stream()
+            .collect(Collectors.groupingBy(
+                UserAddressRow::userId,
+                Collectors.mapping(
+                    LeanUserAddressResponseDto::from,
+                    Collectors.collectingAndThen(Collectors.toList(), list -> {
+                        list.sort(ADDRESS_ORDER);
+                        return list;
+                    })
+                )
+            ));
+    }
+
+    private static <T> ChangeCursor.Position nextPosition(
+        ChangeCursor.Position current,
+        List<T> rows,
+        int taken,
+        int limit,
+        Instant before,
+        Function<T, Instant> at,
+        Function<T, UUID> id
+    ) {
+        // every row before the bound has been read: move up to the bound, so an idle stream's position stays recent
+        // and the next scan starts where this one ended
+        if (taken == rows.size() && rows.size() <= limit) {
+            return before.isAfter(current.at()) ? ChangeCursor.Position.before(before) : current;
+        }
+
+        if (taken == 0) {
+            return current;
+        }
+
+        T last = rows.get(taken - 1);
+        return new ChangeCursor.Position(at.apply(last), id.apply(last));
+    }
+
+}
@@ -4,40 +4,73 @@ import kdodds.userservice.dto.requests.CreateUserRequestDto;
 import kdodds.userservice.dto.requests.PatchUserRequestDto;
 import kdodds.userservice.dto.responses.PageDto;
 import kdodds.userservice.dto.responses.PagedUsersResponseDto;
+import kdodds.userservice.dto.responses.UserAddressResponseDto;
 import kdodds.userservice.dto.responses.UserProfileResponseDto;
 import kdodds.userservice.dto.responses.UserResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserAddressResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserResponseDto;
 import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserAddress;
 import kdodds.userservice.entities.UserProfile;
+import kdodds.userservice.entities.UserTombstone;
+import kdodds.userservice.events.UserChangeType;
+import kdodds.userservice.events.UserOutbox;
 import kdodds.userservice.exceptions.models.exceptions.InvalidRequestDataException;
 import kdodds.userservice.exceptions.models.exceptions.InvalidUserIdException;
+import kdodds.userservice.exceptions.models.exceptions.PreconditionFailedException;
 import kdodds.userservice.exceptions.models.exceptions.UserConflictException;
 import kdodds.userservice.exceptions.models.exceptions.UserNotFoundException;
 import kdodds.userservice.exceptions.models.exceptions.UserProfileNotFound;
+import kdodds.userservice.ratelimit.RateLimitedLogger;
+import kdodds.userservice.repositories.UserAddressRepository;
 import kdodds.userservice.repositories.UserProfileRepository;
 import kdodds.userservice.repositories.UserRepository;
+import kdodds.userservice.repositories.UserTombstoneRepository;
+import kdodds.userservice.repositories.projections.UserAddressRow;
+import kdodds.userservice.repositories.projections.UserEtagState;
+import kdodds.userservice.repositories.projections.UserFieldSet;
+import kdodds.userservice.repositories.projections.UserRow;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @AllArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserService {
 
+    // unknown ids and invalid requests are client driven, a scanner must not be able to flood the log
+    private static final RateLimitedLogger CLIENT_ERROR_LOG = new RateLimitedLogger(log, Duration.ofSeconds(1), 20);
+
     private UserRepository userRepository;
 
     private UserProfileRepository userProfileRepository;
 
+    private UserAddressRepository userAddressRepository;
+
+    private UserTombstoneRepository userTombstoneRepository;
+
+    private UserOutbox userOutbox;
+
     /**
      * Gets all users, paginated.
      */
@@ -75,33 +108,195 @@ public class UserService {
             .build();
     }
 
+    /**
+     * Gets all users, paginated, reading only the requested fields. The profile is only joined and addresses are only
+     * loaded (in one query for the whole page) when one of their fields is requested.
+     *
+     * @param page The page number.
+     * @param size The page size.
+     * @param spec The filter to apply.
+     * @param fields The fields to render.
+     * @return PagedUsersResponseDto
+     */
+    public PagedUsersResponseDto getAllUsersPaginated(
+        int page,
+        int size,
+        Specification<User> spec,
+        UserFieldSet fields
+    ) {
+        if (fields.isAll()) {
+            return getAllUsersPaginated(page, size, spec);
+        }
+
+        Page<UserRow> rowPage;
+        Map<UUID, List<UserAddressResponseDto>> addresses;
+        try {
+            rowPage = userRepository.findUserRows(spec, fields, PageRequest.of(page, size));
+            addresses = fields.needsAddresses()
+                ? findAddressesByUserIds(rowPage.getContent().stream().map(UserRow::id).toList())
+                : Map.of();
+        } catch (Exception ex) {
+            log.error("Error getting sparse users paged: {}", ex.getMessage());
+            throw new RuntimeException(ex);
+        }
+
+        List<UserResponseDto> userDtos = rowPage
+            .getContent()
+            .stream()
+            .map(row -> toSparseDto(row, fields, addresses))
+            .toList();
+
+        PageDto pageDto = PageDto.builder()
+            .page(rowPage.getNumber())
+            .size(rowPage.getSize())
+            .totalPages(rowPage.getTotalPages())
+            .totalElements(rowPage.getTotalElements())
+            .build();
+
+        return PagedUsersResponseDto.builder()
+            .users(userDtos)
+            .page(pageDto)
+            .build();
+    }
+
+    /**
+     * Reads one batch of a listing page as plain DTOs, reading only the requested fields, in its own read only
+     * transaction. Users are ordered by id: the first batch of a page skips to the start of the page, later batches
+     * continue after the last id read, so a page is written batch by batch without holding a connection in between.
+     *
+     * @param spec The filter to apply.
+     * @param fields The fields to render.
+     * @param afterId The last user id read for this page, null for the first batch.
+     * @param offset The number of users to skip, only used for the first batch.
+     * @param limit The maximum number of users to read.
+     * @return List of LeanUserResponseDto objects, ordered by user id.
+     */
+    @Transactional(readOnly = true)
+    public List<LeanUserResponseDto> getLeanUserBatch(
+        Specification<User> spec,
+        UserFieldSet fields,
+        UUID afterId,
+        long offset,
+        int limit
+    ) {
+        try {
+            return toLeanUsers(userRepository.findUserRowsAfter(spec, fields, afterId, offset, limit), fields);
+        } catch (Exception ex) {
+            log.error("Error getting users batch: {}", ex.getMessage());
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Reads one batch of a listing page as response DTOs, reading only the requested fields, in its own read only
+     * transaction. Batches are read the same way as {@link #getLeanUserBatch}, addresses with one query per batch.
+     *
+     * @param spec The filter to apply.
+     * @param fields The fields to render.
+     * @param afterId The last user id read for this page, null for the first batch.
+     * @param offset The number of users to skip, only used for the first batch.
+     * @param limit The maximum number of users to read.
+     * @return List of UserResponseDto objects, ordered by user id.
+     */
+    @Transactional(readOnly = true)
+    public List<UserResponseDto> getUserBatch(
+        Specification<User> spec,
+        UserFieldSet fields,
+        UUID afterId,
+        long offset,
+        int limit
+    ) {
+        try {
+            List<UserRow> rows = userRepository.findUserRowsAfter(spec, fields, afterId, offset, limit);
+            Map<UUID, List<UserAddressResponseDto>> addresses = fields.needsAddresses()
+                ? findAddressRowsByUserIds(rows.stream().map(UserRow::id).toList())
+                : Map.of();
+
+            return rows.stream().map(row -> toSparseDto(row, fields, addresses)).toList();
+        } catch (Exception ex) {
+            log.error("Error getting users batch: {}", ex.getMessage());
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Counts the users matching a filter, for the page metadata of a listing.
+     *
+     * @param spec The filter to apply.
+     * @return The number of matching users.
+     */
+    @Transactional(readOnly = true)
+    public long countUsers(Specification<User> spec) {
+        try {
+            return userRepository.count(spec);
+        } catch (Exception ex) {
+            log.error("Error counting users: {}", ex.getMessage());
+            throw new RuntimeException(ex);
+        }
+    }
+
     /**
      * Gets all user data for a given user id.
      *
      * @param userId The unique user id of the user.
      * @return UserResponseDto
      */
-    public UserResponseDto getUserResponseDto(String userId) throws Exception {
-        if (userId == null || userId.isEmpty()) {
+    public UserResponseDto getUserResponseDto(UUID userId) throws Exception {
+        return UserResponseDto.fromEntity(findUser(userId));
+    }
+
+    /**
+     * Gets the requested fields of a user, without loading the entity.
+     *
+     * @param userId The unique user id of the user.
+     * @param fields The fields to render.
+     * @return UserResponseDto
+     */
+    public UserResponseDto getUserResponseDto(UUID userId, UserFieldSet fields) throws Exception {
+        if (fields.isAll()) {
+            return getUserResponseDto(userId);
+        }
+
+        if (userId == null) {
             throw new InvalidUserIdException();
         }
 
-        Optional<User> user;
+        Optional<UserRow> row;
+        Map<UUID, List<UserAddressResponseDto>> addresses;
         try {
-            user = userRepository.findById(UUID.fromString(userId));
+            row = userRepository.findUserRowById(userId, fields);
+            addresses = row.isPresent() && fields.needsAddresses()
+                ? findAddressesByUserIds(List.of(userId))
+                : Map.of();
         } catch (Exception ex) {
-            log.error("Error getting user for user id: {}", userId, ex);
+            log.error("Error getting sparse user for user id: {}", userId, ex);
             throw new Exception(
                 String.format("Find user by id for user id %s failed for unknown reasons", userId), ex
             );
         }
 
-        if (user.isEmpty()) {
-            log.warn("User not found for id: {}", userId);
+        if (row.isEmpty()) {
+            CLIENT_ERROR_LOG.warn("User not found for id: {}", userId);
             throw new UserNotFoundException(userId);
         }
 
-        return UserResponseDto.fromEntity(user.get());
+        return toSparseDto(row.get(), fields, addresses);
+    }
+
+    /**
+     * Gets the requested fields of a user as a plain record. The full representation is mapped straight from the
+     * entity, without building a {@link UserResponseDto} first.
+     *
+     * @param userId The unique user id of the user.
+     * @param fields The fields to render.
+     * @return LeanUserResponseDto
+     */
+    public LeanUserResponseDto getLeanUserResponseDto(UUID userId, UserFieldSet fields) throws Exception {
+        if (fields.isAll()) {
+            return LeanUserResponseDto.fromEntity(findUser(userId));
+        }
+
+        return LeanUserResponseDto.from(getUserResponseDto(userId, fields));
     }
 
     /**
@@ -110,14 +305,14 @@ public class UserService {
      * @param userId User id to get the profile.
      * @return UserProfileResponseDto
      */
-    public UserProfileResponseDto getUserProfileDtoByUserId(String userId) throws Exception {
-        if (userId == null || userId.isEmpty()) {
+    public UserProfileResponseDto getUserProfileDtoByUserId(UUID userId) throws Exception {
+        if (userId == null) {
             throw new InvalidUserIdException();
         }
 
         Optional<UserProfile> profile;
         try {
-            profile = userProfileRepository.findById(UUID.fromString(userId));
+            profile = userProfileRepository.findById(userId);
         } catch (Exception ex) {
             log.error("Error getting user profile for user id: {}", userId, ex);
             throw new Exception(
@@ -127,13 +322,35 @@ public class UserService {
         }
 
         if (profile.isEmpty()) {
-            log.warn("User profile not found for id: {}", userId);
+            CLIENT_ERROR_LOG.warn("User profile not found for id: {}", userId);
             throw new UserProfileNotFound(userId);
         }
 
         return UserProfileResponseDto.fromEntity(profile.get());
     }
 
+    /**
+     * Gets the current ETag of the full user representation, without loading the user.
+     *
+     * @param userId The unique user id of the user.
+     * @return The quoted ETag, or empty if the user does not exist.
+     */
+    public Optional<String> getUserEtag(UUID userId) throws Exception {
+        return findEtagState(userId).map(UserEtagState::userEtag);
+    }
+
+    /**
+     * Gets the current ETag of a user's profile, without loading the profile.
+     *
+     * @param userId The unique user id of the user.
+     * @return The quoted ETag, or empty if the user does not exist.
+     */
+    public Optional<String> getUserProfileEtag(UUID userId) throws Exception {
+        return findEtagState(userId)
+            .filter(state -> state.profileVersion() != null)
+            .map(UserEtagState::profileEtag);
+    }
+
     /**
      * Creates a new user. Returns the newly created user as a UserResponseDto.
      *
@@ -141,9 +358,10 @@ public class UserService {
      * @return UserResponseDto
      * @throws Exception Throws an exception if the request is invalid or attempt to create user fails.
      */
+    @Transactional(rollbackFor = Exception.class)
     public UserResponseDto createUserAndProfileAndAddress(CreateUserRequestDto request) throws Exception {
         if (request == null) {
-            log.warn("Cannot create user from null request");
+            CLIENT_ERROR_LOG.warn("Cannot create user from null request");
             throw new InvalidRequestDataException("Cannot create user from null or empty request.");
         }
 
@@ -168,6 +386,7 @@ public class UserService {
                 request.getAddress().getZipCode(),
                 request.getAddress().getCountry()
             );
+            userOutbox.record(UserChangeType.USER_CREATED, userId);
 
             return UserResponseDto.fromEntity(userRepository.findById(userId).get());
         } catch (DataIntegrityViolationException ex) {
@@ -187,9 +406,10 @@ public class UserService {
      * @return UserResponseDto
      * @throws Exception Throws an exception if the request is invalid or attempt to create user fails.
      */
+    @Transactional(rollbackFor = Exception.class)
     public UserResponseDto createUserAndProfile(CreateUserRequestDto request) throws Exception {
         if (request == null) {
-            log.warn("Cannot create user from null request");
+            CLIENT_ERROR_LOG.warn("Cannot create user from null request");
             throw new InvalidRequestDataException("Cannot create user from null or empty request");
         }
 
@@ -203,6 +423,7 @@ public class UserService {
                 request.getPhoneNumber(),
                 request.getProfileImageUrl()
             );
+            userOutbox.record(UserChangeType.USER_CREATED, userId);
 
             return UserResponseDto.fromEntity(userRepository.findById(userId).get());
         } catch (DataIntegrityViolationException ex) {
@@ -216,19 +437,33 @@ public class UserService {
     }
 
     /**
-     * Deletes a user by user id.
+     * Deletes a user by user id. A tombstone and an outbox event are written in the same transaction, so change feed
+     * consumers and event sinks learn about the deletion. Deleting a user that does not exist changes nothing and
+     * writes neither.
      *
      * @param userId The user id of the user to delete.
      * @throws Exception Throws an exception if the user cannot be deleted.
      */
-    public void deleteUserByUserId(String userId) throws Exception {
-        if (userId == null || userId.isEmpty()) {
-            log.error("Cannot delete user with null or empty userId.");
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteUserByUserId(UUID userId) throws Exception {
+        if (userId == null) {
+            CLIENT_ERROR_LOG.error("Cannot delete user with null or empty userId.");
             throw new InvalidUserIdException();
         }
 
         try {
-            userRepository.deleteById(UUID.fromString(userId));
+            // deleteById would ignore an unknown id just the same, but the deletion must not be published then
+            Optional<User> user = userRepository.findById(userId);
+            if (user.isEmpty()) {
+                return;
+            }
+            userRepository.delete(user.get());
+
+            UserTombstone tombstone = new UserTombstone();
+            tombstone.setUserId(userId);
+            tombstone.setDeletedAt(Instant.now());
+            userTombstoneRepository.save(tombstone);
+            userOutbox.record(UserChangeType.USER_DELETED, userId);
         } catch (Exception ex) {
             log.error("Error deleting user with id: {}", userId, ex);
             throw new Exception(
@@ -243,12 +478,14 @@ public class UserService {
      *
      * @param userId The user id of the user to update.
      * @param request The PatchUserRequestDto to use for the data.
+     * @param ifMatch The If-Match header of the request, may be null for an unconditional update.
      * @return UserResponseDto
      * @throws Exception Throws an exception if the request is invalid or attempt to update the user fails.
      */
-    public UserResponseDto updateUser(String userId, PatchUserRequestDto request) throws Exception {
-        if (userId == null || userId.isEmpty()) {
-            log.error("Cannot update user with null or empty userId.");
+    @Transactional(rollbackFor = Exception.class)
+    public UserResponseDto updateUser(UUID userId, PatchUserRequestDto request, String ifMatch) throws Exception {
+        if (userId == null) {
+            CLIENT_ERROR_LOG.error("Cannot update user with null or empty userId.");
             throw new InvalidUserIdException();
         }
 
@@ -259,22 +496,35 @@ public class UserService {
         }
 
         // build the updated entity
-        User user = userRepository.findById(UUID.fromString(userId))
+        User user = userRepository.findById(userId)
             .orElseThrow(() -> new UserNotFoundException(userId));
 
+        if (!Etags.matches(ifMatch, user.getVersion())) {
+            CLIENT_ERROR_LOG.warn(
+                "If-Match {} does not match version {} of user with id: {}", ifMatch, user.getVersion(), userId
+            );
+            throw new PreconditionFailedException(String.format("User %s has been modified since %s", userId, ifMatch));
+        }
+
         boolean updateNeeded = applyUpdates(request, user);
 
         if (!updateNeeded) {
             log.info("No changes detected for update user with id: {}", userId);
-            return UserResponseDto.fromEntity(user);
+            return toUpdatedDto(user);
         }
 
         // set the updated at timestamp
         user.setUpdatedAt(Instant.now());
 
+        // the versioned UPDATE ... WHERE version = ? fails if another write landed after the user was read, and is
+        // flushed here rather than at commit, so that failure is still caught below
         try {
-            user = userRepository.save(user);
-            return UserResponseDto.fromEntity(user);
+            user = userRepository.saveAndFlush(user);
+            userOutbox.record(UserChangeType.USER_UPDATED, userId);
+            return toUpdatedDto(user);
+        } catch (OptimisticLockingFailureException ex) {
+            CLIENT_ERROR_LOG.warn("Concurrent update of user with id: {}", userId);
+            throw concurrentUpdate(userId, ifMatch);
         } catch (Exception ex) {
             log.error("Error updating user with id: {}", userId, ex);
             throw new Exception(
@@ -284,6 +534,134 @@ public class UserService {
         }
     }
 
+    private static RuntimeException concurrentUpdate(UUID userId, String ifMatch) {
+        String message = String.format("User %s was modified by a concurrent request", userId);
+
+        // only a conditional request can fail a precondition, an unconditional one just lost the race
+        if (ifMatch != null && !ifMatch.isBlank()) {
+            return new PreconditionFailedException(message);
+        }
+
+        return new UserConflictException(message);
+    }
+
+    // the ETag comes from the versions this transaction wrote, a read after commit could see a later update
+    private static UserResponseDto toUpdatedDto(User user) {
+        List<UserAddress> addresses = user.getAddresses() == null ? List.of() : user.getAddresses();
+        Instant addressesUpdatedAt = addresses.stream()
+            .map(UserAddress::getUpdatedAt)
+            .max(Comparator.naturalOrder())
+            .orElse(null);
+        Long profileVersion = user.getUserProfile() == null ? null : user.getUserProfile().getVersion();
+
+        UserResponseDto dto = UserResponseDto.fromEntity(user);
+        dto.setEtag(
+            new UserEtagState(user.getVersion(), profileVersion, addressesUpdatedAt, addresses.size()).userEtag()
+        );
+
+        return dto;
+    }
+
+    private Map<UUID, List<UserAddressResponseDto>> findAddressesByUserIds(List<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return userAddressRepository.findByUserIdIn(userIds)
+            .stream()
+            .collect(Collectors.groupingBy(
+                address -> address.getUser().getId(),
+                Collectors.mapping(UserAddressResponseDto::fromEntity, Collectors.toList())
+            ));
+    }
+
+    private Map<UUID, List<UserAddressResponseDto>> findAddressRowsByUserIds(List<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+
+        // rows rather than entities, an open session would otherwise keep every address of the page
+        return userAddressRepository.findRowsByUserIdIn(userIds)
+            .stream()
+            .collect(Collectors.groupingBy(
+                UserAddressRow::userId,
+                Collectors.mapping(UserAddressResponseDto::fromRow, Collectors.toList())
+            ));
+    }
+
+    private List<LeanUserResponseDto> toLeanUsers(List<UserRow> rows, UserFieldSet fields) {
+        Map<UUID, List<LeanUserAddressResponseDto>> addresses = Map.of();
+        if (fields.needsAddresses()) {
+            addresses = userAddressRepository.findRowsByUserIdIn(rows.stream().map(UserRow::id).toList())
+                .stream()
+                .collect(Collectors.groupingBy(
+                    UserAddressRow::userId,
+                    Collectors.mapping(LeanUserAddressResponseDto::from, Collectors.toList())
+                ));
+        }
+
+        List<LeanUserResponseDto> users = new ArrayList<>(rows.size());
+        for (UserRow row : rows) {
+            List<LeanUserAddressResponseDto> userAddresses = fields.needsAddresses()
+                ? addresses.getOrDefault(row.id(), List.of())
+                : null;
+            users.add(LeanUserResponseDto.from(row, userAddresses));
+        }
+
+        return users;
+    }
+
+    private static UserResponseDto toSparseDto(
+        UserRow row,
+        UserFieldSet fields,
+        Map<UUID, List<UserAddressResponseDto>> addresses
+    ) {
+        UserResponseDto dto = UserResponseDto.fromRow(row);
+        if (fields.needsAddresses()) {
+            dto.setAddresses(addresses.getOrDefault(row.id(), List.of()));
+        }
+
+        return dto;
+    }
+
+    private User findUser(UUID userId) throws Exception {
+        if (userId == null) {
+            throw new InvalidUserIdException();
+        }
+
+        Optional<User> user;
+        try {
+            user = userRepository.findById(userId);
+        } catch (Exception ex) {
+            log.error("Error getting user for user id: {}", userId, ex);
+            throw new Exception(
+                String.format("Find user by id for user id %s failed for unknown reasons", userId), ex
+            );
+        }
+
+        if (user.isEmpty()) {
+            CLIENT_ERROR_LOG.warn("User not found for id: {}", userId);
+            throw new UserNotFoundException(userId);
+        }
+
+        return user.get();
+    }
+
+    private Optional<UserEtagState> findEtagState(UUID userId) throws Exception {
+        if (userId == null) {
+            throw new InvalidUserIdException();
+        }
+
+        try {
+            return userRepository.findEtagStateById(userId);
+        } catch (Exception ex) {
+            log.error("Error getting etag state for user id: {}", userId, ex);
+            throw new Exception(
+                String.format("Find etag state for user id %s failed for unknown reasons", userId), ex
+            );
+        }
+    }
+
     private static boolean applyUpdates(PatchUserRequestDto request, User user) {
         // track if write to db is really necessary
         boolean updateNeeded = false;
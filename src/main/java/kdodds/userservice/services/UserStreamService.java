@@ -0,0 +1,396 @@
+package kdodds.userservice.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import kdodds.userservice.config.UserStreamProperties;
+import kdodds.userservice.dto.responses.lean.LeanUserResponseDto;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.events.UserChangeEvent;
+import kdodds.userservice.events.UserChangeType;
+import kdodds.userservice.exceptions.models.exceptions.StreamLimitExceededException;
+import kdodds.userservice.repositories.UserRepository;
+import kdodds.userservice.repositories.projections.UserFieldSet;
+import kdodds.userservice.repositories.specifications.UserFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes user changes to server-sent event streams. Driven by the {@link UserChangeEvent}s the outbox dispatcher
+ * publishes to in-process listeners: a changed user is read and serialized once, as the plain JSON
+ * {@link LeanUserResponseDto}, and queued for every interested stream. The reads run on read lanes of their own,
+ * striped by user id like the dispatcher's, so the dispatcher never waits on the database for the streams. Each stream
+ * has a bounded queue drained by its own virtual thread, a stream whose queue is full is disconnected instead of
+ * slowing down delivery to the others.
+ */
+@Slf4j
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserStreamService implements MeterBinder {
+
+    private static final String USER_EVENT = "user";
+
+    private static final String DELETED_EVENT = "deleted";
+
+    private final UserService userService;
+
+    private final UserRepository userRepository;
+
+    private final UserStreamProperties userStreamProperties;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ExecutorService[] readLanes;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // one permit per open stream, taken before the stream is registered and given back when it stops
+    private final Semaphore streamSlots;
+
+    private final LongAdder slowDisconnects = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param userService Reads the current state of a user when a stream is opened.
+     * @param userRepository Reads changed users.
+     * @param userStreamProperties Buffer size, subscriber limit, timeout and heartbeat.
+     * @param objectMapper Serializes the users, once per change.
+     * @param transactionManager Runs the reads of changed users, which happen outside of any request.
+     */
+    public UserStreamService(
+        UserService userService,
+        UserRepository userRepository,
+        UserStreamProperties userStreamProperties,
+        ObjectMapper objectMapper,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.userService = userService;
+        this.userRepository = userRepository;
+        this.userStreamProperties = userStreamProperties;
+        this.objectMapper = objectMapper;
+        this.streamSlots = new Semaphore(userStreamProperties.getMaxSubscribers());
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readLanes = new ExecutorService[userStreamProperties.getReadLanes()];
+        for (int i = 0; i < readLanes.length; i++) {
+            readLanes[i] = new ThreadPoolExecutor(
+                1,
+                1,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(userStreamProperties.getReadQueueSize()),
+                Thread.ofVirtual().name("user-stream-reads-" + i).factory()
+            );
+        }
+    }
+
+    /**
+     * Opens a stream of one user's changes. The user's current state is sent first.
+     *
+     * @param userId The unique user id of the user.
+     * @return SseEmitter
+     * @throws Exception Throws an exception if the user does not exist or cannot be read.
+     */
+    public SseEmitter subscribe(UUID userId) throws Exception {
+        reserveSlot();
+
+        // subscribe before reading, a change committed meanwhile is queued behind the current state rather than lost
+        Subscriber subscriber = register(userId, null);
+        try {
+            LeanUserResponseDto current = userService.getLeanUserResponseDto(userId, UserFieldSet.ALL);
+            subscriber.start(SseEmitter.event().name(USER_EVENT).data(toJson(current)));
+        } catch (Exception ex) {
+            subscriber.stop();
+            throw ex;
+        }
+
+        return subscriber.emitter;
+    }
+
+    /**
+     * Opens a stream of the changes of every user matching a filter. Deletions are sent for every user, a deleted user
+     * can no longer be matched.
+     *
+     * @param filter The listing filters a changed user has to match.
+     * @return SseEmitter
+     */
+    public SseEmitter subscribe(UserFilter filter) {
+        reserveSlot();
+
+        Subscriber subscriber = register(null, filter);
+        subscriber.start(null);
+
+        return subscriber.emitter;
+    }
+
+    /**
+     * Hands a change to the read lane of the changed user, which queues it for the streams following the user. Runs on
+     * the dispatcher lane of the user, so the changes of one user reach the read lane in order.
+     *
+     * @param event The committed change.
+     */
+    @EventListener
+    public void onUserChange(UserChangeEvent event) {
+        List<Subscriber> interested = new ArrayList<>();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.follows(event.userId())) {
+                interested.add(subscriber);
+            }
+        }
+        if (interested.isEmpty()) {
+            return;
+        }
+
+        try {
+            readLanes[Math.floorMod(event.userId().hashCode(), readLanes.length)].execute(
+                () -> publish(event, interested)
+            );
+        } catch (RejectedExecutionException ex) {
+            // the reads fell too far behind, the streams would miss this change
+            for (Subscriber subscriber : interested) {
+                subscriber.fallBehind();
+            }
+        }
+    }
+
+    /**
+     * Closes every open stream, clients reconnect to another instance.
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    /**
+     * Stops the read lanes, changes not read yet are not sent.
+     */
+    @PreDestroy
+    public void stopReadLanes() {
+        for (ExecutorService readLane : readLanes) {
+            readLane.shutdownNow();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("userservice.streams.subscribers", subscribers, Set::size)
+            .description("Open user event streams")
+            .register(registry);
+        FunctionCounter.builder("userservice.streams.slow.disconnects", slowDisconnects, LongAdder::sum)
+            .description("User event streams closed because the client fell too far behind")
+            .register(registry);
+    }
+
+    private void publish(UserChangeEvent event, List<Subscriber> interested) {
+        if (event.type() == UserChangeType.USER_DELETED) {
+            String deleted = toJson(event);
+            for (Subscriber subscriber : interested) {
+                subscriber.offer(toSse(event, DELETED_EVENT, deleted));
+                if (subscriber.userId != null) {
+                    // nothing more will come for this user
+                    subscriber.offer(Subscriber.END);
+                }
+            }
+            return;
+        }
+
+        // one read for every stream, the filters are checked against the entity while it is loaded
+        List<Subscriber> recipients = new ArrayList<>(interested.size());
+        LeanUserResponseDto user;
+        try {
+            user = readOnlyTransaction.execute(status -> userRepository.findById(event.userId())
+                .map(entity -> {
+                    for (Subscriber subscriber : interested) {
+                        if (subscriber.matches(entity)) {
+                            recipients.add(subscriber);
+                        }
+                    }
+                    return LeanUserResponseDto.fromEntity(entity);
+                })
+                .orElse(null));
+        } catch (Exception ex) {
+            log.error("Error reading user {} for its event streams", event.userId(), ex);
+            return;
+        }
+
+        // deleted since, its deletion event follows
+        if (user == null) {
+            return;
+        }
+
+        String json = toJson(user);
+        for (Subscriber subscriber : recipients) {
+            subscriber.offer(toSse(event, USER_EVENT, json));
+        }
+    }
+
+    private void reserveSlot() {
+        // taken atomically, concurrent subscriptions cannot overshoot the limit between a check and the registration
+        if (!streamSlots.tryAcquire()) {
+            throw new StreamLimitExceededException("Too many open user event streams, try again later");
+        }
+    }
+
+    // takes over the slot reserved by the caller, the subscriber gives it back when it stops
+    private Subscriber register(UUID userId, UserFilter filter) {
+        // queues events right away, they are written once the stream is started
+        SseEmitter emitter = new SseEmitter(userStreamProperties.getTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(userId, filter, emitter);
+
+        emitter.onCompletion(subscriber::stop);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(ex -> subscriber.stop());
+
+        subscribers.add(subscriber);
+
+        return subscriber;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Error serializing " + value.getClass().getSimpleName(), ex);
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder toSse(UserChangeEvent event, String name, String json) {
+        // the json is written as it is, every stream gets the same string
+        return SseEmitter.event()
+            .id(String.valueOf(event.sequence()))
+            .name(name)
+            .data(json);
+    }
+
+    /**
+     * One open stream: a bounded queue of events and the virtual thread that writes them to the client.
+     */
+    private final class Subscriber {
+
+        // queued after the last event of a stream that ends, the writer completes the stream when it gets there
+        private static final SseEmitter.SseEventBuilder END = SseEmitter.event();
+
+        // null for a filtered stream of every user
+        private final UUID userId;
+
+        private final UserFilter filter;
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+
+        private volatile boolean stopped;
+
+        private volatile Thread writer;
+
+        Subscriber(UUID userId, UserFilter filter, SseEmitter emitter) {
+            this.userId = userId;
+            this.filter = filter;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(userStreamProperties.getBufferSize());
+        }
+
+        boolean follows(UUID changedUserId) {
+            return !stopped && (userId == null || userId.equals(changedUserId));
+        }
+
+        boolean matches(User user) {
+            return userId != null || filter.matches(user);
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            // never wait for a slow client, that would hold up the read lane and every other stream on it
+            if (!queue.offer(event)) {
+                fallBehind();
+            }
+        }
+
+        void fallBehind() {
+            if (!stopped) {
+                log.info("Disconnecting user event stream {} behind by {} events", describe(), queue.size());
+                slowDisconnects.increment();
+                stop();
+            }
+        }
+
+        void start(SseEmitter.SseEventBuilder first) {
+            writer = Thread.ofVirtual().name("user-stream").start(() -> write(first));
+        }
+
+        void stop() {
+            stopped = true;
+            // stop runs more than once per stream (writer, emitter callbacks, shutdown), only the first frees the slot
+            if (subscribers.remove(this)) {
+                streamSlots.release();
+            }
+            Thread current = writer;
+            if (current != null && current != Thread.currentThread()) {
+                current.interrupt();
+            }
+        }
+
+        void close() {
+            stop();
+            emitter.complete();
+        }
+
+        private void write(SseEmitter.SseEventBuilder first) {
+            long heartbeatMillis = userStreamProperties.getHeartbeat().toMillis();
+            try {
+                if (first != null && !stopped) {
+                    emitter.send(first);
+                }
+                while (!stopped) {
+                    SseEmitter.SseEventBuilder event = queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    if (event == END) {
+                        break;
+                    }
+                    emitter.send(event == null ? SseEmitter.event().comment("heartbeat") : event);
+                }
+            } catch (InterruptedException ex) {
+                // stopped while waiting for the next event
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException ex) {
+                log.debug("User event stream {} closed by the client: {}", describe(), ex.getMessage());
+            } finally {
+                stop();
+                emitter.complete();
+            }
+        }
+
+        private String describe() {
+            return userId == null ? "of all users" : "of user " + userId;
+        }
+
+    }
+
+}
@@ -0,0 +1,33 @@
+package kdodds.userservice.sql;
+
+import org.hibernate.Interceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.type.Type;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Adds each entity Hibernate loads to the current thread's {@link QueryCount}, if one is open. Registered as the
+ * session factory wide interceptor.
+ */
+@Component
+public class EntityLoadCounter implements Interceptor, HibernatePropertiesCustomizer {
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.INTERCEPTOR, this);
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        QueryCount count = QueryCounter.current();
+        if (count != null) {
+            count.entity();
+        }
+
+        return false;
+    }
+
+}
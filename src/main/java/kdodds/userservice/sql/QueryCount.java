@@ -0,0 +1,86 @@
+package kdodds.userservice.sql;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Statements run and entities loaded within one scope, usually a request. Counts are also added to the enclosing
+ * scope, so a scope opened by a test around a request sees what the request's own scope sees. A scope belongs to the
+ * thread that opened it, see {@link QueryCounter}.
+ */
+public class QueryCount {
+
+    private final QueryCount parent;
+
+    private final Map<String, Integer> statements = new LinkedHashMap<>();
+
+    private int statementCount;
+
+    private int entityCount;
+
+    QueryCount(QueryCount parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Gets the number of statements run, a batch counts once.
+     *
+     * @return Statement count.
+     */
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * Gets the number of entities Hibernate loaded.
+     *
+     * @return Entity count.
+     */
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    /**
+     * Gets every distinct statement with the number of times it ran, in the order they first ran.
+     *
+     * @return Unmodifiable map of statement to count.
+     */
+    public Map<String, Integer> getStatements() {
+        return Collections.unmodifiableMap(statements);
+    }
+
+    /**
+     * Gets the statement run most often, the usual shape of an N+1 is one statement repeated per parent row.
+     *
+     * @return The most repeated statement and its count, or null if nothing ran.
+     */
+    public Map.Entry<String, Integer> getMostRepeated() {
+        Map.Entry<String, Integer> mostRepeated = null;
+        for (Map.Entry<String, Integer> entry : statements.entrySet()) {
+            if (mostRepeated == null || entry.getValue() > mostRepeated.getValue()) {
+                mostRepeated = entry;
+            }
+        }
+
+        return mostRepeated;
+    }
+
+    QueryCount getParent() {
+        return parent;
+    }
+
+    void statement(String sql) {
+        for (QueryCount count = this; count != null; count = count.parent) {
+            count.statementCount++;
+            count.statements.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void entity() {
+        for (QueryCount count = this; count != null; count = count.parent) {
+            count.entityCount++;
+        }
+    }
+
+}
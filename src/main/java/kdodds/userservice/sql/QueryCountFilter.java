@@ -0,0 +1,135 @@
+package kdodds.userservice.sql;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import kdodds.userservice.config.QueryCountProperties;
+import kdodds.userservice.metrics.HandlerTag;
+import kdodds.userservice.ratelimit.RateLimitFilter;
+import kdodds.userservice.ratelimit.RateLimitedLogger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts the statements and entities of each request. The counts are published per controller method as the
+ * userservice.request.statements and userservice.request.entities summaries and, outside prod, sent back as
+ * {@value #STATEMENT_COUNT_HEADER} and {@value #ENTITY_COUNT_HEADER} headers. A request running one statement
+ * {@code repeated-statement-threshold} times or more is logged as a likely N+1 and counted in
+ * userservice.request.repeated.statements.
+ */
+@Slf4j
+@Order(RateLimitFilter.ORDER - 1)
+@Component
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENT_COUNT_HEADER = "X-Query-Count";
+
+    public static final String ENTITY_COUNT_HEADER = "X-Entity-Count";
+
+    private static final RateLimitedLogger REPEATED_LOG = new RateLimitedLogger(log, Duration.ofSeconds(1), 20);
+
+    private final QueryCountProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, HandlerMeters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param properties Whether to count, send headers and when to report a repeated statement.
+     * @param meterRegistry Registry for the per handler summaries.
+     */
+    public QueryCountFilter(QueryCountProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Sets the count headers, as long as the response is not committed yet.
+     *
+     * @param response The response.
+     * @param count The request's counts.
+     */
+    public static void writeHeaders(HttpServletResponse response, QueryCount count) {
+        if (!response.isCommitted()) {
+            response.setHeader(STATEMENT_COUNT_HEADER, String.valueOf(count.getStatementCount()));
+            response.setHeader(ENTITY_COUNT_HEADER, String.valueOf(count.getEntityCount()));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(
+        HttpServletRequest request,
+        HttpServletResponse response,
+        FilterChain filterChain
+    ) throws ServletException, IOException {
+        QueryCount count = QueryCounter.open();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryCounter.close(count);
+        }
+
+        // bodies written by the message converters commit the response, QueryCountHeaderAdvice covers those
+        if (properties.isHeaders()) {
+            writeHeaders(response, count);
+        }
+
+        String handler = HandlerTag.of(request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE));
+        HandlerMeters handlerMeters = meters.computeIfAbsent(handler, this::register);
+        handlerMeters.statements().record(count.getStatementCount());
+        handlerMeters.entities().record(count.getEntityCount());
+
+        Map.Entry<String, Integer> mostRepeated = count.getMostRepeated();
+        if (mostRepeated != null && mostRepeated.getValue() >= properties.getRepeatedStatementThreshold()) {
+            handlerMeters.repeated().increment();
+            REPEATED_LOG.warn(
+                "Likely N+1 in {}, statement ran {} times: {}",
+                handler,
+                mostRepeated.getValue(),
+                mostRepeated.getKey()
+            );
+        }
+    }
+
+    private HandlerMeters register(String handler) {
+        return new HandlerMeters(
+            DistributionSummary.builder("userservice.request.statements")
+                .description("Statements run per request")
+                .tag(HandlerTag.KEY, handler)
+                .serviceLevelObjectives(1, 2, 5, 10, 20, 50, 100)
+                .register(meterRegistry),
+            DistributionSummary.builder("userservice.request.entities")
+                .description("Entities loaded per request")
+                .tag(HandlerTag.KEY, handler)
+                .serviceLevelObjectives(1, 10, 50, 100, 500, 1000)
+                .register(meterRegistry),
+            Counter.builder("userservice.request.repeated.statements")
+                .description("Requests that ran one statement at least the repeated statement threshold times")
+                .tag(HandlerTag.KEY, handler)
+                .register(meterRegistry)
+        );
+    }
+
+    private record HandlerMeters(DistributionSummary statements, DistributionSummary entities, Counter repeated) {
+    }
+
+}
@@ -0,0 +1,46 @@
+package kdodds.userservice.sql;
+
+import kdodds.userservice.config.QueryCountProperties;
+import lombok.AllArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Sets the {@link QueryCountFilter} headers just before a response body is written, as the response is committed by
+ * then and the filter could no longer add them. Statements run while the body is serialized are not included.
+ */
+@ControllerAdvice
+@AllArgsConstructor
+public class QueryCountHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    private QueryCountProperties properties;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return properties.isEnabled() && properties.isHeaders();
+    }
+
+    @Override
+    public Object beforeBodyWrite(
+        Object body,
+        MethodParameter returnType,
+        MediaType selectedContentType,
+        Class<? extends HttpMessageConverter<?>> selectedConverterType,
+        ServerHttpRequest request,
+        ServerHttpResponse response
+    ) {
+        QueryCount count = QueryCounter.current();
+        if (count != null && response instanceof ServletServerHttpResponse servletResponse) {
+            QueryCountFilter.writeHeaders(servletResponse.getServletResponse(), count);
+        }
+
+        return body;
+    }
+
+}
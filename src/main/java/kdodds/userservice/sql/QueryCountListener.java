@@ -0,0 +1,30 @@
+package kdodds.userservice.sql;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Adds each statement run through the data source to the current thread's {@link QueryCount}, if one is open.
+ */
+@Component
+public class QueryCountListener implements QueryExecutionListener {
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        QueryCount count = QueryCounter.current();
+        if (count != null) {
+            for (QueryInfo queryInfo : queryInfoList) {
+                count.statement(queryInfo.getQuery());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package kdodds.userservice.sql;
+
+/**
+ * Opens and closes {@link QueryCount} scopes on the current thread. The {@link QueryCountFilter} opens one per
+ * request; tests open their own to hold code to a query budget.
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<QueryCount> CURRENT = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    /**
+     * Starts counting on the current thread, nested in the scope already open if there is one.
+     *
+     * @return The new scope, pass it to {@link #close(QueryCount)} when done.
+     */
+    public static QueryCount open() {
+        QueryCount count = new QueryCount(CURRENT.get());
+        CURRENT.set(count);
+        return count;
+    }
+
+    /**
+     * Stops counting into a scope and makes the enclosing one current again.
+     *
+     * @param count The scope returned by {@link #open()}.
+     */
+    public static void close(QueryCount count) {
+        if (count.getParent() == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(count.getParent());
+        }
+    }
+
+    /**
+     * Gets the innermost open scope of the current thread.
+     *
+     * @return The scope, or null if nothing is being counted.
+     */
+    public static QueryCount current() {
+        return CURRENT.get();
+    }
+
+}
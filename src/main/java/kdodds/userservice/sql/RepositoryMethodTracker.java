@@ -0,0 +1,91 @@
+package kdodds.userservice.sql;
+
+import kdodds.userservice.config.SqlLogProperties;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which repository method the current thread is in, so a logged statement can name the method that issued
+ * it. Every Spring Data repository proxy gets an interceptor that sets a thread local for the duration of the call.
+ */
+@Component
+public class RepositoryMethodTracker implements BeanPostProcessor {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private final ObjectProvider<SqlLogProperties> sqlLogProperties;
+
+    /**
+     * Constructor.
+     *
+     * @param sqlLogProperties Looked up lazily, post processors are created before regular beans.
+     */
+    public RepositoryMethodTracker(ObjectProvider<SqlLogProperties> sqlLogProperties) {
+        this.sqlLogProperties = sqlLogProperties;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        // the customizer runs when the factory bean creates the repository, after this method returns
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> {
+                if (sqlLogProperties.getObject().isEnabled()) {
+                    factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                        proxyFactory.addAdvice(new Tracking(repositoryInformation.getRepositoryInterface()))
+                    );
+                }
+            });
+        }
+
+        return bean;
+    }
+
+    /**
+     * Gets the repository method the current thread is in.
+     *
+     * @return Repository and method name, e.g. UserRepository.findById, or null outside of a repository call.
+     */
+    public String current() {
+        return CURRENT.get();
+    }
+
+    private static final class Tracking implements MethodInterceptor {
+
+        private final String repositoryName;
+
+        private final Map<Method, String> names = new ConcurrentHashMap<>();
+
+        private Tracking(Class<?> repositoryInterface) {
+            this.repositoryName = repositoryInterface.getSimpleName();
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            String previous = CURRENT.get();
+            CURRENT.set(names.computeIfAbsent(invocation.getMethod(), this::name));
+            try {
+                return invocation.proceed();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        }
+
+        private String name(Method method) {
+            return repositoryName + "." + method.getName();
+        }
+
+    }
+
+}
@@ -0,0 +1,41 @@
+package kdodds.userservice.sql;
+
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application's {@link DataSource} in a datasource-proxy {@link ProxyDataSource} reporting every statement
+ * to the {@link QueryExecutionListener} beans, the {@link SqlLogListener} and the {@link QueryCountListener}.
+ */
+@Component
+public class SqlLogDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<QueryExecutionListener> listeners;
+
+    /**
+     * Constructor.
+     *
+     * @param listeners Looked up lazily, post processors are created before regular beans.
+     */
+    public SqlLogDataSourcePostProcessor(ObjectProvider<QueryExecutionListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+            ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create(beanName, dataSource);
+            listeners.orderedStream().forEach(builder::listener);
+            return builder.build();
+        }
+
+        return bean;
+    }
+
+}
@@ -0,0 +1,79 @@
+package kdodds.userservice.sql;
+
+import kdodds.userservice.config.SqlLogProperties;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint (/actuator/sqllog) reporting the slow statement threshold and counts, and changing the sample
+ * rate of faster statements at runtime, e.g. POST {"sampleRate": 0.01} to log one statement in a hundred. Whether bind
+ * parameters are logged is configuration only, it cannot be changed here. Only exposed in the dev profile.
+ */
+@Component
+@Endpoint(id = "sqllog")
+@AllArgsConstructor
+public class SqlLogEndpoint {
+
+    private SqlLogProperties sqlLogProperties;
+
+    private SqlLogListener sqlLogListener;
+
+    /**
+     * Reads the statement log settings and counts.
+     *
+     * @return The current state.
+     */
+    @ReadOperation
+    public SqlLogState state() {
+        return new SqlLogState(
+            sqlLogProperties.isEnabled(),
+            sqlLogProperties.isLogParameters(),
+            sqlLogProperties.getSlowThreshold().toMillis(),
+            sqlLogListener.getSampleRate(),
+            sqlLogListener.getSlowStatements(),
+            sqlLogListener.getSampledStatements()
+        );
+    }
+
+    /**
+     * Changes the share of statements under the threshold that are logged, 0 turns sampling off.
+     *
+     * @param sampleRate Sample rate between 0 and 1.
+     * @return The state after the change.
+     */
+    @WriteOperation
+    public SqlLogState sample(double sampleRate) {
+        try {
+            sqlLogListener.setSampleRate(sampleRate);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidEndpointRequestException(ex.getMessage(), ex.getMessage());
+        }
+
+        return state();
+    }
+
+    /**
+     * Snapshot of the statement log.
+     *
+     * @param enabled Whether statements are intercepted at all.
+     * @param logParameters Whether bind parameter values are logged, those of sensitive columns are masked anyway.
+     * @param slowThresholdMillis Statements at least this slow are always logged.
+     * @param sampleRate Share of faster statements that are logged.
+     * @param slowStatements Statements logged for exceeding the threshold since startup.
+     * @param sampledStatements Statements logged by sampling since startup.
+     */
+    public record SqlLogState(
+        boolean enabled,
+        boolean logParameters,
+        long slowThresholdMillis,
+        double sampleRate,
+        long slowStatements,
+        long sampledStatements
+    ) {
+    }
+
+}
@@ -0,0 +1,286 @@
+package kdodds.userservice.sql;
+
+import kdodds.userservice.config.SqlLogProperties;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs statements slower than the configured threshold, with their bind parameters and the repository method that
+ * issued them, and a sample of the faster ones. Nothing is formatted for a statement that is not logged, so the cost
+ * for a fast statement with sampling off is a comparison. Parameter values are masked unless parameter logging is
+ * turned on, and the values of the configured sensitive columns are masked even then.
+ */
+@Slf4j
+@Component
+public class SqlLogListener implements QueryExecutionListener {
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private static final String APPLICATION_PACKAGE = "kdodds.userservice.";
+
+    private static final String SQL_PACKAGE = SqlLogListener.class.getPackageName() + ".";
+
+    private static final String MASK = "***";
+
+    // words that can stand between a column and its placeholder, e.g. "email like ?" or "id in (?, ?)"
+    private static final Set<String> KEYWORDS = Set.of(
+        "all", "and", "any", "as", "asc", "between", "by", "case", "delete", "desc", "distinct", "else", "end",
+        "escape", "exists", "false", "fetch", "first", "for", "from", "group", "having", "ilike", "in", "inner",
+        "insert", "into", "is", "join", "left", "like", "limit", "next", "not", "null", "offset", "on", "only", "or",
+        "order", "returning", "rows", "select", "set", "similar", "some", "then", "to", "true", "union", "update",
+        "values", "when", "where", "with"
+    );
+
+    private final SqlLogProperties sqlLogProperties;
+
+    private final RepositoryMethodTracker repositoryMethodTracker;
+
+    private final LongAdder slowStatements = new LongAdder();
+
+    private final LongAdder sampledStatements = new LongAdder();
+
+    private volatile double sampleRate;
+
+    /**
+     * Constructor.
+     *
+     * @param sqlLogProperties Threshold and initial sample rate.
+     * @param repositoryMethodTracker Names the repository method behind a statement.
+     */
+    public SqlLogListener(SqlLogProperties sqlLogProperties, RepositoryMethodTracker repositoryMethodTracker) {
+        this.sqlLogProperties = sqlLogProperties;
+        this.repositoryMethodTracker = repositoryMethodTracker;
+        this.sampleRate = sqlLogProperties.getSampleRate();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (!sqlLogProperties.isEnabled()) {
+            return;
+        }
+
+        long elapsedMillis = execInfo.getElapsedTime();
+        if (elapsedMillis >= sqlLogProperties.getSlowThreshold().toMillis()) {
+            slowStatements.increment();
+            if (log.isWarnEnabled()) {
+                log.warn("Slow query took {} ms in {}: {}", elapsedMillis, caller(), describe(queryInfoList));
+            }
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            sampledStatements.increment();
+            if (log.isInfoEnabled()) {
+                log.info("Query took {} ms in {}: {}", elapsedMillis, caller(), describe(queryInfoList));
+            }
+        }
+    }
+
+    /**
+     * Gets the share of statements under the threshold that are logged.
+     *
+     * @return Sample rate between 0 and 1.
+     */
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Changes the share of statements under the threshold that are logged, takes effect for the next statement.
+     *
+     * @param sampleRate Sample rate between 0 and 1.
+     */
+    public void setSampleRate(double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException(
+                String.format("Sample rate must be between 0 and 1, was %s", sampleRate)
+            );
+        }
+
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Gets the number of statements logged for exceeding the threshold since startup.
+     *
+     * @return Slow statement count.
+     */
+    public long getSlowStatements() {
+        return slowStatements.sum();
+    }
+
+    /**
+     * Gets the number of statements logged by sampling since startup.
+     *
+     * @return Sampled statement count.
+     */
+    public long getSampledStatements() {
+        return sampledStatements.sum();
+    }
+
+    /**
+     * Renders the statements of one execution with their bind parameters, one parameter list per batch entry.
+     *
+     * @param queryInfoList The statements.
+     * @return The statements and parameters.
+     */
+    String describe(List<QueryInfo> queryInfoList) {
+        StringBuilder description = new StringBuilder();
+        for (QueryInfo queryInfo : queryInfoList) {
+            if (!description.isEmpty()) {
+                description.append("; ");
+            }
+            description.append(queryInfo.getQuery());
+
+            List<String> columns = sqlLogProperties.isLogParameters()
+                ? parameterColumns(queryInfo.getQuery())
+                : List.of();
+            for (List<ParameterSetOperation> parameters : queryInfo.getParametersList()) {
+                description.append(" [");
+                parameters.stream()
+                    .sorted(Comparator.comparing(SqlLogListener::parameterIndex))
+                    .forEach(parameter -> description.append(parameterValue(parameter, columns)).append(", "));
+                if (!parameters.isEmpty()) {
+                    description.setLength(description.length() - 2);
+                }
+                description.append(']');
+            }
+        }
+
+        return description.toString();
+    }
+
+    /**
+     * Names the column each positional placeholder of a statement is bound to: the column listed at its position in
+     * an insert, otherwise the last column named before it, e.g. email for "lower(u1_0.email) like lower(?)". Only
+     * meant to decide what to mask, a placeholder no column precedes is named null.
+     *
+     * @param sql The statement.
+     * @return The lower case column names, one per placeholder in order.
+     */
+    static List<String> parameterColumns(String sql) {
+        List<String> columns = new ArrayList<>();
+        List<String> insertColumns = new ArrayList<>();
+        boolean insert = sql.stripLeading().regionMatches(true, 0, "insert", 0, "insert".length());
+        boolean values = false;
+        int valuePosition = 0;
+        String column = null;
+
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                // literals are skipped, quoted identifiers are read as names
+                int end = sql.indexOf(c, i + 1);
+                end = end < 0 ? sql.length() : end;
+                if (c == '"') {
+                    column = sql.substring(i + 1, end).toLowerCase(Locale.ROOT);
+                    if (insert && !values) {
+                        insertColumns.add(column);
+                    }
+                }
+                i = end + 1;
+            } else if (Character.isLetter(c) || c == '_') {
+                int end = i;
+                while (end < sql.length() && isNamePart(sql.charAt(end))) {
+                    end++;
+                }
+                String word = sql.substring(i, end).toLowerCase(Locale.ROOT);
+                i = end;
+                while (end < sql.length() && Character.isWhitespace(sql.charAt(end))) {
+                    end++;
+                }
+
+                boolean function = end < sql.length() && sql.charAt(end) == '(';
+                if (insert && word.equals("values")) {
+                    values = true;
+                } else if (!KEYWORDS.contains(word) && (insert && !values || !function)) {
+                    // the part after the table alias names the column
+                    column = word.substring(word.lastIndexOf('.') + 1);
+                    if (insert && !values) {
+                        insertColumns.add(column);
+                    }
+                }
+            } else {
+                if (c == '?') {
+                    if (values) {
+                        // the first name of an insert is its table, the values of several rows repeat the columns
+                        int columnCount = insertColumns.size() - 1;
+                        columns.add(columnCount > 0 ? insertColumns.get(1 + valuePosition++ % columnCount) : null);
+                    } else {
+                        columns.add(column);
+                    }
+                }
+                i++;
+            }
+        }
+
+        return columns;
+    }
+
+    private String caller() {
+        String repositoryMethod = repositoryMethodTracker.current();
+        if (repositoryMethod != null) {
+            return repositoryMethod;
+        }
+
+        // statements outside a repository call, e.g. the flush at commit, are attributed to the closest application
+        // frame instead
+        Optional<String> frame = STACK_WALKER.walk(frames -> frames
+            .filter(f -> f.getClassName().startsWith(APPLICATION_PACKAGE) && !f.getClassName().startsWith(SQL_PACKAGE))
+            .findFirst()
+            .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1) + "." + f.getMethodName()));
+
+        return frame.orElse("unknown caller");
+    }
+
+    private String parameterValue(ParameterSetOperation parameter, List<String> columns) {
+        if (ParameterSetOperation.isSetNullParameterOperation(parameter)) {
+            return "null";
+        }
+        if (!sqlLogProperties.isLogParameters() || isMasked(parameter, columns)) {
+            return MASK;
+        }
+
+        Object[] args = parameter.getArgs();
+        String value = args.length > 1 ? String.valueOf(args[1]) : "";
+        int maxLength = sqlLogProperties.getMaxParameterLength();
+
+        return value.length() > maxLength ? value.substring(0, maxLength) + "..." : value;
+    }
+
+    private boolean isMasked(ParameterSetOperation parameter, List<String> columns) {
+        // named parameters of callable statements are checked by name, positional ones by their column
+        Object index = parameter.getArgs()[0];
+        String column = index instanceof Integer position
+            ? (position > 0 && position <= columns.size() ? columns.get(position - 1) : null)
+            : String.valueOf(index);
+
+        return column == null || sqlLogProperties.getMaskedColumns().stream().anyMatch(column::equalsIgnoreCase);
+    }
+
+    private static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '$';
+    }
+
+    private static String parameterIndex(ParameterSetOperation parameter) {
+        Object index = parameter.getArgs()[0];
+        // named parameters of callable statements sort by name, positional ones by position
+        return index instanceof Integer position ? String.format("%05d", position) : String.valueOf(index);
+    }
+
+}
@@ -0,0 +1,13 @@
+-- ======================================================
+-- OPTIMISTIC LOCKING
+-- ======================================================
+-- Every update bumps the row version and is conditional on the version the writer read
+-- (UPDATE ... WHERE id = ? AND version = ?), so concurrent PATCH requests cannot overwrite each other.
+ALTER TABLE users
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE user_profiles
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE user_addresses
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,15 @@
+-- ======================================================
+-- LISTING FILTER INDEXES
+-- ======================================================
+-- The listing filters match lower(column) LIKE '%value%'. A b-tree cannot serve a pattern with a leading wildcard,
+-- so every filtered page and count scanned users or user_profiles in full. Trigram GIN indexes on the lowercased
+-- columns answer those patterns for values of three or more characters.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_users_username_trgm ON users USING gin (lower(username) gin_trgm_ops);
+
+CREATE INDEX idx_users_email_trgm ON users USING gin (lower(email) gin_trgm_ops);
+
+CREATE INDEX idx_user_profiles_first_name_trgm ON user_profiles USING gin (lower(first_name) gin_trgm_ops);
+
+CREATE INDEX idx_user_profiles_last_name_trgm ON user_profiles USING gin (lower(last_name) gin_trgm_ops);
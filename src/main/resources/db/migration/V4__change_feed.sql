@@ -0,0 +1,15 @@
+-- ======================================================
+-- CHANGE FEED
+-- ======================================================
+-- GET /v1/users/changes pages through users by (updated_at, id). Profile and address writes touch the owning user's
+-- updated_at, so this one index finds every user whose aggregate changed since a cursor.
+CREATE INDEX idx_users_updated_at_id ON users (updated_at, id);
+
+-- Deleted users leave no row behind to be found by updated_at. Deletes record a tombstone instead, which is purged
+-- once it is older than the change feed retention (user-service.changes.tombstone-retention).
+CREATE TABLE user_tombstones (
+    user_id UUID PRIMARY KEY,
+    deleted_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX idx_user_tombstones_deleted_at_user_id ON user_tombstones (deleted_at, user_id);
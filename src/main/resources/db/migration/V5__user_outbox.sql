@@ -0,0 +1,14 @@
+-- ======================================================
+-- USER OUTBOX
+-- ======================================================
+-- Change events are written in the same transaction as the user, profile or address write they describe, then
+-- delivered and deleted by the dispatcher (kdodds.userservice.events). An event is never lost to a crash between the
+-- commit and the delivery; it may be delivered twice instead.
+CREATE TABLE user_outbox (
+    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    event_type VARCHAR(32) NOT NULL,
+    user_id UUID NOT NULL,
+    address_id UUID,
+    occurred_at TIMESTAMPTZ NOT NULL,
+    attempts INT NOT NULL DEFAULT 0
+);
@@ -0,0 +1,11 @@
+-- ======================================================
+-- USER OUTBOX LOCK
+-- ======================================================
+-- Each drain of the user outbox locks this row with SELECT ... FOR UPDATE SKIP LOCKED and holds it until the drain is
+-- over. An instance that finds it locked skips its drain, so only one instance delivers events at a time and the
+-- events of a user stay in order. The lock goes with the transaction, a crashed drainer cannot leave it behind.
+CREATE TABLE user_outbox_lock (
+    name VARCHAR(64) PRIMARY KEY
+);
+
+INSERT INTO user_outbox_lock (name) VALUES ('user-outbox-dispatcher');
@@ -0,0 +1,132 @@
+package kdodds.userservice.concurrency;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SpringBootTest
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = Duration.ofMillis(1).toNanos();
+
+    private static final long SLOW = Duration.ofSeconds(1).toNanos();
+
+    /**
+     * Test that requests over the limit are rejected and counted.
+     */
+    @Test
+    public void testTryAcquire_OverLimit_Rejects() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, Duration.ofMillis(100));
+
+        Assertions.assertTrue(limiter.tryAcquire());
+        Assertions.assertTrue(limiter.tryAcquire());
+        Assertions.assertFalse(limiter.tryAcquire());
+        Assertions.assertEquals(2, limiter.getInFlight());
+        Assertions.assertEquals(1, limiter.getRejected());
+    }
+
+    /**
+     * Test that fast completions while the limiter is saturated grow the limit additively.
+     */
+    @Test
+    public void testOnSuccess_FastAndSaturated_IncreasesLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, Duration.ofMillis(100));
+
+        // four saturated round trips at limit 2 add 0.5 each
+        for (int i = 0; i < 2; i++) {
+            limiter.tryAcquire();
+            limiter.tryAcquire();
+            limiter.onSuccess(FAST);
+            limiter.onSuccess(FAST);
+        }
+
+        Assertions.assertEquals(3, limiter.getLimit());
+        Assertions.assertEquals(0, limiter.getInFlight());
+    }
+
+    /**
+     * Test that fast completions on an idle limiter do not inflate the limit.
+     */
+    @Test
+    public void testOnSuccess_Idle_KeepsLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 20, Duration.ofMillis(100));
+
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire();
+            limiter.onSuccess(FAST);
+        }
+
+        Assertions.assertEquals(10, limiter.getLimit());
+    }
+
+    /**
+     * Test that slow completions and drops cut the limit but never below the minimum.
+     */
+    @Test
+    public void testOnSuccessSlowAndOnDropped_DecreaseLimitToMin() {
+        AtomicLong clock = new AtomicLong();
+        AdaptiveConcurrencyLimiter limiter =
+            new AdaptiveConcurrencyLimiter(10, 3, 20, Duration.ofMillis(100), clock::get);
+
+        limiter.tryAcquire();
+        limiter.onSuccess(SLOW);
+        Assertions.assertEquals(9, limiter.getLimit());
+
+        // each request starts after the previous cut
+        for (int i = 0; i < 50; i++) {
+            clock.addAndGet(2 * FAST);
+            limiter.tryAcquire();
+            limiter.onDropped(FAST);
+        }
+        Assertions.assertEquals(3, limiter.getLimit());
+        Assertions.assertEquals(0, limiter.getInFlight());
+    }
+
+    /**
+     * Test that a burst of slow completions of requests that were all in flight together cuts the limit only once,
+     * and that a request started after the cut can cut it again.
+     */
+    @Test
+    public void testOnSuccess_SlowBurst_DecreasesLimitOncePerRoundTrip() {
+        AtomicLong clock = new AtomicLong(SLOW);
+        AdaptiveConcurrencyLimiter limiter =
+            new AdaptiveConcurrencyLimiter(10, 1, 20, Duration.ofMillis(100), clock::get);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+        }
+        clock.addAndGet(SLOW);
+        for (int i = 0; i < 5; i++) {
+            limiter.onSuccess(SLOW);
+        }
+        clock.addAndGet(FAST);
+        for (int i = 0; i < 4; i++) {
+            limiter.onDropped(SLOW + FAST);
+        }
+        Assertions.assertEquals(9, limiter.getLimit());
+
+        limiter.onSuccess(SLOW);
+        limiter.tryAcquire();
+        clock.addAndGet(SLOW);
+        limiter.onSuccess(SLOW - FAST);
+        Assertions.assertEquals(8, limiter.getLimit());
+        Assertions.assertEquals(0, limiter.getInFlight());
+    }
+
+    /**
+     * Test that endpoint groups are classified by method and path.
+     */
+    @Test
+    public void testEndpointGroupClassify() {
+        Assertions.assertEquals(EndpointGroup.LISTING, EndpointGroup.classify("GET", "/v1/users"));
+        Assertions.assertEquals(EndpointGroup.LISTING, EndpointGroup.classify("GET", "/v1/users/changes"));
+        Assertions.assertEquals(EndpointGroup.SINGLE_READ, EndpointGroup.classify("GET", "/v1/users/abc/profile"));
+        Assertions.assertEquals(EndpointGroup.WRITE, EndpointGroup.classify("POST", "/v1/users"));
+        Assertions.assertEquals(EndpointGroup.WRITE, EndpointGroup.classify("PATCH", "/v1/users/abc"));
+        Assertions.assertNull(EndpointGroup.classify("GET", "/actuator/health"));
+    }
+
+}
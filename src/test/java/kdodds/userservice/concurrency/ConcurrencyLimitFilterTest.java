@@ -0,0 +1,72 @@
+package kdodds.userservice.concurrency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import kdodds.userservice.config.ConcurrencyLimitProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+@SpringBootTest
+public class ConcurrencyLimitFilterTest {
+
+    private EndpointConcurrencyLimiters limiters;
+
+    private ConcurrencyLimitFilter filter;
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.setRetryAfter(Duration.ofSeconds(2));
+        properties.setSingleRead(new ConcurrencyLimitProperties.Limit(1, 1, 1, Duration.ofSeconds(1)));
+
+        limiters = new EndpointConcurrencyLimiters(properties);
+        filter = new ConcurrencyLimitFilter(limiters, properties, new ObjectMapper());
+    }
+
+    /**
+     * Test that a request under the limit passes through and releases its slot.
+     */
+    @Test
+    public void testDoFilter_UnderLimit_PassesThrough() throws Exception {
+        FilterChain chain = Mockito.mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/v1/users/abc"), response, chain);
+
+        Mockito.verify(chain).doFilter(Mockito.any(), Mockito.any());
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals(0, limiters.get(EndpointGroup.SINGLE_READ).getInFlight());
+    }
+
+    /**
+     * Test that a request over the limit is shed with a 503 and a Retry-After header.
+     */
+    @Test
+    public void testDoFilter_OverLimit_Returns503WithRetryAfter() throws Exception {
+        // hold the only single read slot
+        limiters.get(EndpointGroup.SINGLE_READ).tryAcquire();
+
+        FilterChain chain = Mockito.mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/v1/users/abc/profile"), response, chain);
+
+        Mockito.verifyNoInteractions(chain);
+        Assertions.assertEquals(503, response.getStatus());
+        Assertions.assertEquals("2", response.getHeader(HttpHeaders.RETRY_AFTER));
+        Assertions.assertTrue(response.getContentAsString().contains("Too many concurrent requests"));
+        Assertions.assertEquals(1, limiters.get(EndpointGroup.SINGLE_READ).getRejected());
+    }
+
+}
@@ -0,0 +1,63 @@
+package kdodds.userservice.concurrency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kdodds.userservice.exceptions.models.exceptions.DatabaseBusyException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+
+@SpringBootTest
+public class DatabaseConcurrencyLimiterTest {
+
+    /**
+     * Test that acquire and release hand permits out and back.
+     */
+    @Test
+    public void testAcquireAndRelease_TracksAvailablePermits() {
+        DatabaseConcurrencyLimiter limiter = new DatabaseConcurrencyLimiter(2, Duration.ofMillis(10));
+
+        limiter.acquire();
+        Assertions.assertEquals(1, limiter.availablePermits());
+
+        limiter.acquire();
+        Assertions.assertEquals(0, limiter.availablePermits());
+
+        limiter.release();
+        limiter.release();
+        Assertions.assertEquals(2, limiter.availablePermits());
+        Assertions.assertEquals(2, limiter.getMaxConcurrent());
+    }
+
+    /**
+     * Test that acquire throws a DatabaseBusyException once all permits are held and the timeout elapses.
+     */
+    @Test
+    public void testAcquire_NoPermitsAvailable_ThrowsDatabaseBusyException() {
+        DatabaseConcurrencyLimiter limiter = new DatabaseConcurrencyLimiter(1, Duration.ofMillis(10));
+        limiter.acquire();
+
+        Assertions.assertThrows(DatabaseBusyException.class, limiter::acquire);
+        Assertions.assertEquals(0, limiter.availablePermits());
+    }
+
+    /**
+     * Test that waits for a permit are timed and timeouts counted once metrics are bound.
+     */
+    @Test
+    public void testBindTo_RecordsWaitsAndTimeouts() {
+        DatabaseConcurrencyLimiter limiter = new DatabaseConcurrencyLimiter(1, Duration.ofMillis(10));
+        MeterRegistry registry = new SimpleMeterRegistry();
+        limiter.bindTo(registry);
+
+        limiter.acquire();
+        Assertions.assertThrows(DatabaseBusyException.class, limiter::acquire);
+
+        Assertions.assertEquals(2, registry.get("userservice.db.permit.wait").timer().count());
+        Assertions.assertEquals(1, registry.get("userservice.db.permit.timeouts").functionCounter().count());
+        Assertions.assertEquals(0, registry.get("userservice.db.permits.available").gauge().value());
+    }
+
+}
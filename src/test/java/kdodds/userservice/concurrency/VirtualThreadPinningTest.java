@@ -0,0 +1,168 @@
+package kdodds.userservice.concurrency;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.entities.UserProfile;
+import kdodds.userservice.repositories.UserRepository;
+import kdodds.userservice.utils.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Drives the read endpoints from many virtual threads at once, with fewer database permits than callers, and uses a
+ * JFR stream to assert that no virtual thread gets pinned to its carrier anywhere in the request path.
+ */
+@SpringBootTest(properties = {
+    "user-service.db.max-concurrent-calls=2",
+    // show-sql prints through the test runner's synchronized stdout redirector, which pins on its own
+    "spring.jpa.show-sql=false",
+    // keep load shedding out of the way, every request should make it to the database
+    "user-service.concurrency.listing.max-limit=1000",
+    "user-service.concurrency.listing.initial-limit=1000",
+    "user-service.concurrency.listing.latency-threshold=1m",
+    "user-service.concurrency.single-read.max-limit=1000",
+    "user-service.concurrency.single-read.initial-limit=1000",
+    "user-service.concurrency.single-read.latency-threshold=1m"
+})
+@AutoConfigureMockMvc
+public class VirtualThreadPinningTest {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final int REQUESTS = 200;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private String userId;
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        User user = new User();
+        user.setUsername(TestDataFactory.TEST_USER_USERNAME);
+        user.setEmail(TestDataFactory.TEST_USER_EMAIL);
+        user.setPasswordHash(TestDataFactory.TEST_USER_PASSWORD);
+        user.setStatus("ACTIVE");
+        user.setCreatedAt(Instant.now());
+        user.setUpdatedAt(Instant.now());
+
+        UserProfile profile = new UserProfile();
+        profile.setFirstName(TestDataFactory.TEST_USER_FIRST_NAME);
+        profile.setLastName(TestDataFactory.TEST_USER_LAST_NAME);
+        profile.setPhoneNumber(TestDataFactory.TEST_USER_PHONE_NUMBER);
+        profile.setCreatedAt(Instant.now());
+        profile.setUpdatedAt(Instant.now());
+        user.setUserProfile(profile);
+
+        UserAddress address = new UserAddress();
+        address.setAddressLine1(TestDataFactory.TEST_USER_ADDRESS_LINE_1);
+        address.setCity(TestDataFactory.TEST_USER_CITY);
+        address.setState(TestDataFactory.TEST_USER_STATE);
+        address.setZipCode(TestDataFactory.TEST_USER_ZIP_CODE);
+        address.setCountry(TestDataFactory.TEST_USER_COUNTRY);
+        address.setCreatedAt(Instant.now());
+        address.setUpdatedAt(Instant.now());
+        user.addAddress(address);
+
+        userId = userRepository.save(user).getId().toString();
+    }
+
+    /**
+     * Clean up after each test.
+     */
+    @AfterEach
+    public void teardown() {
+        userRepository.deleteAll();
+    }
+
+    /**
+     * Test that concurrent reads on virtual threads complete without any jdk.VirtualThreadPinned events.
+     */
+    @Test
+    public void testReadEndpoints_OnVirtualThreads_NoPinning() throws Exception {
+        // one sequential pass first, so one-off framework cache fills (synchronized computeIfAbsent) aren't recorded
+        for (String path : paths()) {
+            mockMvc.perform(get(path)).andExpect(status().isOk());
+        }
+
+        List<RecordedEvent> pinnedEvents = new CopyOnWriteArrayList<>();
+
+        try (RecordingStream stream = new RecordingStream()) {
+            // threshold of zero so that even short pins are reported
+            stream.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            stream.onEvent(PINNED_EVENT, pinnedEvents::add);
+            stream.startAsync();
+
+            List<Future<?>> results = new ArrayList<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < REQUESTS; i++) {
+                    String path = paths().get(i % 4);
+                    results.add(executor.submit(() -> {
+                        mockMvc.perform(get(path)).andExpect(status().isOk());
+                        return null;
+                    }));
+                }
+            }
+
+            // surface any failed request before looking at the recording
+            for (Future<?> result : results) {
+                result.get();
+            }
+
+            // stop flushes any buffered events to the handler
+            stream.stop();
+        }
+
+        Assertions.assertTrue(
+            pinnedEvents.isEmpty(),
+            () -> "Virtual threads were pinned in the request path: " + pinnedEvents.stream()
+                .map(VirtualThreadPinningTest::describe)
+                .toList()
+        );
+    }
+
+    private List<String> paths() {
+        return List.of(
+            "/v1/users/" + userId,
+            "/v1/users/" + userId + "/profile",
+            "/v1/users/" + userId + "/addresses",
+            "/v1/users"
+        );
+    }
+
+    // RecordedEvent.toString() cuts the stack after five frames, which is always inside the JDK's park code
+    private static String describe(RecordedEvent event) {
+        return event.getStackTrace().getFrames().stream()
+            .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber())
+            .collect(Collectors.joining("\n    ", "\n    ", "\n"));
+    }
+
+}
@@ -0,0 +1,249 @@
+package kdodds.userservice.controllers.v1;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import kdodds.userservice.config.JacksonConfig;
+import kdodds.userservice.dto.requests.CreateUserRequestDto;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.entities.UserProfile;
+import kdodds.userservice.repositories.UserRepository;
+import kdodds.userservice.services.UserService;
+import kdodds.userservice.utils.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the controllers read and write CBOR and Smile bodies with the same snake case properties as JSON.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BinaryFormatTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CBORMapper cborMapper;
+
+    @Autowired
+    private SmileMapper smileMapper;
+
+    @MockitoSpyBean
+    private UserService userService;
+
+    private String userId;
+
+    private String addressId;
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        User user = new User();
+        user.setUsername(TestDataFactory.TEST_USER_USERNAME);
+        user.setEmail(TestDataFactory.TEST_USER_EMAIL);
+        user.setPasswordHash(TestDataFactory.TEST_USER_PASSWORD);
+        user.setStatus("ACTIVE");
+        user.setCreatedAt(Instant.now());
+        user.setUpdatedAt(Instant.now());
+
+        UserProfile profile = new UserProfile();
+        profile.setFirstName(TestDataFactory.TEST_USER_FIRST_NAME);
+        profile.setLastName(TestDataFactory.TEST_USER_LAST_NAME);
+        profile.setCreatedAt(Instant.now());
+        profile.setUpdatedAt(Instant.now());
+        user.setUserProfile(profile);
+
+        UserAddress address = new UserAddress();
+        address.setAddressLine1(TestDataFactory.TEST_USER_ADDRESS_LINE_1);
+        address.setCity(TestDataFactory.TEST_USER_CITY);
+        address.setCountry(TestDataFactory.TEST_USER_COUNTRY);
+        address.setCreatedAt(Instant.now());
+        address.setUpdatedAt(Instant.now());
+        user.addAddress(address);
+
+        User saved = userRepository.save(user);
+        userId = saved.getId().toString();
+        addressId = saved.getAddresses().get(0).getId().toString();
+    }
+
+    /**
+     * Clean up after each test.
+     */
+    @AfterEach
+    public void teardown() {
+        userRepository.deleteAll();
+    }
+
+    /**
+     * Test application/cbor gets the plain user record encoded as CBOR, with snake case keys and ISO-8601 dates.
+     */
+    @Test
+    public void testGetUser_AcceptCbor_ReturnsCbor() throws Exception {
+        JsonNode body = read(cborMapper, get("/v1/users/" + userId), MediaType.APPLICATION_CBOR);
+
+        Assertions.assertEquals(userId, body.get("user_id").asText());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_FIRST_NAME, body.get("first_name").asText());
+        Assertions.assertEquals(
+            TestDataFactory.TEST_USER_ADDRESS_LINE_1,
+            body.get("addresses").get(0).get("address_line_1").asText()
+        );
+        Assertions.assertTrue(body.get("created_at").isTextual());
+        Assertions.assertNull(body.get("_links"));
+    }
+
+    /**
+     * Test application/x-jackson-smile gets the plain user record encoded as Smile.
+     */
+    @Test
+    public void testGetUser_AcceptSmile_ReturnsSmile() throws Exception {
+        JsonNode body = read(smileMapper, get("/v1/users/" + userId), JacksonConfig.APPLICATION_SMILE);
+
+        Assertions.assertEquals(userId, body.get("user_id").asText());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_LAST_NAME, body.get("last_name").asText());
+        Assertions.assertNull(body.get("_links"));
+    }
+
+    /**
+     * Test the streamed listing, the profile and the addresses are encoded in the requested binary format.
+     */
+    @Test
+    public void testOtherReads_AcceptBinary_ReturnBinary() throws Exception {
+        JsonNode page = read(cborMapper, get("/v1/users"), MediaType.APPLICATION_CBOR);
+        Assertions.assertEquals(userId, page.get("users").get(0).get("user_id").asText());
+        Assertions.assertEquals(1, page.get("page").get("total_elements").asInt());
+
+        JsonNode smilePage = read(smileMapper, get("/v1/users"), JacksonConfig.APPLICATION_SMILE);
+        Assertions.assertEquals(userId, smilePage.get("users").get(0).get("user_id").asText());
+
+        JsonNode profile = read(smileMapper, get("/v1/users/" + userId + "/profile"), JacksonConfig.APPLICATION_SMILE);
+        Assertions.assertEquals(TestDataFactory.TEST_USER_LAST_NAME, profile.get("last_name").asText());
+
+        JsonNode addresses = read(cborMapper, get("/v1/users/" + userId + "/addresses"), MediaType.APPLICATION_CBOR);
+        Assertions.assertEquals(TestDataFactory.TEST_USER_CITY, addresses.get("addresses").get(0).get("city").asText());
+    }
+
+    /**
+     * Test a CBOR request body is read with the snake case property names, and the HAL response of a write is encoded
+     * as CBOR too.
+     */
+    @Test
+    public void testUpdateUser_CborBody_UpdatesUser() throws Exception {
+        MvcResult result = mockMvc.perform(patch("/v1/users/" + userId)
+                .contentType(MediaType.APPLICATION_CBOR)
+                .content(cborMapper.writeValueAsBytes(Map.of("first_name", "Casey")))
+                .accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+            .andReturn();
+
+        JsonNode body = cborMapper.readTree(result.getResponse().getContentAsByteArray());
+        Assertions.assertEquals("Casey", body.get("first_name").asText());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_LAST_NAME, body.get("last_name").asText());
+    }
+
+    /**
+     * Test creating a user answers with the created user in CBOR when the caller accepts only CBOR. The insert itself
+     * is PostgreSQL only, so the service is stubbed.
+     */
+    @Test
+    public void testCreateUser_AcceptCbor_ReturnsCbor() throws Exception {
+        CreateUserRequestDto request = CreateUserRequestDto.builder()
+            .username("binary.user")
+            .email("binary.user@example.com")
+            .password(TestDataFactory.TEST_USER_PASSWORD)
+            .firstName(TestDataFactory.TEST_USER_FIRST_NAME)
+            .lastName(TestDataFactory.TEST_USER_LAST_NAME)
+            .phoneNumber(TestDataFactory.TEST_USER_PHONE_NUMBER)
+            .address(TestDataFactory.createUserAddressRequestDto())
+            .build();
+        Mockito.doReturn(TestDataFactory.createTestUserResponseDto())
+            .when(userService)
+            .createUserAndProfileAndAddress(Mockito.argThat(created -> "binary.user".equals(created.getUsername())));
+
+        MvcResult result = mockMvc.perform(post("/v1/users")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .content(cborMapper.writeValueAsBytes(request))
+                .accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isCreated())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+            .andReturn();
+
+        JsonNode body = cborMapper.readTree(result.getResponse().getContentAsByteArray());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_USERNAME, body.get("username").asText());
+    }
+
+    /**
+     * Test the address writes answer in the binary format the caller accepts.
+     */
+    @Test
+    public void testAddressWrites_AcceptBinary_ReturnBinary() throws Exception {
+        MvcResult created = mockMvc.perform(post("/v1/users/" + userId + "/addresses")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .content(cborMapper.writeValueAsBytes(TestDataFactory.createCreateUserAddressRequestDto()))
+                .accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isCreated())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+            .andReturn();
+        Assertions.assertEquals(
+            TestDataFactory.TEST_USER_CITY,
+            cborMapper.readTree(created.getResponse().getContentAsByteArray()).get("city").asText()
+        );
+
+        MvcResult updated = mockMvc.perform(patch("/v1/users/" + userId + "/addresses/" + addressId)
+                .contentType(JacksonConfig.APPLICATION_SMILE)
+                .content(smileMapper.writeValueAsBytes(Map.of("city", "Springfield")))
+                .accept(JacksonConfig.APPLICATION_SMILE))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(JacksonConfig.APPLICATION_SMILE))
+            .andReturn();
+        Assertions.assertEquals(
+            "Springfield",
+            smileMapper.readTree(updated.getResponse().getContentAsByteArray()).get("city").asText()
+        );
+    }
+
+    private JsonNode read(
+        ObjectMapper mapper,
+        MockHttpServletRequestBuilder request,
+        MediaType mediaType
+    ) throws Exception {
+        MvcResult result = mockMvc.perform(request.accept(mediaType))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(mediaType))
+            .andReturn();
+
+        return mapper.readTree(result.getResponse().getContentAsByteArray());
+    }
+
+}
@@ -0,0 +1,256 @@
+package kdodds.userservice.controllers.v1;
+
+import kdodds.userservice.config.JacksonConfig;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.entities.UserProfile;
+import kdodds.userservice.repositories.UserRepository;
+import kdodds.userservice.utils.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the read endpoints pick the HAL or the plain JSON handler from the Accept header, and that caches can tell
+ * the representations apart.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ContentNegotiationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private String userId;
+
+    private String addressId;
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        User user = new User();
+        user.setUsername(TestDataFactory.TEST_USER_USERNAME);
+        user.setEmail(TestDataFactory.TEST_USER_EMAIL);
+        user.setPasswordHash(TestDataFactory.TEST_USER_PASSWORD);
+        user.setStatus("ACTIVE");
+        user.setCreatedAt(Instant.now());
+        user.setUpdatedAt(Instant.now());
+
+        UserProfile profile = new UserProfile();
+        profile.setFirstName(TestDataFactory.TEST_USER_FIRST_NAME);
+        profile.setLastName(TestDataFactory.TEST_USER_LAST_NAME);
+        profile.setCreatedAt(Instant.now());
+        profile.setUpdatedAt(Instant.now());
+        user.setUserProfile(profile);
+
+        UserAddress address = new UserAddress();
+        address.setAddressLine1(TestDataFactory.TEST_USER_ADDRESS_LINE_1);
+        address.setCity(TestDataFactory.TEST_USER_CITY);
+        address.setCountry(TestDataFactory.TEST_USER_COUNTRY);
+        address.setCreatedAt(Instant.now());
+        address.setUpdatedAt(Instant.now());
+        user.addAddress(address);
+
+        User saved = userRepository.save(user);
+        userId = saved.getId().toString();
+        addressId = saved.getAddresses().get(0).getId().toString();
+    }
+
+    /**
+     * Clean up after each test.
+     */
+    @AfterEach
+    public void teardown() {
+        userRepository.deleteAll();
+    }
+
+    /**
+     * Test a request without an Accept header still gets the HAL representation.
+     */
+    @Test
+    public void testGetUser_NoAccept_ReturnsHal() throws Exception {
+        mockMvc.perform(get("/v1/users/" + userId))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaTypes.HAL_JSON))
+            .andExpect(jsonPath("$._links.self.href").exists());
+    }
+
+    /**
+     * Test application/hal+json gets the HAL representation, with links on the nested addresses.
+     */
+    @Test
+    public void testGetUser_AcceptHal_ReturnsHal() throws Exception {
+        mockMvc.perform(get("/v1/users/" + userId).accept(MediaTypes.HAL_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaTypes.HAL_JSON))
+            .andExpect(jsonPath("$._links.profile.href").exists())
+            .andExpect(jsonPath("$.addresses[0]._links.self.href").exists());
+    }
+
+    /**
+     * Test application/json gets the plain representation: same fields, no links anywhere, and its own ETag.
+     */
+    @Test
+    public void testGetUser_AcceptJson_ReturnsPlainJson() throws Exception {
+        MvcResult hal = mockMvc.perform(get("/v1/users/" + userId).accept(MediaTypes.HAL_JSON)).andReturn();
+
+        MvcResult plain = mockMvc.perform(get("/v1/users/" + userId).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.user_id").value(userId))
+            .andExpect(jsonPath("$.first_name").value(TestDataFactory.TEST_USER_FIRST_NAME))
+            .andExpect(jsonPath("$.addresses[0].address_line_1").value(TestDataFactory.TEST_USER_ADDRESS_LINE_1))
+            .andExpect(jsonPath("$._links").doesNotExist())
+            .andExpect(jsonPath("$.links").doesNotExist())
+            .andExpect(jsonPath("$.addresses[0]._links").doesNotExist())
+            .andReturn();
+
+        String plainEtag = plain.getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotNull(plainEtag);
+        Assertions.assertNotEquals(hal.getResponse().getHeader(HttpHeaders.ETAG), plainEtag);
+
+        mockMvc.perform(get("/v1/users/" + userId)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, plainEtag))
+            .andExpect(status().isNotModified());
+    }
+
+    /**
+     * Test the listing, profile and address endpoints also serve plain JSON for application/json.
+     */
+    @Test
+    public void testOtherReads_AcceptJson_ReturnPlainJson() throws Exception {
+        mockMvc.perform(get("/v1/users").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.users[0].user_id").value(userId))
+            .andExpect(jsonPath("$.page.total_elements").value(1))
+            .andExpect(jsonPath("$._links").doesNotExist());
+
+        mockMvc.perform(get("/v1/users/" + userId + "/profile").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.last_name").value(TestDataFactory.TEST_USER_LAST_NAME))
+            .andExpect(jsonPath("$._links").doesNotExist());
+
+        mockMvc.perform(get("/v1/users/" + userId + "/addresses").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.addresses[0].address_id").value(addressId))
+            .andExpect(jsonPath("$._links").doesNotExist());
+
+        mockMvc.perform(get("/v1/users/" + userId + "/addresses/" + addressId).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"0.j\""))
+            .andExpect(jsonPath("$.city").value(TestDataFactory.TEST_USER_CITY))
+            .andExpect(jsonPath("$._links").doesNotExist());
+    }
+
+    /**
+     * Test JSON, CBOR and Smile bodies of the same resource each get their own ETag, and an ETag of one of them does
+     * not revalidate another.
+     */
+    @Test
+    public void testGetUser_EachPlainMediaType_HasOwnEtag() throws Exception {
+        List<MediaType> mediaTypes = List.of(
+            MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_CBOR,
+            JacksonConfig.APPLICATION_SMILE
+        );
+
+        Set<String> etags = new HashSet<>();
+        for (MediaType mediaType : mediaTypes) {
+            etags.add(mockMvc.perform(get("/v1/users/" + userId).accept(mediaType))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG));
+        }
+        Assertions.assertEquals(mediaTypes.size(), etags.size());
+
+        String jsonEtag = mockMvc.perform(get("/v1/users/" + userId).accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/v1/users/" + userId)
+                .accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, jsonEtag))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR));
+    }
+
+    /**
+     * Test the ETag follows the media type the Accept header selects when it lists several with qualities.
+     */
+    @Test
+    public void testGetAddress_WeightedAccept_EtagMatchesSelectedType() throws Exception {
+        mockMvc.perform(get("/v1/users/" + userId + "/addresses/" + addressId)
+                .header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/cbor"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+            .andExpect(header().string(HttpHeaders.ETAG, "\"0.c\""));
+
+        mockMvc.perform(get("/v1/users/" + userId + "/addresses/" + addressId)
+                .header(HttpHeaders.ACCEPT, "application/x-jackson-smile, application/json;q=0.9"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(JacksonConfig.APPLICATION_SMILE))
+            .andExpect(header().string(HttpHeaders.ETAG, "\"0.s\""));
+    }
+
+    /**
+     * Test every negotiated read says its body depends on the Accept header, revalidated ones included.
+     */
+    @Test
+    public void testReads_VaryOnAccept() throws Exception {
+        List<String> paths = List.of(
+            "/v1/users",
+            "/v1/users/" + userId,
+            "/v1/users/" + userId + "/profile",
+            "/v1/users/" + userId + "/addresses",
+            "/v1/users/" + userId + "/addresses/" + addressId
+        );
+
+        for (String path : paths) {
+            for (MediaType mediaType : List.of(MediaTypes.HAL_JSON, MediaType.APPLICATION_JSON)) {
+                mockMvc.perform(get(path).accept(mediaType))
+                    .andExpect(status().isOk())
+                    .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+            }
+        }
+
+        String etag = mockMvc.perform(get("/v1/users/" + userId).accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/v1/users/" + userId)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+    }
+
+}
@@ -0,0 +1,250 @@
+package kdodds.userservice.controllers.v1;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import kdodds.userservice.config.JacksonConfig;
+import kdodds.userservice.config.ListingProperties;
+import kdodds.userservice.utils.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.UUID;
+
+/**
+ * Runs the application in reactive mode against an in-memory H2 database over R2DBC and checks the read endpoints
+ * return the same bodies as the servlet stack.
+ */
+@SpringBootTest(properties = {
+    "spring.r2dbc.url=r2dbc:h2:mem:///reactiveusersdb;DB_CLOSE_DELAY=-1",
+    "spring.r2dbc.username=sa",
+    "spring.r2dbc.password=",
+    "spring.sql.init.mode=always",
+    "spring.sql.init.schema-locations=classpath:db/reactive-test-schema.sql"
+})
+@ActiveProfiles({"test", "reactive"})
+@AutoConfigureWebTestClient
+public class ReactiveUserReadControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private ListingProperties listingProperties;
+
+    @Autowired
+    private CBORMapper cborMapper;
+
+    @Autowired
+    private SmileMapper smileMapper;
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        UUID userId = UUID.fromString(TestDataFactory.TEST_USER_ID);
+
+        databaseClient.sql("""
+                INSERT INTO users (id, username, email, password_hash, status)
+                VALUES (:id, :username, :email, :password, 'ACTIVE')
+                """)
+            .bind("id", userId)
+            .bind("username", TestDataFactory.TEST_USER_USERNAME)
+            .bind("email", TestDataFactory.TEST_USER_EMAIL)
+            .bind("password", TestDataFactory.TEST_USER_PASSWORD)
+            .then()
+            .block();
+
+        databaseClient.sql("""
+                INSERT INTO user_profiles (user_id, first_name, last_name, phone_number)
+                VALUES (:id, :firstName, :lastName, :phoneNumber)
+                """)
+            .bind("id", userId)
+            .bind("firstName", TestDataFactory.TEST_USER_FIRST_NAME)
+            .bind("lastName", TestDataFactory.TEST_USER_LAST_NAME)
+            .bind("phoneNumber", TestDataFactory.TEST_USER_PHONE_NUMBER)
+            .then()
+            .block();
+
+        databaseClient.sql("""
+                INSERT INTO user_addresses (id, user_id, address_type, address_line_1, city, state, zip_code, country)
+                VALUES (:addressId, :id, :type, :line1, :city, :state, :zip, :country)
+                """)
+            .bind("addressId", UUID.fromString(TestDataFactory.TEST_ADDRESS_ID_1))
+            .bind("id", userId)
+            .bind("type", TestDataFactory.TEST_USER_ADDRESS_TYPE)
+            .bind("line1", TestDataFactory.TEST_USER_ADDRESS_LINE_1)
+            .bind("city", TestDataFactory.TEST_USER_CITY)
+            .bind("state", TestDataFactory.TEST_USER_STATE)
+            .bind("zip", TestDataFactory.TEST_USER_ZIP_CODE)
+            .bind("country", TestDataFactory.TEST_USER_COUNTRY)
+            .then()
+            .block();
+    }
+
+    /**
+     * Cleanup after each test.
+     */
+    @AfterEach
+    public void cleanup() {
+        databaseClient.sql("DELETE FROM users").then().block();
+    }
+
+    /**
+     * Test getting a user by id returns the profile fields and addresses.
+     */
+    @Test
+    public void testGetUserByUserId() {
+        webTestClient.get().uri("/v1/users/{userId}", TestDataFactory.TEST_USER_ID)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.user_id").isEqualTo(TestDataFactory.TEST_USER_ID)
+            .jsonPath("$.username").isEqualTo(TestDataFactory.TEST_USER_USERNAME)
+            .jsonPath("$.first_name").isEqualTo(TestDataFactory.TEST_USER_FIRST_NAME)
+            .jsonPath("$.addresses.length()").isEqualTo(1)
+            .jsonPath("$.addresses[0].city").isEqualTo(TestDataFactory.TEST_USER_CITY);
+    }
+
+    /**
+     * Test the reactive reads say their body depends on the Accept header.
+     */
+    @Test
+    public void testGetUserByUserId_VaryOnAccept() {
+        webTestClient.get().uri("/v1/users/{userId}", TestDataFactory.TEST_USER_ID)
+            .accept(MediaType.APPLICATION_CBOR)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().values(HttpHeaders.VARY, vary -> Assertions.assertTrue(vary.contains(HttpHeaders.ACCEPT)));
+    }
+
+    /**
+     * Test the binary formats are served by the reactive stack with the same snake case properties.
+     */
+    @Test
+    public void testGetUserByUserId_BinaryFormats() throws Exception {
+        byte[] cbor = webTestClient.get().uri("/v1/users/{userId}", TestDataFactory.TEST_USER_ID)
+            .accept(MediaType.APPLICATION_CBOR)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR)
+            .expectBody(byte[].class).returnResult().getResponseBody();
+        Assertions.assertEquals(TestDataFactory.TEST_USER_ID, cborMapper.readTree(cbor).get("user_id").asText());
+
+        byte[] smile = webTestClient.get().uri("/v1/users/{userId}/profile", TestDataFactory.TEST_USER_ID)
+            .accept(JacksonConfig.APPLICATION_SMILE)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(JacksonConfig.APPLICATION_SMILE)
+            .expectBody(byte[].class).returnResult().getResponseBody();
+        Assertions.assertEquals(
+            TestDataFactory.TEST_USER_FIRST_NAME,
+            smileMapper.readTree(smile).get("first_name").asText()
+        );
+    }
+
+    /**
+     * Test getting an unknown user returns a 404 through the shared exception handler.
+     */
+    @Test
+    public void testGetUserByUserIdNotFound() {
+        webTestClient.get().uri("/v1/users/{userId}", UUID.randomUUID())
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody()
+            .jsonPath("$.status").isEqualTo(404);
+    }
+
+    /**
+     * Test a malformed user id is rejected with a 400 instead of failing conversion with a 500.
+     */
+    @Test
+    public void testGetUserByUserIdMalformed() {
+        webTestClient.get().uri("/v1/users/{userId}", "not-a-uuid")
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.status").isEqualTo(400);
+    }
+
+    /**
+     * Test getting a user's profile.
+     */
+    @Test
+    public void testGetUserProfileByUserId() {
+        webTestClient.get().uri("/v1/users/{userId}/profile", TestDataFactory.TEST_USER_ID)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.last_name").isEqualTo(TestDataFactory.TEST_USER_LAST_NAME);
+    }
+
+    /**
+     * Test getting a user's addresses.
+     */
+    @Test
+    public void testGetUserAddressesByUserId() {
+        webTestClient.get().uri("/v1/users/{userId}/addresses", TestDataFactory.TEST_USER_ID)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.addresses[0].address_id").isEqualTo(TestDataFactory.TEST_ADDRESS_ID_1);
+    }
+
+    /**
+     * Test the paginated listing applies filters and reports page metadata.
+     */
+    @Test
+    public void testGetAllUsersPaginated() {
+        webTestClient.get().uri("/v1/users?page=0&size=5&firstName=TOM")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.users.length()").isEqualTo(1)
+            .jsonPath("$.users[0].addresses.length()").isEqualTo(1)
+            .jsonPath("$.page.total_elements").isEqualTo(1);
+
+        webTestClient.get().uri("/v1/users?lastName=nobody")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.users.length()").isEqualTo(0)
+            .jsonPath("$.page.total_elements").isEqualTo(0);
+    }
+
+    /**
+     * Test an invalid page size is rejected.
+     */
+    @Test
+    public void testGetAllUsersPaginatedInvalidSize() {
+        webTestClient.get().uri("/v1/users?size=0")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    /**
+     * Test a page size over the configured maximum is rejected, as in the servlet mode.
+     */
+    @Test
+    public void testGetAllUsersPaginatedSizeOverMax() {
+        webTestClient.get().uri("/v1/users?size={size}", listingProperties.getMaxPageSize() + 1)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+            .jsonPath("$.message").isEqualTo("Size must be between 1 and " + listingProperties.getMaxPageSize());
+    }
+
+}
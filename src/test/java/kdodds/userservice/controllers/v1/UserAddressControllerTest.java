@@ -3,10 +3,10 @@ package kdodds.userservice.controllers.v1;
 import kdodds.userservice.assemblers.UserAddressModelAssembler;
 import kdodds.userservice.assemblers.UserAddressesModelAssembler;
 import kdodds.userservice.dto.requests.CreateUserAddressRequestDto;
+import kdodds.userservice.dto.requests.PatchUserAddressRequestDto;
 import kdodds.userservice.dto.responses.UserAddressResponseDto;
 import kdodds.userservice.dto.responses.UserAddressesResponseDto;
 import kdodds.userservice.exceptions.models.exceptions.InvalidRequestDataException;
-import kdodds.userservice.exceptions.models.exceptions.InvalidUserIdException;
 import kdodds.userservice.services.UserAddressService;
 import kdodds.userservice.services.UserService;
 import kdodds.userservice.utils.TestDataFactory;
@@ -16,15 +16,36 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMockMvc
 public class UserAddressControllerTest {
 
+    private static final String TEST_ETAG = "\"1a2b3c.4d5e6f\"";
+
     @Mock
     private UserAddressModelAssembler mockUserAddressModelAssembler;
 
@@ -40,6 +61,13 @@ public class UserAddressControllerTest {
     @InjectMocks
     private UserAddressController userAddressController;
 
+    @Autowired
+    private MockMvc mockMvc;
+
+    private MockHttpServletRequest servletRequest;
+
+    private ServletWebRequest webRequest;
+
     /**
      * Setup for each test.
      */
@@ -53,6 +81,10 @@ public class UserAddressControllerTest {
             mockUserAddressService
         );
 
+        // plain GET without conditional headers unless a test adds them
+        servletRequest = new MockHttpServletRequest("GET", "/");
+        webRequest = new ServletWebRequest(servletRequest, new MockHttpServletResponse());
+
         // mock the user address model assembler to just return the input wrapped in an EntityModel
         Mockito.when(mockUserAddressModelAssembler.toModel(Mockito.any(UserAddressResponseDto.class)))
             .thenAnswer(invocation -> {
@@ -75,18 +107,18 @@ public class UserAddressControllerTest {
      */
     @Test
     public void testGetUserAddressesById_ValidId_ReturnsUserAddresses() throws Exception {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock service call
         Mockito.when(mockUserAddressService.getUserAddressesDtoByUserId(userId)).thenReturn(
             UserAddressesResponseDto.builder()
-                .userId(userId)
-                .addresses(List.of(TestDataFactory.createTestUserAddressDto(userId)))
+                .userId(userId.toString())
+                .addresses(List.of(TestDataFactory.createTestUserAddressDto(userId.toString())))
                 .build()
         );
 
         ResponseEntity<EntityModel<UserAddressesResponseDto>> response
-            = userAddressController.getUserAddressesByUserId(userId);
+            = userAddressController.getUserAddressesByUserId(userId, webRequest);
 
         // validate response
         Assertions.assertNotNull(response);
@@ -96,7 +128,7 @@ public class UserAddressControllerTest {
         Assertions.assertNotNull(response.getBody());
         UserAddressesResponseDto userAddressesResponse = response.getBody().getContent();
         Assertions.assertNotNull(userAddressesResponse);
-        Assertions.assertEquals(userId, userAddressesResponse.getUserId());
+        Assertions.assertEquals(userId.toString(), userAddressesResponse.getUserId());
         Assertions.assertNotNull(userAddressesResponse.getAddresses());
         Assertions.assertEquals(1, userAddressesResponse.getAddresses().size());
         Assertions.assertEquals(
@@ -125,39 +157,22 @@ public class UserAddressControllerTest {
     }
 
     /**
-     * Test the userAddressController /users/{userId}/addresses endpoint throws an InvalidUserIdException when the user
-     * id is empty.
+     * Test the GET /users/{userId}/addresses endpoint rejects a blank user id with a 400 error body naming
+     * the variable.
      */
     @Test
-    public void testGetUserAddressesById_MissingId_ThrowsInvalidUserIdException() {
-        String userId = "";
-
-        try {
-            userAddressController.getUserAddressesByUserId(userId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    public void testGetUserAddressesById_MissingId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}/addresses", " "))
+            .andExpect(rejectedId("userId"));
     }
 
     /**
-     * Test the userAddressController /users/{userId}/addresses endpoint throws an InvalidUserIdException when the user
-     * id is null.
+     * Test the GET /users/{userId}/addresses endpoint rejects a null user id with a 400 error body naming the variable.
      */
     @Test
-    public void testGetUserAddressesById_NullId_ThrowsInvalidUserIdException() {
-        String userId = null;
-
-        try {
-            userAddressController.getUserAddressesByUserId(userId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    public void testGetUserAddressesById_NullId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}/addresses", "null"))
+            .andExpect(rejectedId("userId"));
     }
 
     /**
@@ -166,12 +181,12 @@ public class UserAddressControllerTest {
      */
     @Test
     public void testGetUserAddressById_ValidIds_ReturnExpectedAddress() throws Exception {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
 
         // mock user service response
         Mockito.when(mockUserAddressService.getUserAddressDtoById(userId, addressId)).thenReturn(
-            TestDataFactory.createTestUserAddressDto(userId)
+            TestDataFactory.createTestUserAddressDto(userId.toString())
         );
 
         ResponseEntity<EntityModel<UserAddressResponseDto>>
@@ -185,7 +200,7 @@ public class UserAddressControllerTest {
         Assertions.assertNotNull(response.getBody());
         UserAddressResponseDto userAddressResponse = response.getBody().getContent();
         Assertions.assertNotNull(userAddressResponse);
-        Assertions.assertEquals(userId, userAddressResponse.getUserId());
+        Assertions.assertEquals(userId.toString(), userAddressResponse.getUserId());
         Assertions.assertEquals(TestDataFactory.TEST_USER_ADDRESS_LINE_1, userAddressResponse.getAddressLine1());
         Assertions.assertEquals(TestDataFactory.TEST_USER_ADDRESS_TYPE, userAddressResponse.getAddressType());
         Assertions.assertEquals(TestDataFactory.TEST_USER_CITY, userAddressResponse.getCity());
@@ -194,82 +209,69 @@ public class UserAddressControllerTest {
         Assertions.assertEquals(TestDataFactory.TEST_USER_COUNTRY, userAddressResponse.getCountry());
         Assertions.assertNotNull(userAddressResponse.getCreatedAt());
         Assertions.assertNotNull(userAddressResponse.getUpdatedAt());
+        Assertions.assertEquals("\"" + userAddressResponse.getVersion() + "\"", response.getHeaders().getETag());
     }
 
     /**
-     * Test the userAddressController /users/{userId}/addresses/{addressId} endpoint throws an InvalidUserIdException
-     * when the user id is empty.
+     * Test the GET /users/{userId}/addresses/{addressId} endpoint rejects a blank user id with a 400 error body naming
+     * the variable.
      */
     @Test
-    public void testGetUserAddressById_MissingUserId_ThrowsInvalidUserIdException() {
-        String userId = "";
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-
-        try {
-            userAddressController.getUserAddressById(userId, addressId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    public void testGetUserAddressById_MissingUserId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}/addresses/{addressId}", " ", TestDataFactory.TEST_ADDRESS_ID_1))
+            .andExpect(rejectedId("userId"));
     }
 
     /**
-     * Test the userAddressController /users/{userId}/addresses/{addressId} endpoint throws an InvalidUserIdException
-     * when the user id is null.
+     * Test the GET /users/{userId}/addresses/{addressId} endpoint rejects a null user id with a 400 error body naming
+     * the variable.
      */
     @Test
-    public void testGetUserAddressById_NullUserId_ThrowsInvalidUserIdException() {
-        String userId = null;
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-
-        try {
-            userAddressController.getUserAddressById(userId, addressId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    public void testGetUserAddressById_NullUserId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}/addresses/{addressId}", "null", TestDataFactory.TEST_ADDRESS_ID_1))
+            .andExpect(rejectedId("userId"));
     }
 
     /**
-     * Test the userAddressController /users/{userId}/addresses/{addressId} endpoint throws an InvalidRequestData
-     * exception when the address id is empty.
+     * Test the GET /users/{userId}/addresses/{addressId} endpoint rejects a blank address id
+     * with a 400 error body naming the variable.
      */
     @Test
-    public void testGetUserAddressById_MissingAddressId_ThrowsInvalidRequestData() {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = "";
+    public void testGetUserAddressById_MissingAddressId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}/addresses/{addressId}", TestDataFactory.TEST_USER_ID, " "))
+            .andExpect(rejectedId("addressId"));
+    }
 
-        try {
-            userAddressController.getUserAddressById(userId, addressId);
-            Assertions.fail("Expected InvalidRequestData exception not thrown");
-        } catch (InvalidRequestDataException ex) {
-            Assertions.assertEquals("Invalid null or empty address id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    /**
+     * Test the GET /users/{userId}/addresses/{addressId} endpoint rejects a null address id
+     * with a 400 error body naming the variable.
+     */
+    @Test
+    public void testGetUserAddressById_NullAddressId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}/addresses/{addressId}", TestDataFactory.TEST_USER_ID, "null"))
+            .andExpect(rejectedId("addressId"));
     }
 
     /**
-     * Test the userAddressController /users/{userId}/addresses/{addressId} endpoint throws an InvalidRequestData
-     * exception when the address id is null.
+     * Test the userAddressController PATCH /users/{userId}/addresses/{addressId} endpoint hands the If-Match header to
+     * the service and returns the ETag of the updated version.
      */
     @Test
-    public void testGetUserAddressById_NullAddressId_ThrowsInvalidRequestData() {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = null;
+    public void testUpdateUserAddressById_WithIfMatch_ReturnsNewEtag() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
+        UserAddressResponseDto updated = TestDataFactory.createTestUserAddressDto(userId.toString());
+        updated.setVersion(8);
 
-        try {
-            userAddressController.getUserAddressById(userId, addressId);
-            Assertions.fail("Expected InvalidRequestData exception not thrown");
-        } catch (InvalidRequestDataException ex) {
-            Assertions.assertEquals("Invalid null or empty address id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+        Mockito.when(mockUserAddressService.updateUserAddressById(userId, addressId, request, "\"7\""))
+            .thenReturn(updated);
+
+        ResponseEntity<EntityModel<UserAddressResponseDto>> response =
+            userAddressController.updateUserAddressById(userId, addressId, request, "\"7\"");
+
+        Assertions.assertEquals(200, response.getStatusCode().value());
+        Assertions.assertEquals("\"8\"", response.getHeaders().getETag());
     }
 
     /**
@@ -281,11 +283,11 @@ public class UserAddressControllerTest {
         CreateUserAddressRequestDto request = TestDataFactory.createCreateUserAddressRequestDto();
 
         // mock service call
-        Mockito.when(mockUserAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, request))
+        Mockito.when(mockUserAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, request))
             .thenReturn(TestDataFactory.createTestUserAddressDto(TestDataFactory.TEST_USER_ID));
 
         ResponseEntity<EntityModel<UserAddressResponseDto>> response = userAddressController
-            .createUserAddressesForUserId(TestDataFactory.TEST_USER_ID, request);
+            .createUserAddressesForUserId(TestDataFactory.TEST_USER_UUID, request);
 
         // validate response
         Assertions.assertNotNull(response);
@@ -308,39 +310,27 @@ public class UserAddressControllerTest {
     }
 
     /**
-     * Test the POST /users/{userId}/addresses createUserAddressesForUserId endpoint throws an
-     * InvalidRequestDataException when the userId is null.
+     * Test the POST /users/{userId}/addresses endpoint rejects a blank user id with a 400 error body naming
+     * the variable.
      */
     @Test
-    public void testCreateUserAddressesForUserId_NullUserId_ThrowsInvalidRequestDataException() {
-        CreateUserAddressRequestDto request = TestDataFactory.createCreateUserAddressRequestDto();
-
-        try {
-            userAddressController.createUserAddressesForUserId(null, request);
-            Assertions.fail("Expected InvalidRequestDataException not thrown");
-        } catch (InvalidRequestDataException ex) {
-            Assertions.assertEquals("Request body and user id must be included", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    public void testCreateUserAddressesForUserId_MissingUserId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/v1/users/{userId}/addresses", " ")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+            .andExpect(rejectedId("userId"));
     }
 
     /**
-     * Test the POST /users/{userId}/addresses createUserAddressesForUserId endpoint throws an
-     * InvalidRequestDataException when the userId is empty.
+     * Test the POST /users/{userId}/addresses endpoint rejects a null user id with a 400 error body naming
+     * the variable.
      */
     @Test
-    public void testCreateUserAddressesForUserId_EmptyUserId_ThrowsInvalidRequestDataException() {
-        CreateUserAddressRequestDto request = TestDataFactory.createCreateUserAddressRequestDto();
-
-        try {
-            userAddressController.createUserAddressesForUserId("", request);
-            Assertions.fail("Expected InvalidRequestDataException not thrown");
-        } catch (InvalidRequestDataException ex) {
-            Assertions.assertEquals("Request body and user id must be included", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    public void testCreateUserAddressesForUserId_NullUserId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/v1/users/{userId}/addresses", "null")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+            .andExpect(rejectedId("userId"));
     }
 
     /**
@@ -350,10 +340,10 @@ public class UserAddressControllerTest {
     @Test
     public void testCreateUserAddressesForUserId_NullRequest_ThrowsInvalidRequestDataException() {
         try {
-            userAddressController.createUserAddressesForUserId(TestDataFactory.TEST_USER_ID, null);
+            userAddressController.createUserAddressesForUserId(TestDataFactory.TEST_USER_UUID, null);
             Assertions.fail("Expected InvalidRequestDataException not thrown");
         } catch (InvalidRequestDataException ex) {
-            Assertions.assertEquals("Request body and user id must be included", ex.getMessage());
+            Assertions.assertEquals("Request body must be included", ex.getMessage());
         } catch (Exception ex) {
             Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
         }
@@ -365,8 +355,8 @@ public class UserAddressControllerTest {
      */
     @Test
     public void testDeleteUserAddress_ValidRequest_DeleteAddress() throws Exception {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
 
         // mock user address service call (does nothing)
         Mockito.doNothing().when(mockUserAddressService).deleteUserAddressByAddressId(userId, addressId);
@@ -383,79 +373,98 @@ public class UserAddressControllerTest {
     }
 
     /**
-     * Test the DELETE /users/{userId}/addresses/{addressId} deleteUserAddress endpoint throws an InvalidUserIdException
-     * when the user id is empty.
+     * Test the DELETE /users/{userId}/addresses/{addressId} endpoint rejects a blank user id
+     * with a 400 error body naming the variable.
      */
     @Test
-    public void testDeleteUserAddress_MissingUserId_ThrowsInvalidUserIdException() {
-        String userId = "";
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
+    public void testDeleteUserAddress_MissingUserId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(delete("/v1/users/{userId}/addresses/{addressId}", " ", TestDataFactory.TEST_ADDRESS_ID_1))
+            .andExpect(rejectedId("userId"));
+    }
 
-        try {
-            userAddressController.deleteUserAddressById(userId, addressId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    /**
+     * Test the DELETE /users/{userId}/addresses/{addressId} endpoint rejects a null user id
+     * with a 400 error body naming the variable.
+     */
+    @Test
+    public void testDeleteUserAddress_NullUserId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(delete("/v1/users/{userId}/addresses/{addressId}", "null", TestDataFactory.TEST_ADDRESS_ID_1))
+            .andExpect(rejectedId("userId"));
     }
 
     /**
-     * Test the DELETE /users/{userId}/addresses/{addressId} deleteUserAddress endpoint throws an InvalidUserIdException
-     * when the user id is null.
+     * Test the DELETE /users/{userId}/addresses/{addressId} endpoint rejects a blank address id
+     * with a 400 error body naming the variable.
      */
     @Test
-    public void testDeleteUserAddress_NullUserId_ThrowsInvalidUserIdException() {
-        String userId = null;
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
+    public void testDeleteUserAddress_MissingAddressId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(delete("/v1/users/{userId}/addresses/{addressId}", TestDataFactory.TEST_USER_ID, " "))
+            .andExpect(rejectedId("addressId"));
+    }
 
-        try {
-            userAddressController.deleteUserAddressById(userId, addressId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    /**
+     * Test the DELETE /users/{userId}/addresses/{addressId} endpoint rejects a null address id
+     * with a 400 error body naming the variable.
+     */
+    @Test
+    public void testDeleteUserAddress_NullAddressId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(delete("/v1/users/{userId}/addresses/{addressId}", TestDataFactory.TEST_USER_ID, "null"))
+            .andExpect(rejectedId("addressId"));
     }
 
     /**
-     * Test the DELETE /users/{userId}/addresses/{addressId} deleteUserAddress endpoint throws an InvalidRequestData
-     * exception when the address id is empty.
+     * Test the UserAddressController /users/{userId}/addresses endpoint returns an empty 304 without loading the
+     * resource when If-None-Match matches the current ETag.
      */
     @Test
-    public void testDeleteUserAddress_MissingAddressId_ThrowsInvalidRequestData() {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = "";
+    public void testGetUserAddressesById_MatchingIfNoneMatch_ReturnsNotModified() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
-        try {
-            userAddressController.deleteUserAddressById(userId, addressId);
-            Assertions.fail("Expected InvalidRequestData exception not thrown");
-        } catch (InvalidRequestDataException ex) {
-            Assertions.assertEquals("Invalid null or empty address id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+        Mockito.when(mockUserAddressService.getUserAddressesEtag(userId)).thenReturn(Optional.of(TEST_ETAG));
+        servletRequest.addHeader(HttpHeaders.IF_NONE_MATCH, TEST_ETAG);
+
+        ResponseEntity<EntityModel<UserAddressesResponseDto>> response =
+            userAddressController.getUserAddressesByUserId(userId, webRequest);
+
+        Assertions.assertEquals(304, response.getStatusCode().value());
+        Assertions.assertEquals(TEST_ETAG, response.getHeaders().getETag());
+        Assertions.assertNull(response.getBody());
+        Mockito.verify(mockUserAddressService, Mockito.never()).getUserAddressesDtoByUserId(userId);
     }
 
     /**
-     * Test the DELETE /users/{userId}/addresses/{addressId} deleteUserAddress endpoint throws an InvalidRequestData
-     * exception when the address id is null.
+     * Test the UserAddressController /users/{userId}/addresses endpoint returns the full body and the current ETag
+     * when If-None-Match holds a stale ETag.
      */
     @Test
-    public void testDeleteUserAddress_NullAddressId_ThrowsInvalidRequestData() {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = null;
+    public void testGetUserAddressesById_StaleIfNoneMatch_ReturnsBodyWithEtag() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
-        try {
-            userAddressController.deleteUserAddressById(userId, addressId);
-            Assertions.fail("Expected InvalidRequestData exception not thrown");
-        } catch (InvalidRequestDataException ex) {
-            Assertions.assertEquals("Invalid null or empty address id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+        Mockito.when(mockUserAddressService.getUserAddressesEtag(userId)).thenReturn(Optional.of(TEST_ETAG));
+        Mockito.when(mockUserAddressService.getUserAddressesDtoByUserId(userId)).thenReturn(
+            UserAddressesResponseDto.builder()
+                .userId(userId.toString())
+                .addresses(List.of(TestDataFactory.createTestUserAddressDto(userId.toString())))
+                .build()
+        );
+        servletRequest.addHeader(HttpHeaders.IF_NONE_MATCH, "\"stale\"");
+
+        ResponseEntity<EntityModel<UserAddressesResponseDto>> response =
+            userAddressController.getUserAddressesByUserId(userId, webRequest);
+
+        Assertions.assertEquals(200, response.getStatusCode().value());
+        Assertions.assertEquals(TEST_ETAG, response.getHeaders().getETag());
+        Assertions.assertNotNull(response.getBody());
+    }
+
+    private static ResultMatcher rejectedId(String variable) {
+        return ResultMatcher.matchAll(
+            status().isBadRequest(),
+            content().contentType(MediaType.APPLICATION_JSON),
+            jsonPath("$.status").value(400),
+            jsonPath("$.error").value("Bad Request"),
+            jsonPath("$.message").value("Invalid " + variable + ", expected a UUID")
+        );
     }
 
 }
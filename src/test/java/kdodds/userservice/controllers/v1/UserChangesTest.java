@@ -0,0 +1,232 @@
+package kdodds.userservice.controllers.v1;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.entities.UserProfile;
+import kdodds.userservice.repositories.UserOutboxRepository;
+import kdodds.userservice.repositories.UserRepository;
+import kdodds.userservice.repositories.UserTombstoneRepository;
+import kdodds.userservice.services.ChangeCursor;
+import kdodds.userservice.utils.QueryBudget;
+import kdodds.userservice.utils.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the change feed against the in-memory database, without a settle time so changes show up right away.
+ */
+@SpringBootTest(properties = "user-service.changes.settle-time=0s")
+@AutoConfigureMockMvc
+public class UserChangesTest {
+
+    private static final int USERS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserTombstoneRepository userTombstoneRepository;
+
+    @Autowired
+    private UserOutboxRepository userOutboxRepository;
+
+    private final List<User> users = new ArrayList<>();
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        // other test classes leave their events behind
+        userOutboxRepository.deleteAll();
+
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setUsername(TestDataFactory.TEST_USER_USERNAME + i);
+            user.setEmail(i + TestDataFactory.TEST_USER_EMAIL);
+            user.setPasswordHash(TestDataFactory.TEST_USER_PASSWORD);
+            user.setStatus("ACTIVE");
+            user.setCreatedAt(Instant.now());
+            user.setUpdatedAt(Instant.now());
+
+            UserProfile profile = new UserProfile();
+            profile.setFirstName(TestDataFactory.TEST_USER_FIRST_NAME);
+            profile.setLastName(TestDataFactory.TEST_USER_LAST_NAME);
+            profile.setCreatedAt(Instant.now());
+            profile.setUpdatedAt(Instant.now());
+            user.setUserProfile(profile);
+
+            UserAddress address = new UserAddress();
+            address.setAddressLine1(TestDataFactory.TEST_USER_ADDRESS_LINE_1);
+            address.setCity(TestDataFactory.TEST_USER_CITY);
+            address.setCountry(TestDataFactory.TEST_USER_COUNTRY);
+            address.setCreatedAt(Instant.now());
+            address.setUpdatedAt(Instant.now());
+            user.addAddress(address);
+
+            users.add(userRepository.save(user));
+        }
+    }
+
+    /**
+     * Clean up after each test.
+     */
+    @AfterEach
+    public void teardown() {
+        userRepository.deleteAll();
+        userTombstoneRepository.deleteAll();
+        userOutboxRepository.deleteAll();
+        users.clear();
+    }
+
+    /**
+     * Test a feed started without a cursor returns every user once, in pages of the limit, each with its profile and
+     * addresses, and that the final cursor has nothing more to return.
+     */
+    @Test
+    public void testChanges_PagedFromStart_ReturnsEveryUserOnce() throws Exception {
+        Set<String> userIds = new HashSet<>();
+        String cursor = null;
+        boolean hasMore = true;
+        int pages = 0;
+        while (hasMore) {
+            JsonNode page = changes(cursor, 2);
+            for (JsonNode change : page.get("changes")) {
+                Assertions.assertEquals("UPSERT", change.get("type").asText());
+                Assertions.assertEquals(TestDataFactory.TEST_USER_LAST_NAME, change.at("/user/last_name").asText());
+                Assertions.assertEquals(TestDataFactory.TEST_USER_CITY, change.at("/user/addresses/0/city").asText());
+                Assertions.assertTrue(userIds.add(change.get("user_id").asText()));
+            }
+            cursor = page.get("next_cursor").asText();
+            hasMore = page.get("has_more").asBoolean();
+            pages++;
+        }
+
+        Assertions.assertEquals(USERS, userIds.size());
+        Assertions.assertEquals(3, pages);
+        Assertions.assertEquals(0, changes(cursor, 2).get("changes").size());
+    }
+
+    /**
+     * Test a changed address brings its user back into the feed, and a deleted user comes back as a tombstone.
+     */
+    @Test
+    public void testChanges_AfterAddressUpdateAndDelete_ReturnsOnlyChangedUsers() throws Exception {
+        String cursor = changes(null, 100).get("next_cursor").asText();
+
+        User changed = users.get(1);
+        UUID addressId = changed.getAddresses().get(0).getId();
+        mockMvc.perform(patch("/v1/users/{userId}/addresses/{addressId}", changed.getId(), addressId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"city\": \"Bree\"}"))
+            .andExpect(status().isOk());
+        UUID deletedId = users.get(3).getId();
+        mockMvc.perform(delete("/v1/users/{userId}", deletedId))
+            .andExpect(status().isNoContent());
+
+        JsonNode page = changes(cursor, 100);
+
+        JsonNode changes = page.get("changes");
+        Assertions.assertEquals(2, changes.size());
+        Assertions.assertEquals("UPSERT", changes.get(0).get("type").asText());
+        Assertions.assertEquals(changed.getId().toString(), changes.get(0).get("user_id").asText());
+        Assertions.assertEquals("Bree", changes.get(0).at("/user/addresses/0/city").asText());
+        Assertions.assertEquals("DELETE", changes.get(1).get("type").asText());
+        Assertions.assertEquals(deletedId.toString(), changes.get(1).get("user_id").asText());
+        Assertions.assertFalse(changes.get(1).has("user"));
+        Assertions.assertFalse(page.get("has_more").asBoolean());
+    }
+
+    /**
+     * Test deleting a user that does not exist answers like any delete, but leaves no tombstone in the feed and no
+     * event in the outbox.
+     */
+    @Test
+    public void testChanges_DeleteUnknownUser_NothingRecorded() throws Exception {
+        String cursor = changes(null, 100).get("next_cursor").asText();
+
+        mockMvc.perform(delete("/v1/users/{userId}", UUID.randomUUID()))
+            .andExpect(status().isNoContent());
+
+        Assertions.assertEquals(0, changes(cursor, 100).get("changes").size());
+        Assertions.assertEquals(0, userTombstoneRepository.count());
+        Assertions.assertEquals(0, userOutboxRepository.count());
+    }
+
+    /**
+     * Test a malformed cursor and a limit over the maximum are rejected with a 400, and a cursor older than the
+     * tombstone retention with a 410.
+     */
+    @Test
+    public void testChanges_InvalidRequest_Rejected() throws Exception {
+        mockMvc.perform(get("/v1/users/changes").param("since", "not-a-cursor").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/users/changes").param("limit", "1001").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+
+        String expired = ChangeCursor.start(Instant.now().minus(Duration.ofDays(31))).encode();
+        mockMvc.perform(get("/v1/users/changes").param("since", expired).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isGone())
+            .andExpect(jsonPath("$.status").value(410));
+    }
+
+    /**
+     * Test the feed reads a page with a fixed number of statements, however many users it holds.
+     */
+    @Test
+    public void testChanges_Page_NoQueryPerUser() throws Exception {
+        mockMvc.perform(get("/v1/users/changes").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.changes", hasSize(USERS)))
+            .andExpect(QueryBudget.atMost(3));
+    }
+
+    private JsonNode changes(String cursor, int limit) throws Exception {
+        MockHttpServletRequestBuilder request = get("/v1/users/changes")
+            .param("limit", String.valueOf(limit))
+            .accept(MediaType.APPLICATION_JSON);
+        if (cursor != null) {
+            request.param("since", cursor);
+        }
+
+        String body = mockMvc.perform(request)
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        return objectMapper.readTree(body);
+    }
+
+}
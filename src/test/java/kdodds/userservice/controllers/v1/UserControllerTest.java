@@ -1,15 +1,19 @@
 package kdodds.userservice.controllers.v1;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import kdodds.userservice.assemblers.PagedUsersModelAssembler;
 import kdodds.userservice.assemblers.UserModelAssembler;
+import kdodds.userservice.config.ListingProperties;
 import kdodds.userservice.dto.requests.CreateUserRequestDto;
 import kdodds.userservice.dto.requests.PatchUserRequestDto;
 import kdodds.userservice.dto.responses.PagedUsersResponseDto;
+import kdodds.userservice.dto.responses.UserPageStream;
 import kdodds.userservice.dto.responses.UserResponseDto;
 import kdodds.userservice.entities.User;
 import kdodds.userservice.exceptions.models.exceptions.InvalidRequestDataException;
-import kdodds.userservice.exceptions.models.exceptions.InvalidUserIdException;
 import kdodds.userservice.exceptions.models.exceptions.UserConflictException;
+import kdodds.userservice.repositories.projections.UserFieldSet;
 import kdodds.userservice.services.UserService;
 import kdodds.userservice.utils.TestDataFactory;
 import org.junit.jupiter.api.Assertions;
@@ -19,22 +23,44 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ActiveProfiles("test")
 @SpringBootTest
+@AutoConfigureMockMvc
 public class UserControllerTest {
 
+    private static final String TEST_ETAG = "\"1a2b3c.4d5e6f\"";
+
     @Mock
     private UserModelAssembler mockUserModelAssembler;
 
@@ -44,9 +70,22 @@ public class UserControllerTest {
     @Mock
     private PagedUsersModelAssembler mockPagedUsersModelAssembler;
 
+    @Spy
+    private ListingProperties listingProperties = new ListingProperties();
+
     @InjectMocks
     private UserController userController;
 
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockHttpServletRequest servletRequest;
+
+    private ServletWebRequest webRequest;
+
     /**
      * Setup for each test.
      */
@@ -58,6 +97,10 @@ public class UserControllerTest {
             mockUserModelAssembler
         );
 
+        // plain GET without conditional headers unless a test adds them
+        servletRequest = new MockHttpServletRequest("GET", "/");
+        webRequest = new ServletWebRequest(servletRequest, new MockHttpServletResponse());
+
         // mock the user model assembler to just return the input wrapped in an EntityModel
         Mockito.when(mockUserModelAssembler.toModel(any(UserResponseDto.class)))
             .thenAnswer(invocation -> {
@@ -66,7 +109,7 @@ public class UserControllerTest {
             });
 
         // mock the paged users model assembler to return the input wrapped in an EntityModel
-        Mockito.when(mockPagedUsersModelAssembler.toModel(any(PagedUsersResponseDto.class)))
+        Mockito.when(mockPagedUsersModelAssembler.toModel(any(PagedUsersResponseDto.class), anyBoolean()))
             .thenAnswer(invocation -> {
                 PagedUsersResponseDto argPagedUsersDto = invocation.getArgument(0);
                 return EntityModel.of(argPagedUsersDto);
@@ -74,26 +117,21 @@ public class UserControllerTest {
     }
 
     /**
-     * Test the UserController /users endpoint returns a 200 and a list of users.
+     * Test the UserController /users endpoint returns a 200 and a page of users, read in one batch from the start of
+     * the page. A partial page tells its own total, so the users are not counted.
      */
     @Test
     public void testGetUsers_ReturnsPagedUsersResponse() throws Exception {
         int page = 0;
         int size = 10;
-        int totalPages = 1;
-        int totalElements = 1;
 
         // mock the service call
         Mockito.when(
-            mockUserService.getAllUsersPaginated(eq(page), eq(size), ArgumentMatchers.<Specification<User>>any()))
-                .thenReturn(
-                    TestDataFactory.createTestPagedUsersResponseDto(
-                        List.of(TestDataFactory.createTestUserResponseDto(TestDataFactory.TEST_USER_ID)),
-                        TestDataFactory.createTestPageDto(page, size, totalPages, totalElements)
-                    )
-            );
+            mockUserService.getUserBatch(
+                ArgumentMatchers.<Specification<User>>any(), eq(UserFieldSet.ALL), eq(null), eq(0L), eq(size)))
+                .thenReturn(List.of(TestDataFactory.createTestUserResponseDto(TestDataFactory.TEST_USER_ID)));
 
-        ResponseEntity<EntityModel<PagedUsersResponseDto>> response =
+        ResponseEntity<UserPageStream<UserResponseDto>> response =
             userController.getAllUsersPaginated(
                 page,
                 size,
@@ -101,39 +139,58 @@ public class UserControllerTest {
                 null,
                 null,
                 null,
+                null,
                 null
             );
 
         // validate response
         Assertions.assertNotNull(response);
         Assertions.assertEquals(200, response.getStatusCode().value());
-
-        // validate paged users response
         Assertions.assertNotNull(response.getBody());
-        PagedUsersResponseDto pagedUsersResponse = response.getBody().getContent();
-        Assertions.assertNotNull(pagedUsersResponse);
-        Assertions.assertEquals(page, pagedUsersResponse.getPage().getPage());
-        Assertions.assertEquals(size, pagedUsersResponse.getPage().getSize());
-        Assertions.assertEquals(totalElements, pagedUsersResponse.getPage().getTotalElements());
-        Assertions.assertEquals(totalPages, pagedUsersResponse.getPage().getTotalPages());
+
+        // validate paged users response, as it is written
+        JsonNode pagedUsersResponse = objectMapper.readTree(objectMapper.writeValueAsString(response.getBody()));
+        Assertions.assertEquals(page, pagedUsersResponse.at("/page/page_number").asInt());
+        Assertions.assertEquals(size, pagedUsersResponse.at("/page/page_size").asInt());
+        Assertions.assertEquals(1, pagedUsersResponse.at("/page/total_elements").asLong());
+        Assertions.assertEquals(1, pagedUsersResponse.at("/page/total_pages").asInt());
 
         // validate users in paged users response
-        Assertions.assertNotNull(pagedUsersResponse.getUsers());
-        Assertions.assertEquals(1, pagedUsersResponse.getUsers().size());
-        Assertions.assertEquals(TestDataFactory.TEST_USER_ID, pagedUsersResponse.getUsers().getFirst().getUserId());
-        Assertions.assertEquals(
-            TestDataFactory.TEST_USER_USERNAME, pagedUsersResponse.getUsers().getFirst().getUsername());
-        Assertions.assertEquals(TestDataFactory.TEST_USER_EMAIL, pagedUsersResponse.getUsers().getFirst().getEmail());
-        Assertions.assertEquals(
-            TestDataFactory.TEST_USER_FIRST_NAME, pagedUsersResponse.getUsers().getFirst().getFirstName());
-        Assertions.assertEquals(
-            TestDataFactory.TEST_USER_LAST_NAME, pagedUsersResponse.getUsers().getFirst().getLastName());
-        Assertions.assertEquals(
-            TestDataFactory.TEST_USER_PHONE_NUMBER, pagedUsersResponse.getUsers().getFirst().getPhoneNumber());
-        Assertions.assertEquals(
-            TestDataFactory.TEST_USER_PROFILE_IMAGE_URL, pagedUsersResponse.getUsers().getFirst().getProfileImageUrl());
-        Assertions.assertNotNull(pagedUsersResponse.getUsers().getFirst().getCreatedAt());
-        Assertions.assertNotNull(pagedUsersResponse.getUsers().getFirst().getUpdatedAt());
+        JsonNode user = pagedUsersResponse.at("/users/0");
+        Assertions.assertEquals(1, pagedUsersResponse.get("users").size());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_ID, user.get("user_id").asText());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_USERNAME, user.get("username").asText());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_EMAIL, user.get("email").asText());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_FIRST_NAME, user.get("first_name").asText());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_LAST_NAME, user.get("last_name").asText());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_PHONE_NUMBER, user.get("phone_number").asText());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_PROFILE_IMAGE_URL, user.get("profile_image_url").asText());
+        Assertions.assertTrue(user.hasNonNull("created_at"));
+        Assertions.assertTrue(user.hasNonNull("updated_at"));
+        Mockito.verify(mockUserService, Mockito.never()).countUsers(any());
+    }
+
+    /**
+     * Test the UserController /users endpoint rejects a size above the configured cap, and a zero size or negative
+     * page, before calling the service.
+     */
+    @Test
+    public void testGetUsers_SizeOverCap_ThrowsInvalidRequestDataException() {
+        int overCap = listingProperties.getMaxPageSize() + 1;
+
+        Assertions.assertThrows(
+            InvalidRequestDataException.class,
+            () -> userController.getAllUsersPaginated(0, overCap, null, null, null, null, null, null)
+        );
+        Assertions.assertThrows(
+            InvalidRequestDataException.class,
+            () -> userController.getAllUsersPaginated(0, 0, null, null, null, null, null, null)
+        );
+        Assertions.assertThrows(
+            InvalidRequestDataException.class,
+            () -> userController.getAllUsersPaginated(-1, 10, null, null, null, null, null, null)
+        );
+        Mockito.verifyNoInteractions(mockUserService);
     }
 
     /**
@@ -141,18 +198,19 @@ public class UserControllerTest {
      */
     @Test
     public void testGetUserById_ValidId_ReturnsUserResponse() throws Exception {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock the service call
-        Mockito.when(mockUserService.getUserResponseDto(userId)).thenAnswer(invocation -> {
+        Mockito.when(mockUserService.getUserResponseDto(userId, UserFieldSet.ALL)).thenAnswer(invocation -> {
             // get the user id arg
-            String argUserId = invocation.getArgument(0);
+            UUID argUserId = invocation.getArgument(0);
 
             // create and return a complete user data object
-            return TestDataFactory.createTestUserResponseDto(argUserId);
+            return TestDataFactory.createTestUserResponseDto(argUserId.toString());
         });
 
-        ResponseEntity<EntityModel<UserResponseDto>> response = userController.getUserByUserId(userId);
+        ResponseEntity<EntityModel<UserResponseDto>> response =
+            userController.getUserByUserId(userId, null, webRequest);
 
         // validate response
         Assertions.assertNotNull(response);
@@ -162,7 +220,7 @@ public class UserControllerTest {
         Assertions.assertNotNull(response.getBody());
         UserResponseDto userResponse = response.getBody().getContent();
         Assertions.assertNotNull(userResponse);
-        Assertions.assertEquals(userId, userResponse.getUserId());
+        Assertions.assertEquals(userId.toString(), userResponse.getUserId());
         Assertions.assertEquals(TestDataFactory.TEST_USER_USERNAME, userResponse.getUsername());
         Assertions.assertEquals(TestDataFactory.TEST_USER_EMAIL, userResponse.getEmail());
         Assertions.assertEquals(TestDataFactory.TEST_USER_FIRST_NAME, userResponse.getFirstName());
@@ -195,37 +253,23 @@ public class UserControllerTest {
     }
 
     /**
-     * Test the UserController /users/{userId} endpoint throws an InvalidUserIdException when the user id is empty.
+     * Test the UserController /users/{userId} endpoint rejects a blank user id with a 400 error body naming
+     * the variable.
      */
     @Test
-    public void testGetUserById_MissingId_ThrowsInvalidUserIdException() {
-        String userId = "";
-
-        try {
-            userController.getUserByUserId(userId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    public void testGetUserById_MissingId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}", " "))
+            .andExpect(rejectedId("userId"));
     }
 
     /**
-     * Test the UserController /users/{userId} endpoint throws an InvalidUserIdException when the user id is null.
+     * Test the UserController /users/{userId} endpoint rejects a null user id with a 400 error body naming
+     * the variable.
      */
     @Test
-    public void testGetUserById_NullId_ThrowsInvalidUserIdException() {
-        String userId = null;
-
-        try {
-            userController.getUserByUserId(userId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    public void testGetUserById_NullId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}", "null"))
+            .andExpect(rejectedId("userId"));
     }
 
     /**
@@ -472,7 +516,7 @@ public class UserControllerTest {
      */
     @Test
     public void testDeleteUser_ValidId_DeletesUser() throws Exception {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock the user service call
         Mockito.doNothing().when(mockUserService).deleteUserByUserId(userId);
@@ -488,37 +532,21 @@ public class UserControllerTest {
     }
 
     /**
-     * Test the UserController deleteUser endpoint throws an InvalidUserIdException when the user id is empty.
+     * Test the UserController deleteUser endpoint rejects a blank user id with a 400 error body naming the variable.
      */
     @Test
-    public void testDeleteUser_MissingId_ThrowsInvalidUserIdException() {
-        String userId = "";
-
-        try {
-            userController.deleteUser(userId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    public void testDeleteUser_MissingId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(delete("/v1/users/{userId}", " "))
+            .andExpect(rejectedId("userId"));
     }
 
     /**
-     * Test the UserController deleteUser endpoint throws an InvalidUserIdException when the user id is null.
+     * Test the UserController deleteUser endpoint rejects a null user id with a 400 error body naming the variable.
      */
     @Test
-    public void testDeleteUser_NullId_ThrowsInvalidUserIdException() {
-        String userId = null;
-
-        try {
-            userController.deleteUser(userId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    public void testDeleteUser_NullId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(delete("/v1/users/{userId}", "null"))
+            .andExpect(rejectedId("userId"));
     }
 
     /**
@@ -534,10 +562,10 @@ public class UserControllerTest {
         request.setProfileImageUrl("updated-" + request.getProfileImageUrl());
         Instant updatedAt = Instant.now();
 
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock the user service call
-        Mockito.when(mockUserService.updateUser(userId, request))
+        Mockito.when(mockUserService.updateUser(userId, request, null))
             .thenAnswer(invocation -> {
                 PatchUserRequestDto requestDto = invocation.getArgument(1);
 
@@ -553,7 +581,7 @@ public class UserControllerTest {
                 return response;
             });
 
-        ResponseEntity<EntityModel<UserResponseDto>> response = userController.updateUser(userId, request);
+        ResponseEntity<EntityModel<UserResponseDto>> response = userController.updateUser(userId, request, null);
 
         // validate response
         Assertions.assertNotNull(response);
@@ -563,7 +591,7 @@ public class UserControllerTest {
         Assertions.assertNotNull(response.getBody());
         UserResponseDto userResponse = response.getBody().getContent();
         Assertions.assertNotNull(userResponse);
-        Assertions.assertEquals(userId, userResponse.getUserId());
+        Assertions.assertEquals(userId.toString(), userResponse.getUserId());
 
         // check that the request values were updated
         Assertions.assertEquals(request.getFirstName(), userResponse.getFirstName());
@@ -575,12 +603,33 @@ public class UserControllerTest {
         Assertions.assertEquals(updatedAt, userResponse.getUpdatedAt());
     }
 
+    /**
+     * Test the UserController updateUser endpoint hands the If-Match header to the service and returns the ETag of
+     * the state the update wrote, without reading it again.
+     */
+    @Test
+    public void testUpdateUser_WithIfMatch_ReturnsNewEtag() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
+        UserResponseDto updatedUser = TestDataFactory.createTestUserResponseDto(userId.toString());
+        updatedUser.setEtag("\"4.1.0.1\"");
+
+        Mockito.when(mockUserService.updateUser(userId, request, TEST_ETAG)).thenReturn(updatedUser);
+
+        ResponseEntity<EntityModel<UserResponseDto>> response = userController.updateUser(userId, request, TEST_ETAG);
+
+        Assertions.assertEquals(200, response.getStatusCode().value());
+        Assertions.assertEquals("\"4.1.0.1\"", response.getHeaders().getETag());
+        Mockito.verify(mockUserService, Mockito.times(1)).updateUser(userId, request, TEST_ETAG);
+        Mockito.verify(mockUserService, Mockito.never()).getUserEtag(any());
+    }
+
     /**
      * Test the UserController updateUser endpoint only updates the request values that are set on the request.
      */
     @Test
     public void testUpdateUser_PartialRequest_UpdatesUser() throws Exception {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
         // set some of the request values to something unique
         request.setLastName("updated-" + request.getLastName());
@@ -588,7 +637,7 @@ public class UserControllerTest {
         Instant updatedAt = Instant.now();
 
         // mock the user service call
-        Mockito.when(mockUserService.updateUser(userId, request))
+        Mockito.when(mockUserService.updateUser(userId, request, null))
             .thenAnswer(invocation -> {
                 PatchUserRequestDto requestDto = invocation.getArgument(1);
 
@@ -602,7 +651,7 @@ public class UserControllerTest {
                 return response;
             });
 
-        ResponseEntity<EntityModel<UserResponseDto>> response = userController.updateUser(userId, request);
+        ResponseEntity<EntityModel<UserResponseDto>> response = userController.updateUser(userId, request, null);
 
         // validate response
         Assertions.assertNotNull(response);
@@ -612,7 +661,7 @@ public class UserControllerTest {
         Assertions.assertNotNull(response.getBody());
         UserResponseDto userResponse = response.getBody().getContent();
         Assertions.assertNotNull(userResponse);
-        Assertions.assertEquals(userId, userResponse.getUserId());
+        Assertions.assertEquals(userId.toString(), userResponse.getUserId());
 
         // check that the request values were updated
         Assertions.assertEquals(request.getLastName(), userResponse.getLastName());
@@ -629,39 +678,112 @@ public class UserControllerTest {
     }
 
     /**
-     * Test the UserController updateUser endpoint throws an InvalidUserIdException when the user id is empty.
+     * Test the UserController updateUser endpoint rejects a blank user id with a 400 error body naming the variable.
      */
     @Test
-    public void testUpdateUser_MissingId_ThrowsInvalidUserIdException() {
-        String userId = "";
-        PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
+    public void testUpdateUser_MissingId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(patch("/v1/users/{userId}", " ")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"first_name\": \"Frodo\"}"))
+            .andExpect(rejectedId("userId"));
+    }
 
-        try {
-            userController.updateUser(userId, request);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    /**
+     * Test the UserController updateUser endpoint rejects a null user id with a 400 error body naming the variable.
+     */
+    @Test
+    public void testUpdateUser_NullId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(patch("/v1/users/{userId}", "null")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"first_name\": \"Frodo\"}"))
+            .andExpect(rejectedId("userId"));
     }
 
     /**
-     * Test the UserController updateUser endpoint throws an InvalidUserIdException when the user id is null.
+     * Test the UserController /users/{userId} endpoint returns an empty 304 without loading the
+     * resource when If-None-Match matches the current ETag.
      */
     @Test
-    public void testUpdateUser_NullId_ThrowsInvalidUserIdException() {
-        String userId = null;
-        PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
+    public void testGetUserById_MatchingIfNoneMatch_ReturnsNotModified() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
-        try {
-            userController.updateUser(userId, request);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+        Mockito.when(mockUserService.getUserEtag(userId)).thenReturn(Optional.of(TEST_ETAG));
+        servletRequest.addHeader(HttpHeaders.IF_NONE_MATCH, TEST_ETAG);
+
+        ResponseEntity<EntityModel<UserResponseDto>> response =
+            userController.getUserByUserId(userId, null, webRequest);
+
+        Assertions.assertEquals(304, response.getStatusCode().value());
+        Assertions.assertEquals(TEST_ETAG, response.getHeaders().getETag());
+        Assertions.assertNull(response.getBody());
+        Mockito.verify(mockUserService, Mockito.never()).getUserResponseDto(userId);
+    }
+
+    /**
+     * Test the UserController /users/{userId} endpoint returns the full body and the current ETag
+     * when If-None-Match holds a stale ETag.
+     */
+    @Test
+    public void testGetUserById_StaleIfNoneMatch_ReturnsBodyWithEtag() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+
+        Mockito.when(mockUserService.getUserEtag(userId)).thenReturn(Optional.of(TEST_ETAG));
+        Mockito.when(mockUserService.getUserResponseDto(userId, UserFieldSet.ALL)).thenReturn(
+            TestDataFactory.createTestUserResponseDto(userId.toString())
+        );
+        servletRequest.addHeader(HttpHeaders.IF_NONE_MATCH, "\"stale\"");
+
+        ResponseEntity<EntityModel<UserResponseDto>> response =
+            userController.getUserByUserId(userId, null, webRequest);
+
+        Assertions.assertEquals(200, response.getStatusCode().value());
+        Assertions.assertEquals(TEST_ETAG, response.getHeaders().getETag());
+        Assertions.assertNotNull(response.getBody());
+    }
+
+    /**
+     * Test the UserController /users/{userId} endpoint serves a sparse body without HATEOAS links, under its own ETag,
+     * when fields are requested.
+     */
+    @Test
+    public void testGetUserByUserId_SparseFields_NoLinksAndVariantEtag() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UserFieldSet fields = UserFieldSet.parse("username");
+
+        Mockito.when(mockUserService.getUserEtag(userId)).thenReturn(Optional.of(TEST_ETAG));
+        Mockito.when(mockUserService.getUserResponseDto(userId, fields)).thenReturn(
+            UserResponseDto.builder().userId(userId.toString()).username(TestDataFactory.TEST_USER_USERNAME).build()
+        );
+
+        ResponseEntity<EntityModel<UserResponseDto>> response =
+            userController.getUserByUserId(userId, "username", webRequest);
+
+        Assertions.assertEquals(200, response.getStatusCode().value());
+        Assertions.assertNotEquals(TEST_ETAG, response.getHeaders().getETag());
+        Assertions.assertEquals(fields.variantOf(TEST_ETAG), response.getHeaders().getETag());
+        Assertions.assertNotNull(response.getBody());
+        Assertions.assertFalse(response.getBody().getContent().hasLinks());
+        Mockito.verify(mockUserModelAssembler, Mockito.never()).toModel(any(UserResponseDto.class));
+    }
+
+    /**
+     * Test the UserController /users/{userId} endpoint rejects unknown fields with an InvalidRequestDataException.
+     */
+    @Test
+    public void testGetUserByUserId_UnknownField_ThrowsInvalidRequestDataException() {
+        Assertions.assertThrows(InvalidRequestDataException.class, () ->
+            userController.getUserByUserId(TestDataFactory.TEST_USER_UUID, "username,password_hash", webRequest)
+        );
+    }
+
+    private static ResultMatcher rejectedId(String variable) {
+        return ResultMatcher.matchAll(
+            status().isBadRequest(),
+            content().contentType(MediaType.APPLICATION_JSON),
+            jsonPath("$.status").value(400),
+            jsonPath("$.error").value("Bad Request"),
+            jsonPath("$.message").value("Invalid " + variable + ", expected a UUID")
+        );
     }
 
 }
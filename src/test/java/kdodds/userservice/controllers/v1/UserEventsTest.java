@@ -0,0 +1,232 @@
+package kdodds.userservice.controllers.v1;
+
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserOutboxEvent;
+import kdodds.userservice.entities.UserProfile;
+import kdodds.userservice.events.UserChangeEvent;
+import kdodds.userservice.exceptions.models.exceptions.StreamLimitExceededException;
+import kdodds.userservice.repositories.UserOutboxRepository;
+import kdodds.userservice.repositories.UserRepository;
+import kdodds.userservice.repositories.UserTombstoneRepository;
+import kdodds.userservice.repositories.specifications.UserFilter;
+import kdodds.userservice.services.UserStreamService;
+import kdodds.userservice.utils.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Opens user event streams through MockMvc. The dispatcher does not drain the outbox in the test profile, so the
+ * events written by each change are published to the in-process listeners here, the way its listener sink would.
+ */
+@SpringBootTest(properties = "user-service.streams.max-subscribers=3")
+@AutoConfigureMockMvc
+public class UserEventsTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserTombstoneRepository userTombstoneRepository;
+
+    @Autowired
+    private UserOutboxRepository userOutboxRepository;
+
+    @Autowired
+    private UserStreamService userStreamService;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    private final List<User> users = new ArrayList<>();
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        for (int i = 0; i < 2; i++) {
+            User user = new User();
+            user.setUsername(TestDataFactory.TEST_USER_USERNAME + i);
+            user.setEmail(i + TestDataFactory.TEST_USER_EMAIL);
+            user.setPasswordHash(TestDataFactory.TEST_USER_PASSWORD);
+            user.setStatus("ACTIVE");
+            user.setCreatedAt(Instant.now());
+            user.setUpdatedAt(Instant.now());
+
+            UserProfile profile = new UserProfile();
+            profile.setFirstName(TestDataFactory.TEST_USER_FIRST_NAME);
+            profile.setLastName(TestDataFactory.TEST_USER_LAST_NAME + i);
+            profile.setCreatedAt(Instant.now());
+            profile.setUpdatedAt(Instant.now());
+            user.setUserProfile(profile);
+
+            users.add(userRepository.save(user));
+        }
+    }
+
+    /**
+     * Clean up after each test.
+     */
+    @AfterEach
+    public void teardown() {
+        userStreamService.shutdown();
+        userOutboxRepository.deleteAll();
+        userRepository.deleteAll();
+        userTombstoneRepository.deleteAll();
+        users.clear();
+    }
+
+    /**
+     * Test a user stream starts with the user's current state, sends the new state after a change and ends with the
+     * deletion of the user.
+     */
+    @Test
+    public void testStreamUser_ChangedThenDeleted_SendsEachStateThenEnds() throws Exception {
+        User user = users.get(0);
+        MockHttpServletResponse stream = open("/v1/users/{userId}/events", user.getId());
+        awaitContent(stream, "\"first_name\":\"" + TestDataFactory.TEST_USER_FIRST_NAME + "\"");
+
+        mockMvc.perform(patch("/v1/users/{userId}", user.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"first_name\": \"Frodo\"}"))
+            .andExpect(status().isOk());
+        long sequence = publishOutbox();
+        awaitContent(stream, "id:" + sequence + "\nevent:user\ndata:");
+        awaitContent(stream, "\"first_name\":\"Frodo\"");
+
+        mockMvc.perform(delete("/v1/users/{userId}", user.getId()))
+            .andExpect(status().isNoContent());
+        publishOutbox();
+        awaitContent(stream, "event:deleted\ndata:");
+        awaitContent(stream, "\"type\":\"USER_DELETED\"");
+    }
+
+    /**
+     * Test the filtered stream only sends the changed users matching its filters.
+     */
+    @Test
+    public void testStreamAll_Filtered_SendsMatchingUsersOnly() throws Exception {
+        MockHttpServletResponse stream = open(
+            "/v1/users/events?lastName={lastName}", TestDataFactory.TEST_USER_LAST_NAME + 1
+        );
+
+        for (User user : users) {
+            mockMvc.perform(patch("/v1/users/{userId}", user.getId())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"phone_number\": \"555-0100\"}"))
+                .andExpect(status().isOk());
+        }
+        publishOutbox();
+
+        awaitContent(stream, users.get(1).getId().toString());
+        Assertions.assertFalse(stream.getContentAsString().contains(users.get(0).getId().toString()));
+    }
+
+    /**
+     * Test streams of unknown users are rejected with a 404, and streams over the limit with a 503.
+     */
+    @Test
+    public void testStream_UnknownUserOrLimitReached_Rejected() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}/events", UUID.randomUUID()).accept(MediaType.TEXT_EVENT_STREAM))
+            .andExpect(status().isNotFound());
+
+        for (int i = 0; i < 3; i++) {
+            open("/v1/users/events");
+        }
+        mockMvc.perform(get("/v1/users/events").accept(MediaType.TEXT_EVENT_STREAM))
+            .andExpect(status().isServiceUnavailable());
+    }
+
+    /**
+     * Test subscriptions racing for the last slots never open more streams than the limit.
+     */
+    @Test
+    public void testSubscribe_Concurrent_NeverExceedsLimit() {
+        UserFilter filter = UserFilter.of(null, null, null, null, null);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                attempts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        start.await();
+                        userStreamService.subscribe(filter);
+                        return true;
+                    } catch (StreamLimitExceededException ex) {
+                        return false;
+                    } catch (InterruptedException ex) {
+                        throw new CompletionException(ex);
+                    }
+                }, executor));
+            }
+            start.countDown();
+
+            Assertions.assertEquals(3, attempts.stream().filter(CompletableFuture::join).count());
+        }
+    }
+
+    private MockHttpServletResponse open(String path, Object... variables) throws Exception {
+        MvcResult result = mockMvc.perform(get(path, variables).accept(MediaType.TEXT_EVENT_STREAM))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        return result.getResponse();
+    }
+
+    private long publishOutbox() {
+        // what the listener sink does for each event the dispatcher drains
+        long last = 0;
+        for (UserOutboxEvent outboxEvent : userOutboxRepository.findOldestAfter(0, Limit.of(100))) {
+            applicationEventPublisher.publishEvent(UserChangeEvent.from(outboxEvent));
+            last = outboxEvent.getId();
+        }
+        userOutboxRepository.deleteAll();
+
+        return last;
+    }
+
+    private static void awaitContent(MockHttpServletResponse stream, String expected) throws Exception {
+        Instant deadline = Instant.now().plus(TIMEOUT);
+        while (!stream.getContentAsString().contains(expected)) {
+            if (Instant.now().isAfter(deadline)) {
+                Assertions.fail("Stream did not send " + expected + ", got: " + stream.getContentAsString());
+            }
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -0,0 +1,290 @@
+package kdodds.userservice.controllers.v1;
+
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import kdodds.userservice.concurrency.DatabaseConcurrencyLimiter;
+import kdodds.userservice.dto.responses.lean.LeanUserResponseDto;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.entities.UserProfile;
+import kdodds.userservice.repositories.UserRepository;
+import kdodds.userservice.repositories.projections.UserFieldSet;
+import kdodds.userservice.services.UserService;
+import kdodds.userservice.utils.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the listing against the in-memory database, with a read batch size small enough that every page spans several
+ * batches. Runs on a real port as well, to see how an HTTP client sees a page that fails half way.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "user-service.listing.max-page-size=20",
+    "user-service.listing.read-batch-size=3"
+})
+@AutoConfigureMockMvc
+public class UserListingStreamTest {
+
+    private static final int USERS = 7;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoSpyBean
+    private UserService userService;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setUsername(TestDataFactory.TEST_USER_USERNAME + i);
+            user.setEmail(i + TestDataFactory.TEST_USER_EMAIL);
+            user.setPasswordHash(TestDataFactory.TEST_USER_PASSWORD);
+            user.setStatus("ACTIVE");
+            user.setCreatedAt(Instant.now());
+            user.setUpdatedAt(Instant.now());
+
+            UserProfile profile = new UserProfile();
+            profile.setFirstName(TestDataFactory.TEST_USER_FIRST_NAME);
+            profile.setLastName(TestDataFactory.TEST_USER_LAST_NAME);
+            profile.setCreatedAt(Instant.now());
+            profile.setUpdatedAt(Instant.now());
+            user.setUserProfile(profile);
+
+            UserAddress address = new UserAddress();
+            address.setAddressLine1(TestDataFactory.TEST_USER_ADDRESS_LINE_1);
+            address.setCity(TestDataFactory.TEST_USER_CITY);
+            address.setCountry(TestDataFactory.TEST_USER_COUNTRY);
+            address.setCreatedAt(Instant.now());
+            address.setUpdatedAt(Instant.now());
+            user.addAddress(address);
+
+            userRepository.save(user);
+        }
+    }
+
+    /**
+     * Clean up after each test.
+     */
+    @AfterEach
+    public void teardown() {
+        userRepository.deleteAll();
+    }
+
+    /**
+     * Test a page larger than the batch size is written completely, each user with its own addresses, and the page
+     * metadata comes from the streamed rows alone.
+     */
+    @Test
+    public void testStreamedPage_SpansBatches_WritesAllUsers() throws Exception {
+        mockMvc.perform(get("/v1/users").param("size", "20").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.users", hasSize(USERS)))
+            .andExpect(jsonPath("$.users[6].first_name").value(TestDataFactory.TEST_USER_FIRST_NAME))
+            .andExpect(jsonPath("$.users[6].addresses", hasSize(1)))
+            .andExpect(jsonPath("$.users[6].addresses[0].city").value(TestDataFactory.TEST_USER_CITY))
+            .andExpect(jsonPath("$.page.page_number").value(0))
+            .andExpect(jsonPath("$.page.page_size").value(20))
+            .andExpect(jsonPath("$.page.total_elements").value(USERS))
+            .andExpect(jsonPath("$.page.total_pages").value(1))
+            .andExpect(jsonPath("$._links").doesNotExist());
+    }
+
+    /**
+     * Test a full middle page and a page past the end both report the total from a count.
+     */
+    @Test
+    public void testStreamedPage_LaterPages_CountsTotal() throws Exception {
+        mockMvc.perform(get("/v1/users").param("page", "1").param("size", "3").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.users", hasSize(3)))
+            .andExpect(jsonPath("$.page.total_elements").value(USERS))
+            .andExpect(jsonPath("$.page.total_pages").value(3));
+
+        mockMvc.perform(get("/v1/users").param("page", "5").param("size", "3").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.users", hasSize(0)))
+            .andExpect(jsonPath("$.page.total_elements").value(USERS));
+    }
+
+    /**
+     * Test the fields parameter narrows the streamed users and skips the address query.
+     */
+    @Test
+    public void testStreamedPage_SparseFields_OmitsUnselected() throws Exception {
+        mockMvc.perform(get("/v1/users")
+                .param("size", "20")
+                .param("fields", "username")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.users", hasSize(USERS)))
+            .andExpect(jsonPath("$.users[0].user_id").exists())
+            .andExpect(jsonPath("$.users[0].username").exists())
+            .andExpect(jsonPath("$.users[0].first_name").doesNotExist())
+            .andExpect(jsonPath("$.users[0].addresses").doesNotExist());
+    }
+
+    /**
+     * Test a size above the cap is rejected with a 400 for both representations, before anything is streamed.
+     */
+    @Test
+    public void testListing_SizeOverCap_Returns400() throws Exception {
+        mockMvc.perform(get("/v1/users").param("size", "21").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/v1/users").param("size", "21").accept(MediaTypes.HAL_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Test the HAL listing is written the same way: every user with its links and addresses, then the page metadata
+     * and the pagination links.
+     */
+    @Test
+    public void testStreamedHalPage_SpansBatches_WritesAllUsersWithLinks() throws Exception {
+        mockMvc.perform(get("/v1/users").param("size", "20").accept(MediaTypes.HAL_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaTypes.HAL_JSON))
+            .andExpect(jsonPath("$.users", hasSize(USERS)))
+            .andExpect(jsonPath("$.users[6]._links.self.href").exists())
+            .andExpect(jsonPath("$.users[6].addresses[0]._links.user.href").exists())
+            .andExpect(jsonPath("$.page.total_elements").value(USERS))
+            .andExpect(jsonPath("$._links.self.href").exists())
+            .andExpect(jsonPath("$._links.next").doesNotExist());
+    }
+
+    /**
+     * Test consecutive pages are ordered by user id and, read batch by batch, neither skip nor repeat a user.
+     */
+    @Test
+    public void testStreamedPages_Consecutive_CoverEveryUserOnce() throws Exception {
+        List<String> userIds = new ArrayList<>();
+        for (int page = 0; page < 3; page++) {
+            String body = mockMvc.perform(get("/v1/users")
+                    .param("page", String.valueOf(page))
+                    .param("size", "5")
+                    .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+            userIds.addAll(JsonPath.read(body, "$.users[*].user_id"));
+        }
+
+        List<String> expected = userRepository.findAll().stream()
+            .map(user -> user.getId().toString())
+            .sorted()
+            .toList();
+        Assertions.assertEquals(expected, userIds);
+    }
+
+    /**
+     * Test each batch is read in its own transaction, which gives the connection back although the session stays
+     * open for the rest of the request, the way open-in-view keeps it.
+     */
+    @Test
+    public void testLeanUserBatches_SessionStaysOpen_ReleaseConnectionPerBatch() {
+        int permits = databaseConcurrencyLimiter.availablePermits();
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            List<LeanUserResponseDto> first = userService.getLeanUserBatch(null, UserFieldSet.ALL, null, 0, 3);
+            Assertions.assertEquals(3, first.size());
+            Assertions.assertEquals(permits, databaseConcurrencyLimiter.availablePermits());
+
+            UUID afterId = UUID.fromString(first.getLast().userId());
+            List<LeanUserResponseDto> next = userService.getLeanUserBatch(null, UserFieldSet.ALL, afterId, 0, 20);
+            Assertions.assertEquals(USERS - 3, next.size());
+            Assertions.assertEquals(permits, databaseConcurrencyLimiter.availablePermits());
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Test a failure reading the first batch, before anything is written, is answered with an error status.
+     */
+    @Test
+    public void testStreamedPage_FirstBatchFails_Returns500() throws Exception {
+        Mockito.doThrow(new RuntimeException("first batch failed"))
+            .when(userService).getLeanUserBatch(any(), any(), isNull(), anyLong(), anyInt());
+
+        mockMvc.perform(get("/v1/users").param("size", "20").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isInternalServerError())
+            .andExpect(jsonPath("$.status").value(500));
+    }
+
+    /**
+     * Test a failure reading a later batch, after the status and the first users were sent, ends the response without
+     * completing the chunked body, so an HTTP client fails reading it instead of accepting a truncated page.
+     */
+    @Test
+    public void testStreamedPage_LaterBatchFails_AbortsResponse() {
+        Mockito.doThrow(new RuntimeException("later batch failed"))
+            .when(userService).getLeanUserBatch(any(), any(), notNull(), anyLong(), anyInt());
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/users?size=20"))
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+            .build();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            Assertions.assertThrows(
+                IOException.class,
+                () -> client.send(request, HttpResponse.BodyHandlers.ofString())
+            );
+        }
+    }
+
+}
@@ -2,7 +2,6 @@ package kdodds.userservice.controllers.v1;
 
 import kdodds.userservice.assemblers.UserProfileModelAssembler;
 import kdodds.userservice.dto.responses.UserProfileResponseDto;
-import kdodds.userservice.exceptions.models.exceptions.InvalidUserIdException;
 import kdodds.userservice.services.UserService;
 import kdodds.userservice.utils.TestDataFactory;
 import org.junit.jupiter.api.Assertions;
@@ -11,13 +10,33 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMockMvc
 public class UserProfileControllerTest {
 
+    private static final String TEST_ETAG = "\"1a2b3c.4d5e6f\"";
+
     @Mock
     private UserService mockUserService;
 
@@ -27,6 +46,13 @@ public class UserProfileControllerTest {
     @InjectMocks
     private UserProfileController userProfileController;
 
+    @Autowired
+    private MockMvc mockMvc;
+
+    private MockHttpServletRequest servletRequest;
+
+    private ServletWebRequest webRequest;
+
     /**
      * Setup for each test.
      */
@@ -35,6 +61,10 @@ public class UserProfileControllerTest {
         // clear mocks
         Mockito.reset(mockUserProfileModelAssembler, mockUserService);
 
+        // plain GET without conditional headers unless a test adds them
+        servletRequest = new MockHttpServletRequest("GET", "/");
+        webRequest = new ServletWebRequest(servletRequest, new MockHttpServletResponse());
+
         // mock the user profile model assembler to just return the input wrapped in an EntityModel
         Mockito.when(mockUserProfileModelAssembler.toModel(Mockito.any(UserProfileResponseDto.class)))
             .thenAnswer(invocation -> {
@@ -49,15 +79,15 @@ public class UserProfileControllerTest {
      */
     @Test
     public void testGetUserProfileById_ValidId_ReturnsUserProfileResponse() throws Exception {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock the service call
         Mockito.when(mockUserService.getUserProfileDtoByUserId(userId)).thenReturn(
-            TestDataFactory.createTestUserProfileDto(userId)
+            TestDataFactory.createTestUserProfileDto(userId.toString())
         );
 
         ResponseEntity<EntityModel<UserProfileResponseDto>> response =
-            userProfileController.getUserProfileByUserId(userId);
+            userProfileController.getUserProfileByUserId(userId, webRequest);
 
         // validate response
         Assertions.assertNotNull(response);
@@ -67,7 +97,7 @@ public class UserProfileControllerTest {
         Assertions.assertNotNull(response.getBody());
         UserProfileResponseDto userProfileResponse = response.getBody().getContent();
         Assertions.assertNotNull(userProfileResponse);
-        Assertions.assertEquals(userId, userProfileResponse.getUserId());
+        Assertions.assertEquals(userId.toString(), userProfileResponse.getUserId());
         Assertions.assertEquals(TestDataFactory.TEST_USER_FIRST_NAME, userProfileResponse.getFirstName());
         Assertions.assertEquals(TestDataFactory.TEST_USER_LAST_NAME, userProfileResponse.getLastName());
         Assertions.assertEquals(TestDataFactory.TEST_USER_PHONE_NUMBER, userProfileResponse.getPhoneNumber());
@@ -77,39 +107,75 @@ public class UserProfileControllerTest {
     }
 
     /**
-     * Test the UserProfileController /users/{userId}/profile endpoint throws an InvalidUserIdException when the user
-     * id is empty.
+     * Test the UserProfileController /users/{userId}/profile endpoint rejects a blank user id
+     * with a 400 error body naming the variable.
+     */
+    @Test
+    public void testGetUserProfileById_MissingId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}/profile", " "))
+            .andExpect(rejectedId("userId"));
+    }
+
+    /**
+     * Test the UserProfileController /users/{userId}/profile endpoint rejects a null user id
+     * with a 400 error body naming the variable.
+     */
+    @Test
+    public void testGetUserProfileById_NullId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}/profile", "null"))
+            .andExpect(rejectedId("userId"));
+    }
+
+    /**
+     * Test the UserProfileController /users/{userId}/profile endpoint returns an empty 304 without loading the
+     * resource when If-None-Match matches the current ETag.
      */
     @Test
-    public void testGetUserProfileById_MissingId_ThrowsInvalidUserIdException() {
-        String userId = "";
-
-        try {
-            userProfileController.getUserProfileByUserId(userId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    public void testGetUserProfileById_MatchingIfNoneMatch_ReturnsNotModified() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+
+        Mockito.when(mockUserService.getUserProfileEtag(userId)).thenReturn(Optional.of(TEST_ETAG));
+        servletRequest.addHeader(HttpHeaders.IF_NONE_MATCH, TEST_ETAG);
+
+        ResponseEntity<EntityModel<UserProfileResponseDto>> response =
+            userProfileController.getUserProfileByUserId(userId, webRequest);
+
+        Assertions.assertEquals(304, response.getStatusCode().value());
+        Assertions.assertEquals(TEST_ETAG, response.getHeaders().getETag());
+        Assertions.assertNull(response.getBody());
+        Mockito.verify(mockUserService, Mockito.never()).getUserProfileDtoByUserId(userId);
     }
 
     /**
-     * Test the UserProfileController /users/{userId}/profile endpoint throws an InvalidUserIdException when the user
-     * id is null.
+     * Test the UserProfileController /users/{userId}/profile endpoint returns the full body and the current ETag
+     * when If-None-Match holds a stale ETag.
      */
     @Test
-    public void testGetUserProfileById_NullId_ThrowsInvalidUserIdException() {
-        String userId = null;
-
-        try {
-            userProfileController.getUserProfileByUserId(userId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+    public void testGetUserProfileById_StaleIfNoneMatch_ReturnsBodyWithEtag() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+
+        Mockito.when(mockUserService.getUserProfileEtag(userId)).thenReturn(Optional.of(TEST_ETAG));
+        Mockito.when(mockUserService.getUserProfileDtoByUserId(userId)).thenReturn(
+            TestDataFactory.createTestUserProfileDto(userId.toString())
+        );
+        servletRequest.addHeader(HttpHeaders.IF_NONE_MATCH, "\"stale\"");
+
+        ResponseEntity<EntityModel<UserProfileResponseDto>> response =
+            userProfileController.getUserProfileByUserId(userId, webRequest);
+
+        Assertions.assertEquals(200, response.getStatusCode().value());
+        Assertions.assertEquals(TEST_ETAG, response.getHeaders().getETag());
+        Assertions.assertNotNull(response.getBody());
+    }
+
+    private static ResultMatcher rejectedId(String variable) {
+        return ResultMatcher.matchAll(
+            status().isBadRequest(),
+            content().contentType(MediaType.APPLICATION_JSON),
+            jsonPath("$.status").value(400),
+            jsonPath("$.error").value("Bad Request"),
+            jsonPath("$.message").value("Invalid " + variable + ", expected a UUID")
+        );
     }
 
 }
@@ -0,0 +1,145 @@
+package kdodds.userservice.controllers.v1;
+
+import kdodds.userservice.events.UserChangeEvent;
+import kdodds.userservice.events.UserChangeType;
+import kdodds.userservice.repositories.specifications.UserFilter;
+import kdodds.userservice.services.UserStreamService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Opens a user event stream over a real socket and never reads it, so the server's writes block once the socket
+ * buffers are full. The socket buffers are kept small on both ends, so that takes a few dozen events.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "user-service.streams.max-subscribers=1",
+    "user-service.streams.buffer-size=8",
+    // the response headers go out with the first write, a filtered stream has nothing else to send at first
+    "user-service.streams.heartbeat=100ms"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+public class UserStreamSlowConsumerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(20);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserStreamService userStreamService;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @LocalServerPort
+    private int port;
+
+    /**
+     * Shrinks the server's socket send buffer.
+     */
+    @TestConfiguration
+    static class SmallSendBufferConfig {
+
+        @Bean
+        WebServerFactoryCustomizer<TomcatServletWebServerFactory> smallSendBuffer() {
+            return factory -> factory.addConnectorCustomizers(
+                connector -> connector.setProperty("socket.txBufSize", "4096")
+            );
+        }
+
+    }
+
+    /**
+     * Clean up after each test.
+     */
+    @AfterEach
+    public void teardown() {
+        userStreamService.shutdown();
+    }
+
+    /**
+     * Test a client that stops reading is disconnected once its queue is full, the disconnect is counted in the
+     * slow disconnect metric, and its stream slot is free again.
+     */
+    @Test
+    public void testStream_ClientStopsReading_DisconnectedAndCounted() throws Exception {
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(1024);
+            socket.connect(new InetSocketAddress("localhost", port));
+            socket.getOutputStream().write((
+                "GET /api/v1/users/events HTTP/1.1\r\n"
+                    + "Host: localhost\r\n"
+                    + "Accept: text/event-stream\r\n"
+                    + "\r\n"
+            ).getBytes(StandardCharsets.US_ASCII));
+            Assertions.assertTrue(readHeaders(socket.getInputStream()).startsWith("HTTP/1.1 200"));
+
+            // deletions are sent to a stream of all users without reading the database, and the client reads none
+            Instant deadline = Instant.now().plus(TIMEOUT);
+            while (scrapeSlowDisconnects() < 1) {
+                if (Instant.now().isAfter(deadline)) {
+                    Assertions.fail("Stream of a client that stopped reading was not disconnected");
+                }
+                for (int i = 0; i < 20; i++) {
+                    applicationEventPublisher.publishEvent(new UserChangeEvent(
+                        i, UserChangeType.USER_DELETED, UUID.randomUUID(), null, Instant.now()
+                    ));
+                }
+                Thread.sleep(10);
+            }
+        }
+
+        Assertions.assertEquals(1.0, scrapeSlowDisconnects());
+        Assertions.assertNotNull(userStreamService.subscribe(UserFilter.of(null, null, null, null, null)));
+    }
+
+    private double scrapeSlowDisconnects() throws Exception {
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        return scrape.lines()
+            .filter(line -> line.startsWith("userservice_streams_slow_disconnects_total"))
+            .mapToDouble(line -> Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1)))
+            .findFirst()
+            .orElseThrow();
+    }
+
+    private static String readHeaders(InputStream in) throws Exception {
+        StringBuilder headers = new StringBuilder();
+        while (headers.indexOf("\r\n\r\n") < 0) {
+            int next = in.read();
+            if (next < 0) {
+                break;
+            }
+            headers.append((char) next);
+        }
+
+        return headers.toString();
+    }
+
+}
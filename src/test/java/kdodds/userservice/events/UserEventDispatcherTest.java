@@ -0,0 +1,244 @@
+package kdodds.userservice.events;
+
+import kdodds.userservice.entities.UserOutboxEvent;
+import kdodds.userservice.repositories.UserOutboxLockRepository;
+import kdodds.userservice.repositories.UserOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes events to the outbox and drains it step by step, the scheduled drain is disabled in the test profile.
+ */
+@SpringBootTest(properties = {
+    "user-service.outbox.batch-size=" + UserEventDispatcherTest.BATCH_SIZE,
+    "user-service.outbox.lanes=4",
+    "user-service.outbox.poll-interval=" + UserEventDispatcherTest.POLL_INTERVAL_MILLIS + "ms"
+})
+public class UserEventDispatcherTest {
+
+    static final int BATCH_SIZE = 50;
+
+    // a failed user backs off for twice the poll interval
+    static final int POLL_INTERVAL_MILLIS = 500;
+
+    private static final int USERS = 20;
+
+    private static final int EVENTS_PER_USER = 5;
+
+    @Autowired
+    private UserEventDispatcher userEventDispatcher;
+
+    @Autowired
+    private UserOutbox userOutbox;
+
+    @Autowired
+    private UserOutboxRepository userOutboxRepository;
+
+    @Autowired
+    private UserOutboxLockRepository userOutboxLockRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RecordingListener recordingListener;
+
+    private final List<UUID> userIds = new ArrayList<>();
+
+    /**
+     * Records every event published to in-process listeners, failing the first delivery of the chosen users.
+     */
+    static class RecordingListener {
+
+        private final Map<UUID, List<UserChangeEvent>> received = new ConcurrentHashMap<>();
+
+        private final Set<UUID> failOnce = ConcurrentHashMap.newKeySet();
+
+        @EventListener
+        void on(UserChangeEvent event) {
+            if (failOnce.remove(event.userId())) {
+                throw new IllegalStateException("Listener unavailable");
+            }
+            received.computeIfAbsent(event.userId(), userId -> new ArrayList<>()).add(event);
+        }
+
+    }
+
+    /**
+     * Registers the recording listener.
+     */
+    @TestConfiguration
+    static class RecordingListenerConfig {
+
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+
+    }
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        // other test classes leave their events behind
+        userOutboxRepository.deleteAll();
+
+        for (int i = 0; i < USERS; i++) {
+            userIds.add(UUID.randomUUID());
+        }
+
+        // interleave the users, so every batch mixes events of many users over every lane
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < EVENTS_PER_USER; i++) {
+                for (UUID userId : userIds) {
+                    userOutbox.record(i == 0 ? UserChangeType.USER_CREATED : UserChangeType.USER_UPDATED, userId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Clean up after each test.
+     */
+    @AfterEach
+    public void teardown() {
+        userOutboxRepository.deleteAll();
+        recordingListener.received.clear();
+        recordingListener.failOnce.clear();
+        userIds.clear();
+    }
+
+    /**
+     * Test draining delivers every event once, with the events of each user in the order they were written, and
+     * leaves the outbox empty.
+     */
+    @Test
+    public void testDispatch_ManyUsers_DeliveredInOrderPerUser() throws Exception {
+        userEventDispatcher.dispatchAll();
+
+        for (UUID userId : userIds) {
+            List<UserChangeEvent> events = recordingListener.received.get(userId);
+            Assertions.assertEquals(EVENTS_PER_USER, events.size());
+            Assertions.assertEquals(UserChangeType.USER_CREATED, events.get(0).type());
+            for (int i = 1; i < events.size(); i++) {
+                Assertions.assertTrue(events.get(i - 1).sequence() < events.get(i).sequence());
+            }
+        }
+        Assertions.assertEquals(0, userOutboxRepository.count());
+    }
+
+    /**
+     * Test a failed delivery holds back the later events of that user only, the rest of the outbox is delivered in the
+     * same drain, and the failed event is retried ahead of the held back ones once the user's backoff has passed.
+     */
+    @Test
+    public void testDispatch_FailedDelivery_BacksOffThatUserOnly() throws Exception {
+        UUID failing = userIds.get(3);
+        recordingListener.failOnce.add(failing);
+
+        Set<UUID> heldBack = ConcurrentHashMap.newKeySet();
+        Assertions.assertTrue(userEventDispatcher.dispatchBatch(0, heldBack) > 0);
+
+        Assertions.assertEquals(Set.of(failing), heldBack);
+        // the first batch held three events of the failing user: the failed one, and two that waited behind it
+        Assertions.assertEquals(BATCH_SIZE - 3, countDelivered());
+        Assertions.assertEquals(1, outboxEvents(failing).stream().mapToInt(UserOutboxEvent::getAttempts).sum());
+
+        userEventDispatcher.dispatchAll();
+
+        Assertions.assertNull(recordingListener.received.get(failing));
+        Assertions.assertEquals((USERS - 1) * EVENTS_PER_USER, countDelivered());
+        Assertions.assertEquals(EVENTS_PER_USER, userOutboxRepository.count());
+
+        Thread.sleep(3L * POLL_INTERVAL_MILLIS);
+        userEventDispatcher.dispatchAll();
+
+        List<UserChangeEvent> events = recordingListener.received.get(failing);
+        Assertions.assertEquals(EVENTS_PER_USER, events.size());
+        Assertions.assertEquals(UserChangeType.USER_CREATED, events.get(0).type());
+        Assertions.assertEquals(0, userOutboxRepository.count());
+    }
+
+    /**
+     * Test a drain is skipped while another transaction holds the drain lock, as another instance draining would, and
+     * runs once the lock is released.
+     */
+    @Test
+    public void testDispatchExclusively_LockHeldElsewhere_SkipsDrain() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> {
+            Assertions.assertTrue(userOutboxLockRepository.tryLock("user-outbox-dispatcher").isPresent());
+
+            Assertions.assertFalse(dispatchOnAnotherThread());
+        });
+
+        Assertions.assertEquals(0, countDelivered());
+        Assertions.assertEquals(USERS * EVENTS_PER_USER, userOutboxRepository.count());
+
+        Assertions.assertTrue(userEventDispatcher.dispatchExclusively());
+        Assertions.assertEquals(USERS * EVENTS_PER_USER, countDelivered());
+        Assertions.assertEquals(0, userOutboxRepository.count());
+    }
+
+    /**
+     * Test an event recorded in a transaction that rolls back is discarded with it, and recording outside a
+     * transaction is refused.
+     */
+    @Test
+    public void testRecord_RolledBackOrNoTransaction_NotWritten() {
+        long before = userOutboxRepository.count();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            userOutbox.record(UserChangeType.USER_DELETED, UUID.randomUUID());
+            status.setRollbackOnly();
+        });
+
+        Assertions.assertThrows(
+            IllegalTransactionStateException.class,
+            () -> userOutbox.record(UserChangeType.USER_DELETED, UUID.randomUUID())
+        );
+        Assertions.assertEquals(before, userOutboxRepository.count());
+    }
+
+    private List<UserOutboxEvent> outboxEvents(UUID userId) {
+        return userOutboxRepository.findOldestAfter(0, Limit.of(USERS * EVENTS_PER_USER)).stream()
+            .filter(event -> event.getUserId().equals(userId))
+            .toList();
+    }
+
+    // runs on another thread, so on another connection than the test's transaction
+    private boolean dispatchOnAnotherThread() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return userEventDispatcher.dispatchExclusively();
+            } catch (Exception ex) {
+                throw new CompletionException(ex);
+            }
+        }).join();
+    }
+
+    private int countDelivered() {
+        return recordingListener.received.values().stream().mapToInt(List::size).sum();
+    }
+
+}
@@ -0,0 +1,116 @@
+package kdodds.userservice.exceptions;
+
+import kdodds.userservice.exceptions.models.ErrorResponse;
+import kdodds.userservice.exceptions.models.exceptions.InvalidRequestDataException;
+import kdodds.userservice.exceptions.models.exceptions.InvalidUserIdException;
+import kdodds.userservice.exceptions.models.exceptions.PreconditionFailedException;
+import kdodds.userservice.exceptions.models.exceptions.UserAddressNotFound;
+import kdodds.userservice.exceptions.models.exceptions.UserConflictException;
+import kdodds.userservice.exceptions.models.exceptions.UserNotFoundException;
+import kdodds.userservice.exceptions.models.exceptions.UserProfileNotFound;
+import kdodds.userservice.utils.TestDataFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@SpringBootTest
+public class UserExceptionHandlerTest {
+
+    private final UserExceptionHandler userExceptionHandler = new UserExceptionHandler();
+
+    /**
+     * Test that the exceptions behind 4xx responses carry no stack trace.
+     */
+    @Test
+    public void testDomainExceptions_AreStackless() {
+        List<RuntimeException> exceptions = List.of(
+            new UserNotFoundException(TestDataFactory.TEST_USER_UUID),
+            new UserProfileNotFound(TestDataFactory.TEST_USER_UUID),
+            new UserAddressNotFound("No user address found"),
+            new InvalidRequestDataException("Invalid request data."),
+            new InvalidUserIdException(),
+            new UserConflictException("User with username magicalwizardman4848 already exists"),
+            new PreconditionFailedException("User has been modified")
+        );
+
+        for (RuntimeException ex : exceptions) {
+            Assertions.assertEquals(0, ex.getStackTrace().length, ex.getClass().getSimpleName());
+
+            // suppression is disabled too
+            ex.addSuppressed(new IllegalStateException());
+            Assertions.assertEquals(0, ex.getSuppressed().length, ex.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Test that a 404 still renders the message of the exception.
+     */
+    @Test
+    public void testHandleDataNotFound_RendersMessage() {
+        ResponseEntity<ErrorResponse> response =
+            userExceptionHandler.handleDataNotFound(new UserNotFoundException(TestDataFactory.TEST_USER_UUID));
+
+        Assertions.assertEquals(404, response.getStatusCode().value());
+        Assertions.assertNotNull(response.getBody());
+        Assertions.assertEquals(404, response.getBody().getStatus());
+        Assertions.assertEquals("Not Found", response.getBody().getError());
+        Assertions.assertEquals(
+            "User with id " + TestDataFactory.TEST_USER_ID + " not found",
+            response.getBody().getMessage()
+        );
+    }
+
+    /**
+     * Test that the responses with a fixed message are built once and shared.
+     */
+    @Test
+    public void testHandleFixedMessages_ReuseResponse() {
+        ResponseEntity<ErrorResponse> invalidUserId = userExceptionHandler.handleInvalidUserIdException();
+
+        Assertions.assertSame(invalidUserId, userExceptionHandler.handleInvalidUserIdException());
+        Assertions.assertSame(
+            userExceptionHandler.handleTypeMismatchException(),
+            userExceptionHandler.handleTypeMismatchException()
+        );
+        Assertions.assertEquals(400, invalidUserId.getStatusCode().value());
+        Assertions.assertNotNull(invalidUserId.getBody());
+        Assertions.assertEquals("Invalid null or empty user id", invalidUserId.getBody().getMessage());
+    }
+
+    /**
+     * Test that exceptions carrying their own status keep it rather than becoming a 500.
+     */
+    @Test
+    public void testHandleGenericException_ResponseStatusException_KeepsStatus() {
+        ResponseEntity<ErrorResponse> response = userExceptionHandler.handleGenericException(
+            new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing parameters: durationSeconds")
+        );
+
+        Assertions.assertEquals(400, response.getStatusCode().value());
+        Assertions.assertNotNull(response.getBody());
+        Assertions.assertEquals("Missing parameters: durationSeconds", response.getBody().getMessage());
+    }
+
+    /**
+     * Test that a status outside the HttpStatus enum is kept as it is instead of failing the handler.
+     */
+    @Test
+    public void testHandleGenericException_NonstandardStatus_KeepsStatus() {
+        ResponseEntity<ErrorResponse> response = userExceptionHandler.handleGenericException(
+            new ResponseStatusException(HttpStatusCode.valueOf(499), "Client closed request")
+        );
+
+        Assertions.assertEquals(499, response.getStatusCode().value());
+        Assertions.assertNotNull(response.getBody());
+        Assertions.assertEquals(499, response.getBody().getStatus());
+        Assertions.assertNull(response.getBody().getError());
+        Assertions.assertEquals("Client closed request", response.getBody().getMessage());
+    }
+
+}
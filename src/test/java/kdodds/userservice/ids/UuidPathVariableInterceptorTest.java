@@ -0,0 +1,72 @@
+package kdodds.userservice.ids;
+
+import kdodds.userservice.utils.TestDataFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UuidPathVariableInterceptorTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Test a malformed user id is answered with a 400 error body, naming the variable.
+     */
+    @Test
+    public void testGetUser_MalformedUserId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}", "not-a-uuid"))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.status").value(400))
+            .andExpect(jsonPath("$.message").value("Invalid userId, expected a UUID"));
+    }
+
+    /**
+     * Test the profile, delete and patch endpoints reject malformed user ids too.
+     */
+    @Test
+    public void testUserEndpoints_MalformedUserId_ReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}/profile", "1-1-1-1-1"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/v1/users/{userId}", "937758e0-abe0-4dd4-827d-b868169bc16g"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/v1/users/{userId}", "x").contentType(MediaType.APPLICATION_JSON).content("{}"))
+            .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Test the address id is checked as well as the user id.
+     */
+    @Test
+    public void testGetAddress_MalformedAddressId_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}/addresses/{addressId}", TestDataFactory.TEST_USER_ID, "12345"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("Invalid addressId, expected a UUID"));
+    }
+
+    /**
+     * Test a well formed id in upper case passes through to the service, which answers an unknown user with a 404.
+     */
+    @Test
+    public void testGetUser_UpperCaseUnknownUserId_ReturnsNotFound() throws Exception {
+        mockMvc.perform(get("/v1/users/{userId}", UUID.randomUUID().toString().toUpperCase()))
+            .andExpect(status().isNotFound())
+            .andExpect(jsonPath("$.status").value(404));
+    }
+
+}
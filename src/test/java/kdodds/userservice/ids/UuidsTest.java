@@ -0,0 +1,72 @@
+package kdodds.userservice.ids;
+
+import kdodds.userservice.utils.TestDataFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.UUID;
+
+@SpringBootTest
+public class UuidsTest {
+
+    /**
+     * Test that canonical UUIDs parse to the same value as UUID.fromString.
+     */
+    @Test
+    public void testParse_Canonical_MatchesFromString() {
+        for (int i = 0; i < 100; i++) {
+            UUID expected = UUID.randomUUID();
+
+            Assertions.assertEquals(expected, Uuids.parse(expected.toString()));
+            Assertions.assertTrue(Uuids.isValid(expected.toString()));
+        }
+
+        Assertions.assertEquals(TestDataFactory.TEST_USER_UUID, Uuids.parse(TestDataFactory.TEST_USER_ID));
+    }
+
+    /**
+     * Test that upper and mixed case hex digits are accepted.
+     */
+    @Test
+    public void testParse_UpperCase_Parses() {
+        String mixed = "937758E0-abe0-4DD4-827d-B868169BC160";
+
+        Assertions.assertEquals(TestDataFactory.TEST_USER_UUID, Uuids.parse(mixed));
+        Assertions.assertTrue(Uuids.isValid(mixed));
+    }
+
+    /**
+     * Test the extreme values, where the sign bit of both halves is set.
+     */
+    @Test
+    public void testParse_AllBitsSet_Parses() {
+        Assertions.assertEquals(new UUID(-1L, -1L), Uuids.parse("ffffffff-ffff-ffff-ffff-ffffffffffff"));
+        Assertions.assertEquals(new UUID(0L, 0L), Uuids.parse("00000000-0000-0000-0000-000000000000"));
+    }
+
+    /**
+     * Test that malformed values are reported with null and false instead of an exception.
+     */
+    @Test
+    public void testParse_Malformed_ReturnsNull() {
+        String[] malformed = {
+            null,
+            "",
+            "not-a-uuid",
+            "937758e0-abe0-4dd4-827d-b868169bc16", // short
+            "937758e0-abe0-4dd4-827d-b868169bc1600", // long
+            "937758e0abe0-4dd4-827d-b868169bc1600", // dash moved
+            "937758e0-abe0-4dd4-827d_b868169bc160", // wrong separator
+            "937758e0-abe0-4dd4-827d-b868169bc16g", // not hex
+            "937758e0-abe0-4dd4-827d-b868169bc16\u0661", // non ascii digit
+            "1-1-1-1-1", // lenient form UUID.fromString accepts
+        };
+
+        for (String value : malformed) {
+            Assertions.assertNull(Uuids.parse(value), String.valueOf(value));
+            Assertions.assertFalse(Uuids.isValid(value), String.valueOf(value));
+        }
+    }
+
+}
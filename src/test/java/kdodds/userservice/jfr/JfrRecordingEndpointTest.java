@@ -0,0 +1,93 @@
+package kdodds.userservice.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "management.endpoints.web.exposure.include=jfr")
+@AutoConfigureMockMvc
+public class JfrRecordingEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JfrRecordingEndpoint jfrRecordingEndpoint;
+
+    /**
+     * Test a recording taken around a listing request holds the service, repository, assembler and serialization
+     * events, with class and method names only.
+     */
+    @Test
+    public void testStartAndStop_AroundRequest_RecordsApplicationEvents(@TempDir Path directory) throws Exception {
+        Assertions.assertEquals("RUNNING", jfrRecordingEndpoint.start(30L).state());
+        Assertions.assertThrows(InvalidEndpointRequestException.class, () -> jfrRecordingEndpoint.start(30L));
+
+        mockMvc.perform(get("/v1/users").accept(MediaTypes.HAL_JSON))
+            .andExpect(status().isOk());
+
+        Resource resource = jfrRecordingEndpoint.stop();
+        Path file = directory.resolve("recording.jfr");
+        try (InputStream data = resource.getInputStream()) {
+            Files.copy(data, file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        Assertions.assertTrue(events.stream().anyMatch(event ->
+            event.getEventType().getName().equals("kdodds.userservice.ServiceCall")
+                && event.getString("service").equals("UserService")
+                && event.getString("method").equals("getUserBatch")
+        ));
+        Assertions.assertTrue(events.stream().anyMatch(event ->
+            event.getEventType().getName().equals("kdodds.userservice.RepositoryCall")
+                && event.getString("repository").equals("UserRepository")
+        ));
+        Assertions.assertTrue(events.stream().anyMatch(event ->
+            event.getEventType().getName().equals("kdodds.userservice.Assembler")
+                && event.getString("assembler").equals("PagedUsersModelAssembler")
+        ));
+        Assertions.assertTrue(events.stream().anyMatch(event ->
+            event.getEventType().getName().equals("kdodds.userservice.Serialization")
+                && event.getString("contentType").startsWith("application/hal+json")
+        ));
+        Assertions.assertEquals("CLOSED", jfrRecordingEndpoint.state().state());
+
+        // the credentials reach the JVM through the environment, system properties or the command line
+        Assertions.assertTrue(events.stream().noneMatch(event -> List.of(
+            "jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty",
+            "jdk.JVMInformation"
+        ).contains(event.getEventType().getName())));
+    }
+
+    /**
+     * Test durations outside the configured bounds and a stop without a recording are rejected, over HTTP with a 400.
+     */
+    @Test
+    public void testStartAndStop_InvalidRequests_Rejected() throws Exception {
+        Assertions.assertThrows(InvalidEndpointRequestException.class, () -> jfrRecordingEndpoint.start(0L));
+        Assertions.assertThrows(InvalidEndpointRequestException.class, () -> jfrRecordingEndpoint.start(3600L));
+        Assertions.assertThrows(InvalidEndpointRequestException.class, jfrRecordingEndpoint::stop);
+        mockMvc.perform(delete("/actuator/jfr"))
+            .andExpect(status().isBadRequest());
+    }
+
+}
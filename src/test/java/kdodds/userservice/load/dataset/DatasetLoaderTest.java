@@ -0,0 +1,116 @@
+package kdodds.userservice.load.dataset;
+
+import kdodds.userservice.entities.User;
+import kdodds.userservice.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+
+/**
+ * Generates a synthetic dataset and writes it to the in-memory database through the batch insert path (COPY needs
+ * Postgres).
+ */
+@SpringBootTest
+public class DatasetLoaderTest {
+
+    private static final int USERS = 2000;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Clean up after each test.
+     */
+    @AfterEach
+    public void teardown() {
+        jdbcTemplate.update("DELETE FROM user_addresses");
+        jdbcTemplate.update("DELETE FROM user_profiles");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    /**
+     * Test a seed always generates the same users, and a different seed different ones.
+     */
+    @Test
+    public void testUser_SameSeed_SameUser() {
+        SyntheticDataset dataset = new SyntheticDataset(42);
+
+        Assertions.assertEquals(dataset.user(1234), new SyntheticDataset(42).user(1234));
+        Assertions.assertEquals(dataset.user(1234).id(), dataset.userId(1234));
+        Assertions.assertNotEquals(dataset.user(1234), new SyntheticDataset(43).user(1234));
+        Assertions.assertNotEquals(dataset.userId(1234), dataset.userId(1235));
+    }
+
+    /**
+     * Test the users have 0 to 10 addresses, mostly one, and that the most frequent last name is far more frequent
+     * than the median one.
+     */
+    @Test
+    public void testUser_Distributions_Skewed() {
+        SyntheticDataset dataset = new SyntheticDataset(42);
+        int[] addressCounts = new int[11];
+        Map<String, Integer> lastNames = new HashMap<>();
+        for (int i = 0; i < USERS; i++) {
+            DatasetUser user = dataset.user(i);
+            addressCounts[user.addresses().size()]++;
+            lastNames.merge(user.lastName(), 1, Integer::sum);
+        }
+
+        for (int count = 0; count < addressCounts.length; count++) {
+            Assertions.assertTrue(addressCounts[1] >= addressCounts[count]);
+        }
+        Assertions.assertTrue(addressCounts[0] > 0);
+        int[] frequencies = lastNames.values().stream().mapToInt(Integer::intValue).sorted().toArray();
+        Assertions.assertTrue(frequencies[frequencies.length - 1] > 5 * frequencies[frequencies.length / 2]);
+    }
+
+    /**
+     * Test parallel chunks write every user, profile and address, and the rows load as entities.
+     */
+    @Test
+    public void testLoad_ParallelChunks_WritesAllRows() throws Exception {
+        SyntheticDataset dataset = new SyntheticDataset(7);
+        DatasetLoader loader = new DatasetLoader(dataset, dataSource);
+
+        long addresses = loader.load(USERS, 300, 4);
+
+        long expectedAddresses = 0;
+        for (int i = 0; i < USERS; i++) {
+            expectedAddresses += dataset.user(i).addresses().size();
+        }
+        Assertions.assertEquals(expectedAddresses, addresses);
+        Assertions.assertEquals(USERS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class));
+        Assertions.assertEquals(USERS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_profiles", Long.class));
+        Assertions.assertEquals(
+            expectedAddresses,
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_addresses", Long.class)
+        );
+
+        DatasetUser expected = dataset.user(1999);
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = userRepository.findById(expected.id()).orElseThrow();
+            Assertions.assertEquals(expected.username(), user.getUsername());
+            Assertions.assertEquals(expected.createdAt(), user.getCreatedAt());
+            Assertions.assertEquals(expected.lastName(), user.getUserProfile().getLastName());
+            Assertions.assertEquals(expected.addresses().size(), user.getAddresses().size());
+        });
+    }
+
+}
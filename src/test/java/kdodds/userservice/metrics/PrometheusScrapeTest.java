@@ -0,0 +1,54 @@
+package kdodds.userservice.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Scrapes /actuator/prometheus after a request, metrics export is switched off in tests unless asked for.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+public class PrometheusScrapeTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Test that the scrape carries request, repository, pool and JVM metrics, with histogram buckets and without ids.
+     */
+    @Test
+    public void testScrape_AfterRequest_ContainsLowCardinalityTimers() throws Exception {
+        UUID userId = UUID.randomUUID();
+        mockMvc.perform(get("/v1/users/{userId}", userId).accept(MediaTypes.HAL_JSON))
+            .andExpect(status().isNotFound());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        Assertions.assertTrue(scrape.contains("http_server_requests_seconds_bucket{"));
+        Assertions.assertTrue(scrape.contains("handler=\"UserController.getUserByUserId\""));
+        Assertions.assertTrue(scrape.contains("uri=\"/v1/users/{userId}\""));
+        Assertions.assertTrue(scrape.contains("spring_data_repository_invocations_seconds_bucket{"));
+        Assertions.assertTrue(scrape.contains("repository=\"UserRepository\""));
+        Assertions.assertTrue(scrape.contains("hikaricp_connections_acquire_seconds_bucket{"));
+        Assertions.assertTrue(scrape.contains("hikaricp_connections_usage_seconds_bucket{"));
+        Assertions.assertTrue(scrape.contains("userservice_db_permit_wait_seconds_bucket{"));
+        Assertions.assertTrue(scrape.contains("jvm_gc_memory_allocated_bytes_total"));
+        Assertions.assertTrue(scrape.contains("application=\"user_service\""));
+        Assertions.assertFalse(scrape.contains(userId.toString()));
+    }
+
+}
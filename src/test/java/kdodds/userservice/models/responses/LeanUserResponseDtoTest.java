@@ -0,0 +1,48 @@
+package kdodds.userservice.models.responses;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kdodds.userservice.dto.responses.UserResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserResponseDto;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.utils.TestDataFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+public class LeanUserResponseDtoTest {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Test the record mapped from an entity serializes exactly like the HAL DTO, minus the links.
+     */
+    @Test
+    public void testSerialization_FromEntity_MatchesDtoWithoutLinks() throws Exception {
+        User user = TestDataFactory.createTestUserEntity(TestDataFactory.TEST_USER_ID, true);
+
+        String expectedJson = objectMapper.writeValueAsString(UserResponseDto.fromEntity(user))
+            .replace("\"links\":[],", "");
+
+        Assertions.assertEquals(expectedJson, objectMapper.writeValueAsString(LeanUserResponseDto.fromEntity(user)));
+    }
+
+    /**
+     * Test a user without a profile or addresses maps to null profile fields and an empty address list.
+     */
+    @Test
+    public void testFromEntity_NoProfileOrAddresses() {
+        User user = TestDataFactory.createTestUserEntity(TestDataFactory.TEST_USER_ID, false);
+        user.setUserProfile(null);
+
+        LeanUserResponseDto response = LeanUserResponseDto.fromEntity(user);
+
+        Assertions.assertEquals(TestDataFactory.TEST_USER_ID, response.userId());
+        Assertions.assertNull(response.firstName());
+        Assertions.assertNull(response.profileImageUrl());
+        Assertions.assertTrue(response.addresses().isEmpty());
+    }
+
+}
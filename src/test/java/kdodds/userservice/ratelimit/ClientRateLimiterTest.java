@@ -0,0 +1,97 @@
+package kdodds.userservice.ratelimit;
+
+import kdodds.userservice.config.RateLimitProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+
+@SpringBootTest
+public class ClientRateLimiterTest {
+
+    private static final long ONE_SECOND = Duration.ofSeconds(1).toNanos();
+
+    private ClientRateLimiter clientRateLimiter;
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        RateLimitProperties properties = new RateLimitProperties();
+        // 3 requests per 3 seconds, one token per second
+        properties.setListing(new RateLimitProperties.Budget(3, Duration.ofSeconds(3)));
+
+        clientRateLimiter = new ClientRateLimiter(properties);
+    }
+
+    /**
+     * Test that a client can burst up to capacity and is then rejected until a token refills.
+     */
+    @Test
+    public void testTryConsume_BurstThenRefill() {
+        long now = 0;
+
+        Assertions.assertEquals(2, clientRateLimiter.tryConsume(RateLimitTier.LISTING, "a", now));
+        Assertions.assertEquals(1, clientRateLimiter.tryConsume(RateLimitTier.LISTING, "a", now));
+        Assertions.assertEquals(0, clientRateLimiter.tryConsume(RateLimitTier.LISTING, "a", now));
+
+        // empty, next token in one second
+        Assertions.assertEquals(-ONE_SECOND, clientRateLimiter.tryConsume(RateLimitTier.LISTING, "a", now));
+
+        Assertions.assertEquals(0, clientRateLimiter.tryConsume(RateLimitTier.LISTING, "a", now + ONE_SECOND));
+        Assertions.assertEquals(3 * ONE_SECOND,
+            clientRateLimiter.nanosUntilFull(RateLimitTier.LISTING, "a", now + ONE_SECOND));
+    }
+
+    /**
+     * Test that clients and tiers get independent buckets.
+     */
+    @Test
+    public void testTryConsume_ClientsAndTiersAreIndependent() {
+        for (int i = 0; i < 3; i++) {
+            clientRateLimiter.tryConsume(RateLimitTier.LISTING, "a", 0);
+        }
+
+        Assertions.assertTrue(clientRateLimiter.tryConsume(RateLimitTier.LISTING, "a", 0) < 0);
+        Assertions.assertTrue(clientRateLimiter.tryConsume(RateLimitTier.LISTING, "b", 0) >= 0);
+        Assertions.assertTrue(clientRateLimiter.tryConsume(RateLimitTier.WRITE, "a", 0) >= 0);
+    }
+
+    /**
+     * Test that clients arriving once a tier holds the maximum number of buckets share the overflow bucket.
+     */
+    @Test
+    public void testTryConsume_MaxClientsReached_SharesOverflowBucket() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setListing(new RateLimitProperties.Budget(3, Duration.ofSeconds(3)));
+        properties.setMaxClients(2);
+        ClientRateLimiter limiter = new ClientRateLimiter(properties);
+
+        limiter.tryConsume(RateLimitTier.LISTING, "a", 0);
+        limiter.tryConsume(RateLimitTier.LISTING, "b", 0);
+        Assertions.assertEquals(2, limiter.tryConsume(RateLimitTier.LISTING, "c", 0));
+        Assertions.assertEquals(1, limiter.tryConsume(RateLimitTier.LISTING, "d", 0));
+
+        Assertions.assertEquals(3, limiter.size(RateLimitTier.LISTING));
+        Assertions.assertEquals(2 * ONE_SECOND, limiter.nanosUntilFull(RateLimitTier.LISTING, "d", 0));
+    }
+
+    /**
+     * Test that only buckets that have refilled completely are evicted.
+     */
+    @Test
+    public void testEvictIdleBuckets_RemovesOnlyFullBuckets() {
+        clientRateLimiter.tryConsume(RateLimitTier.LISTING, "a", 0);
+        clientRateLimiter.tryConsume(RateLimitTier.LISTING, "b", 2 * ONE_SECOND);
+        Assertions.assertEquals(2, clientRateLimiter.size(RateLimitTier.LISTING));
+
+        clientRateLimiter.evictIdleBuckets(2 * ONE_SECOND);
+
+        Assertions.assertEquals(1, clientRateLimiter.size(RateLimitTier.LISTING));
+        Assertions.assertEquals(0, clientRateLimiter.nanosUntilFull(RateLimitTier.LISTING, "a", 2 * ONE_SECOND));
+    }
+
+}
@@ -0,0 +1,115 @@
+package kdodds.userservice.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import kdodds.userservice.config.RateLimitProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Set;
+
+@SpringBootTest
+public class RateLimitFilterTest {
+
+    private RateLimitFilter rateLimitFilter;
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setListing(new RateLimitProperties.Budget(2, Duration.ofMinutes(1)));
+        properties.setSearch(new RateLimitProperties.Budget(1, Duration.ofMinutes(1)));
+        properties.setApiKeys(Set.of("partner"));
+
+        rateLimitFilter = new RateLimitFilter(new ClientRateLimiter(properties), properties, new ObjectMapper());
+    }
+
+    /**
+     * Test that allowed requests carry RateLimit headers and pass through.
+     */
+    @Test
+    public void testDoFilter_UnderLimit_SetsHeadersAndPassesThrough() throws Exception {
+        FilterChain chain = Mockito.mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        rateLimitFilter.doFilter(new MockHttpServletRequest("GET", "/v1/users"), response, chain);
+
+        Mockito.verify(chain).doFilter(Mockito.any(), Mockito.any());
+        Assertions.assertEquals("2", response.getHeader("RateLimit-Limit"));
+        Assertions.assertEquals("1", response.getHeader("RateLimit-Remaining"));
+        Assertions.assertEquals("30", response.getHeader("RateLimit-Reset"));
+    }
+
+    /**
+     * Test that a filtered listing is charged to the search budget and rejected with a 429 once it is spent, while
+     * the same client can still page the unfiltered listing.
+     */
+    @Test
+    public void testDoFilter_SearchBudgetSpent_Returns429() throws Exception {
+        FilterChain chain = Mockito.mock(FilterChain.class);
+
+        MockHttpServletRequest search = new MockHttpServletRequest("GET", "/v1/users");
+        search.addParameter("username", "tom");
+        search.addHeader("X-API-Key", "partner");
+        rateLimitFilter.doFilter(search, new MockHttpServletResponse(), chain);
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(search, rejected, chain);
+
+        Assertions.assertEquals(429, rejected.getStatus());
+        Assertions.assertEquals("0", rejected.getHeader("RateLimit-Remaining"));
+        Assertions.assertEquals("60", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+
+        MockHttpServletRequest listing = new MockHttpServletRequest("GET", "/v1/users");
+        listing.addHeader("X-API-Key", "partner");
+        MockHttpServletResponse allowed = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(listing, allowed, chain);
+
+        Assertions.assertEquals(200, allowed.getStatus());
+        Mockito.verify(chain, Mockito.times(2)).doFilter(Mockito.any(), Mockito.any());
+    }
+
+    /**
+     * Test that an unknown api key does not get a budget of its own, the request is charged to its address.
+     */
+    @Test
+    public void testDoFilter_UnknownApiKey_LimitedByAddress() throws Exception {
+        FilterChain chain = Mockito.mock(FilterChain.class);
+
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest listing = new MockHttpServletRequest("GET", "/v1/users");
+            listing.addHeader("X-API-Key", "made-up-" + i);
+            rateLimitFilter.doFilter(listing, new MockHttpServletResponse(), chain);
+        }
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(new MockHttpServletRequest("GET", "/v1/users"), rejected, chain);
+
+        Assertions.assertEquals(429, rejected.getStatus());
+        Mockito.verify(chain, Mockito.times(2)).doFilter(Mockito.any(), Mockito.any());
+    }
+
+    /**
+     * Test that single reads are not rate limited.
+     */
+    @Test
+    public void testDoFilter_SingleRead_NotLimited() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        rateLimitFilter.doFilter(
+            new MockHttpServletRequest("GET", "/v1/users/abc"), response, Mockito.mock(FilterChain.class)
+        );
+
+        Assertions.assertNull(response.getHeader("RateLimit-Limit"));
+    }
+
+}
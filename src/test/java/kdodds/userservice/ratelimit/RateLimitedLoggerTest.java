@@ -0,0 +1,86 @@
+package kdodds.userservice.ratelimit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SpringBootTest
+public class RateLimitedLoggerTest {
+
+    private static final long ONE_SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final AtomicLong now = new AtomicLong();
+
+    private Logger mockLogger;
+
+    private RateLimitedLogger rateLimitedLogger;
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        mockLogger = Mockito.mock(Logger.class);
+        Mockito.when(mockLogger.isWarnEnabled()).thenReturn(true);
+        Mockito.when(mockLogger.isErrorEnabled()).thenReturn(true);
+
+        // two messages back to back, then one per second
+        rateLimitedLogger = new RateLimitedLogger(mockLogger, Duration.ofSeconds(1), 2, now::get);
+    }
+
+    /**
+     * Test that a burst is logged as is and the messages beyond it are dropped and counted.
+     */
+    @Test
+    public void testWarn_BeyondBurst_Suppresses() {
+        rateLimitedLogger.warn("User not found for id: {}", "a");
+        rateLimitedLogger.warn("User not found for id: {}", "b");
+        rateLimitedLogger.warn("User not found for id: {}", "c");
+        rateLimitedLogger.warn("User not found for id: {}", "d");
+
+        Mockito.verify(mockLogger).warn("User not found for id: {}", new Object[] {"a"});
+        Mockito.verify(mockLogger).warn("User not found for id: {}", new Object[] {"b"});
+        Mockito.verify(mockLogger, Mockito.times(2)).warn(Mockito.anyString(), Mockito.any(Object[].class));
+        Assertions.assertEquals(2, rateLimitedLogger.getSuppressed());
+    }
+
+    /**
+     * Test that the first message logged after the interval reports how many were dropped.
+     */
+    @Test
+    public void testError_AfterInterval_ReportsSuppressed() {
+        rateLimitedLogger.error("Invalid request");
+        rateLimitedLogger.error("Invalid request");
+        rateLimitedLogger.error("Invalid request");
+
+        now.addAndGet(ONE_SECOND);
+        rateLimitedLogger.error("Invalid request for id: {}", "e");
+
+        Mockito.verify(mockLogger).error(
+            "Invalid request for id: {} ({} similar messages suppressed)", new Object[] {"e", 1L}
+        );
+        Assertions.assertEquals(0, rateLimitedLogger.getSuppressed());
+    }
+
+    /**
+     * Test that nothing is counted while the level is disabled.
+     */
+    @Test
+    public void testWarn_LevelDisabled_DoesNotCount() {
+        Mockito.when(mockLogger.isWarnEnabled()).thenReturn(false);
+
+        for (int i = 0; i < 5; i++) {
+            rateLimitedLogger.warn("User not found for id: {}", i);
+        }
+
+        Mockito.verify(mockLogger, Mockito.never()).warn(Mockito.anyString(), Mockito.any(Object[].class));
+        Assertions.assertEquals(0, rateLimitedLogger.getSuppressed());
+    }
+
+}
@@ -0,0 +1,262 @@
+package kdodds.userservice.repositories;
+
+import kdodds.userservice.entities.User;
+import kdodds.userservice.load.dataset.DatasetLoader;
+import kdodds.userservice.load.dataset.DatasetUser;
+import kdodds.userservice.load.dataset.SyntheticDataset;
+import kdodds.userservice.repositories.projections.UserFieldSet;
+import kdodds.userservice.repositories.specifications.UserSpecification;
+import kdodds.userservice.utils.QueryPlans;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+import javax.sql.DataSource;
+
+/**
+ * Checks the Postgres plan of every statement the repositories issue against a database seeded with a synthetic
+ * dataset: no sequential scan of users, user_profiles or user_addresses where an index should answer, and no plan
+ * node expecting far more rows than the call needs. Runs with gradle explainTest against the local Postgres (see the
+ * explain profile), never with the in-memory database of the other tests.
+ */
+@Tag("explain")
+@SpringBootTest
+public class QueryPlanTest {
+
+    private static final int USERS = Integer.getInteger("explain.users", 200_000);
+
+    private static final SyntheticDataset DATASET = new SyntheticDataset(42);
+
+    // filter values matching few or no users, the case where an unindexed filter costs most: every row is read to
+    // find a handful
+    private static final String USERNAME = "4321";
+
+    private static final String EMAIL = "4321@";
+
+    private static final String FIRST_NAME = "xavier";
+
+    private static final String LAST_NAME = "zhang";
+
+    private static final String STATUS = "ACTIVE";
+
+    private static final UserFieldSet FIELDS = UserFieldSet.parse("username,email,first_name,last_name");
+
+    // about half way through the ids, where a later batch of a written page continues
+    private static final UUID KEYSET_AFTER_ID = UUID.fromString("80000000-0000-4000-8000-000000000000");
+
+    private static final long SINGLE_USER_ROWS = 50;
+
+    private static final long FILTERED_ROWS = 2000;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private UserAddressRepository userAddressRepository;
+
+    @Autowired
+    private UserTombstoneRepository userTombstoneRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Registers the statement capture on the data source.
+     */
+    @TestConfiguration
+    static class QueryPlanConfig {
+
+        @Bean
+        QueryPlans queryPlans() {
+            return new QueryPlans();
+        }
+
+    }
+
+    /**
+     * Seeds the database on first use and refreshes the planner statistics.
+     *
+     * @param dataSource The Postgres data source.
+     * @param jdbcTemplate Counts the users.
+     */
+    @BeforeAll
+    public static void seed(@Autowired DataSource dataSource, @Autowired JdbcTemplate jdbcTemplate) throws Exception {
+        DatasetLoader loader = new DatasetLoader(DATASET, dataSource);
+        Long users = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+        if (users == null || users == 0) {
+            loader.load(USERS, 10_000, 4);
+        } else {
+            Assertions.assertTrue(users >= USERS, "Expected an empty database or at least " + USERS + " users");
+        }
+        loader.analyze();
+    }
+
+    /**
+     * Test each combination of the listing filters (u(sername), e(mail), f(irst name), l(ast name), s(tatus), "-" for
+     * none) reads through indexes for the page, the sparse row page, the first and a later batch of a written page and
+     * the count. Only combinations without a text
+     * filter may scan, they match most users anyway.
+     *
+     * @param filters The active filters.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "-", "u", "e", "f", "l", "s",
+        "ue", "uf", "ul", "us", "ef", "el", "es", "fl", "fs", "ls",
+        "uef", "uel", "ues", "ufl", "ufs", "uls", "efl", "efs", "els", "fls",
+        "uefl", "uefs", "uels", "ufls", "efls",
+        "uefls"
+    })
+    public void testListing_FilterCombination_UsesIndexes(String filters) throws Exception {
+        Specification<User> spec = UserSpecification.build(
+            filters.contains("u") ? USERNAME : null,
+            filters.contains("e") ? EMAIL : null,
+            filters.contains("f") ? FIRST_NAME : null,
+            filters.contains("l") ? LAST_NAME : null,
+            filters.contains("s") ? STATUS : null
+        );
+        boolean textFilter = filters.chars().anyMatch(filter -> "uefl".indexOf(filter) >= 0);
+
+        List<QueryPlans.CapturedStatement> statements = QueryPlans.capture(() -> {
+            userRepository.findAll(spec, PageRequest.of(0, 20));
+            userRepository.findUserRows(spec, FIELDS, PageRequest.of(0, 20));
+            userRepository.findUserRowsAfter(spec, FIELDS, null, 0, 20);
+            userRepository.findUserRowsAfter(spec, FIELDS, KEYSET_AFTER_ID, 0, 20);
+            userRepository.count(spec);
+        });
+
+        assertPlans("listing " + filters, statements, !textFilter, textFilter ? FILTERED_ROWS : Long.MAX_VALUE);
+    }
+
+    /**
+     * Test the single user and single address reads use the primary keys and the user_id index.
+     */
+    @Test
+    public void testSingleUserReads_UseIndexes() throws Exception {
+        DatasetUser user = userWithAddress();
+
+        List<QueryPlans.CapturedStatement> statements = QueryPlans.capture(() -> {
+            userRepository.findById(user.id());
+            userRepository.findEtagStateById(user.id());
+            userRepository.findUserRowById(user.id(), UserFieldSet.ALL);
+            userProfileRepository.findById(user.id());
+            userAddressRepository.findAddressesByUserId(user.id());
+            userAddressRepository.findById(user.addresses().get(0).id());
+        });
+
+        assertPlans("single user reads", statements, false, SINGLE_USER_ROWS);
+    }
+
+    /**
+     * Test the addresses of a page of users are read through the user_id index.
+     */
+    @Test
+    public void testPageAddressReads_UseIndexes() throws Exception {
+        List<UUID> userIds = LongStream.range(0, 20).mapToObj(index -> DATASET.userId(index * 997)).toList();
+
+        List<QueryPlans.CapturedStatement> statements = QueryPlans.capture(() -> {
+            userAddressRepository.findByUserIdIn(userIds);
+            userAddressRepository.findRowsByUserIdIn(userIds);
+        });
+
+        assertPlans("page address reads", statements, false, 20 * SINGLE_USER_ROWS);
+    }
+
+    /**
+     * Test the CTE inserts and the updates and deletes of a single user, run in a transaction that is rolled back.
+     */
+    @Test
+    public void testWrites_UseIndexes() throws Exception {
+        DatasetUser user = userWithAddress();
+        UUID deletedUserId = DATASET.userId(USERS / 3);
+
+        List<QueryPlans.CapturedStatement> statements = QueryPlans.capture(() ->
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.createUserAndProfileAndAddress("explain-a", "explain-a@example.com", "hash", "First",
+                    "Last", null, null, "Home", "1 Main St", null, "Denver", "CO", "80202", "USA");
+                userRepository.createUserAndProfile("explain-b", "explain-b@example.com", "hash", "First", "Last",
+                    null, null);
+
+                User existing = userRepository.findById(user.id()).orElseThrow();
+                existing.setStatus("INACTIVE");
+                userRepository.saveAndFlush(existing);
+                userAddressRepository.deleteAddressById(user.id(), user.addresses().get(0).id());
+                userRepository.deleteById(deletedUserId);
+                userRepository.flush();
+
+                status.setRollbackOnly();
+            })
+        );
+
+        assertPlans("writes", statements, false, SINGLE_USER_ROWS);
+    }
+
+    /**
+     * Test a change feed page reads the users and tombstones after a recent cursor through the (timestamp, id)
+     * indexes, and the address write's touch of its user goes through the primary key.
+     */
+    @Test
+    public void testChangeFeed_UsesIndexes() throws Exception {
+        DatasetUser user = userWithAddress();
+        Instant since = Instant.now().minus(Duration.ofHours(1));
+        UUID minId = new UUID(0, 0);
+
+        List<QueryPlans.CapturedStatement> statements = QueryPlans.capture(() ->
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.findChangedSince(since, minId, Instant.now(), Limit.of(101));
+                userTombstoneRepository.findDeletedSince(since, minId, Instant.now(), Limit.of(101));
+                userRepository.touch(user.id(), Instant.now());
+                userTombstoneRepository.deleteByDeletedAtBefore(since.minus(Duration.ofDays(30)));
+
+                status.setRollbackOnly();
+            })
+        );
+
+        assertPlans("change feed", statements, false, SINGLE_USER_ROWS);
+    }
+
+    private void assertPlans(
+        String description,
+        List<QueryPlans.CapturedStatement> statements,
+        boolean seqScanAllowed,
+        long maxRows
+    ) throws Exception {
+        Assertions.assertFalse(statements.isEmpty(), "No statements captured for " + description);
+        for (QueryPlans.CapturedStatement statement : statements) {
+            QueryPlans.assertPlan(dataSource, description, statement, seqScanAllowed, maxRows);
+        }
+    }
+
+    private static DatasetUser userWithAddress() {
+        for (long index = USERS / 2; ; index++) {
+            DatasetUser user = DATASET.user(index);
+            if (!user.addresses().isEmpty()) {
+                return user;
+            }
+        }
+    }
+
+}
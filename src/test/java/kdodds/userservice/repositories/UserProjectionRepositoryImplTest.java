@@ -0,0 +1,148 @@
+package kdodds.userservice.repositories;
+
+import jakarta.persistence.EntityManagerFactory;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.entities.UserProfile;
+import kdodds.userservice.repositories.projections.UserFieldSet;
+import kdodds.userservice.repositories.projections.UserRow;
+import kdodds.userservice.repositories.specifications.UserSpecification;
+import kdodds.userservice.utils.TestDataFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Runs the sparse user projections against the in-memory database and counts the statements they issue.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class UserProjectionRepositoryImplTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private UUID userId;
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        User user = new User();
+        user.setUsername(TestDataFactory.TEST_USER_USERNAME);
+        user.setEmail(TestDataFactory.TEST_USER_EMAIL);
+        user.setPasswordHash(TestDataFactory.TEST_USER_PASSWORD);
+        user.setStatus("ACTIVE");
+        user.setCreatedAt(Instant.now());
+        user.setUpdatedAt(Instant.now());
+
+        UserProfile profile = new UserProfile();
+        profile.setFirstName(TestDataFactory.TEST_USER_FIRST_NAME);
+        profile.setLastName(TestDataFactory.TEST_USER_LAST_NAME);
+        profile.setCreatedAt(Instant.now());
+        profile.setUpdatedAt(Instant.now());
+        user.setUserProfile(profile);
+
+        UserAddress address = new UserAddress();
+        address.setAddressLine1(TestDataFactory.TEST_USER_ADDRESS_LINE_1);
+        address.setCity(TestDataFactory.TEST_USER_CITY);
+        address.setCountry(TestDataFactory.TEST_USER_COUNTRY);
+        address.setCreatedAt(Instant.now());
+        address.setUpdatedAt(Instant.now());
+        user.addAddress(address);
+
+        userId = userRepository.save(user).getId();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    /**
+     * Clean up after each test.
+     */
+    @AfterEach
+    public void teardown() {
+        userRepository.deleteAll();
+    }
+
+    /**
+     * Test a page of user ids and usernames is read with a single statement (no count for a partial first page, no
+     * profile or address loads) and leaves the other columns empty.
+     */
+    @Test
+    public void testFindUserRows_UsernameOnly_SingleStatement() {
+        Page<UserRow> page = userRepository.findUserRows(
+            null,
+            UserFieldSet.parse("username"),
+            PageRequest.of(0, 10)
+        );
+
+        Assertions.assertEquals(1, page.getTotalElements());
+        UserRow row = page.getContent().get(0);
+        Assertions.assertEquals(userId, row.id());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_USERNAME, row.username());
+        Assertions.assertNull(row.email());
+        Assertions.assertNull(row.firstName());
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    /**
+     * Test profile fields can be selected together with a filter on the profile, which already joins it.
+     */
+    @Test
+    public void testFindUserRows_ProfileFieldsWithProfileFilter_ReturnsMatchingRows() {
+        UserFieldSet fields = UserFieldSet.parse("first_name,last_name");
+
+        Page<UserRow> matching = userRepository.findUserRows(
+            UserSpecification.build(null, null, TestDataFactory.TEST_USER_FIRST_NAME, null, null),
+            fields,
+            PageRequest.of(0, 10)
+        );
+        Page<UserRow> notMatching = userRepository.findUserRows(
+            UserSpecification.build(null, null, "nobody", null, null),
+            fields,
+            PageRequest.of(0, 10)
+        );
+
+        Assertions.assertEquals(1, matching.getContent().size());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_FIRST_NAME, matching.getContent().get(0).firstName());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_LAST_NAME, matching.getContent().get(0).lastName());
+        Assertions.assertNull(matching.getContent().get(0).username());
+        Assertions.assertTrue(notMatching.isEmpty());
+    }
+
+    /**
+     * Test a single user is read by id with a single statement, and a missing user returns empty.
+     */
+    @Test
+    public void testFindUserRowById_ReturnsRowOrEmpty() {
+        Optional<UserRow> row = userRepository.findUserRowById(userId, UserFieldSet.parse("email,first_name"));
+
+        Assertions.assertTrue(row.isPresent());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_EMAIL, row.get().email());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_FIRST_NAME, row.get().firstName());
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+
+        Assertions.assertTrue(
+            userRepository.findUserRowById(UUID.randomUUID(), UserFieldSet.parse("email")).isEmpty()
+        );
+    }
+
+}
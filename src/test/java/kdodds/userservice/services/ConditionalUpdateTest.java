@@ -0,0 +1,183 @@
+package kdodds.userservice.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kdodds.userservice.dto.requests.PatchUserAddressRequestDto;
+import kdodds.userservice.dto.requests.PatchUserRequestDto;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.entities.UserProfile;
+import kdodds.userservice.exceptions.models.exceptions.PreconditionFailedException;
+import kdodds.userservice.repositories.UserAddressRepository;
+import kdodds.userservice.repositories.UserRepository;
+import kdodds.userservice.utils.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs conditional updates against the in-memory database. Updates read the row, check If-Match against the version
+ * read, and write it back with a versioned {@code UPDATE ... WHERE version = ?}; these tests pin down that a write
+ * landing between the read and the update is still caught by the database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ConditionalUpdateTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserAddressService userAddressService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserAddressRepository userAddressRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private UUID userId;
+
+    private UUID addressId;
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        User user = new User();
+        user.setUsername(TestDataFactory.TEST_USER_USERNAME);
+        user.setEmail(TestDataFactory.TEST_USER_EMAIL);
+        user.setPasswordHash(TestDataFactory.TEST_USER_PASSWORD);
+        user.setStatus("ACTIVE");
+        user.setCreatedAt(Instant.now());
+        user.setUpdatedAt(Instant.now());
+
+        UserProfile profile = new UserProfile();
+        profile.setFirstName(TestDataFactory.TEST_USER_FIRST_NAME);
+        profile.setLastName(TestDataFactory.TEST_USER_LAST_NAME);
+        profile.setCreatedAt(Instant.now());
+        profile.setUpdatedAt(Instant.now());
+        user.setUserProfile(profile);
+
+        UserAddress address = new UserAddress();
+        address.setAddressLine1(TestDataFactory.TEST_USER_ADDRESS_LINE_1);
+        address.setCity(TestDataFactory.TEST_USER_CITY);
+        address.setCountry(TestDataFactory.TEST_USER_COUNTRY);
+        address.setCreatedAt(Instant.now());
+        address.setUpdatedAt(Instant.now());
+        user.addAddress(address);
+
+        User saved = userRepository.save(user);
+        userId = saved.getId();
+        addressId = saved.getAddresses().get(0).getId();
+    }
+
+    /**
+     * Clean up after each test.
+     */
+    @AfterEach
+    public void teardown() {
+        userRepository.deleteAll();
+    }
+
+    /**
+     * Test the ETag of a PATCH response is the one a GET of the updated user returns.
+     */
+    @Test
+    public void testUpdateUser_ReturnsEtagOfWrittenState() throws Exception {
+        String etag = mockMvc.perform(get("/v1/users/{userId}", userId).accept(MediaTypes.HAL_JSON))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+        String updatedEtag = mockMvc.perform(patch("/v1/users/{userId}", userId)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(TestDataFactory.createPatchUserRequestDto())))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+        Assertions.assertNotEquals(etag, updatedEtag);
+        mockMvc.perform(get("/v1/users/{userId}", userId).accept(MediaTypes.HAL_JSON))
+            .andExpect(header().string(HttpHeaders.ETAG, updatedEtag));
+    }
+
+    /**
+     * Test a user update whose If-Match matched the version it read fails with a 412 when another write commits
+     * before its update.
+     */
+    @Test
+    public void testUpdateUser_WriteBetweenReadAndUpdate_ThrowsPreconditionFailed() {
+        PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // the service joins this transaction and finds the user already read, at its old version
+            long version = userRepository.findById(userId).orElseThrow().getVersion();
+            commitConcurrently("UPDATE users SET version = version + 1 WHERE id = ?", userId);
+
+            Assertions.assertThrows(
+                PreconditionFailedException.class,
+                () -> userService.updateUser(userId, request, Etags.forVersion(version))
+            );
+            status.setRollbackOnly();
+        });
+    }
+
+    /**
+     * Test the same for an address update.
+     */
+    @Test
+    public void testUpdateUserAddress_WriteBetweenReadAndUpdate_ThrowsPreconditionFailed() {
+        PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            long version = userAddressRepository.findById(addressId).orElseThrow().getVersion();
+            commitConcurrently("UPDATE user_addresses SET version = version + 1 WHERE id = ?", addressId);
+
+            Assertions.assertThrows(
+                PreconditionFailedException.class,
+                () -> userAddressService.updateUserAddressById(userId, addressId, request, Etags.forVersion(version))
+            );
+            status.setRollbackOnly();
+        });
+    }
+
+    // runs on another thread, so on another connection that commits on its own
+    private void commitConcurrently(String sql, UUID id) {
+        CompletableFuture.runAsync(() -> jdbcTemplate.update(sql, id)).join();
+    }
+
+}
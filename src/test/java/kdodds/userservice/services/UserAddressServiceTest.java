@@ -4,9 +4,13 @@ import kdodds.userservice.dto.requests.CreateUserAddressRequestDto;
 import kdodds.userservice.dto.requests.PatchUserAddressRequestDto;
 import kdodds.userservice.dto.responses.UserAddressResponseDto;
 import kdodds.userservice.dto.responses.UserAddressesResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserAddressesResponseDto;
 import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.events.UserChangeType;
+import kdodds.userservice.events.UserOutbox;
 import kdodds.userservice.exceptions.models.exceptions.InvalidRequestDataException;
 import kdodds.userservice.exceptions.models.exceptions.InvalidUserIdException;
+import kdodds.userservice.exceptions.models.exceptions.PreconditionFailedException;
 import kdodds.userservice.exceptions.models.exceptions.UserAddressNotFound;
 import kdodds.userservice.exceptions.models.exceptions.UserNotFoundException;
 import kdodds.userservice.repositories.UserAddressRepository;
@@ -28,6 +32,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 
 @SpringBootTest
 public class UserAddressServiceTest {
@@ -38,6 +43,9 @@ public class UserAddressServiceTest {
     @Mock
     private UserAddressRepository mockUserAddressRepository;
 
+    @Mock
+    private UserOutbox mockUserOutbox;
+
     @InjectMocks
     private UserAddressService userAddressService;
 
@@ -49,7 +57,8 @@ public class UserAddressServiceTest {
         // clear mocks
         Mockito.reset(
             mockUserAddressRepository,
-            mockUserRepository
+            mockUserRepository,
+            mockUserOutbox
         );
     }
 
@@ -58,12 +67,12 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testGetUserAddressesDtoByUserId_UserExists() throws Exception {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock user address repository response
-        Mockito.when(mockUserAddressRepository.findAddressesByUserId(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserAddressRepository.findAddressesByUserId(userId)).thenReturn(
             Optional.of(
-                List.of(TestDataFactory.createTestUserAddressEntity(userId))
+                List.of(TestDataFactory.createTestUserAddressEntity(userId.toString()))
             )
         );
 
@@ -71,7 +80,7 @@ public class UserAddressServiceTest {
 
         // validate response
         Assertions.assertNotNull(response);
-        Assertions.assertEquals(userId, response.getUserId());
+        Assertions.assertEquals(userId.toString(), response.getUserId());
 
         // validate addresses
         Assertions.assertNotNull(response.getAddresses());
@@ -96,20 +105,27 @@ public class UserAddressServiceTest {
     }
 
     /**
-     * Test the getUserAddressesDtoByUserId method throws an InvalidUserIdException when the user id is empty.
+     * Test the getLeanUserAddressesDtoByUserId method maps the address entities straight to records, and returns an
+     * empty list when the user has none.
      */
     @Test
-    public void testGetUserAddressesDtoByUserId_MissingId_ThrowsInvalidUserIdException() {
-        String userId = "";
+    public void testGetLeanUserAddressesDtoByUserId_MapsEntities() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
-        try {
-            userAddressService.getUserAddressesDtoByUserId(userId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception type thrown: " + ex.getClass().getName());
-        }
+        Mockito.when(mockUserAddressRepository.findAddressesByUserId(userId)).thenReturn(
+            Optional.of(List.of(TestDataFactory.createTestUserAddressEntity(userId.toString())))
+        );
+
+        LeanUserAddressesResponseDto response = userAddressService.getLeanUserAddressesDtoByUserId(userId);
+
+        Assertions.assertEquals(userId.toString(), response.userId());
+        Assertions.assertEquals(1, response.addresses().size());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_CITY, response.addresses().getFirst().city());
+        Assertions.assertEquals(userId.toString(), response.addresses().getFirst().userId());
+
+        Mockito.when(mockUserAddressRepository.findAddressesByUserId(userId))
+            .thenReturn(Optional.empty());
+        Assertions.assertTrue(userAddressService.getLeanUserAddressesDtoByUserId(userId).addresses().isEmpty());
     }
 
     /**
@@ -117,7 +133,7 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testGetUserAddressesDtoByUserId_NullId_ThrowsInvalidUserIdException() {
-        String userId = null;
+        UUID userId = null;
 
         try {
             userAddressService.getUserAddressesDtoByUserId(userId);
@@ -135,10 +151,10 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testGetUserAddressesDtoByUserId_RepositoryCallFails_ThrowsException() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock user address repository response
-        Mockito.when(mockUserAddressRepository.findAddressesByUserId(UUID.fromString(userId))).thenThrow(
+        Mockito.when(mockUserAddressRepository.findAddressesByUserId(userId)).thenThrow(
             new RuntimeException("mock exception")
         );
 
@@ -158,10 +174,10 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testGetUserAddressesDtoByUserId_UserHasNoAddresses_ReturnsEmptyList() throws Exception {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock user address repository response
-        Mockito.when(mockUserAddressRepository.findAddressesByUserId(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserAddressRepository.findAddressesByUserId(userId)).thenReturn(
             Optional.empty()
         );
 
@@ -169,7 +185,7 @@ public class UserAddressServiceTest {
 
         // validate response
         Assertions.assertNotNull(response);
-        Assertions.assertEquals(userId, response.getUserId());
+        Assertions.assertEquals(userId.toString(), response.getUserId());
         Assertions.assertNotNull(response.getAddresses());
         Assertions.assertEquals(0, response.getAddresses().size());
     }
@@ -179,20 +195,20 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testGetUserAddressDtoById_ValidAddressId_ReturnsUserAddressDto() throws Exception {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
 
         // mock user address repository response
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId))).thenReturn(
-            Optional.of(TestDataFactory.createTestUserAddressEntity(userId))
+        Mockito.when(mockUserAddressRepository.findById(addressId)).thenReturn(
+            Optional.of(TestDataFactory.createTestUserAddressEntity(userId.toString()))
         );
 
         UserAddressResponseDto response = userAddressService.getUserAddressDtoById(userId, addressId);
 
         // validate response
         Assertions.assertNotNull(response);
-        Assertions.assertEquals(userId, response.getUserId());
-        Assertions.assertEquals(addressId, response.getAddressId());
+        Assertions.assertEquals(userId.toString(), response.getUserId());
+        Assertions.assertEquals(addressId.toString(), response.getAddressId());
         Assertions.assertEquals(TestDataFactory.TEST_USER_ADDRESS_LINE_1, response.getAddressLine1());
         Assertions.assertEquals(TestDataFactory.TEST_USER_ADDRESS_TYPE, response.getAddressType());
         Assertions.assertEquals(TestDataFactory.TEST_USER_CITY, response.getCity());
@@ -203,31 +219,13 @@ public class UserAddressServiceTest {
         Assertions.assertNotNull(response.getUpdatedAt());
     }
 
-    /**
-     * Test the getUserAddressById method throws an InvalidRequestDataException when the user id is empty.
-     */
-    @Test
-    public void testGetUserAddressDtoById_MissingUserId_ThrowsInvalidUserIdException() {
-        String userId = "";
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-
-        try {
-            userAddressService.getUserAddressDtoById(userId, addressId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidRequestDataException ex) {
-            Assertions.assertEquals("Invalid request data.", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception type thrown: " + ex.getClass().getName());
-        }
-    }
-
     /**
      * Test the getUserAddressById method throws an InvalidRequestDataException when the user id is null.
      */
     @Test
     public void testGetUserAddressDtoById_NullUserId_ThrowsInvalidUserIdException() {
-        String userId = null;
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
+        UUID userId = null;
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
 
         try {
             userAddressService.getUserAddressDtoById(userId, addressId);
@@ -239,31 +237,13 @@ public class UserAddressServiceTest {
         }
     }
 
-    /**
-     * Test the getUserAddressById method throws an InvalidRequestDataException when the address id is empty.
-     */
-    @Test
-    public void testGetUserAddressDtoById_MissingAddressId_ThrowsInvalidRequestDataException() {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = "";
-
-        try {
-            userAddressService.getUserAddressDtoById(userId, addressId);
-            Assertions.fail("Expected InvalidRequestDataException not thrown");
-        } catch (InvalidRequestDataException ex) {
-            Assertions.assertEquals("Invalid request data.", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception type thrown: " + ex.getClass().getName());
-        }
-    }
-
     /**
      * Test the getUserAddressById method throws an InvalidRequestDataException when the address id is null.
      */
     @Test
     public void testGetUserAddressDtoById_NullAddressId_ThrowsInvalidRequestDataException() {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = null;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UUID addressId = null;
 
         try {
             userAddressService.getUserAddressDtoById(userId, addressId);
@@ -280,11 +260,11 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testGetUserAddressDtoById_RepositoryCallFails_ThrowsException() {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
 
         // mock user address repository response
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId))).thenThrow(
+        Mockito.when(mockUserAddressRepository.findById(addressId)).thenThrow(
             new RuntimeException("mock exception")
         );
 
@@ -309,11 +289,11 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testGetUserAddressDtoById_UserDoesNotHaveAddress_ThrowsUserAddressNotFoundException() {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
 
         // mock user address repository response
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId))).thenReturn(
+        Mockito.when(mockUserAddressRepository.findById(addressId)).thenReturn(
             Optional.empty()
         );
 
@@ -357,7 +337,7 @@ public class UserAddressServiceTest {
 
         try {
             UserAddressResponseDto response = userAddressService.createUserAddress(
-                TestDataFactory.TEST_USER_ID,
+                TestDataFactory.TEST_USER_UUID,
                 request
             );
 
@@ -376,6 +356,14 @@ public class UserAddressServiceTest {
         } catch (Exception ex) {
             Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
         }
+
+        // the owning user's updated_at moves with the address, so the change feed picks the user up
+        Mockito.verify(mockUserRepository, Mockito.times(1)).touch(eq(TestDataFactory.TEST_USER_UUID), any());
+        Mockito.verify(mockUserOutbox, Mockito.times(1)).record(
+            UserChangeType.ADDRESS_CREATED,
+            TestDataFactory.TEST_USER_UUID,
+            TestDataFactory.TEST_ADDRESS_UUID_1
+        );
     }
 
     /**
@@ -395,30 +383,13 @@ public class UserAddressServiceTest {
         }
     }
 
-    /**
-     * Test the createUserAddress method throws an exception when the userId is empty.
-     */
-    @Test
-    public void testCreateUserAddress_EmptyUserId_ThrowsInvalidUserIdException() {
-        CreateUserAddressRequestDto request = TestDataFactory.createCreateUserAddressRequestDto();
-
-        try {
-            userAddressService.createUserAddress("", request);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception type thrown: " + ex.getClass().getName());
-        }
-    }
-
     /**
      * Test the createUserAddress method throws an exception when the request is null.
      */
     @Test
     public void testCreateUserAddress_NullRequest_ThrowsInvalidRequestDataException() {
         try {
-            userAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, null);
+            userAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, null);
             Assertions.fail("Expected InvalidRequestDataException not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Request body must be included in Create User Address request", ex.getMessage());
@@ -436,7 +407,7 @@ public class UserAddressServiceTest {
         request.setAddressLine1(null);
 
         try {
-            userAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, request);
+            userAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, request);
             Assertions.fail("Expected InvalidRequestDataException not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Address line 1 must be included in create user address request", ex.getMessage());
@@ -454,7 +425,7 @@ public class UserAddressServiceTest {
         request.setAddressLine1("");
 
         try {
-            userAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, request);
+            userAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, request);
             Assertions.fail("Expected InvalidRequestDataException not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Address line 1 must be included in create user address request", ex.getMessage());
@@ -472,7 +443,7 @@ public class UserAddressServiceTest {
         request.setCity(null);
 
         try {
-            userAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, request);
+            userAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, request);
             Assertions.fail("Expected InvalidRequestDataException not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("City must be included in create user address request", ex.getMessage());
@@ -490,7 +461,7 @@ public class UserAddressServiceTest {
         request.setCity("");
 
         try {
-            userAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, request);
+            userAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, request);
             Assertions.fail("Expected InvalidRequestDataException not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("City must be included in create user address request", ex.getMessage());
@@ -508,7 +479,7 @@ public class UserAddressServiceTest {
         request.setState(null);
 
         try {
-            userAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, request);
+            userAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, request);
             Assertions.fail("Expected InvalidRequestDataException not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("State must be included in create user address request", ex.getMessage());
@@ -526,7 +497,7 @@ public class UserAddressServiceTest {
         request.setState("");
 
         try {
-            userAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, request);
+            userAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, request);
             Assertions.fail("Expected InvalidRequestDataException not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("State must be included in create user address request", ex.getMessage());
@@ -544,7 +515,7 @@ public class UserAddressServiceTest {
         request.setZipCode(null);
 
         try {
-            userAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, request);
+            userAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, request);
             Assertions.fail("Expected InvalidRequestDataException not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Zip code must be included in create user address request", ex.getMessage());
@@ -562,7 +533,7 @@ public class UserAddressServiceTest {
         request.setZipCode("");
 
         try {
-            userAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, request);
+            userAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, request);
             Assertions.fail("Expected InvalidRequestDataException not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Zip code must be included in create user address request", ex.getMessage());
@@ -580,7 +551,7 @@ public class UserAddressServiceTest {
         request.setCountry(null);
 
         try {
-            userAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, request);
+            userAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, request);
             Assertions.fail("Expected InvalidRequestDataException not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Country must be included in create user address request", ex.getMessage());
@@ -598,7 +569,7 @@ public class UserAddressServiceTest {
         request.setCountry("");
 
         try {
-            userAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, request);
+            userAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, request);
             Assertions.fail("Expected InvalidRequestDataException not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Country must be included in create user address request", ex.getMessage());
@@ -633,7 +604,7 @@ public class UserAddressServiceTest {
             );
 
         try {
-            userAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, request);
+            userAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, request);
             Assertions.fail("Expected UserNotFoundException not thrown");
         } catch (UserNotFoundException ex) {
             Assertions.assertEquals(
@@ -661,7 +632,7 @@ public class UserAddressServiceTest {
             .thenThrow(new RuntimeException("mock exception"));
 
         try {
-            userAddressService.createUserAddress(TestDataFactory.TEST_USER_ID, request);
+            userAddressService.createUserAddress(TestDataFactory.TEST_USER_UUID, request);
             Assertions.fail("Expected Exception not thrown");
         } catch (Exception ex) {
             Assertions.assertEquals(
@@ -676,12 +647,12 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testDeleteUserAddressByAddressId_ValidRequest_DeletesAddress() {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
 
         // mock the user address repository response
         Mockito.when(mockUserAddressRepository.deleteAddressById(
-            UUID.fromString(userId), UUID.fromString(addressId))
+            userId, addressId)
         ).thenReturn(1);
 
         try {
@@ -692,7 +663,7 @@ public class UserAddressServiceTest {
 
         // validate the repository call
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .deleteAddressById(UUID.fromString(userId), UUID.fromString(addressId));
+            .deleteAddressById(userId, addressId);
     }
 
     /**
@@ -701,22 +672,7 @@ public class UserAddressServiceTest {
     @Test
     public void testDeleteUserAddressByAddressId_NullUserId_ThrowsInvalidUserIdException() {
         try {
-            userAddressService.deleteUserAddressByAddressId(null, TestDataFactory.TEST_ADDRESS_ID_1);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception type thrown: " + ex.getClass().getName());
-        }
-    }
-
-    /**
-     * Test the deleteUserAddressByAddressId method throws an exception when the userId is empty.
-     */
-    @Test
-    public void testDeleteUserAddressByAddressId_EmptyUserId_ThrowsInvalidUserIdException() {
-        try {
-            userAddressService.deleteUserAddressByAddressId("", TestDataFactory.TEST_ADDRESS_ID_1);
+            userAddressService.deleteUserAddressByAddressId(null, TestDataFactory.TEST_ADDRESS_UUID_1);
             Assertions.fail("Expected InvalidUserIdException not thrown");
         } catch (InvalidUserIdException ex) {
             Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
@@ -731,22 +687,7 @@ public class UserAddressServiceTest {
     @Test
     public void testDeleteUserAddressByAddressId_NullAddressId_ThrowsInvalidRequestDataException() {
         try {
-            userAddressService.deleteUserAddressByAddressId(TestDataFactory.TEST_USER_ID, null);
-            Assertions.fail("Expected InvalidRequestDataException not thrown");
-        } catch (InvalidRequestDataException ex) {
-            Assertions.assertEquals("Invalid null or empty address id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception type thrown: " + ex.getClass().getName());
-        }
-    }
-
-    /**
-     * Test the deleteUserAddressByAddressId method throws an exception when the addressId is empty.
-     */
-    @Test
-    public void testDeleteUserAddressByAddressId_EmptyAddressId_ThrowsInvalidRequestDataException() {
-        try {
-            userAddressService.deleteUserAddressByAddressId(TestDataFactory.TEST_USER_ID, "");
+            userAddressService.deleteUserAddressByAddressId(TestDataFactory.TEST_USER_UUID, null);
             Assertions.fail("Expected InvalidRequestDataException not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Invalid null or empty address id", ex.getMessage());
@@ -761,12 +702,12 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testDeleteUserAddressByAddressId_RepositoryException_ThrowsException() {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
 
         // mock the user address repository response to throw an exception
         Mockito.when(mockUserAddressRepository.deleteAddressById(
-            UUID.fromString(userId), UUID.fromString(addressId))
+            userId, addressId)
         ).thenThrow(new RuntimeException("mock exception"));
 
         try {
@@ -781,7 +722,7 @@ public class UserAddressServiceTest {
 
         // validate the repository call
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .deleteAddressById(UUID.fromString(userId), UUID.fromString(addressId));
+            .deleteAddressById(userId, addressId);
     }
 
     /**
@@ -790,27 +731,28 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_ValidCompleteRequest_UpdatesAddress() {
-        String userId = TestDataFactory.TEST_USER_ID;
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // mock the user address repository findById call
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserAddressResponseDto response = userAddressService.updateUserAddressById(userId, addressId, request);
+            UserAddressResponseDto response =
+                userAddressService.updateUserAddressById(userId, addressId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(addressId, response.getAddressId());
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(addressId.toString(), response.getAddressId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(mockAddress.getCreatedAt(), response.getCreatedAt());
 
             // validate changed properties
@@ -830,9 +772,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .save(any());
+            .saveAndFlush(any());
 
     }
 
@@ -842,9 +784,9 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_ValidAddressTypeRequest_UpdatesAddress() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set all other properties on the request to null
@@ -856,21 +798,22 @@ public class UserAddressServiceTest {
         request.setCountry(null);
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserAddressResponseDto response = userAddressService.updateUserAddressById(userId, addressId, request);
+            UserAddressResponseDto response =
+                userAddressService.updateUserAddressById(userId, addressId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(addressId, response.getAddressId());
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(addressId.toString(), response.getAddressId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(mockAddress.getCreatedAt(), response.getCreatedAt());
 
             // validate changed properties
@@ -893,9 +836,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .save(any());
+            .saveAndFlush(any());
     }
 
     /**
@@ -904,9 +847,9 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_ValidAddressLine1Request_UpdatesAddress() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set all other properties on the request to null
@@ -918,21 +861,22 @@ public class UserAddressServiceTest {
         request.setCountry(null);
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserAddressResponseDto response = userAddressService.updateUserAddressById(userId, addressId, request);
+            UserAddressResponseDto response =
+                userAddressService.updateUserAddressById(userId, addressId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(addressId, response.getAddressId());
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(addressId.toString(), response.getAddressId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(mockAddress.getCreatedAt(), response.getCreatedAt());
 
             // validate changed properties
@@ -954,9 +898,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .save(any());
+            .saveAndFlush(any());
     }
 
     /**
@@ -965,9 +909,9 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_ValidAddressLine2Request_UpdatesAddress() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set address line 2
@@ -982,21 +926,22 @@ public class UserAddressServiceTest {
         request.setCountry(null);
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserAddressResponseDto response = userAddressService.updateUserAddressById(userId, addressId, request);
+            UserAddressResponseDto response =
+                userAddressService.updateUserAddressById(userId, addressId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(addressId, response.getAddressId());
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(addressId.toString(), response.getAddressId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(mockAddress.getCreatedAt(), response.getCreatedAt());
 
             // validate changed properties
@@ -1018,9 +963,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .save(any());
+            .saveAndFlush(any());
     }
 
     /**
@@ -1029,9 +974,9 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_ValidCityRequest_UpdatesAddress() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set all other properties on the request to null
@@ -1043,21 +988,22 @@ public class UserAddressServiceTest {
         request.setCountry(null);
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserAddressResponseDto response = userAddressService.updateUserAddressById(userId, addressId, request);
+            UserAddressResponseDto response =
+                userAddressService.updateUserAddressById(userId, addressId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(addressId, response.getAddressId());
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(addressId.toString(), response.getAddressId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(mockAddress.getCreatedAt(), response.getCreatedAt());
 
             // validate changed properties
@@ -1079,9 +1025,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .save(any());
+            .saveAndFlush(any());
     }
 
     /**
@@ -1090,9 +1036,9 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_ValidStateRequest_UpdatesAddress() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set all other properties on the request to null
@@ -1104,21 +1050,22 @@ public class UserAddressServiceTest {
         request.setCountry(null);
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserAddressResponseDto response = userAddressService.updateUserAddressById(userId, addressId, request);
+            UserAddressResponseDto response =
+                userAddressService.updateUserAddressById(userId, addressId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(addressId, response.getAddressId());
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(addressId.toString(), response.getAddressId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(mockAddress.getCreatedAt(), response.getCreatedAt());
 
             // validate changed properties
@@ -1140,9 +1087,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .save(any());
+            .saveAndFlush(any());
     }
 
     /**
@@ -1151,9 +1098,9 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_ValidZipCodeRequest_UpdatesAddress() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set all other properties on the request to null
@@ -1165,21 +1112,22 @@ public class UserAddressServiceTest {
         request.setCountry(null);
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserAddressResponseDto response = userAddressService.updateUserAddressById(userId, addressId, request);
+            UserAddressResponseDto response =
+                userAddressService.updateUserAddressById(userId, addressId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(addressId, response.getAddressId());
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(addressId.toString(), response.getAddressId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(mockAddress.getCreatedAt(), response.getCreatedAt());
 
             // validate changed properties
@@ -1201,9 +1149,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .save(any());
+            .saveAndFlush(any());
     }
 
     /**
@@ -1212,9 +1160,9 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_ValidCountryRequest_UpdatesAddress() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set all other properties on the request to null
@@ -1226,21 +1174,22 @@ public class UserAddressServiceTest {
         request.setZipCode(null);
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserAddressResponseDto response = userAddressService.updateUserAddressById(userId, addressId, request);
+            UserAddressResponseDto response =
+                userAddressService.updateUserAddressById(userId, addressId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(addressId, response.getAddressId());
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(addressId.toString(), response.getAddressId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(mockAddress.getCreatedAt(), response.getCreatedAt());
 
             // validate changed properties
@@ -1262,9 +1211,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .save(any());
+            .saveAndFlush(any());
     }
 
     /**
@@ -1272,25 +1221,25 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_EmptyAddressType_InvalidRequest() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set address type on the request to empty
         request.setAddressType("");
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            userAddressService.updateUserAddressById(userId, addressId, request);
+            userAddressService.updateUserAddressById(userId, addressId, request, null);
             Assertions.fail("Expected an InvalidRequestDataException to be thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Address type cannot be empty", ex.getMessage());
@@ -1300,9 +1249,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.never())
-            .save(any());
+            .saveAndFlush(any());
     }
 
     /**
@@ -1310,25 +1259,25 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_EmptyAddressLine1_InvalidRequest() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set address line 1 on the request to empty
         request.setAddressLine1("");
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            userAddressService.updateUserAddressById(userId, addressId, request);
+            userAddressService.updateUserAddressById(userId, addressId, request, null);
             Assertions.fail("Expected an InvalidRequestDataException to be thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Address line 1 cannot be empty", ex.getMessage());
@@ -1338,9 +1287,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.never())
-            .save(any());
+            .saveAndFlush(any());
     }
 
     /**
@@ -1348,25 +1297,25 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_EmptyCity_InvalidRequest() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set city on the request to empty
         request.setCity("");
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            userAddressService.updateUserAddressById(userId, addressId, request);
+            userAddressService.updateUserAddressById(userId, addressId, request, null);
             Assertions.fail("Expected an InvalidRequestDataException to be thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("City cannot be empty", ex.getMessage());
@@ -1376,9 +1325,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.never())
-            .save(any());
+            .saveAndFlush(any());
     }
 
     /**
@@ -1386,25 +1335,25 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_EmptyState_InvalidRequest() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set state on the request to empty
         request.setState("");
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            userAddressService.updateUserAddressById(userId, addressId, request);
+            userAddressService.updateUserAddressById(userId, addressId, request, null);
             Assertions.fail("Expected an InvalidRequestDataException to be thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("State cannot be empty", ex.getMessage());
@@ -1414,9 +1363,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.never())
-            .save(any());
+            .saveAndFlush(any());
     }
 
     /**
@@ -1424,25 +1373,25 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_EmptyZipCode_InvalidRequest() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set zip code on the request to empty
         request.setZipCode("");
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            userAddressService.updateUserAddressById(userId, addressId, request);
+            userAddressService.updateUserAddressById(userId, addressId, request, null);
             Assertions.fail("Expected an InvalidRequestDataException to be thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Zip code cannot be empty", ex.getMessage());
@@ -1452,9 +1401,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.never())
-            .save(any());
+            .saveAndFlush(any());
     }
 
     /**
@@ -1462,25 +1411,25 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_EmptyCountry_InvalidRequest() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set country on the request to empty
         request.setCountry("");
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         // mock the user address repository save call
-        Mockito.when(mockUserAddressRepository.save(any()))
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            userAddressService.updateUserAddressById(userId, addressId, request);
+            userAddressService.updateUserAddressById(userId, addressId, request, null);
             Assertions.fail("Expected an InvalidRequestDataException to be thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Country cannot be empty", ex.getMessage());
@@ -1490,9 +1439,9 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.never())
-            .save(any());
+            .saveAndFlush(any());
     }
 
     /**
@@ -1500,18 +1449,18 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_AddressNotFound_ThrowsAddressNotFoundException() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // mock the user address repo findById call returns empty optional
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.empty());
 
         try {
-            userAddressService.updateUserAddressById(userId, addressId, request);
+            userAddressService.updateUserAddressById(userId, addressId, request, null);
             Assertions.fail("Expected an AddressNotFoundException to be thrown");
         } catch (UserAddressNotFound ex) {
             Assertions.assertEquals(
@@ -1528,17 +1477,17 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_AddressDoesNotBelongToUser_ThrowsUserAddressNotFoundException() {
-        String userId = TestDataFactory.generateRandomUuid();
+        UUID userId = UUID.randomUUID();
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
         UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(TestDataFactory.TEST_USER_ID);
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         try {
-            userAddressService.updateUserAddressById(userId, addressId, request);
+            userAddressService.updateUserAddressById(userId, addressId, request, null);
             Assertions.fail("Expected an UserAddressNotFoundException to be thrown");
         } catch (UserAddressNotFound ex) {
             Assertions.assertEquals(
@@ -1554,9 +1503,9 @@ public class UserAddressServiceTest {
      */
     @Test
     public void testUpdateUserAddressById_NoChangesNeeded_DoesNotUpdateAddress() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
-        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId);
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
         Instant originalUpdatedAt = mockAddress.getUpdatedAt();
 
         // set the request to the same as the existing address
@@ -1569,17 +1518,18 @@ public class UserAddressServiceTest {
         request.setCountry(mockAddress.getCountry());
 
         // mock the user address repository findById call
-        String addressId = TestDataFactory.TEST_ADDRESS_ID_1;
-        Mockito.when(mockUserAddressRepository.findById(UUID.fromString(addressId)))
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        Mockito.when(mockUserAddressRepository.findById(addressId))
             .thenReturn(Optional.of(mockAddress));
 
         try {
-            UserAddressResponseDto response = userAddressService.updateUserAddressById(userId, addressId, request);
+            UserAddressResponseDto response =
+                userAddressService.updateUserAddressById(userId, addressId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(addressId, response.getAddressId());
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(addressId.toString(), response.getAddressId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(mockAddress.getCreatedAt(), response.getCreatedAt());
 
             // validate unchanged properties
@@ -1599,9 +1549,60 @@ public class UserAddressServiceTest {
 
         // validate the repository calls
         Mockito.verify(mockUserAddressRepository, Mockito.times(1))
-            .findById(UUID.fromString(addressId));
+            .findById(addressId);
         Mockito.verify(mockUserAddressRepository, Mockito.never())
-            .save(any());
+            .saveAndFlush(any());
+    }
+
+    /**
+     * Test the updateUserAddressById method rejects an If-Match that no longer matches the address version without
+     * writing.
+     */
+    @Test
+    public void testUpdateUserAddressById_StaleIfMatch_ThrowsPreconditionFailed() {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
+        mockAddress.setVersion(5);
+
+        Mockito.when(mockUserAddressRepository.findById(addressId))
+            .thenReturn(Optional.of(mockAddress));
+
+        Assertions.assertThrows(PreconditionFailedException.class, () ->
+            userAddressService.updateUserAddressById(userId, addressId, request, "\"4\"")
+        );
+        Assertions.assertThrows(PreconditionFailedException.class, () ->
+            userAddressService.updateUserAddressById(userId, addressId, request, "W/\"5\"")
+        );
+
+        Mockito.verify(mockUserAddressRepository, Mockito.never()).saveAndFlush(any());
+    }
+
+    /**
+     * Test the updateUserAddressById method returns the bumped version so the controller can hand out the new ETag.
+     */
+    @Test
+    public void testUpdateUserAddressById_MatchingIfMatch_ReturnsNewVersion() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UUID addressId = TestDataFactory.TEST_ADDRESS_UUID_1;
+        UserAddress mockAddress = TestDataFactory.createTestUserAddressEntity(userId.toString());
+        mockAddress.setVersion(5);
+
+        Mockito.when(mockUserAddressRepository.findById(addressId))
+            .thenReturn(Optional.of(mockAddress));
+        Mockito.when(mockUserAddressRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+            UserAddress saved = invocation.getArgument(0);
+            saved.setVersion(saved.getVersion() + 1);
+            return saved;
+        });
+
+        PatchUserAddressRequestDto request = TestDataFactory.createPatchUserAddressRequestDto();
+        UserAddressResponseDto response =
+            userAddressService.updateUserAddressById(userId, addressId, request, "\"5\"");
+
+        Assertions.assertEquals(6, response.getVersion());
+        Assertions.assertEquals(request.getCity(), response.getCity());
     }
 
 }
@@ -2,33 +2,50 @@ package kdodds.userservice.services;
 
 import kdodds.userservice.dto.requests.CreateUserRequestDto;
 import kdodds.userservice.dto.requests.PatchUserRequestDto;
+import kdodds.userservice.dto.responses.PagedUsersResponseDto;
 import kdodds.userservice.dto.responses.UserProfileResponseDto;
 import kdodds.userservice.dto.responses.UserResponseDto;
+import kdodds.userservice.dto.responses.lean.LeanUserResponseDto;
 import kdodds.userservice.entities.User;
+import kdodds.userservice.events.UserChangeType;
+import kdodds.userservice.events.UserOutbox;
 import kdodds.userservice.exceptions.models.exceptions.InvalidRequestDataException;
 import kdodds.userservice.exceptions.models.exceptions.InvalidUserIdException;
+import kdodds.userservice.exceptions.models.exceptions.PreconditionFailedException;
 import kdodds.userservice.exceptions.models.exceptions.UserConflictException;
 import kdodds.userservice.exceptions.models.exceptions.UserNotFoundException;
 import kdodds.userservice.exceptions.models.exceptions.UserProfileNotFound;
 import kdodds.userservice.repositories.UserAddressRepository;
 import kdodds.userservice.repositories.UserProfileRepository;
 import kdodds.userservice.repositories.UserRepository;
+import kdodds.userservice.repositories.UserTombstoneRepository;
+import kdodds.userservice.repositories.projections.UserEtagState;
+import kdodds.userservice.repositories.projections.UserFieldSet;
+import kdodds.userservice.repositories.projections.UserRow;
 import kdodds.userservice.utils.TestDataFactory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 
 @SpringBootTest
 public class UserServiceTest {
@@ -42,6 +59,12 @@ public class UserServiceTest {
     @Mock
     private UserAddressRepository mockUserAddressRepository;
 
+    @Mock
+    private UserTombstoneRepository mockUserTombstoneRepository;
+
+    @Mock
+    private UserOutbox mockUserOutbox;
+
     @InjectMocks
     private UserService userService;
 
@@ -54,7 +77,9 @@ public class UserServiceTest {
         Mockito.reset(
             mockUserRepository,
             mockUserProfileRepository,
-            mockUserAddressRepository
+            mockUserAddressRepository,
+            mockUserTombstoneRepository,
+            mockUserOutbox
         );
     }
 
@@ -63,18 +88,18 @@ public class UserServiceTest {
      */
     @Test
     public void testGetUserResponseDto_UserExists() throws Exception {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock user repository response
-        Mockito.when(mockUserRepository.findById(UUID.fromString(userId))).thenReturn(
-            Optional.of(TestDataFactory.createTestUserEntity(userId, true))
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(
+            Optional.of(TestDataFactory.createTestUserEntity(userId.toString(), true))
         );
 
         UserResponseDto response = userService.getUserResponseDto(userId);
 
         // validate response
         Assertions.assertNotNull(response);
-        Assertions.assertEquals(userId, response.getUserId());
+        Assertions.assertEquals(userId.toString(), response.getUserId());
         Assertions.assertEquals(TestDataFactory.TEST_USER_USERNAME, response.getUsername());
         Assertions.assertEquals(TestDataFactory.TEST_USER_EMAIL, response.getEmail());
         Assertions.assertEquals(TestDataFactory.TEST_USER_FIRST_NAME, response.getFirstName());
@@ -107,29 +132,12 @@ public class UserServiceTest {
 
     }
 
-    /**
-     * Test getUserResponse throws an InvalidUserIdException when the user id is empty.
-     */
-    @Test
-    public void testGetUserResponseDto_MissingId_ThrowsInvalidUserIdException() {
-        String userId = "";
-
-        try {
-            userService.getUserResponseDto(userId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception type thrown: " + ex.getClass().getName());
-        }
-    }
-
     /**
      * Test getUserResponse throws an InvalidUserIdException when the user id is null.
      */
     @Test
     public void testGetUserResponseDto_NullId_ThrowsInvalidUserIdException() {
-        String userId = null;
+        UUID userId = null;
 
         try {
             userService.getUserResponseDto(userId);
@@ -146,10 +154,10 @@ public class UserServiceTest {
      */
     @Test
     public void testGetUserResponseDto_RepositoryCallFails_ThrowsException() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock user repository response
-        Mockito.when(mockUserRepository.findById(UUID.fromString(userId))).thenThrow(
+        Mockito.when(mockUserRepository.findById(userId)).thenThrow(
             new RuntimeException("mock exception")
         );
 
@@ -169,10 +177,10 @@ public class UserServiceTest {
      */
     @Test
     public void testGetUserResponseDto_UserDoesNotExist_ThrowsUserNotFoundException() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock user repository response
-        Mockito.when(mockUserRepository.findById(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(
             Optional.empty()
         );
 
@@ -194,18 +202,18 @@ public class UserServiceTest {
      */
     @Test
     public void testGetUserProfileDtoByUserId_UserExists() throws Exception {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock user profile repository response
-        Mockito.when(mockUserProfileRepository.findById(UUID.fromString(userId))).thenReturn(
-            Optional.of(TestDataFactory.createTestUserProfileEntity(userId))
+        Mockito.when(mockUserProfileRepository.findById(userId)).thenReturn(
+            Optional.of(TestDataFactory.createTestUserProfileEntity(userId.toString()))
         );
 
         UserProfileResponseDto response = userService.getUserProfileDtoByUserId(userId);
 
         // validate response
         Assertions.assertNotNull(response);
-        Assertions.assertEquals(userId, response.getUserId());
+        Assertions.assertEquals(userId.toString(), response.getUserId());
         Assertions.assertEquals(TestDataFactory.TEST_USER_FIRST_NAME, response.getFirstName());
         Assertions.assertEquals(TestDataFactory.TEST_USER_LAST_NAME, response.getLastName());
         Assertions.assertEquals(TestDataFactory.TEST_USER_PHONE_NUMBER, response.getPhoneNumber());
@@ -214,29 +222,12 @@ public class UserServiceTest {
         Assertions.assertNotNull(response.getUpdatedAt());
     }
 
-    /**
-     * Test getUserProfileDtoByUserId throws an InvalidUserIdException when the user id is empty.
-     */
-    @Test
-    public void testGetUserProfileDtoByUserId_MissingId_ThrowsInvalidUserIdException() {
-        String userId = "";
-
-        try {
-            userService.getUserProfileDtoByUserId(userId);
-            Assertions.fail("Expected InvalidUserIdException not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception type thrown: " + ex.getClass().getName());
-        }
-    }
-
     /**
      * Test getUserProfileDtoByUserId throws an InvalidUserIdException when the user id is null.
      */
     @Test
     public void testGetUserProfileDtoByUserId_NullId_ThrowsInvalidUserIdException() {
-        String userId = null;
+        UUID userId = null;
 
         try {
             userService.getUserProfileDtoByUserId(userId);
@@ -253,10 +244,10 @@ public class UserServiceTest {
      */
     @Test
     public void testGetUserProfileDtoByUserId_RepositoryCallFails_ThrowsException() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock user profile repository response
-        Mockito.when(mockUserProfileRepository.findById(UUID.fromString(userId))).thenThrow(
+        Mockito.when(mockUserProfileRepository.findById(userId)).thenThrow(
             new RuntimeException("mock exception")
         );
 
@@ -276,10 +267,10 @@ public class UserServiceTest {
      */
     @Test
     public void testGetUserProfileDtoByUserId_UserProfileDoesNotExist_ThrowsUserProfileNotFoundException() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock user profile repository response
-        Mockito.when(mockUserProfileRepository.findById(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserProfileRepository.findById(userId)).thenReturn(
             Optional.empty()
         );
 
@@ -653,10 +644,11 @@ public class UserServiceTest {
      */
     @Test
     public void testDeleteUserByUserId_ValidUserId_DeletesUser() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
-        // mock the response from the repository to delete the user
-        Mockito.doNothing().when(mockUserRepository).deleteById(UUID.fromString(userId));
+        // mock the responses from the repository to find and delete the user
+        User user = TestDataFactory.createTestUserEntity(TestDataFactory.TEST_USER_ID, false);
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(Optional.of(user));
 
         try {
             userService.deleteUserByUserId(userId);
@@ -664,36 +656,39 @@ public class UserServiceTest {
             Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
         }
 
-        // validate the repository call was made
-        Mockito.verify(mockUserRepository, Mockito.times(1)).deleteById(UUID.fromString(userId));
+        // validate the repository calls were made, the deletion leaves a tombstone for the change feed
+        Mockito.verify(mockUserRepository, Mockito.times(1)).delete(user);
+        Mockito.verify(mockUserTombstoneRepository, Mockito.times(1))
+            .save(Mockito.argThat(tombstone -> userId.equals(tombstone.getUserId())));
+        Mockito.verify(mockUserOutbox, Mockito.times(1)).record(UserChangeType.USER_DELETED, userId);
     }
 
     /**
-     * Test the deleteUserByUserId method throws an exception when the user id is null.
+     * Test the deleteUserByUserId method does nothing for an unknown user id: no tombstone and no event are written.
      */
     @Test
-    public void testDeleteUserByUserId_NullUserId_ThrowsException() {
-        String userId = null;
+    public void testDeleteUserByUserId_UnknownUserId_WritesNothing() {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(Optional.empty());
 
         try {
             userService.deleteUserByUserId(userId);
-            Assertions.fail("Expected exception not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
         } catch (Exception ex) {
-            Assertions.fail("Unexpected exception type thrown: " + ex.getClass().getName());
+            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
         }
 
-        // validate the repository call was not made
-        Mockito.verify(mockUserRepository, Mockito.never()).deleteById(any());
+        Mockito.verify(mockUserRepository, Mockito.never()).delete(any(User.class));
+        Mockito.verify(mockUserTombstoneRepository, Mockito.never()).save(any());
+        Mockito.verifyNoInteractions(mockUserOutbox);
     }
 
     /**
-     * Test the deleteUserByUserId method throws an exception when the user id is empty.
+     * Test the deleteUserByUserId method throws an exception when the user id is null.
      */
     @Test
-    public void testDeleteUserByUserId_EmptyUserId_ThrowsException() {
-        String userId = "";
+    public void testDeleteUserByUserId_NullUserId_ThrowsException() {
+        UUID userId = null;
 
         try {
             userService.deleteUserByUserId(userId);
@@ -704,8 +699,9 @@ public class UserServiceTest {
             Assertions.fail("Unexpected exception type thrown: " + ex.getClass().getName());
         }
 
-        // validate the repository call was not made
-        Mockito.verify(mockUserRepository, Mockito.never()).deleteById(any());
+        // validate the repository calls were not made
+        Mockito.verify(mockUserRepository, Mockito.never()).findById(any());
+        Mockito.verify(mockUserRepository, Mockito.never()).delete(any(User.class));
     }
 
     /**
@@ -713,11 +709,10 @@ public class UserServiceTest {
      */
     @Test
     public void testDeleteUserByUserId_RepositoryCallFails_ThrowsException() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
 
         // mock the repository to throw an exception
-        Mockito.doThrow(new RuntimeException("mock exception"))
-            .when(mockUserRepository).deleteById(UUID.fromString(userId));
+        Mockito.when(mockUserRepository.findById(userId)).thenThrow(new RuntimeException("mock exception"));
 
         try {
             userService.deleteUserByUserId(userId);
@@ -729,8 +724,10 @@ public class UserServiceTest {
             );
         }
 
-        // validate the repository call was made
-        Mockito.verify(mockUserRepository, Mockito.times(1)).deleteById(UUID.fromString(userId));
+        // validate the repository call was made and no tombstone written
+        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(userId);
+        Mockito.verify(mockUserTombstoneRepository, Mockito.never()).save(any());
+        Mockito.verifyNoInteractions(mockUserOutbox);
     }
 
     /**
@@ -738,26 +735,26 @@ public class UserServiceTest {
      */
     @Test
     public void testUpdateUser_ValidCompleteRequest_UpdatesUser() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
-        User mockUser = TestDataFactory.createTestUserEntity(userId, false);
+        User mockUser = TestDataFactory.createTestUserEntity(userId.toString(), false);
         Instant originalUpdatedAt = mockUser.getUpdatedAt();
 
         // mock the user repository response
-        Mockito.when(mockUserRepository.findById(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(
             Optional.of(mockUser)
         );
 
         // mock the response from the repository to update the user
-        Mockito.when(mockUserRepository.save(any()))
+        Mockito.when(mockUserRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserResponseDto response = userService.updateUser(userId, request);
+            UserResponseDto response = userService.updateUser(userId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(TestDataFactory.TEST_USER_USERNAME, response.getUsername());
             Assertions.assertEquals(TestDataFactory.TEST_USER_EMAIL, response.getEmail());
             Assertions.assertEquals(mockUser.getCreatedAt(), response.getCreatedAt());
@@ -776,8 +773,8 @@ public class UserServiceTest {
         }
 
         // validate the repository calls were made
-        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(UUID.fromString(userId));
-        Mockito.verify(mockUserRepository, Mockito.times(1)).save(any());
+        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(userId);
+        Mockito.verify(mockUserRepository, Mockito.times(1)).saveAndFlush(any());
     }
 
     /**
@@ -786,9 +783,9 @@ public class UserServiceTest {
      */
     @Test
     public void testUpdateUser_ValidPartialRequest_UpdatesUser() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
-        User mockUser = TestDataFactory.createTestUserEntity(userId, false);
+        User mockUser = TestDataFactory.createTestUserEntity(userId.toString(), false);
         Instant originalUpdatedAt = mockUser.getUpdatedAt();
 
         // set the phone number, profile image url to null in the request
@@ -796,20 +793,20 @@ public class UserServiceTest {
         request.setProfileImageUrl(null);
 
         // mock the user repository response
-        Mockito.when(mockUserRepository.findById(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(
             Optional.of(mockUser)
         );
 
         // mock the response from the repository to update the user
-        Mockito.when(mockUserRepository.save(any()))
+        Mockito.when(mockUserRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserResponseDto response = userService.updateUser(userId, request);
+            UserResponseDto response = userService.updateUser(userId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(TestDataFactory.TEST_USER_USERNAME, response.getUsername());
             Assertions.assertEquals(TestDataFactory.TEST_USER_EMAIL, response.getEmail());
             Assertions.assertEquals(mockUser.getCreatedAt(), response.getCreatedAt());
@@ -829,8 +826,8 @@ public class UserServiceTest {
         }
 
         // validate the repository calls were made
-        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(UUID.fromString(userId));
-        Mockito.verify(mockUserRepository, Mockito.times(1)).save(any());
+        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(userId);
+        Mockito.verify(mockUserRepository, Mockito.times(1)).saveAndFlush(any());
     }
 
     /**
@@ -839,9 +836,9 @@ public class UserServiceTest {
      */
     @Test
     public void testUpdateUser_ValidPhoneNumberRequest_UpdatesUser() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
-        User mockUser = TestDataFactory.createTestUserEntity(userId, false);
+        User mockUser = TestDataFactory.createTestUserEntity(userId.toString(), false);
         Instant originalUpdatedAt = mockUser.getUpdatedAt();
 
         // set the first name, last name, and profile image url to null in the request
@@ -850,20 +847,20 @@ public class UserServiceTest {
         request.setProfileImageUrl(null);
 
         // mock the user repository response
-        Mockito.when(mockUserRepository.findById(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(
             Optional.of(mockUser)
         );
 
         // mock the response from the repository to update the user
-        Mockito.when(mockUserRepository.save(any()))
+        Mockito.when(mockUserRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserResponseDto response = userService.updateUser(userId, request);
+            UserResponseDto response = userService.updateUser(userId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(TestDataFactory.TEST_USER_USERNAME, response.getUsername());
             Assertions.assertEquals(TestDataFactory.TEST_USER_EMAIL, response.getEmail());
             Assertions.assertEquals(mockUser.getCreatedAt(), response.getCreatedAt());
@@ -883,8 +880,8 @@ public class UserServiceTest {
         }
 
         // validate the repository calls were made
-        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(UUID.fromString(userId));
-        Mockito.verify(mockUserRepository, Mockito.times(1)).save(any());
+        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(userId);
+        Mockito.verify(mockUserRepository, Mockito.times(1)).saveAndFlush(any());
     }
 
     /**
@@ -893,9 +890,9 @@ public class UserServiceTest {
      */
     @Test
     public void testUpdateUser_ValidProfileImageRequest_UpdatesUser() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
-        User mockUser = TestDataFactory.createTestUserEntity(userId, false);
+        User mockUser = TestDataFactory.createTestUserEntity(userId.toString(), false);
         Instant originalUpdatedAt = mockUser.getUpdatedAt();
 
         // set the first name, last name, and phone number to null in the request
@@ -904,20 +901,20 @@ public class UserServiceTest {
         request.setPhoneNumber(null);
 
         // mock the user repository response
-        Mockito.when(mockUserRepository.findById(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(
             Optional.of(mockUser)
         );
 
         // mock the response from the repository to update the user
-        Mockito.when(mockUserRepository.save(any()))
+        Mockito.when(mockUserRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserResponseDto response = userService.updateUser(userId, request);
+            UserResponseDto response = userService.updateUser(userId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(TestDataFactory.TEST_USER_USERNAME, response.getUsername());
             Assertions.assertEquals(TestDataFactory.TEST_USER_EMAIL, response.getEmail());
             Assertions.assertEquals(mockUser.getCreatedAt(), response.getCreatedAt());
@@ -937,8 +934,8 @@ public class UserServiceTest {
         }
 
         // validate the repository calls were made
-        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(UUID.fromString(userId));
-        Mockito.verify(mockUserRepository, Mockito.times(1)).save(any());
+        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(userId);
+        Mockito.verify(mockUserRepository, Mockito.times(1)).saveAndFlush(any());
     }
 
     /**
@@ -946,9 +943,9 @@ public class UserServiceTest {
      */
     @Test
     public void testUpdateUser_ValidEmptyProfileImageUrlRequest_UpdatesUser() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
-        User mockUser = TestDataFactory.createTestUserEntity(userId, false);
+        User mockUser = TestDataFactory.createTestUserEntity(userId.toString(), false);
         Instant originalUpdatedAt = mockUser.getUpdatedAt();
 
         // set the profile image url to an empty string in the request
@@ -960,20 +957,20 @@ public class UserServiceTest {
         request.setPhoneNumber(null);
 
         // mock the user repository response
-        Mockito.when(mockUserRepository.findById(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(
             Optional.of(mockUser)
         );
 
         // mock the response from the repository to update the user
-        Mockito.when(mockUserRepository.save(any()))
+        Mockito.when(mockUserRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserResponseDto response = userService.updateUser(userId, request);
+            UserResponseDto response = userService.updateUser(userId, request, null);
 
             // validate response
             Assertions.assertNotNull(response);
-            Assertions.assertEquals(userId, response.getUserId());
+            Assertions.assertEquals(userId.toString(), response.getUserId());
             Assertions.assertEquals(TestDataFactory.TEST_USER_USERNAME, response.getUsername());
             Assertions.assertEquals(TestDataFactory.TEST_USER_EMAIL, response.getEmail());
             Assertions.assertEquals(mockUser.getCreatedAt(), response.getCreatedAt());
@@ -993,8 +990,8 @@ public class UserServiceTest {
         }
 
         // validate the repository calls were made
-        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(UUID.fromString(userId));
-        Mockito.verify(mockUserRepository, Mockito.times(1)).save(any());
+        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(userId);
+        Mockito.verify(mockUserRepository, Mockito.times(1)).saveAndFlush(any());
     }
 
     /**
@@ -1002,9 +999,9 @@ public class UserServiceTest {
      */
     @Test
     public void testUpdateUser_InvalidEmptyFirstNameRequest_ThrowsException() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
-        User mockUser = TestDataFactory.createTestUserEntity(userId, false);
+        User mockUser = TestDataFactory.createTestUserEntity(userId.toString(), false);
         Instant originalUpdatedAt = mockUser.getUpdatedAt();
 
         // set the first name to an empty string in the request
@@ -1016,24 +1013,24 @@ public class UserServiceTest {
         request.setProfileImageUrl(null);
 
         // mock the user repository response
-        Mockito.when(mockUserRepository.findById(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(
             Optional.of(mockUser)
         );
 
         // mock the response from the repository to update the user
-        Mockito.when(mockUserRepository.save(any()))
+        Mockito.when(mockUserRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserResponseDto response = userService.updateUser(userId, request);
+            UserResponseDto response = userService.updateUser(userId, request, null);
             Assertions.fail("Expected exception not thrown");
         } catch (Exception ex) {
             Assertions.assertEquals("First name cannot be empty", ex.getMessage());
         }
 
         // validate the repository calls were made
-        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(UUID.fromString(userId));
-        Mockito.verify(mockUserRepository, Mockito.never()).save(any());
+        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(userId);
+        Mockito.verify(mockUserRepository, Mockito.never()).saveAndFlush(any());
     }
 
     /**
@@ -1041,9 +1038,9 @@ public class UserServiceTest {
      */
     @Test
     public void testUpdateUser_InvalidEmptyLastNameRequest_ThrowsException() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
-        User mockUser = TestDataFactory.createTestUserEntity(userId, false);
+        User mockUser = TestDataFactory.createTestUserEntity(userId.toString(), false);
         Instant originalUpdatedAt = mockUser.getUpdatedAt();
 
         // set the last name to an empty string in the request
@@ -1055,24 +1052,24 @@ public class UserServiceTest {
         request.setProfileImageUrl(null);
 
         // mock the user repository response
-        Mockito.when(mockUserRepository.findById(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(
             Optional.of(mockUser)
         );
 
         // mock the response from the repository to update the user
-        Mockito.when(mockUserRepository.save(any()))
+        Mockito.when(mockUserRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserResponseDto response = userService.updateUser(userId, request);
+            UserResponseDto response = userService.updateUser(userId, request, null);
             Assertions.fail("Expected exception not thrown");
         } catch (Exception ex) {
             Assertions.assertEquals("Last name cannot be empty", ex.getMessage());
         }
 
         // validate the repository calls were made
-        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(UUID.fromString(userId));
-        Mockito.verify(mockUserRepository, Mockito.never()).save(any());
+        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(userId);
+        Mockito.verify(mockUserRepository, Mockito.never()).saveAndFlush(any());
     }
 
     /**
@@ -1080,9 +1077,9 @@ public class UserServiceTest {
      */
     @Test
     public void testUpdateUser_InvalidEmptyPhoneNumberRequest_ThrowsException() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
-        User mockUser = TestDataFactory.createTestUserEntity(userId, false);
+        User mockUser = TestDataFactory.createTestUserEntity(userId.toString(), false);
         Instant originalUpdatedAt = mockUser.getUpdatedAt();
 
         // set the phone number to an empty string in the request
@@ -1094,24 +1091,24 @@ public class UserServiceTest {
         request.setProfileImageUrl(null);
 
         // mock the user repository response
-        Mockito.when(mockUserRepository.findById(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(
             Optional.of(mockUser)
         );
 
         // mock the response from the repository to update the user
-        Mockito.when(mockUserRepository.save(any()))
+        Mockito.when(mockUserRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            UserResponseDto response = userService.updateUser(userId, request);
+            UserResponseDto response = userService.updateUser(userId, request, null);
             Assertions.fail("Expected exception not thrown");
         } catch (Exception ex) {
             Assertions.assertEquals("Phone number cannot be empty", ex.getMessage());
         }
 
         // validate the repository calls were made
-        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(UUID.fromString(userId));
-        Mockito.verify(mockUserRepository, Mockito.never()).save(any());
+        Mockito.verify(mockUserRepository, Mockito.times(1)).findById(userId);
+        Mockito.verify(mockUserRepository, Mockito.never()).saveAndFlush(any());
     }
 
     /**
@@ -1119,9 +1116,9 @@ public class UserServiceTest {
      */
     @Test
     public void testUpdateUser_InvalidEmailChangeRequest_ThrowsException() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
-        User mockUser = TestDataFactory.createTestUserEntity(userId, false);
+        User mockUser = TestDataFactory.createTestUserEntity(userId.toString(), false);
         Instant originalUpdatedAt = mockUser.getUpdatedAt();
 
         // set the email to a different email in the request
@@ -1134,16 +1131,16 @@ public class UserServiceTest {
         request.setProfileImageUrl(null);
 
         // mock the user repository response
-        Mockito.when(mockUserRepository.findById(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(
             Optional.of(mockUser)
         );
 
         // mock the response from the repository to update the user
-        Mockito.when(mockUserRepository.save(any()))
+        Mockito.when(mockUserRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            userService.updateUser(userId, request);
+            userService.updateUser(userId, request, null);
             Assertions.fail("Expected exception not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Cannot change username or email", ex.getMessage());
@@ -1152,8 +1149,8 @@ public class UserServiceTest {
         }
 
         // validate the repository calls were not made
-        Mockito.verify(mockUserRepository, Mockito.never()).findById(UUID.fromString(userId));
-        Mockito.verify(mockUserRepository, Mockito.never()).save(any());
+        Mockito.verify(mockUserRepository, Mockito.never()).findById(userId);
+        Mockito.verify(mockUserRepository, Mockito.never()).saveAndFlush(any());
     }
 
     /**
@@ -1161,9 +1158,9 @@ public class UserServiceTest {
      */
     @Test
     public void testUpdateUser_InvalidUsernameChangeRequest_ThrowsException() {
-        String userId = TestDataFactory.TEST_USER_ID;
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
-        User mockUser = TestDataFactory.createTestUserEntity(userId, false);
+        User mockUser = TestDataFactory.createTestUserEntity(userId.toString(), false);
         Instant originalUpdatedAt = mockUser.getUpdatedAt();
 
         // set the username to a different username in the request
@@ -1176,16 +1173,16 @@ public class UserServiceTest {
         request.setProfileImageUrl(null);
 
         // mock the user repository response
-        Mockito.when(mockUserRepository.findById(UUID.fromString(userId))).thenReturn(
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(
             Optional.of(mockUser)
         );
 
         // mock the response from the repository to update the user
-        Mockito.when(mockUserRepository.save(any()))
+        Mockito.when(mockUserRepository.saveAndFlush(any()))
             .thenAnswer(invocation -> invocation.getArgument(0));
 
         try {
-            userService.updateUser(userId, request);
+            userService.updateUser(userId, request, null);
             Assertions.fail("Expected exception not thrown");
         } catch (InvalidRequestDataException ex) {
             Assertions.assertEquals("Cannot change username or email", ex.getMessage());
@@ -1194,22 +1191,22 @@ public class UserServiceTest {
         }
 
         // validate the repository calls were not made
-        Mockito.verify(mockUserRepository, Mockito.never()).findById(UUID.fromString(userId));
-        Mockito.verify(mockUserRepository, Mockito.never()).save(any());
+        Mockito.verify(mockUserRepository, Mockito.never()).findById(userId);
+        Mockito.verify(mockUserRepository, Mockito.never()).saveAndFlush(any());
     }
 
     /**
-     * Test that the updateUser method throws an exception with an empty userId.
+     * Test that the updateUser method throws an exception with a null userId.
      */
     @Test
-    public void testUpdateUser_InvalidEmptyUserIdRequest_ThrowsException() {
-        String userId = "";
+    public void testUpdateUser_InvalidNullUserIdRequest_ThrowsException() {
+        UUID userId = null;
         PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
         User mockUser = TestDataFactory.createTestUserEntity(TestDataFactory.TEST_USER_ID, false);
         Instant originalUpdatedAt = mockUser.getUpdatedAt();
 
         try {
-            userService.updateUser(userId, request);
+            userService.updateUser(userId, request, null);
             Assertions.fail("Expected exception not thrown");
         } catch (InvalidUserIdException ex) {
             Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
@@ -1219,32 +1216,197 @@ public class UserServiceTest {
 
         // validate the repository calls were not made
         Mockito.verify(mockUserRepository, Mockito.never()).findById(any());
-        Mockito.verify(mockUserRepository, Mockito.never()).save(any());
+        Mockito.verify(mockUserRepository, Mockito.never()).saveAndFlush(any());
     }
 
     /**
-     * Test that the updateUser method throws an exception with a null userId.
+     * Tests getUserEtag builds a stable ETag from the etag state, and that it changes when an address is removed even
+     * though no version or timestamp moved.
      */
     @Test
-    public void testUpdateUser_InvalidNullUserIdRequest_ThrowsException() {
-        String userId = null;
+    public void testGetUserEtag_ChangesWithAddressCount() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        Instant updatedAt = Instant.parse("2025-01-01T00:00:00.123456Z");
+
+        Mockito.when(mockUserRepository.findEtagStateById(userId)).thenReturn(
+            Optional.of(new UserEtagState(3L, 2L, updatedAt, 2))
+        );
+        Optional<String> etag = userService.getUserEtag(userId);
+        Assertions.assertEquals(etag, userService.getUserEtag(userId));
+
+        Mockito.when(mockUserRepository.findEtagStateById(userId)).thenReturn(
+            Optional.of(new UserEtagState(3L, 2L, updatedAt, 1))
+        );
+        Optional<String> etagAfterDelete = userService.getUserEtag(userId);
+
+        Assertions.assertTrue(etag.isPresent());
+        Assertions.assertTrue(etag.get().startsWith("\"") && etag.get().endsWith("\""));
+        Assertions.assertNotEquals(etag.get(), etagAfterDelete.get());
+    }
+
+    /**
+     * Tests the ETag lookups return empty when the user (or its profile) does not exist.
+     */
+    @Test
+    public void testGetUserEtag_UserNotFound_ReturnsEmpty() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+
+        Mockito.when(mockUserRepository.findEtagStateById(userId)).thenReturn(Optional.empty());
+
+        Assertions.assertTrue(userService.getUserEtag(userId).isEmpty());
+        Assertions.assertTrue(userService.getUserProfileEtag(userId).isEmpty());
+
+        Mockito.when(mockUserRepository.findEtagStateById(userId)).thenReturn(
+            Optional.of(new UserEtagState(0L, null, null, 0))
+        );
+
+        Assertions.assertTrue(userService.getUserProfileEtag(userId).isEmpty());
+    }
+
+    /**
+     * Test the updateUser method rejects an If-Match that no longer matches the user's version without writing.
+     */
+    @Test
+    public void testUpdateUser_StaleIfMatch_ThrowsPreconditionFailed() {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
         PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
-        User mockUser = TestDataFactory.createTestUserEntity(TestDataFactory.TEST_USER_ID, false);
-        Instant originalUpdatedAt = mockUser.getUpdatedAt();
+        User mockUser = TestDataFactory.createTestUserEntity(userId.toString(), false);
+        mockUser.setVersion(3);
 
-        try {
-            userService.updateUser(userId, request);
-            Assertions.fail("Expected exception not thrown");
-        } catch (InvalidUserIdException ex) {
-            Assertions.assertEquals("Invalid null or empty user id", ex.getMessage());
-        } catch (Exception ex) {
-            Assertions.fail("Unexpected exception thrown: " + ex.getMessage());
-        }
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(Optional.of(mockUser));
 
-        // validate the repository calls were not made
-        Mockito.verify(mockUserRepository, Mockito.never()).findById(any());
-        Mockito.verify(mockUserRepository, Mockito.never()).save(any());
+        Assertions.assertThrows(PreconditionFailedException.class, () ->
+            userService.updateUser(userId, request, "\"2.0.0.1\"")
+        );
+
+        Mockito.verify(mockUserRepository, Mockito.never()).saveAndFlush(any());
     }
 
-}
+    /**
+     * Test the updateUser method applies the update when the If-Match carries the user's current version, and returns
+     * the ETag of the version the flush wrote.
+     */
+    @Test
+    public void testUpdateUser_MatchingIfMatch_UpdatesUser() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        User mockUser = TestDataFactory.createTestUserEntity(userId.toString(), false);
+        mockUser.setVersion(3);
+
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(Optional.of(mockUser));
+        Mockito.when(mockUserRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+            User saved = invocation.getArgument(0);
+            saved.setVersion(saved.getVersion() + 1);
+            return saved;
+        });
+
+        PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
+        UserResponseDto response = userService.updateUser(userId, request, "\"7.1\", \"3.1.0.1\"");
+
+        Assertions.assertEquals(request.getFirstName(), response.getFirstName());
+        Assertions.assertTrue(response.getEtag().startsWith("\"4."));
+        Mockito.verify(mockUserRepository, Mockito.times(1)).saveAndFlush(any());
+    }
+
+    /**
+     * Test the updateUser method turns a lost versioned UPDATE into a 412 for conditional requests and a 409 for
+     * unconditional ones.
+     */
+    @Test
+    public void testUpdateUser_ConcurrentWrite_ThrowsPreconditionFailedOrConflict() {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        PatchUserRequestDto request = TestDataFactory.createPatchUserRequestDto();
 
+        Mockito.when(mockUserRepository.findById(userId)).thenAnswer(invocation ->
+            Optional.of(TestDataFactory.createTestUserEntity(userId.toString(), false))
+        );
+        Mockito.when(mockUserRepository.saveAndFlush(any())).thenThrow(
+            new ObjectOptimisticLockingFailureException(User.class, userId)
+        );
+
+        Assertions.assertThrows(PreconditionFailedException.class, () ->
+            userService.updateUser(userId, request, "\"0.0.0.1\"")
+        );
+        Assertions.assertThrows(UserConflictException.class, () ->
+            userService.updateUser(userId, request, null)
+        );
+    }
+
+    /**
+     * Test a sparse page reads user rows instead of entities and loads the addresses of the whole page in one query.
+     */
+    @Test
+    public void testGetAllUsersPaginated_SparseFieldsWithAddresses_BatchesAddresses() {
+        UUID userId = UUID.fromString(TestDataFactory.TEST_USER_ID);
+        UserFieldSet fields = UserFieldSet.parse("username,addresses");
+        UserRow row = new UserRow(userId, TestDataFactory.TEST_USER_USERNAME, null, null, null, null, null, null, null);
+
+        Mockito.when(mockUserRepository.findUserRows(any(), eq(fields), any()))
+            .thenReturn(new PageImpl<>(List.of(row), PageRequest.of(0, 10), 1));
+        Mockito.when(mockUserAddressRepository.findByUserIdIn(List.of(userId)))
+            .thenReturn(List.of(TestDataFactory.createTestUserAddressEntity(TestDataFactory.TEST_USER_ID)));
+
+        PagedUsersResponseDto response = userService.getAllUsersPaginated(0, 10, null, fields);
+
+        UserResponseDto user = response.getUsers().get(0);
+        Assertions.assertEquals(TestDataFactory.TEST_USER_USERNAME, user.getUsername());
+        Assertions.assertNull(user.getEmail());
+        Assertions.assertNull(user.getFirstName());
+        Assertions.assertEquals(1, user.getAddresses().size());
+        Assertions.assertEquals(1, response.getPage().getTotalElements());
+
+        Mockito.verify(mockUserAddressRepository, Mockito.times(1)).findByUserIdIn(any());
+        Mockito.verify(mockUserRepository, Mockito.never()).findAll(ArgumentMatchers.<Specification<User>>any(),
+            any(Pageable.class));
+    }
+
+    /**
+     * Test a sparse single user read without addresses never touches the address repository, and a missing user is
+     * still reported as not found.
+     */
+    @Test
+    public void testGetUserResponseDto_SparseFields_SkipsAddresses() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+        UserFieldSet fields = UserFieldSet.parse("first_name");
+        UserRow row = new UserRow(userId, null, null, "Tom", null, null, null, null, null);
+
+        Mockito.when(mockUserRepository.findUserRowById(userId, fields)).thenReturn(Optional.of(row));
+
+        UserResponseDto response = userService.getUserResponseDto(userId, fields);
+
+        Assertions.assertEquals("Tom", response.getFirstName());
+        Assertions.assertNull(response.getAddresses());
+        Mockito.verifyNoInteractions(mockUserAddressRepository);
+
+        Mockito.when(mockUserRepository.findUserRowById(userId, fields)).thenReturn(Optional.empty());
+        Assertions.assertThrows(UserNotFoundException.class, () -> userService.getUserResponseDto(userId, fields));
+    }
+
+    /**
+     * Test the plain record read maps the entity directly, sharing the user id string with its addresses, and reports
+     * a missing user as not found.
+     */
+    @Test
+    public void testGetLeanUserResponseDto_UserExists_MapsEntity() throws Exception {
+        UUID userId = TestDataFactory.TEST_USER_UUID;
+
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(
+            Optional.of(TestDataFactory.createTestUserEntity(userId.toString(), true))
+        );
+
+        LeanUserResponseDto response = userService.getLeanUserResponseDto(userId, UserFieldSet.ALL);
+
+        Assertions.assertEquals(userId.toString(), response.userId());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_USERNAME, response.username());
+        Assertions.assertEquals(TestDataFactory.TEST_USER_FIRST_NAME, response.firstName());
+        Assertions.assertEquals(1, response.addresses().size());
+        Assertions.assertEquals(TestDataFactory.TEST_ADDRESS_ID_1, response.addresses().getFirst().addressId());
+        Assertions.assertSame(response.userId(), response.addresses().getFirst().userId());
+
+        Mockito.when(mockUserRepository.findById(userId)).thenReturn(Optional.empty());
+        Assertions.assertThrows(
+            UserNotFoundException.class,
+            () -> userService.getLeanUserResponseDto(userId, UserFieldSet.ALL)
+        );
+    }
+
+}
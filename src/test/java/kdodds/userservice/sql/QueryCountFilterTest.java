@@ -0,0 +1,181 @@
+package kdodds.userservice.sql;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import kdodds.userservice.entities.User;
+import kdodds.userservice.entities.UserAddress;
+import kdodds.userservice.entities.UserProfile;
+import kdodds.userservice.repositories.UserRepository;
+import kdodds.userservice.utils.QueryBudget;
+import kdodds.userservice.utils.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opentest4j.AssertionFailedError;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the statements of real requests against the in-memory database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class QueryCountFilterTest {
+
+    private static final int USERS = 6;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private UUID userId;
+
+    /**
+     * Setup for each test.
+     */
+    @BeforeEach
+    public void setup() {
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setUsername(TestDataFactory.TEST_USER_USERNAME + i);
+            user.setEmail(i + TestDataFactory.TEST_USER_EMAIL);
+            user.setPasswordHash(TestDataFactory.TEST_USER_PASSWORD);
+            user.setStatus("ACTIVE");
+            user.setCreatedAt(Instant.now());
+            user.setUpdatedAt(Instant.now());
+
+            UserProfile profile = new UserProfile();
+            profile.setFirstName(TestDataFactory.TEST_USER_FIRST_NAME);
+            profile.setLastName(TestDataFactory.TEST_USER_LAST_NAME);
+            profile.setCreatedAt(Instant.now());
+            profile.setUpdatedAt(Instant.now());
+            user.setUserProfile(profile);
+
+            UserAddress address = new UserAddress();
+            address.setAddressLine1(TestDataFactory.TEST_USER_ADDRESS_LINE_1);
+            address.setCity(TestDataFactory.TEST_USER_CITY);
+            address.setCountry(TestDataFactory.TEST_USER_COUNTRY);
+            address.setCreatedAt(Instant.now());
+            address.setUpdatedAt(Instant.now());
+            user.addAddress(address);
+
+            userId = userRepository.save(user).getId();
+        }
+    }
+
+    /**
+     * Clean up after each test.
+     */
+    @AfterEach
+    public void teardown() {
+        userRepository.deleteAll();
+    }
+
+    /**
+     * Test a single user read stays within its budget and reports its counts in the response headers.
+     */
+    @Test
+    public void testGetUser_WithinBudget_SendsCountHeaders() throws Exception {
+        QueryBudget.assertAtMost(3, () -> mockMvc.perform(get("/v1/users/{userId}", userId).accept(MediaTypes.HAL_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(QueryCountFilter.STATEMENT_COUNT_HEADER))
+            .andExpect(header().exists(QueryCountFilter.ENTITY_COUNT_HEADER))
+            .andExpect(QueryBudget.atMost(3)));
+    }
+
+    /**
+     * Test the budget fails a call that runs more statements than declared, and names the statements.
+     */
+    @Test
+    public void testAssertAtMost_OverBudget_Fails() {
+        AssertionFailedError error = Assertions.assertThrows(
+            AssertionFailedError.class,
+            () -> QueryBudget.assertAtMost(1, () -> {
+                userRepository.count();
+                return userRepository.count();
+            })
+        );
+
+        Assertions.assertTrue(error.getMessage().contains("Expected at most 1 statements but 2 ran"));
+        Assertions.assertTrue(error.getMessage().contains("2x select count"));
+    }
+
+    /**
+     * Test a request that loads each user's addresses one statement at a time is reported as an N+1, and the HAL
+     * listing, which reads each page in batches, is not.
+     */
+    @Test
+    public void testListUsers_RepeatedStatement_CountsLikelyNplusOne() throws Exception {
+        mockMvc.perform(get("/test/users/address-counts"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(QueryCountFilter.STATEMENT_COUNT_HEADER));
+        mockMvc.perform(get("/v1/users").accept(MediaTypes.HAL_JSON))
+            .andExpect(status().isOk());
+
+        Assertions.assertEquals(1, meterRegistry.get("userservice.request.repeated.statements")
+            .tag("handler", "AddressCountController.getAddressCounts")
+            .counter()
+            .count());
+        Assertions.assertTrue(meterRegistry.get("userservice.request.statements")
+            .tag("handler", "AddressCountController.getAddressCounts")
+            .summary()
+            .max() > USERS);
+        Assertions.assertEquals(0, meterRegistry.get("userservice.request.repeated.statements")
+            .tag("handler", "UserController.getAllUsersPaginated")
+            .counter()
+            .count());
+    }
+
+    /**
+     * Registers a handler with a deliberate N+1.
+     */
+    @TestConfiguration
+    static class NplusOneConfig {
+
+        @Bean
+        AddressCountController addressCountController(UserRepository userRepository) {
+            return new AddressCountController(userRepository);
+        }
+
+    }
+
+    /**
+     * Counts each user's addresses through the lazy collection, one statement per user.
+     */
+    @RestController
+    static class AddressCountController {
+
+        private final UserRepository userRepository;
+
+        AddressCountController(UserRepository userRepository) {
+            this.userRepository = userRepository;
+        }
+
+        @GetMapping("/test/users/address-counts")
+        List<Integer> getAddressCounts() {
+            return userRepository.findAll().stream().map(user -> user.getAddresses().size()).toList();
+        }
+
+    }
+
+}
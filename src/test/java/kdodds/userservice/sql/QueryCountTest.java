@@ -0,0 +1,54 @@
+package kdodds.userservice.sql;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+public class QueryCountTest {
+
+    /**
+     * Test counts reach the enclosing scope and the enclosing scope becomes current again on close.
+     */
+    @Test
+    public void testOpenAndClose_Nested_CountsIntoParent() {
+        QueryCount outer = QueryCounter.open();
+        QueryCount inner = QueryCounter.open();
+        try {
+            Assertions.assertSame(inner, QueryCounter.current());
+            inner.statement("select 1");
+            inner.entity();
+        } finally {
+            QueryCounter.close(inner);
+        }
+
+        Assertions.assertSame(outer, QueryCounter.current());
+        outer.statement("select 2");
+        QueryCounter.close(outer);
+
+        Assertions.assertNull(QueryCounter.current());
+        Assertions.assertEquals(1, inner.getStatementCount());
+        Assertions.assertEquals(2, outer.getStatementCount());
+        Assertions.assertEquals(1, outer.getEntityCount());
+    }
+
+    /**
+     * Test the most repeated statement is found among the distinct statements.
+     */
+    @Test
+    public void testGetMostRepeated_ReturnsStatementWithHighestCount() {
+        QueryCount count = QueryCounter.open();
+        QueryCounter.close(count);
+        Assertions.assertNull(count.getMostRepeated());
+
+        count.statement("select * from users");
+        for (int i = 0; i < 3; i++) {
+            count.statement("select * from user_addresses where user_id = ?");
+        }
+
+        Assertions.assertEquals(2, count.getStatements().size());
+        Assertions.assertEquals("select * from user_addresses where user_id = ?", count.getMostRepeated().getKey());
+        Assertions.assertEquals(3, count.getMostRepeated().getValue());
+    }
+
+}
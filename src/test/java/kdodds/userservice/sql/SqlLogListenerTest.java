@@ -0,0 +1,142 @@
+package kdodds.userservice.sql;
+
+import kdodds.userservice.config.SqlLogProperties;
+import kdodds.userservice.repositories.UserRepository;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Runs with a zero threshold, so every statement counts as slow and is logged, and with parameter logging on.
+ */
+@SpringBootTest(properties = {
+    "user-service.sql-log.slow-threshold=0ms",
+    "user-service.sql-log.log-parameters=true",
+    "user-service.sql-log.max-parameter-length=5"
+})
+@ExtendWith(OutputCaptureExtension.class)
+public class SqlLogListenerTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SqlLogListener sqlLogListener;
+
+    @Autowired
+    private SqlLogEndpoint sqlLogEndpoint;
+
+    /**
+     * Test that a statement is logged with the repository method that issued it.
+     */
+    @Test
+    public void testAfterQuery_SlowStatement_LogsRepositoryMethod(CapturedOutput output) {
+        long slowStatements = sqlLogListener.getSlowStatements();
+
+        userRepository.findById(UUID.randomUUID());
+
+        Assertions.assertTrue(sqlLogListener.getSlowStatements() > slowStatements);
+        Assertions.assertTrue(output.getOut().contains("Slow query took"));
+        Assertions.assertTrue(output.getOut().contains("in UserRepository.findById: select"));
+    }
+
+    /**
+     * Test that statements are rendered with their parameters in order, nulls and truncated values, and the values of
+     * sensitive columns masked.
+     */
+    @Test
+    public void testDescribe_RendersParameters() throws Exception {
+        QueryInfo queryInfo = new QueryInfo(
+            "select * from users u where u.id = ? and username = ? and email = ? and lower(u.email) like lower(?)"
+        );
+        queryInfo.getParametersList().add(List.of(
+            setString(2, "abcdefgh"),
+            setString(1, "id"),
+            new ParameterSetOperation(
+                PreparedStatement.class.getMethod("setNull", int.class, int.class),
+                new Object[] {3, Types.VARCHAR}
+            ),
+            setString(4, "%frodo%")
+        ));
+
+        Assertions.assertEquals(
+            "select * from users u where u.id = ? and username = ? and email = ? and lower(u.email) like lower(?)"
+                + " [id, abcde..., null, ***]",
+            sqlLogListener.describe(List.of(queryInfo))
+        );
+    }
+
+    /**
+     * Test that with the default settings every parameter value is masked.
+     */
+    @Test
+    public void testDescribe_DefaultSettings_MasksParameters() throws Exception {
+        SqlLogListener defaultListener = new SqlLogListener(
+            new SqlLogProperties(), Mockito.mock(RepositoryMethodTracker.class)
+        );
+        QueryInfo queryInfo = new QueryInfo("select * from users where id = ? and username = ?");
+        queryInfo.getParametersList().add(List.of(setString(1, "id"), setString(2, "frodo")));
+
+        Assertions.assertEquals(
+            "select * from users where id = ? and username = ? [***, ***]",
+            defaultListener.describe(List.of(queryInfo))
+        );
+    }
+
+    /**
+     * Test that placeholders are attributed to the columns they are bound to, in inserts, updates and in lists.
+     */
+    @Test
+    public void testParameterColumns_NamesBoundColumns() {
+        Assertions.assertEquals(
+            List.of("email", "password_hash", "username", "email", "password_hash", "username"),
+            SqlLogListener.parameterColumns(
+                "insert into users (email,password_hash,username) values (?,?,?),(?,?,?)"
+            )
+        );
+        Assertions.assertEquals(
+            List.of("email", "version", "id", "id", "version"),
+            SqlLogListener.parameterColumns(
+                "update users set email=?,version=? where id in (?, ?) and version=? and status <> 'a=?'"
+            )
+        );
+    }
+
+    /**
+     * Test that the endpoint changes the sample rate and rejects values outside 0 to 1.
+     */
+    @Test
+    public void testEndpoint_Sample_ChangesSampleRate() {
+        try {
+            Assertions.assertEquals(0.5, sqlLogEndpoint.sample(0.5).sampleRate());
+            Assertions.assertEquals(0.5, sqlLogListener.getSampleRate());
+            Assertions.assertEquals(0, sqlLogEndpoint.state().slowThresholdMillis());
+
+            Assertions.assertThrows(InvalidEndpointRequestException.class, () -> sqlLogEndpoint.sample(1.5));
+            Assertions.assertEquals(0.5, sqlLogListener.getSampleRate());
+        } finally {
+            sqlLogListener.setSampleRate(0);
+        }
+    }
+
+    private static ParameterSetOperation setString(int index, String value) throws NoSuchMethodException {
+        return new ParameterSetOperation(
+            PreparedStatement.class.getMethod("setString", int.class, String.class),
+            new Object[] {index, value}
+        );
+    }
+
+}
@@ -0,0 +1,82 @@
+package kdodds.userservice.utils;
+
+import kdodds.userservice.sql.QueryCount;
+import kdodds.userservice.sql.QueryCountFilter;
+import kdodds.userservice.sql.QueryCounter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.function.ThrowingSupplier;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Holds tests to a query budget. Wrap a service call or a MockMvc request in {@link #assertAtMost(int,
+ * ThrowingSupplier)} to fail the test when it runs more statements than declared, listing every statement it ran:
+ *
+ * <pre>
+ * QueryBudget.assertAtMost(2, () -&gt; mockMvc.perform(get("/v1/users/{userId}", userId)));
+ * </pre>
+ *
+ * <p>The count covers statements run on the calling thread through the application data source.
+ */
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    /**
+     * Runs a call and fails if it ran more statements than the budget allows.
+     *
+     * @param maxStatements The budget.
+     * @param call The code under test.
+     * @param <T> Result type.
+     * @return The call's result.
+     */
+    public static <T> T assertAtMost(int maxStatements, ThrowingSupplier<T> call) {
+        QueryCount count = QueryCounter.open();
+        T result;
+        try {
+            result = call.get();
+        } catch (Throwable ex) {
+            return Assertions.fail("Call under a query budget failed", ex);
+        } finally {
+            QueryCounter.close(count);
+        }
+
+        if (count.getStatementCount() > maxStatements) {
+            Assertions.fail(String.format(
+                "Expected at most %d statements but %d ran:%n%s",
+                maxStatements,
+                count.getStatementCount(),
+                describe(count.getStatements())
+            ));
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks the statement count header of a MockMvc response against a budget.
+     *
+     * @param maxStatements The budget.
+     * @return ResultMatcher
+     */
+    public static ResultMatcher atMost(int maxStatements) {
+        return result -> {
+            String header = result.getResponse().getHeader(QueryCountFilter.STATEMENT_COUNT_HEADER);
+            Assertions.assertNotNull(header, "Response has no " + QueryCountFilter.STATEMENT_COUNT_HEADER + " header");
+            Assertions.assertTrue(
+                Integer.parseInt(header) <= maxStatements,
+                String.format("Expected at most %d statements but %s ran", maxStatements, header)
+            );
+        };
+    }
+
+    private static String describe(Map<String, Integer> statements) {
+        return statements.entrySet().stream()
+            .map(entry -> String.format("  %dx %s", entry.getValue(), entry.getKey()))
+            .collect(Collectors.joining(System.lineSeparator()));
+    }
+
+}
@@ -0,0 +1,140 @@
+package kdodds.userservice.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.jupiter.api.Assertions;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.sql.DataSource;
+
+/**
+ * Captures the statements a call issues, with their bind parameters, and checks the Postgres plan of each one. Every
+ * statement is replayed as EXPLAIN (FORMAT JSON) with the same parameters, so the plan is the one the service gets
+ * for that call. Register an instance as a bean to have it attached to the data source.
+ */
+public class QueryPlans implements QueryExecutionListener {
+
+    // tables that hold a row per user or more, scanning one in full is never cheap
+    private static final Set<String> LARGE_TABLES = Set.of("users", "user_profiles", "user_addresses");
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final ThreadLocal<Map<String, List<ParameterSetOperation>>> CAPTURED = new ThreadLocal<>();
+
+    /**
+     * A statement and the parameters it ran with.
+     *
+     * @param sql The statement.
+     * @param parameters The parameter setter calls, replayed on the EXPLAIN statement.
+     */
+    public record CapturedStatement(String sql, List<ParameterSetOperation> parameters) {
+    }
+
+    /**
+     * Runs a call and returns the distinct statements it issued on this thread, the first parameters of each.
+     *
+     * @param call The call.
+     * @return The statements in the order they first ran.
+     */
+    public static List<CapturedStatement> capture(Runnable call) {
+        Map<String, List<ParameterSetOperation>> captured = new LinkedHashMap<>();
+        CAPTURED.set(captured);
+        try {
+            call.run();
+        } finally {
+            CAPTURED.remove();
+        }
+
+        List<CapturedStatement> statements = new ArrayList<>();
+        captured.forEach((sql, parameters) -> statements.add(new CapturedStatement(sql, parameters)));
+        return statements;
+    }
+
+    /**
+     * Explains a statement and asserts its plan reads no large table in full (unless allowed) and that no plan node
+     * expects more rows than the bound, a sign the planner expects to read far more than the call needs.
+     *
+     * @param dataSource Postgres data source.
+     * @param description What the call does, for the failure message.
+     * @param statement The statement.
+     * @param seqScanAllowed Whether a sequential scan of a large table is expected, e.g. an unfiltered count.
+     * @param maxRows Largest row estimate allowed for any plan node.
+     * @throws Exception If the statement could not be explained.
+     */
+    public static void assertPlan(
+        DataSource dataSource,
+        String description,
+        CapturedStatement statement,
+        boolean seqScanAllowed,
+        long maxRows
+    ) throws Exception {
+        JsonNode plan = explain(dataSource, statement);
+        List<JsonNode> nodes = new ArrayList<>();
+        collect(plan.path(0).path("Plan"), nodes);
+        String context = String.format("%s%n%s%n%s", description, statement.sql(), plan.toPrettyString());
+
+        for (JsonNode node : nodes) {
+            if (!seqScanAllowed) {
+                Assertions.assertFalse(
+                    "Seq Scan".equals(node.path("Node Type").asText())
+                        && LARGE_TABLES.contains(node.path("Relation Name").asText()),
+                    () -> "Sequential scan of " + node.path("Relation Name").asText() + " in " + context
+                );
+            }
+            Assertions.assertTrue(
+                node.path("Plan Rows").asLong() <= maxRows,
+                () -> node.path("Node Type").asText() + " expects " + node.path("Plan Rows").asLong()
+                    + " rows, more than " + maxRows + " in " + context
+            );
+        }
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Map<String, List<ParameterSetOperation>> captured = CAPTURED.get();
+        if (captured == null) {
+            return;
+        }
+
+        for (QueryInfo queryInfo : queryInfoList) {
+            List<List<ParameterSetOperation>> parametersList = queryInfo.getParametersList();
+            captured.putIfAbsent(queryInfo.getQuery(), parametersList.isEmpty() ? List.of() : parametersList.get(0));
+        }
+    }
+
+    private static JsonNode explain(DataSource dataSource, CapturedStatement statement) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + statement.sql())) {
+            for (ParameterSetOperation parameter : statement.parameters()) {
+                parameter.getMethod().invoke(explain, parameter.getArgs());
+            }
+            try (ResultSet resultSet = explain.executeQuery()) {
+                resultSet.next();
+                return OBJECT_MAPPER.readTree(resultSet.getString(1));
+            }
+        }
+    }
+
+    private static void collect(JsonNode node, List<JsonNode> nodes) {
+        nodes.add(node);
+        for (JsonNode child : node.path("Plans")) {
+            collect(child, nodes);
+        }
+    }
+
+}
@@ -24,6 +24,8 @@ public class TestDataFactory {
 
     public static final String TEST_USER_ID = "937758e0-abe0-4dd4-827d-b868169bc160";
 
+    public static final UUID TEST_USER_UUID = UUID.fromString(TEST_USER_ID);
+
     public static final String TEST_USER_EMAIL = "somewhere@someplace.com";
 
     public static final String TEST_USER_USERNAME = "magicalwizardman4848";
@@ -52,6 +54,8 @@ public class TestDataFactory {
 
     public static final String TEST_ADDRESS_ID_1 = "12345678-1234-1234-1234-123456789012";
 
+    public static final UUID TEST_ADDRESS_UUID_1 = UUID.fromString(TEST_ADDRESS_ID_1);
+
     /**
      * Generates a random UUID.
      *
@@ -0,0 +1,2 @@
+-- the schema of the test profile is created by Hibernate, the rows the migrations insert are added here
+INSERT INTO user_outbox_lock (name) VALUES ('user-outbox-dispatcher');